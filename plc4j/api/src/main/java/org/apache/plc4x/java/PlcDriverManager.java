@@ -21,6 +21,7 @@ package org.apache.plc4x.java;
 import org.apache.plc4x.java.api.PlcConnection;
 import org.apache.plc4x.java.api.authentication.PlcAuthentication;
 import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
+import org.apache.plc4x.java.api.model.PlcField;
 import org.apache.plc4x.java.spi.PlcDriver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,6 +31,7 @@ import java.net.URISyntaxException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
 
 public class PlcDriverManager {
 
@@ -89,6 +91,71 @@ public class PlcDriverManager {
         return connection;
     }
 
+    /**
+     * Connects to a PLC using the given plc connection string without blocking till the connection is established.
+     *
+     * @param url plc connection string.
+     * @return CompletableFuture that is completed with the connected PlcConnection or failed with a
+     * {@link PlcConnectionException} if the connection attempt failed.
+     */
+    public CompletableFuture<PlcConnection> getConnectionAsync(String url) {
+        try {
+            PlcDriver driver = getDriver(url);
+            return connectAsync(driver.connect(url));
+        } catch (PlcConnectionException e) {
+            return failedFuture(e);
+        }
+    }
+
+    /**
+     * Connects to a PLC using the given plc connection string using given authentication credentials without
+     * blocking till the connection is established.
+     *
+     * @param url            plc connection string.
+     * @param authentication authentication credentials.
+     * @return CompletableFuture that is completed with the connected PlcConnection or failed with a
+     * {@link PlcConnectionException} if the connection attempt failed.
+     */
+    public CompletableFuture<PlcConnection> getConnectionAsync(String url, PlcAuthentication authentication) {
+        try {
+            PlcDriver driver = getDriver(url);
+            return connectAsync(driver.connect(url, authentication));
+        } catch (PlcConnectionException e) {
+            return failedFuture(e);
+        }
+    }
+
+    /**
+     * Parses a field query with the driver of the given plc connection string without connecting to the PLC.
+     *
+     * @param url        plc connection string.
+     * @param fieldQuery field query as used in requests of the connection.
+     * @return the parsed field.
+     * @throws PlcConnectionException if there is no driver for the connection string.
+     * @see PlcDriver#prepareField(String)
+     */
+    public PlcField prepareField(String url, String fieldQuery) throws PlcConnectionException {
+        return getDriver(url).prepareField(fieldQuery);
+    }
+
+    private static CompletableFuture<PlcConnection> connectAsync(PlcConnection connection) {
+        return connection.connectAsync().thenApply(ignore -> connection);
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(Throwable throwable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(throwable);
+        return future;
+    }
+
+    /**
+     * @param protocolCode protocol code of the driver.
+     * @return the registered driver for the given protocol code or {@code null} if there is none.
+     */
+    protected PlcDriver getDriverForProtocol(String protocolCode) {
+        return driverMap.get(protocolCode);
+    }
+
     private PlcDriver getDriver(String url) throws PlcConnectionException {
         try {
             URI connectionUri = new URI(url);
@@ -44,6 +44,23 @@ public interface PlcConnection extends AutoCloseable {
      */
     void connect() throws PlcConnectionException;
 
+    /**
+     * Establishes the connection to the remote PLC without blocking the caller.
+     * Connections not supporting this establish the connection synchronously.
+     * @return CompletableFuture that is completed when the connection is established or failed with a
+     * {@link PlcConnectionException} if the connection attempt failed.
+     */
+    default CompletableFuture<Void> connectAsync() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            connect();
+            future.complete(null);
+        } catch (PlcConnectionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
     /**
      * Indicates if the connection is established to a remote PLC.
      * @return {@code true} if connected, {@code false} otherwise
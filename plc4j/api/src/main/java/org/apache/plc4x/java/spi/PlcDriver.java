@@ -21,6 +21,9 @@ package org.apache.plc4x.java.spi;
 import org.apache.plc4x.java.api.PlcConnection;
 import org.apache.plc4x.java.api.authentication.PlcAuthentication;
 import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
+import org.apache.plc4x.java.api.exceptions.PlcInvalidFieldException;
+import org.apache.plc4x.java.api.exceptions.PlcUnsupportedOperationException;
+import org.apache.plc4x.java.api.model.PlcField;
 
 /**
  * General interface defining the minimal methods required for adding a new type of driver to the PLC4J system.
@@ -58,4 +61,27 @@ public interface PlcDriver {
      */
     PlcConnection connect(String url, PlcAuthentication authentication) throws PlcConnectionException;
 
+    /**
+     * Extracts the part of the given plc connection string which identifies the physical connection.
+     * Connection strings with equal keys (e.g. only differing in their options) can share a pooled connection.
+     * @param url plc connection string.
+     * @return the poolable part of the connection string, by default the complete connection string.
+     * @throws PlcConnectionException if the connection string is invalid.
+     */
+    default String getPoolableKey(String url) throws PlcConnectionException {
+        return url;
+    }
+
+    /**
+     * Parses a field query without connecting to a PLC, e.g. to find out its {@link PlcField#getDefaultJavaType()}
+     * while the PLC is offline.
+     * @param fieldQuery field query as used in requests of connections of this driver.
+     * @return the parsed field.
+     * @throws PlcInvalidFieldException if the field query is invalid.
+     * @throws PlcUnsupportedOperationException if the driver can't parse fields without a connection.
+     */
+    default PlcField prepareField(String fieldQuery) throws PlcInvalidFieldException {
+        throw new PlcUnsupportedOperationException("The " + getProtocolName() + " driver can't parse fields without a connection");
+    }
+
 }
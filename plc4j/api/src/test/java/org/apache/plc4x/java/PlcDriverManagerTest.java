@@ -21,6 +21,7 @@ package org.apache.plc4x.java;
 import org.apache.plc4x.java.api.authentication.PlcUsernamePasswordAuthentication;
 import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
 import org.apache.plc4x.java.api.exceptions.PlcException;
+import org.apache.plc4x.java.api.exceptions.PlcUnsupportedOperationException;
 import org.apache.plc4x.java.mock.MockPlcConnection;
 import org.apache.plc4x.test.FastTests;
 import org.junit.Test;
@@ -92,6 +93,17 @@ public class PlcDriverManagerTest {
         new PlcDriverManager().getConnection("The quick brown fox jumps over the lazy dog");
     }
 
+    /**
+     * In this test case a field is prepared by a driver which can't parse fields without a connection.
+     *
+     * @throws PlcConnectionException something went wrong
+     */
+    @Test(expected = PlcUnsupportedOperationException.class)
+    @Category(FastTests.class)
+    public void prepareFieldUnsupportedTest() throws PlcConnectionException {
+        new PlcDriverManager().prepareField("spi-mock://some-cool-url", "some-field");
+    }
+
     /**
      * In this test the PlcDriverManager will be configured with a service list that
      * contains multiple implementation instances of the same protocol. This should result in
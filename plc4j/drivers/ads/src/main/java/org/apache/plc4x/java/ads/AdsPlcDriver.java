@@ -22,9 +22,12 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.plc4x.java.ads.api.generic.types.AmsNetId;
 import org.apache.plc4x.java.ads.api.generic.types.AmsPort;
 import org.apache.plc4x.java.ads.connection.AdsConnectionFactory;
+import org.apache.plc4x.java.ads.model.AdsPlcFieldHandler;
 import org.apache.plc4x.java.api.PlcConnection;
 import org.apache.plc4x.java.api.authentication.PlcAuthentication;
 import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
+import org.apache.plc4x.java.api.exceptions.PlcInvalidFieldException;
+import org.apache.plc4x.java.api.model.PlcField;
 import org.apache.plc4x.java.spi.PlcDriver;
 
 import java.net.InetAddress;
@@ -103,4 +106,20 @@ public class AdsPlcDriver implements PlcDriver {
         throw new PlcConnectionException("Basic ADS connections don't support authentication.");
     }
 
+    @Override
+    public String getPoolableKey(String url) throws PlcConnectionException {
+        Matcher matcher = ADS_URI_PATTERN.matcher(url);
+        if (!matcher.matches()) {
+            throw new PlcConnectionException(
+                "Connection url " + url + " doesn't match 'ads://{{host|ip}|serial:definition}/{targetAmsNetId}:{targetAmsPort}/{sourceAmsNetId}:{sourceAmsPort}' RAW:" + ADS_URI_PATTERN);
+        }
+        // Connections to different AMS ports are routed through the same tcp or serial connection.
+        return url.substring(0, matcher.end(1));
+    }
+
+    @Override
+    public PlcField prepareField(String fieldQuery) throws PlcInvalidFieldException {
+        return new AdsPlcFieldHandler().createField(fieldQuery);
+    }
+
 }
@@ -21,6 +21,8 @@ package org.apache.plc4x.java.ads.connection;
 import io.netty.channel.ChannelFuture;
 import org.apache.commons.configuration2.Configuration;
 import org.apache.commons.configuration2.SystemConfiguration;
+import org.apache.plc4x.java.ads.api.commands.AdsReadStateRequest;
+import org.apache.plc4x.java.ads.api.commands.AdsReadStateResponse;
 import org.apache.plc4x.java.ads.api.commands.AdsReadWriteRequest;
 import org.apache.plc4x.java.ads.api.commands.AdsReadWriteResponse;
 import org.apache.plc4x.java.ads.api.commands.AdsWriteRequest;
@@ -149,6 +151,33 @@ public abstract class AdsAbstractPlcConnection extends NettyPlcConnection implem
             .thenApply(PlcProprietaryResponse.class::cast);
     }
 
+    /**
+     * Pings the remote by reading its ADS state, which every ADS device answers without side effects.
+     */
+    @Override
+    public CompletableFuture<Void> ping() {
+        if (channel == null) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(new PlcConnectionException("Not connected"));
+            return future;
+        }
+        AdsReadStateRequest adsReadStateRequest = AdsReadStateRequest.of(
+            targetAmsNetId,
+            targetAmsPort,
+            sourceAmsNetId,
+            sourceAmsPort,
+            Invoke.NONE
+        );
+        return this.<AdsReadStateResponse>send(new DefaultPlcProprietaryRequest<>(adsReadStateRequest))
+            .thenApply(proprietaryResponse -> {
+                AdsReadStateResponse response = proprietaryResponse.getResponse();
+                if (response.getResult().toAdsReturnCode() != AdsReturnCode.ADS_CODE_0) {
+                    throw new PlcRuntimeException("Non error code received " + response.getResult());
+                }
+                return null;
+            });
+    }
+
     protected void mapFields(PlcFieldRequest request) {
         request.getFields().stream()
             .parallel()
@@ -160,5 +160,12 @@ public class AdsPlcDriverTest {
         assertThat(driver.getProtocolName(), is("Beckhoff Twincat ADS"));
     }
 
+    @Test
+    public void getPoolableKey() throws PlcException {
+        AdsPlcDriver driver = new AdsPlcDriver();
+        assertThat(driver.getPoolableKey("ads:tcp://10.10.64.40/10.10.64.40.1.1:851/10.10.56.23.1.1:30000"), is("ads:tcp://10.10.64.40"));
+        assertThat(driver.getPoolableKey("ads:serial:///dev/ttys003/10.10.64.40.1.1:851/10.10.56.23.1.1:30000"), is("ads:serial:///dev/ttys003"));
+    }
+
 
 }
@@ -139,6 +139,14 @@ class AdsAbstractPlcConnectionTest implements WithAssertions {
             simulatePipelineError(() -> SUT.send(mock(InternalPlcProprietaryRequest.class)));
         }
 
+        @Test
+        void ping() {
+            CompletableFuture<Void> ping = SUT.ping();
+            assertNotNull(ping);
+
+            simulatePipelineError(() -> SUT.ping());
+        }
+
         void simulatePipelineError(FutureProducingTestRunnable futureProducingTestRunnable) {
             ChannelFuture channelFuture = mock(ChannelFuture.class);
             // Simulate error in the pipeline
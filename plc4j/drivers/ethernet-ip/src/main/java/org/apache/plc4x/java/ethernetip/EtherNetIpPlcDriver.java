@@ -21,7 +21,10 @@ package org.apache.plc4x.java.ethernetip;
 import org.apache.plc4x.java.api.PlcConnection;
 import org.apache.plc4x.java.api.authentication.PlcAuthentication;
 import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
+import org.apache.plc4x.java.api.exceptions.PlcInvalidFieldException;
+import org.apache.plc4x.java.api.model.PlcField;
 import org.apache.plc4x.java.ethernetip.connection.EtherNetIpTcpPlcConnection;
+import org.apache.plc4x.java.ethernetip.netty.util.EnipPlcFieldHandler;
 import org.apache.plc4x.java.spi.PlcDriver;
 
 import java.net.InetAddress;
@@ -78,4 +81,9 @@ public class EtherNetIpPlcDriver implements PlcDriver {
         throw new PlcConnectionException("EtherNet/IP connections don't support authentication.");
     }
 
+    @Override
+    public PlcField prepareField(String fieldQuery) throws PlcInvalidFieldException {
+        return new EnipPlcFieldHandler().createField(fieldQuery);
+    }
+
 }
@@ -22,7 +22,10 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.plc4x.java.api.PlcConnection;
 import org.apache.plc4x.java.api.authentication.PlcAuthentication;
 import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
+import org.apache.plc4x.java.api.exceptions.PlcInvalidFieldException;
+import org.apache.plc4x.java.api.model.PlcField;
 import org.apache.plc4x.java.modbus.connection.ModbusConnectionFactory;
+import org.apache.plc4x.java.modbus.util.ModbusPlcFieldHandler;
 import org.apache.plc4x.java.spi.PlcDriver;
 
 import java.net.InetAddress;
@@ -90,4 +93,20 @@ public class ModbusPlcDriver implements PlcDriver {
         throw new PlcConnectionException("Modbus connections don't support authentication.");
     }
 
+    @Override
+    public String getPoolableKey(String url) throws PlcConnectionException {
+        Matcher matcher = MODBUS_URI_PATTERN.matcher(url);
+        if (!matcher.matches()) {
+            throw new PlcConnectionException(
+                "Connection url doesn't match the format 'modbus:{type}//{port|host}'");
+        }
+        // Everything but the options
+        return url.substring(0, matcher.end(1));
+    }
+
+    @Override
+    public PlcField prepareField(String fieldQuery) throws PlcInvalidFieldException {
+        return new ModbusPlcFieldHandler().createField(fieldQuery);
+    }
+
 }
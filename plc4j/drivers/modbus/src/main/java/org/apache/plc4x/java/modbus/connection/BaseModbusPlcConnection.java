@@ -36,6 +36,9 @@ public abstract class BaseModbusPlcConnection extends NettyPlcConnection impleme
 
     private static final Logger logger = LoggerFactory.getLogger(BaseModbusPlcConnection.class);
 
+    // Window in ms in which concurrent read requests are merged, negative values disable coalescing.
+    protected long paramReadCoalescingWindow = -1;
+
     BaseModbusPlcConnection(ChannelFactory channelFactory, String params) {
         super(channelFactory);
 
@@ -46,6 +49,12 @@ public abstract class BaseModbusPlcConnection extends NettyPlcConnection impleme
                 if (paramElements.length == 2) {
                     String paramValue = paramElements[1];
                     switch (paramName) {
+                        case "read-coalescing-window":
+                            paramReadCoalescingWindow = Long.parseLong(paramValue);
+                            break;
+                        case "connect-timeout":
+                            connectTimeout = Long.parseLong(paramValue);
+                            break;
                         default:
                             logger.debug("Unknown parameter {} with value {}", paramName, paramValue);
                     }
@@ -26,6 +26,7 @@ import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelInitializer;
 import org.apache.plc4x.java.base.connection.ChannelFactory;
 import org.apache.plc4x.java.base.connection.TcpSocketChannelFactory;
+import org.apache.plc4x.java.base.protocol.ReadRequestCoalescingProtocol;
 import org.apache.plc4x.java.base.protocol.SingleItemToSingleRequestProtocol;
 import org.apache.plc4x.java.modbus.netty.Plc4XModbusProtocol;
 import org.slf4j.Logger;
@@ -33,6 +34,7 @@ import org.slf4j.LoggerFactory;
 
 import java.net.InetAddress;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 public class ModbusTcpPlcConnection extends BaseModbusPlcConnection {
 
@@ -70,6 +72,11 @@ public class ModbusTcpPlcConnection extends BaseModbusPlcConnection {
                 channel.pipeline().addLast(new ModbusTcpCodec(new ModbusRequestEncoder(), new ModbusResponseDecoder()));
                 channel.pipeline().addLast(new Plc4XModbusProtocol());
                 channel.pipeline().addLast(new SingleItemToSingleRequestProtocol(ModbusTcpPlcConnection.this, ModbusTcpPlcConnection.this, null, timer, null, false));
+                if (paramReadCoalescingWindow >= 0) {
+                    // Modbus reads one field per PDU, so the splitter sends every distinct field of a coalesced
+                    // request on its own. Only identical fields of concurrent requests are read once.
+                    channel.pipeline().addLast(new ReadRequestCoalescingProtocol(ModbusTcpPlcConnection.this, paramReadCoalescingWindow, TimeUnit.MILLISECONDS));
+                }
             }
         };
     }
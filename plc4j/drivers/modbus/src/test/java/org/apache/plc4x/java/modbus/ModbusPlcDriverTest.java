@@ -121,5 +121,11 @@ public class ModbusPlcDriverTest {
         assertThat(driver.getProtocolName(), is("Modbus (TCP / Serial)"));
     }
 
+    @Test
+    public void getPoolableKey() throws PlcException {
+        ModbusPlcDriver driver = new ModbusPlcDriver();
+        assertThat(driver.getPoolableKey("modbus:tcp://10.10.64.40?someRandomOption=true"), is("modbus:tcp://10.10.64.40"));
+    }
+
 
 }
@@ -19,17 +19,26 @@
 
 package org.apache.plc4x.java.modbus.connection;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
 import org.apache.commons.lang3.reflect.FieldUtils;
+import org.apache.plc4x.java.base.messages.InternalPlcReadRequest;
+import org.apache.plc4x.java.base.messages.InternalPlcResponse;
+import org.apache.plc4x.java.base.messages.PlcRequestContainer;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetAddress;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
 import static org.mockito.Mockito.mock;
 
@@ -57,4 +66,31 @@ public class ModbusTcpPlcConnectionTests {
         SUT = null;
     }
 
+    @Test
+    public void coalescedReadsAreSplitIntoOneFramePerDistinctField() throws Exception {
+        SUT = ModbusTcpPlcConnection.of(InetAddress.getByName("localhost"), "read-coalescing-window=0");
+        EmbeddedChannel channel = new EmbeddedChannel(SUT.getChannelHandler(new CompletableFuture<>()));
+
+        channel.write(readContainer("readholdingregisters:1"));
+        channel.write(readContainer("readholdingregisters:1"));
+        channel.write(readContainer("readholdingregisters:2"));
+        channel.runPendingTasks();
+
+        // Modbus reads one field per PDU, so only the identical fields share a frame
+        int frames = 0;
+        ByteBuf frame;
+        while ((frame = channel.readOutbound()) != null) {
+            frames++;
+            frame.release();
+        }
+        assertEquals(2, frames);
+        assertNull(channel.readOutbound());
+        channel.finishAndReleaseAll();
+    }
+
+    private PlcRequestContainer<InternalPlcReadRequest, InternalPlcResponse> readContainer(String fieldQuery) {
+        InternalPlcReadRequest request = (InternalPlcReadRequest) SUT.readRequestBuilder().addItem("field", fieldQuery).build();
+        return new PlcRequestContainer<>(request, new CompletableFuture<>());
+    }
+
 }
\ No newline at end of file
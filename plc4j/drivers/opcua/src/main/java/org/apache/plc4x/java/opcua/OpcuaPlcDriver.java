@@ -22,7 +22,10 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.plc4x.java.api.PlcConnection;
 import org.apache.plc4x.java.api.authentication.PlcAuthentication;
 import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
+import org.apache.plc4x.java.api.exceptions.PlcInvalidFieldException;
+import org.apache.plc4x.java.api.model.PlcField;
 import org.apache.plc4x.java.opcua.connection.OpcuaConnectionFactory;
+import org.apache.plc4x.java.opcua.protocol.OpcuaPlcFieldHandler;
 import org.apache.plc4x.java.spi.PlcDriver;
 
 import java.net.InetAddress;
@@ -91,4 +94,9 @@ public class OpcuaPlcDriver implements PlcDriver {
         throw new PlcConnectionException("opcua does not support Auth at this state");
     }
 
+    @Override
+    public PlcField prepareField(String fieldQuery) throws PlcInvalidFieldException {
+        return new OpcuaPlcFieldHandler().createField(fieldQuery);
+    }
+
 }
@@ -31,6 +31,7 @@ import org.apache.plc4x.java.api.types.PlcResponseCode;
 import org.apache.plc4x.java.base.messages.*;
 import org.apache.plc4x.java.base.messages.items.*;
 import org.apache.plc4x.java.base.model.SubscriptionPlcField;
+import org.apache.plc4x.java.opcua.protocol.OpcuaDataValueDecoder;
 import org.apache.plc4x.java.opcua.protocol.OpcuaField;
 import org.apache.plc4x.java.opcua.protocol.OpcuaSubsriptionHandle;
 import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
@@ -47,8 +48,11 @@ import org.eclipse.milo.opcua.stack.core.security.SecurityPolicy;
 import org.eclipse.milo.opcua.stack.core.types.builtin.*;
 import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
 import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.DataChangeTrigger;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.DeadbandType;
 import org.eclipse.milo.opcua.stack.core.types.enumerated.MonitoringMode;
 import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.DataChangeFilter;
 import org.eclipse.milo.opcua.stack.core.types.structured.EndpointDescription;
 import org.eclipse.milo.opcua.stack.core.types.structured.MonitoredItemCreateRequest;
 import org.eclipse.milo.opcua.stack.core.types.structured.MonitoringParameters;
@@ -56,23 +60,24 @@ import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.math.BigInteger;
 import java.net.InetAddress;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
 
 public class OpcuaTcpPlcConnection extends BaseOpcuaPlcConnection {
 
     private static final int OPCUA_DEFAULT_TCP_PORT = 4840;
+    private static final Duration OPCUA_DEFAULT_PUBLISHING_INTERVAL = Duration.ofSeconds(1);
 
     private static final Logger logger = LoggerFactory.getLogger(OpcuaTcpPlcConnection.class);
     private InetAddress address;
@@ -82,6 +87,12 @@ public class OpcuaTcpPlcConnection extends BaseOpcuaPlcConnection {
     private OpcUaClient client;
     private boolean isConnected = false;
     private  final AtomicLong clientHandles = new AtomicLong(1L);
+    // One subscription per publishing interval, shared by all monitored items with that interval.
+    private final Map<Double, CompletableFuture<UaSubscription>> subscriptions = new ConcurrentHashMap<>();
+    // Conversion plans for the nodes of this session, cached after the first value of each node.
+    private final OpcuaDataValueDecoder decoder = new OpcuaDataValueDecoder();
+    // Upper limit of nodes per read service call as announced by the server, 0 means no limit.
+    private int maxNodesPerRead = 0;
 
     private OpcuaTcpPlcConnection(InetAddress address, String params, int requestTimeout) {
         this( address, OPCUA_DEFAULT_TCP_PORT,  params, requestTimeout);
@@ -110,55 +121,17 @@ public class OpcuaTcpPlcConnection extends BaseOpcuaPlcConnection {
     }
 
     public static BaseDefaultFieldItem encodeFieldItem(DataValue value){
-        NodeId typeNode = value.getValue().getDataType().get();
-        Object objValue = value.getValue().getValue();
-
-        if(typeNode.equals(Identifiers.Boolean)){
-            return new DefaultBooleanFieldItem((Boolean)objValue);
-        }else if (typeNode.equals(Identifiers.ByteString)){
-            byte[] array = ((ByteString)objValue).bytes();
-            Byte[] byteArry = new Byte[array.length];
-            int counter = 0;
-            for (byte bytie: array
-            ) {
-                byteArry[counter] = bytie;
-                counter++;
-            }
-            return new DefaultByteArrayFieldItem(byteArry);
-        }else if (typeNode.equals(Identifiers.Integer)){
-            return new DefaultIntegerFieldItem((Integer)objValue);
-        }else if (typeNode.equals(Identifiers.Int16)){
-            return new DefaultShortFieldItem((Short)objValue);
-        }else if (typeNode.equals(Identifiers.Int32)){
-            return new DefaultIntegerFieldItem((Integer)objValue);
-        }else if (typeNode.equals(Identifiers.Int64)){
-            return new DefaultLongFieldItem((Long)objValue);
-        }else if (typeNode.equals(Identifiers.UInteger)){
-            return new DefaultLongFieldItem((Long)objValue);
-        }else if (typeNode.equals(Identifiers.UInt16)){
-            return new DefaultIntegerFieldItem(((UShort)objValue).intValue());
-        }else if (typeNode.equals(Identifiers.UInt32)){
-            return new DefaultLongFieldItem(((UInteger)objValue).longValue());
-        }else if (typeNode.equals(Identifiers.UInt64)){
-            return new DefaultBigIntegerFieldItem(new BigInteger(objValue.toString()));
-        }else if (typeNode.equals(Identifiers.Byte)){
-            return new DefaultShortFieldItem(Short.valueOf(objValue.toString()));
-        }else if (typeNode.equals(Identifiers.Float)){
-            return new DefaultFloatFieldItem((Float)objValue);
-        }else if (typeNode.equals(Identifiers.Double)){
-            return new DefaultDoubleFieldItem((Double)objValue);
-        }else if (typeNode.equals(Identifiers.SByte)){
-            return new DefaultByteFieldItem((Byte)objValue);
-        }else {
-            return new DefaultStringFieldItem(objValue.toString());
-        }
-
+        return OpcuaDataValueDecoder.decode(value);
     }
 
     public InetAddress getRemoteAddress() {
         return address;
     }
 
+    public Map<String, Number> getStatistics() {
+        return decoder.getStatistics();
+    }
+
     @Override
     public void connect() throws PlcConnectionException {
         List<EndpointDescription> endpoints =  null;
@@ -201,6 +174,7 @@ public class OpcuaTcpPlcConnection extends BaseOpcuaPlcConnection {
             this.client =  OpcUaClient.create(config);
             this.client.connect().get();
             isConnected = true;
+            maxNodesPerRead = readMaxNodesPerRead();
         } catch (UaException e) {
             isConnected = false;
             String message = (config == null) ? "NULL" : config.toString();
@@ -219,6 +193,7 @@ public class OpcuaTcpPlcConnection extends BaseOpcuaPlcConnection {
     @Override
     public void close() throws Exception {
         if(client != null){
+            subscriptions.clear();
             client.disconnect().get();
             isConnected = false;
         }
@@ -227,88 +202,137 @@ public class OpcuaTcpPlcConnection extends BaseOpcuaPlcConnection {
     @Override
     public CompletableFuture<PlcSubscriptionResponse> subscribe(PlcSubscriptionRequest subscriptionRequest) {
         InternalPlcSubscriptionRequest internalPlcSubscriptionRequest = checkInternal(subscriptionRequest, InternalPlcSubscriptionRequest.class);
-        CompletableFuture<PlcSubscriptionResponse> future = CompletableFuture.supplyAsync(() ->{
-            Map<String, Pair<PlcResponseCode, PlcSubscriptionHandle>> responseItems = internalPlcSubscriptionRequest.getSubscriptionPlcFieldMap().entrySet().stream()
-            .map(subscriptionPlcFieldEntry -> {
-                final String plcFieldName = subscriptionPlcFieldEntry.getKey();
-                final SubscriptionPlcField subscriptionPlcField = subscriptionPlcFieldEntry.getValue();
-                final OpcuaField field = (OpcuaField)Objects.requireNonNull(subscriptionPlcField.getPlcField());
-                long cycleTime = subscriptionPlcField.getDuration().orElse(Duration.ofSeconds(1)).toMillis();
-                NodeId idNode = generateNodeId(field);
-                ReadValueId readValueId = new ReadValueId(
-                    idNode,
-                    AttributeId.Value.uid(), null, QualifiedName.NULL_VALUE);
-                UInteger clientHandle = uint(clientHandles.getAndIncrement());
-
-                MonitoringParameters parameters = new MonitoringParameters(
-                    clientHandle,
-                    (double) cycleTime,     // sampling interval
-                    null,       // filter, null means use default
-                    uint(1),   // queue size
-                    true        // discard oldest
-                );
-                MonitoringMode monitoringMode;
-                switch (subscriptionPlcField.getPlcSubscriptionType()) {
-                    case CYCLIC:
-                        monitoringMode = MonitoringMode.Sampling;
-                        break;
-                    case CHANGE_OF_STATE:
-                        monitoringMode = MonitoringMode.Reporting;
-                        break;
-                    case EVENT:
-                        monitoringMode = MonitoringMode.Reporting;
-                        break;
-                    default: monitoringMode = MonitoringMode.Reporting;
-                }
 
-                PlcSubscriptionHandle subHandle = null;
-                PlcResponseCode responseCode = PlcResponseCode.ACCESS_DENIED;
-                try {
-                    UaSubscription subscription = client.getSubscriptionManager().createSubscription(1000.0).get();
-
-                    MonitoredItemCreateRequest request = new MonitoredItemCreateRequest(
-                        readValueId, monitoringMode, parameters);
-                    List<MonitoredItemCreateRequest> requestList = new LinkedList<>();
-                    requestList.add(request);
-                    OpcuaSubsriptionHandle subsriptionHandle = new OpcuaSubsriptionHandle(plcFieldName, clientHandle);
-                    BiConsumer<UaMonitoredItem, Integer> onItemCreated =
-                        (item, id) -> item.setValueConsumer(subsriptionHandle::onSubscriptionValue);
-
-                    List<UaMonitoredItem> items = subscription.createMonitoredItems(
-                        TimestampsToReturn.Both,
-                        requestList,
-                        onItemCreated
-                    ).get();
-
-                    subHandle = subsriptionHandle;
-                    responseCode = PlcResponseCode.OK;
-                } catch (InterruptedException | ExecutionException e) {
-                    logger.warn("Unable to subscribe Elements because of: {}", e.getMessage());
-                }
+        // Group the fields by their publishing interval, so all of them share one subscription on the server.
+        Map<Double, Map<String, SubscriptionPlcField>> fieldsByInterval = new LinkedHashMap<>();
+        internalPlcSubscriptionRequest.getSubscriptionPlcFieldMap().forEach((plcFieldName, subscriptionPlcField) -> {
+            double publishingInterval = subscriptionPlcField.getDuration().orElse(OPCUA_DEFAULT_PUBLISHING_INTERVAL).toMillis();
+            fieldsByInterval.computeIfAbsent(publishingInterval, interval -> new LinkedHashMap<>())
+                .put(plcFieldName, subscriptionPlcField);
+        });
 
+        List<CompletableFuture<Map<String, Pair<PlcResponseCode, PlcSubscriptionHandle>>>> groups = new ArrayList<>(fieldsByInterval.size());
+        fieldsByInterval.forEach((publishingInterval, fields) -> groups.add(
+            getSubscription(publishingInterval)
+                .thenCompose(subscription -> createMonitoredItems(subscription, fields))
+                .exceptionally(throwable -> {
+                    logger.warn("Unable to subscribe Elements because of: {}", throwable.getMessage());
+                    Map<String, Pair<PlcResponseCode, PlcSubscriptionHandle>> failed = new HashMap<>();
+                    fields.keySet().forEach(plcFieldName -> failed.put(plcFieldName, Pair.of(PlcResponseCode.ACCESS_DENIED, null)));
+                    return failed;
+                })));
+
+        return CompletableFuture.allOf(groups.toArray(new CompletableFuture[0])).thenApply(ignore -> {
+            Map<String, Pair<PlcResponseCode, PlcSubscriptionHandle>> responseItems = new HashMap<>();
+            groups.forEach(group -> responseItems.putAll(group.join()));
+            return new DefaultPlcSubscriptionResponse(internalPlcSubscriptionRequest, responseItems);
+        });
+    }
 
-                return Pair.of(plcFieldName, Pair.of(responseCode, subHandle));
-            })
-            .collect(Collectors.toMap(Pair::getKey, Pair::getValue));
-            return (PlcSubscriptionResponse) new DefaultPlcSubscriptionResponse(internalPlcSubscriptionRequest, responseItems);
+    private CompletableFuture<UaSubscription> getSubscription(double publishingInterval) {
+        CompletableFuture<UaSubscription> subscription = subscriptions.computeIfAbsent(publishingInterval,
+            interval -> client.getSubscriptionManager().createSubscription(interval));
+        // Don't keep failed subscriptions around, the next request should try again.
+        subscription.whenComplete((uaSubscription, throwable) -> {
+            if (throwable != null) {
+                subscriptions.remove(publishingInterval, subscription);
+            }
         });
+        return subscription;
+    }
 
-        return future;
+    private CompletableFuture<Map<String, Pair<PlcResponseCode, PlcSubscriptionHandle>>> createMonitoredItems(
+        UaSubscription subscription, Map<String, SubscriptionPlcField> fields) {
+        List<MonitoredItemCreateRequest> requestList = new ArrayList<>(fields.size());
+        List<OpcuaSubsriptionHandle> subscriptionHandles = new ArrayList<>(fields.size());
+        fields.forEach((plcFieldName, subscriptionPlcField) -> {
+            final OpcuaField field = (OpcuaField) Objects.requireNonNull(subscriptionPlcField.getPlcField());
+            long cycleTime = subscriptionPlcField.getDuration().orElse(OPCUA_DEFAULT_PUBLISHING_INTERVAL).toMillis();
+            NodeId idNode = generateNodeId(field);
+            ReadValueId readValueId = new ReadValueId(
+                idNode,
+                AttributeId.Value.uid(), null, QualifiedName.NULL_VALUE);
+            UInteger clientHandle = uint(clientHandles.getAndIncrement());
+
+            MonitoringParameters parameters = new MonitoringParameters(
+                clientHandle,
+                field.getSamplingInterval().orElse((double) cycleTime),     // sampling interval
+                createDataChangeFilter(field),       // filter, null means use default
+                uint(field.getQueueSize()),   // queue size
+                field.isDiscardOldest()        // discard oldest
+            );
+            MonitoringMode monitoringMode;
+            switch (subscriptionPlcField.getPlcSubscriptionType()) {
+                case CYCLIC:
+                    monitoringMode = MonitoringMode.Sampling;
+                    break;
+                case CHANGE_OF_STATE:
+                    monitoringMode = MonitoringMode.Reporting;
+                    break;
+                case EVENT:
+                    monitoringMode = MonitoringMode.Reporting;
+                    break;
+                default: monitoringMode = MonitoringMode.Reporting;
+            }
+
+            requestList.add(new MonitoredItemCreateRequest(readValueId, monitoringMode, parameters));
+            subscriptionHandles.add(new OpcuaSubsriptionHandle(plcFieldName, clientHandle, decoder));
+        });
+
+        // All monitored items of one request and interval are created with a single service call.
+        BiConsumer<UaMonitoredItem, Integer> onItemCreated =
+            (item, index) -> subscriptionHandles.get(index).onMonitoredItemCreated(subscription, item);
+        return subscription.createMonitoredItems(TimestampsToReturn.Both, requestList, onItemCreated).thenApply(items -> {
+            Map<String, Pair<PlcResponseCode, PlcSubscriptionHandle>> responseItems = new HashMap<>();
+            for (int counter = 0; counter < subscriptionHandles.size(); counter++) {
+                OpcuaSubsriptionHandle subscriptionHandle = subscriptionHandles.get(counter);
+                if (items.size() > counter && items.get(counter).getStatusCode().isGood()) {
+                    responseItems.put(subscriptionHandle.getFieldName(), Pair.of(PlcResponseCode.OK, subscriptionHandle));
+                } else {
+                    responseItems.put(subscriptionHandle.getFieldName(), Pair.of(PlcResponseCode.ACCESS_DENIED, null));
+                }
+            }
+            return responseItems;
+        });
+    }
+
+    /**
+     * Lets the server filter out value changes within the deadband configured for the field.
+     */
+    private ExtensionObject createDataChangeFilter(OpcuaField field) {
+        if (field.getDeadbandType() == DeadbandType.None) {
+            return null;
+        }
+        DataChangeFilter dataChangeFilter = new DataChangeFilter(
+            DataChangeTrigger.StatusValue,
+            uint(field.getDeadbandType().getValue()),
+            field.getDeadbandValue());
+        return ExtensionObject.encode(client.getSerializationContext(), dataChangeFilter);
     }
 
     @Override
     public CompletableFuture<PlcUnsubscriptionResponse> unsubscribe(PlcUnsubscriptionRequest unsubscriptionRequest) {
         InternalPlcUnsubscriptionRequest internalPlcUnsubscriptionRequest = checkInternal(unsubscriptionRequest, InternalPlcUnsubscriptionRequest.class);
+
+        // Only the monitored items are removed, the shared subscriptions stay alive for other fields.
+        Map<UaSubscription, List<UaMonitoredItem>> itemsBySubscription = new HashMap<>();
         internalPlcUnsubscriptionRequest.getInternalPlcSubscriptionHandles().forEach(o -> {
             OpcuaSubsriptionHandle opcSubHandle = (OpcuaSubsriptionHandle) o;
-            try {
-                client.getSubscriptionManager().deleteSubscription(opcSubHandle.getClientHandle()).get();
-            } catch (InterruptedException | ExecutionException e) {
-                logger.warn("Unable to unsubscribe Elements because of: {}", e.getMessage());
+            if (opcSubHandle.getSubscription() != null && opcSubHandle.getMonitoredItem() != null) {
+                itemsBySubscription.computeIfAbsent(opcSubHandle.getSubscription(), subscription -> new ArrayList<>())
+                    .add(opcSubHandle.getMonitoredItem());
             }
         });
 
-        return null;
+        List<CompletableFuture<List<StatusCode>>> deletions = new ArrayList<>(itemsBySubscription.size());
+        itemsBySubscription.forEach((subscription, items) -> deletions.add(
+            subscription.deleteMonitoredItems(items).exceptionally(throwable -> {
+                logger.warn("Unable to unsubscribe Elements because of: {}", throwable.getMessage());
+                return Collections.emptyList();
+            })));
+
+        return CompletableFuture.allOf(deletions.toArray(new CompletableFuture[0]))
+            .thenApply(ignore -> new DefaultPlcUnsubscriptionResponse(internalPlcUnsubscriptionRequest));
     }
 
     @Override
@@ -326,43 +350,49 @@ public class OpcuaTcpPlcConnection extends BaseOpcuaPlcConnection {
 
     @Override
     public CompletableFuture<PlcReadResponse> read(PlcReadRequest readRequest) {
-        CompletableFuture<PlcReadResponse> future = CompletableFuture.supplyAsync(() -> {
-            readRequest.getFields();
-            Map<String, Pair<PlcResponseCode, BaseDefaultFieldItem>> fields = new HashMap<>();
-            List<NodeId> readValueIds = new LinkedList<>();
-            List<PlcField> readPLCValues = readRequest.getFields();
-            for (PlcField field: readPLCValues) {
-                NodeId idNode = generateNodeId((OpcuaField) field);
-                readValueIds.add(idNode);
-            }
+        InternalPlcReadRequest internalPlcReadRequest = checkInternal(readRequest, InternalPlcReadRequest.class);
+        List<String> fieldNames = new ArrayList<>(readRequest.getFieldNames());
+        List<NodeId> readValueIds = new ArrayList<>(fieldNames.size());
+        for (String fieldName : fieldNames) {
+            readValueIds.add(generateNodeId((OpcuaField) readRequest.getField(fieldName)));
+        }
 
-            CompletableFuture<List<DataValue>> dataValueCompletableFuture = client.readValues(0.0, TimestampsToReturn.Both, readValueIds);
-            List<DataValue> readValues = null;
-            try {
-                readValues = dataValueCompletableFuture.get();
-            } catch (InterruptedException | ExecutionException e) {
-                logger.warn("Unable to read Elements because of: {}", e.getMessage());
-            }
-            for(int counter = 0; counter < readValueIds.size(); counter++){
-                PlcResponseCode resultCode = PlcResponseCode.OK;
-                BaseDefaultFieldItem stringItem = null;
-                if(readValues == null || readValues.size() <= counter || readValues.get(counter).getStatusCode() != StatusCode.GOOD){
-                    resultCode = PlcResponseCode.NOT_FOUND;
-                }else{
-                    stringItem = encodeFieldItem(readValues.get(counter));
+        // Split the request into chunks respecting the servers MaxNodesPerRead limit and send them all at once.
+        int chunkSize = maxNodesPerRead > 0 ? maxNodesPerRead : Math.max(readValueIds.size(), 1);
+        List<CompletableFuture<List<DataValue>>> chunks = new ArrayList<>();
+        for (int offset = 0; offset < readValueIds.size(); offset += chunkSize) {
+            List<NodeId> chunk = readValueIds.subList(offset, Math.min(offset + chunkSize, readValueIds.size()));
+            chunks.add(client.readValues(0.0, TimestampsToReturn.Both, chunk)
+                .exceptionally(throwable -> {
+                    logger.warn("Unable to read Elements because of: {}", throwable.getMessage());
+                    return Collections.emptyList();
+                }));
+        }
 
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0])).thenApply(ignore -> {
+            long decodingStart = System.nanoTime();
+            Map<String, Pair<PlcResponseCode, BaseDefaultFieldItem>> fields = new HashMap<>();
+            for (int chunkIndex = 0; chunkIndex < chunks.size(); chunkIndex++) {
+                List<DataValue> readValues = chunks.get(chunkIndex).join();
+                int offset = chunkIndex * chunkSize;
+                int end = Math.min(offset + chunkSize, fieldNames.size());
+                for (int counter = offset; counter < end; counter++) {
+                    int chunkPosition = counter - offset;
+                    PlcResponseCode resultCode = PlcResponseCode.OK;
+                    BaseDefaultFieldItem stringItem = null;
+                    if (readValues.size() <= chunkPosition || readValues.get(chunkPosition).getStatusCode() != StatusCode.GOOD) {
+                        resultCode = PlcResponseCode.NOT_FOUND;
+                    } else {
+                        stringItem = decoder.decode(readValueIds.get(counter), readValues.get(chunkPosition));
+                    }
+                    fields.put(fieldNames.get(counter), new ImmutablePair<>(resultCode, stringItem));
                 }
-                Pair<PlcResponseCode, BaseDefaultFieldItem> newPair = new ImmutablePair<>(resultCode, stringItem);
-                fields.put((String) readRequest.getFieldNames().toArray()[counter], newPair);
-
-
             }
-            InternalPlcReadRequest internalPlcReadRequest = checkInternal(readRequest, InternalPlcReadRequest.class);
-            return (PlcReadResponse) new DefaultPlcReadResponse(internalPlcReadRequest, fields );
+            if (logger.isTraceEnabled()) {
+                logger.trace("Decoded {} values in {} us", fields.size(), TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - decodingStart));
+            }
+            return new DefaultPlcReadResponse(internalPlcReadRequest, fields);
         });
-
-
-        return future;
     }
 
 
@@ -446,6 +476,22 @@ public class OpcuaTcpPlcConnection extends BaseOpcuaPlcConnection {
         return  idNode;
     }
 
+    private int readMaxNodesPerRead() {
+        try {
+            DataValue limit = client.readValue(0.0, TimestampsToReturn.Neither,
+                Identifiers.Server_ServerCapabilities_OperationLimits_MaxNodesPerRead).get();
+            Object value = limit.getValue().getValue();
+            if (value instanceof UInteger) {
+                return ((UInteger) value).intValue();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.debug("Unable to read MaxNodesPerRead operation limit, not splitting read requests", e);
+        }
+        return 0;
+    }
+
     private String getEndpointUrl(InetAddress address, Integer port, String params) {
         return "opc.tcp://" + address.getHostAddress() +":" + port + "/" + params;
     }
@@ -0,0 +1,171 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one
+ or more contributor license agreements.  See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership.  The ASF licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+*/
+package org.apache.plc4x.java.opcua.protocol;
+
+import org.apache.plc4x.java.base.messages.items.*;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.ByteString;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UNumber;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Converts OPC UA {@link DataValue}s into PLC4X field items.
+ * <p>
+ * The conversion for a node is planned on its first value and cached by {@link NodeId} together with the data type
+ * of that value, so subsequent values of the same data type skip the decoder lookup. A node whose data type changes
+ * (e.g. a BaseDataType variable) is planned again. Values without a data type, e.g. null values of bad quality, are
+ * converted to strings without caching, so they don't determine the conversion of the node.
+ * Array values are converted element wise into a single multi-value field item.
+ */
+public class OpcuaDataValueDecoder {
+
+    private static final Function<Object[], BaseDefaultFieldItem> STRING_DECODER =
+        values -> new DefaultStringFieldItem(convert(values, String[]::new, value -> Objects.toString(value, null)));
+
+    private static final Map<NodeId, Function<Object[], BaseDefaultFieldItem>> DECODERS_BY_DATA_TYPE = new HashMap<>();
+
+    static {
+        DECODERS_BY_DATA_TYPE.put(Identifiers.Boolean,
+            values -> new DefaultBooleanFieldItem(convert(values, Boolean[]::new, Boolean.class::cast)));
+        DECODERS_BY_DATA_TYPE.put(Identifiers.ByteString,
+            values -> new DefaultByteArrayFieldItem(convert(values, Byte[][]::new, value -> toByteArray((ByteString) value))));
+        DECODERS_BY_DATA_TYPE.put(Identifiers.Integer,
+            values -> new DefaultIntegerFieldItem(convert(values, Integer[]::new, value -> ((Number) value).intValue())));
+        DECODERS_BY_DATA_TYPE.put(Identifiers.Int16,
+            values -> new DefaultShortFieldItem(convert(values, Short[]::new, Short.class::cast)));
+        DECODERS_BY_DATA_TYPE.put(Identifiers.Int32,
+            values -> new DefaultIntegerFieldItem(convert(values, Integer[]::new, Integer.class::cast)));
+        DECODERS_BY_DATA_TYPE.put(Identifiers.Int64,
+            values -> new DefaultLongFieldItem(convert(values, Long[]::new, Long.class::cast)));
+        DECODERS_BY_DATA_TYPE.put(Identifiers.UInteger,
+            values -> new DefaultLongFieldItem(convert(values, Long[]::new, value -> ((Number) value).longValue())));
+        DECODERS_BY_DATA_TYPE.put(Identifiers.UInt16,
+            values -> new DefaultIntegerFieldItem(convert(values, Integer[]::new, value -> ((UNumber) value).intValue())));
+        DECODERS_BY_DATA_TYPE.put(Identifiers.UInt32,
+            values -> new DefaultLongFieldItem(convert(values, Long[]::new, value -> ((UNumber) value).longValue())));
+        DECODERS_BY_DATA_TYPE.put(Identifiers.UInt64,
+            values -> new DefaultBigIntegerFieldItem(convert(values, BigInteger[]::new, value -> ((UNumber) value).toBigInteger())));
+        DECODERS_BY_DATA_TYPE.put(Identifiers.Byte,
+            values -> new DefaultShortFieldItem(convert(values, Short[]::new, value -> ((UNumber) value).shortValue())));
+        DECODERS_BY_DATA_TYPE.put(Identifiers.Float,
+            values -> new DefaultFloatFieldItem(convert(values, Float[]::new, Float.class::cast)));
+        DECODERS_BY_DATA_TYPE.put(Identifiers.Double,
+            values -> new DefaultDoubleFieldItem(convert(values, Double[]::new, Double.class::cast)));
+        DECODERS_BY_DATA_TYPE.put(Identifiers.SByte,
+            values -> new DefaultByteFieldItem(convert(values, Byte[]::new, Byte.class::cast)));
+    }
+
+    private final Map<NodeId, PlannedDecoder> decodersByNode = new ConcurrentHashMap<>();
+
+    private final LongAdder decodedValues = new LongAdder();
+
+    private final LongAdder plannedDecoders = new LongAdder();
+
+    private final LongAdder decodingTimeNanos = new LongAdder();
+
+    /**
+     * Decodes the given value using the cached conversion plan for the node it was read from.
+     */
+    public BaseDefaultFieldItem decode(NodeId nodeId, DataValue value) {
+        long start = System.nanoTime();
+        try {
+            Variant variant = value.getValue();
+            NodeId dataType = variant.getDataType().orElse(null);
+            if (dataType == null) {
+                return planDecoder(null).apply(variant.getValue());
+            }
+            PlannedDecoder plannedDecoder = decodersByNode.get(nodeId);
+            if (plannedDecoder == null || !plannedDecoder.dataType.equals(dataType)) {
+                plannedDecoder = new PlannedDecoder(dataType, planDecoder(dataType));
+                plannedDecoders.increment();
+                decodersByNode.put(nodeId, plannedDecoder);
+            }
+            return plannedDecoder.decoder.apply(variant.getValue());
+        } finally {
+            decodedValues.increment();
+            decodingTimeNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Decodes a single value without using any cached conversion plan.
+     */
+    public static BaseDefaultFieldItem decode(DataValue value) {
+        return planDecoder(value.getValue().getDataType().orElse(null)).apply(value.getValue().getValue());
+    }
+
+    /**
+     * @param dataType the data type of the value or null if it has none.
+     */
+    private static Function<Object, BaseDefaultFieldItem> planDecoder(NodeId dataType) {
+        Function<Object[], BaseDefaultFieldItem> arrayDecoder = dataType != null
+            ? DECODERS_BY_DATA_TYPE.getOrDefault(dataType, STRING_DECODER)
+            : STRING_DECODER;
+        return objValue -> arrayDecoder.apply(objValue instanceof Object[] ? (Object[]) objValue : new Object[]{objValue});
+    }
+
+    private static <T> T[] convert(Object[] values, IntFunction<T[]> arrayFactory, Function<Object, T> converter) {
+        T[] result = arrayFactory.apply(values.length);
+        for (int i = 0; i < values.length; i++) {
+            result[i] = converter.apply(values[i]);
+        }
+        return result;
+    }
+
+    private static Byte[] toByteArray(ByteString byteString) {
+        byte[] array = byteString.bytes();
+        Byte[] byteArray = new Byte[array.length];
+        for (int i = 0; i < array.length; i++) {
+            byteArray[i] = array[i];
+        }
+        return byteArray;
+    }
+
+    public Map<String, Number> getStatistics() {
+        HashMap<String, Number> statistics = new HashMap<>();
+        statistics.put("cachedDecoders", decodersByNode.size());
+        statistics.put("plannedDecoders", plannedDecoders.sum());
+        statistics.put("decodedValues", decodedValues.sum());
+        statistics.put("decodingTimeNanos", decodingTimeNanos.sum());
+        return statistics;
+    }
+
+    private static final class PlannedDecoder {
+
+        private final NodeId dataType;
+
+        private final Function<Object, BaseDefaultFieldItem> decoder;
+
+        private PlannedDecoder(NodeId dataType, Function<Object, BaseDefaultFieldItem> decoder) {
+            this.dataType = dataType;
+            this.decoder = decoder;
+        }
+    }
+}
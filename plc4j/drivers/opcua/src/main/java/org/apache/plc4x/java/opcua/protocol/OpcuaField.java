@@ -21,8 +21,10 @@ package org.apache.plc4x.java.opcua.protocol;
 import org.apache.plc4x.java.api.exceptions.PlcInvalidFieldException;
 import org.apache.plc4x.java.api.model.PlcField;
 import org.apache.plc4x.java.opcua.protocol.model.OpcuaIdentifierType;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.DeadbandType;
 
 import java.util.Objects;
+import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 /**
@@ -31,7 +33,16 @@ import java.util.regex.Pattern;
  */
 public class OpcuaField implements PlcField {
     //TODO: Add a correct regex definition of all the different sub-types of the identifiers --> requires perhaps individual type definitions
-    public static final Pattern ADDRESS_PATTERN = Pattern.compile("^ns=(?<namespace>\\d+);((?<identifierType>[isgb])=((?<identifier>[\\w.\\-/=%_]+))?)");
+    public static final Pattern ADDRESS_PATTERN = Pattern.compile("^ns=(?<namespace>\\d+);((?<identifierType>[isgb])=((?<identifier>[\\w.\\-/=%_]+))?)(?<options>(;\\w+=[\\w.\\-]+)*)");
+
+    // Optional monitoring options which can be appended to the address, e.g. "ns=2;s=Temperature;deadbandAbsolute=0.5;queueSize=10".
+    public static final String OPTION_DEADBAND_ABSOLUTE = "deadbandAbsolute";
+    public static final String OPTION_DEADBAND_PERCENT = "deadbandPercent";
+    public static final String OPTION_QUEUE_SIZE = "queueSize";
+    public static final String OPTION_DISCARD_OLDEST = "discardOldest";
+    public static final String OPTION_SAMPLING_INTERVAL = "samplingInterval";
+
+    private static final int DEFAULT_QUEUE_SIZE = 1;
 
     private final OpcuaIdentifierType identifierType;
 
@@ -39,6 +50,16 @@ public class OpcuaField implements PlcField {
 
     private final String identifier;
 
+    private DeadbandType deadbandType = DeadbandType.None;
+
+    private double deadbandValue = 0.0;
+
+    private int queueSize = DEFAULT_QUEUE_SIZE;
+
+    private boolean discardOldest = true;
+
+    private Double samplingInterval;
+
     protected OpcuaField(int namespace, OpcuaIdentifierType identifierType, String identifier) {
         this.namespace = namespace;
         this.identifier = identifier;
@@ -70,7 +91,49 @@ public class OpcuaField implements PlcField {
         String namespaceString = matcher.group("namespace");
         Integer namespace = namespaceString != null ? Integer.valueOf(namespaceString) : 0;
 
-        return new OpcuaField(namespace, identifier, identifierType);
+        OpcuaField field = new OpcuaField(namespace, identifier, identifierType);
+        String options = matcher.group("options");
+        if (options != null && !options.isEmpty()) {
+            for (String option : options.substring(1).split(";")) {
+                String[] optionElements = option.split("=");
+                field.applyOption(address, optionElements[0], optionElements[1]);
+            }
+        }
+        return field;
+    }
+
+    private void applyOption(String address, String optionName, String optionValue) {
+        try {
+            switch (optionName) {
+                case OPTION_DEADBAND_ABSOLUTE:
+                    deadbandType = DeadbandType.Absolute;
+                    deadbandValue = Double.parseDouble(optionValue);
+                    break;
+                case OPTION_DEADBAND_PERCENT:
+                    deadbandType = DeadbandType.Percent;
+                    deadbandValue = Double.parseDouble(optionValue);
+                    if (deadbandValue > 100.0) {
+                        throw new PlcInvalidFieldException(address);
+                    }
+                    break;
+                case OPTION_QUEUE_SIZE:
+                    queueSize = Integer.parseInt(optionValue);
+                    break;
+                case OPTION_DISCARD_OLDEST:
+                    discardOldest = Boolean.parseBoolean(optionValue);
+                    break;
+                case OPTION_SAMPLING_INTERVAL:
+                    samplingInterval = Double.parseDouble(optionValue);
+                    break;
+                default:
+                    throw new PlcInvalidFieldException(address);
+            }
+        } catch (NumberFormatException e) {
+            throw new PlcInvalidFieldException(address);
+        }
+        if (deadbandValue < 0.0 || queueSize < 0) {
+            throw new PlcInvalidFieldException(address);
+        }
     }
 
 
@@ -90,6 +153,26 @@ public class OpcuaField implements PlcField {
         return identifierType;
     }
 
+    public DeadbandType getDeadbandType() {
+        return deadbandType;
+    }
+
+    public double getDeadbandValue() {
+        return deadbandValue;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public boolean isDiscardOldest() {
+        return discardOldest;
+    }
+
+    public Optional<Double> getSamplingInterval() {
+        return Optional.ofNullable(samplingInterval);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -99,7 +182,10 @@ public class OpcuaField implements PlcField {
             return false;
         }
         OpcuaField that = (OpcuaField) o;
-        return namespace == that.namespace && identifier.equals(that.identifier) && identifierType == that.identifierType;
+        return namespace == that.namespace && identifier.equals(that.identifier) && identifierType == that.identifierType &&
+            deadbandType == that.deadbandType && Double.compare(deadbandValue, that.deadbandValue) == 0 &&
+            queueSize == that.queueSize && discardOldest == that.discardOldest &&
+            Objects.equals(samplingInterval, that.samplingInterval);
     }
 
     @Override
@@ -113,6 +199,11 @@ public class OpcuaField implements PlcField {
             "namespace=" + namespace +
             "identifierType=" + identifierType.getText() +
             "identifier=" + identifier +
+            "deadbandType=" + deadbandType +
+            "deadbandValue=" + deadbandValue +
+            "queueSize=" + queueSize +
+            "discardOldest=" + discardOldest +
+            "samplingInterval=" + samplingInterval +
             '}';
     }
 }
@@ -22,38 +22,72 @@ import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.plc4x.java.api.messages.PlcSubscriptionEvent;
 import org.apache.plc4x.java.api.model.PlcConsumerRegistration;
-import org.apache.plc4x.java.api.model.PlcSubscriptionHandle;
 import org.apache.plc4x.java.api.types.PlcResponseCode;
 import org.apache.plc4x.java.base.messages.DefaultPlcSubscriptionEvent;
 import org.apache.plc4x.java.base.messages.items.BaseDefaultFieldItem;
-import org.apache.plc4x.java.opcua.connection.OpcuaTcpPlcConnection;
+import org.apache.plc4x.java.base.model.InternalPlcSubscriptionHandle;
 import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaMonitoredItem;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaSubscription;
 import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
 import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
 import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
 
 import java.time.Instant;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.function.Consumer;
 /**
  * @author Matthias Milan Stlrljic
  * Created by Matthias Milan Stlrljic on 10.05.2019
  */
-public class OpcuaSubsriptionHandle implements PlcSubscriptionHandle {
-    Set< Consumer<PlcSubscriptionEvent>> consumers = new HashSet<>();
+public class OpcuaSubsriptionHandle implements InternalPlcSubscriptionHandle {
+    Set< Consumer<PlcSubscriptionEvent>> consumers = new CopyOnWriteArraySet<>();
     String fieldName;
+    public String getFieldName() {
+        return fieldName;
+    }
+
     public UInteger getClientHandle() {
         return clientHandle;
     }
 
     UInteger clientHandle;
 
+    private volatile UaSubscription subscription;
+
+    private volatile UaMonitoredItem monitoredItem;
+
+    private final OpcuaDataValueDecoder decoder;
+
     public  OpcuaSubsriptionHandle(String fieldName, UInteger clientHandle){
+        this(fieldName, clientHandle, new OpcuaDataValueDecoder());
+    }
+
+    public  OpcuaSubsriptionHandle(String fieldName, UInteger clientHandle, OpcuaDataValueDecoder decoder){
+        this.fieldName = fieldName;
         this.clientHandle = clientHandle;
+        this.decoder = decoder;
     }
+
+    /**
+     * Binds this handle to the monitored item created for it inside the (shared) subscription.
+     */
+    public void onMonitoredItemCreated(UaSubscription subscription, UaMonitoredItem monitoredItem) {
+        this.subscription = subscription;
+        this.monitoredItem = monitoredItem;
+        monitoredItem.setValueConsumer(this::onSubscriptionValue);
+    }
+
+    public UaSubscription getSubscription() {
+        return subscription;
+    }
+
+    public UaMonitoredItem getMonitoredItem() {
+        return monitoredItem;
+    }
+
     @Override
     public PlcConsumerRegistration register(Consumer<PlcSubscriptionEvent> consumer) {
         consumers.add(consumer);
@@ -61,21 +95,19 @@ public class OpcuaSubsriptionHandle implements PlcSubscriptionHandle {
     }
 
     public void onSubscriptionValue(UaMonitoredItem item, DataValue value) {
-        consumers.forEach(plcSubscriptionEventConsumer -> {
-            PlcResponseCode resultCode = PlcResponseCode.OK;
-            BaseDefaultFieldItem stringItem = null;
-            if(value.getStatusCode() != StatusCode.GOOD){
-                resultCode = PlcResponseCode.NOT_FOUND;
-            }else{
-                stringItem = OpcuaTcpPlcConnection.encodeFieldItem(value);
-
-            }
-            Map<String, Pair<PlcResponseCode, BaseDefaultFieldItem>> fields = new HashMap<>();
-            Pair<PlcResponseCode, BaseDefaultFieldItem> newPair = new ImmutablePair<>(resultCode, stringItem);
-            fields.put(fieldName, newPair);
-            PlcSubscriptionEvent event = new DefaultPlcSubscriptionEvent(Instant.now(), fields);
-            plcSubscriptionEventConsumer.accept(event);
-        });
+        PlcResponseCode resultCode = PlcResponseCode.OK;
+        BaseDefaultFieldItem stringItem = null;
+        if(value.getStatusCode() != StatusCode.GOOD){
+            resultCode = PlcResponseCode.NOT_FOUND;
+        }else{
+            stringItem = decoder.decode(item.getReadValueId().getNodeId(), value);
+
+        }
+        Map<String, Pair<PlcResponseCode, BaseDefaultFieldItem>> fields = new HashMap<>();
+        Pair<PlcResponseCode, BaseDefaultFieldItem> newPair = new ImmutablePair<>(resultCode, stringItem);
+        fields.put(fieldName, newPair);
+        PlcSubscriptionEvent event = new DefaultPlcSubscriptionEvent(Instant.now(), fields);
+        consumers.forEach(plcSubscriptionEventConsumer -> plcSubscriptionEventConsumer.accept(event));
     }
 
 }
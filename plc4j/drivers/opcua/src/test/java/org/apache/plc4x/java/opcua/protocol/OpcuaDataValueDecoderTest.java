@@ -0,0 +1,101 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one
+ or more contributor license agreements.  See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership.  The ASF licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+*/
+package org.apache.plc4x.java.opcua.protocol;
+
+import org.apache.plc4x.java.base.messages.items.BaseDefaultFieldItem;
+import org.apache.plc4x.java.base.messages.items.DefaultFloatFieldItem;
+import org.apache.plc4x.java.base.messages.items.DefaultIntegerFieldItem;
+import org.apache.plc4x.java.base.messages.items.DefaultLongFieldItem;
+import org.apache.plc4x.java.base.messages.items.DefaultStringFieldItem;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.junit.jupiter.api.Test;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpcuaDataValueDecoderTest {
+
+    private static final NodeId NODE = new NodeId(2, "test.variable");
+
+    @Test
+    public void decodeScalarValues() {
+        OpcuaDataValueDecoder decoder = new OpcuaDataValueDecoder();
+
+        BaseDefaultFieldItem first = decoder.decode(NODE, new DataValue(new Variant(42)));
+        BaseDefaultFieldItem second = decoder.decode(NODE, new DataValue(new Variant(43)));
+
+        assertTrue(first instanceof DefaultIntegerFieldItem);
+        assertEquals(Integer.valueOf(42), first.getInteger(0));
+        assertEquals(Integer.valueOf(43), second.getInteger(0));
+        assertEquals(1L, decoder.getStatistics().get("plannedDecoders"));
+        assertEquals(2L, decoder.getStatistics().get("decodedValues"));
+    }
+
+    @Test
+    public void decodeArrayValues() {
+        OpcuaDataValueDecoder decoder = new OpcuaDataValueDecoder();
+
+        BaseDefaultFieldItem item = decoder.decode(NODE, new DataValue(new Variant(new Float[]{1.0f, 2.0f, 3.0f})));
+
+        assertTrue(item instanceof DefaultFloatFieldItem);
+        assertEquals(3, item.getNumberOfValues());
+        assertEquals(Float.valueOf(3.0f), item.getFloat(2));
+    }
+
+    @Test
+    public void replanOnChangedDataType() {
+        OpcuaDataValueDecoder decoder = new OpcuaDataValueDecoder();
+
+        decoder.decode(NODE, new DataValue(new Variant(42)));
+        BaseDefaultFieldItem unsigned = decoder.decode(NODE, new DataValue(new Variant(uint(42))));
+        BaseDefaultFieldItem string = decoder.decode(NODE, new DataValue(new Variant("42")));
+
+        assertTrue(unsigned instanceof DefaultLongFieldItem);
+        assertEquals(Long.valueOf(42L), unsigned.getLong(0));
+        assertTrue(string instanceof DefaultStringFieldItem);
+        assertEquals(3L, decoder.getStatistics().get("plannedDecoders"));
+    }
+
+    @Test
+    public void nullValueDoesNotDetermineDecoder() {
+        OpcuaDataValueDecoder decoder = new OpcuaDataValueDecoder();
+
+        BaseDefaultFieldItem nullItem = decoder.decode(NODE, new DataValue(Variant.NULL_VALUE));
+        BaseDefaultFieldItem integer = decoder.decode(NODE, new DataValue(new Variant(42)));
+
+        assertTrue(nullItem instanceof DefaultStringFieldItem);
+        assertTrue(integer instanceof DefaultIntegerFieldItem);
+        assertEquals(Integer.valueOf(42), integer.getInteger(0));
+        assertEquals(1L, decoder.getStatistics().get("plannedDecoders"));
+    }
+
+    @Test
+    public void replanIfDataTypeChangesWithoutClassCast() {
+        OpcuaDataValueDecoder decoder = new OpcuaDataValueDecoder();
+
+        decoder.decode(NODE, new DataValue(new Variant("text")));
+        BaseDefaultFieldItem integer = decoder.decode(NODE, new DataValue(new Variant(42)));
+
+        // The string decoder would have accepted the integer too
+        assertTrue(integer instanceof DefaultIntegerFieldItem);
+        assertEquals(2L, decoder.getStatistics().get("plannedDecoders"));
+    }
+}
@@ -18,12 +18,15 @@
 */
 package org.apache.plc4x.java.opcua.protocol;
 
+import org.apache.plc4x.java.api.exceptions.PlcInvalidFieldException;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.DeadbandType;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import static org.apache.plc4x.java.opcua.UtilsTest.assertMatching;
 import static org.apache.plc4x.java.opcua.protocol.OpcuaField.ADDRESS_PATTERN;
+import static org.junit.jupiter.api.Assertions.*;
 /**
  * @author Matthias Milan Stlrljic
  * Created by Matthias Milan Stlrljic on 10.05.2019
@@ -46,6 +49,31 @@ public class OpcuaFieldTest {
         assertMatching(ADDRESS_PATTERN, "ns=2;s=test.variable.name.inspect");
         assertMatching(ADDRESS_PATTERN, "ns=2;g=09087e75-8e5e-499b-954f-f2a8624db28a");
         assertMatching(ADDRESS_PATTERN, "ns=2;b=asvaewavarahreb==");
+        assertMatching(ADDRESS_PATTERN, "ns=2;s=test.variable.name.inspect;deadbandAbsolute=0.5;queueSize=10");
 
     }
+
+    @Test
+    public void testOpcuaMonitoringOptions() {
+        OpcuaField plain = OpcuaField.of("ns=2;s=test.variable.name.inspect");
+        assertEquals(DeadbandType.None, plain.getDeadbandType());
+        assertEquals(1, plain.getQueueSize());
+        assertTrue(plain.isDiscardOldest());
+        assertFalse(plain.getSamplingInterval().isPresent());
+
+        OpcuaField absolute = OpcuaField.of("ns=2;s=test.variable.name.inspect;deadbandAbsolute=0.5;queueSize=10;discardOldest=false;samplingInterval=250");
+        assertEquals("test.variable.name.inspect", absolute.getIdentifier());
+        assertEquals(DeadbandType.Absolute, absolute.getDeadbandType());
+        assertEquals(0.5, absolute.getDeadbandValue(), 0.0);
+        assertEquals(10, absolute.getQueueSize());
+        assertFalse(absolute.isDiscardOldest());
+        assertEquals(Double.valueOf(250), absolute.getSamplingInterval().orElse(null));
+
+        OpcuaField percent = OpcuaField.of("ns=2;i=10846;deadbandPercent=2.5");
+        assertEquals(DeadbandType.Percent, percent.getDeadbandType());
+        assertEquals(2.5, percent.getDeadbandValue(), 0.0);
+
+        assertThrows(PlcInvalidFieldException.class, () -> OpcuaField.of("ns=2;i=10846;deadbandPercent=200"));
+        assertThrows(PlcInvalidFieldException.class, () -> OpcuaField.of("ns=2;i=10846;unknownOption=1"));
+    }
 }
@@ -21,7 +21,10 @@ package org.apache.plc4x.java.s7;
 import org.apache.plc4x.java.api.PlcConnection;
 import org.apache.plc4x.java.api.authentication.PlcAuthentication;
 import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
+import org.apache.plc4x.java.api.exceptions.PlcInvalidFieldException;
+import org.apache.plc4x.java.api.model.PlcField;
 import org.apache.plc4x.java.s7.connection.S7PlcConnection;
+import org.apache.plc4x.java.s7.netty.util.S7PlcFieldHandler;
 import org.apache.plc4x.java.spi.PlcDriver;
 
 import java.net.InetAddress;
@@ -78,4 +81,20 @@ public class S7PlcDriver implements PlcDriver {
         throw new PlcConnectionException("Basic S7 connections don't support authentication.");
     }
 
+    @Override
+    public String getPoolableKey(String url) throws PlcConnectionException {
+        Matcher matcher = S7_URI_PATTERN.matcher(url);
+        if (!matcher.matches()) {
+            throw new PlcConnectionException(
+                "Connection url doesn't match the format 's7://{host|ip}/{rack}/{slot}'");
+        }
+        // Everything but the options
+        return matcher.group("params") != null ? url.substring(0, matcher.start("params")) : url;
+    }
+
+    @Override
+    public PlcField prepareField(String fieldQuery) throws PlcInvalidFieldException {
+        return new S7PlcFieldHandler().createField(fieldQuery);
+    }
+
 }
@@ -36,6 +36,7 @@ import org.apache.plc4x.java.base.connection.TcpSocketChannelFactory;
 import org.apache.plc4x.java.base.events.ConnectEvent;
 import org.apache.plc4x.java.base.events.ConnectedEvent;
 import org.apache.plc4x.java.base.messages.*;
+import org.apache.plc4x.java.base.protocol.ReadRequestCoalescingProtocol;
 import org.apache.plc4x.java.isoontcp.protocol.IsoOnTcpProtocol;
 import org.apache.plc4x.java.isotp.protocol.IsoTPProtocol;
 import org.apache.plc4x.java.isotp.protocol.model.tpdus.DisconnectRequestTpdu;
@@ -95,6 +96,8 @@ public class S7PlcConnection extends NettyPlcConnection implements PlcReader, Pl
     private final short paramMaxAmqCaller;
     private final short paramMaxAmqCallee;
     private final S7ControllerType paramControllerType;
+    // Window in ms in which concurrent read requests are merged, negative values disable coalescing.
+    private final long paramReadCoalescingWindow;
 
     public S7PlcConnection(InetAddress address, int rack, int slot, String params) {
         this(new TcpSocketChannelFactory(address, ISO_ON_TCP_PORT), rack, slot, params);
@@ -114,6 +117,7 @@ public class S7PlcConnection extends NettyPlcConnection implements PlcReader, Pl
         short curParamMaxAmqCaller = 8;
         short curParamMaxAmqCallee = 8;
         S7ControllerType curParamControllerType = S7ControllerType.ANY;
+        long curParamReadCoalescingWindow = -1;
 
         if (!StringUtils.isEmpty(params)) {
             for (String param : params.split("&")) {
@@ -134,6 +138,12 @@ public class S7PlcConnection extends NettyPlcConnection implements PlcReader, Pl
                         case "controller-type":
                             curParamControllerType = S7ControllerType.valueOf(paramValue);
                             break;
+                        case "read-coalescing-window":
+                            curParamReadCoalescingWindow = Long.parseLong(paramValue);
+                            break;
+                        case "connect-timeout":
+                            connectTimeout = Long.parseLong(paramValue);
+                            break;
                         default:
                             logger.debug("Unknown parameter {} with value {}", paramName, paramValue);
                     }
@@ -156,6 +166,7 @@ public class S7PlcConnection extends NettyPlcConnection implements PlcReader, Pl
         this.paramMaxAmqCaller = curParamMaxAmqCaller;
         this.paramMaxAmqCallee = curParamMaxAmqCallee;
         this.paramControllerType = curParamControllerType;
+        this.paramReadCoalescingWindow = curParamReadCoalescingWindow;
     }
 
     @Override
@@ -193,6 +204,9 @@ public class S7PlcConnection extends NettyPlcConnection implements PlcReader, Pl
                 pipeline.addLast(new S7Protocol(paramMaxAmqCaller, paramMaxAmqCallee, paramPduSize, paramControllerType,
                     new DefaultS7MessageProcessor()));
                 pipeline.addLast(new Plc4XS7Protocol());
+                if (paramReadCoalescingWindow >= 0) {
+                    pipeline.addLast(new ReadRequestCoalescingProtocol(S7PlcConnection.this, paramReadCoalescingWindow, TimeUnit.MILLISECONDS));
+                }
             }
         };
     }
@@ -232,6 +246,10 @@ public class S7PlcConnection extends NettyPlcConnection implements PlcReader, Pl
         return paramControllerType;
     }
 
+    public long getParamReadCoalescingWindow() {
+        return paramReadCoalescingWindow;
+    }
+
     @Override
     public void close() throws PlcConnectionException {
         if ((channel != null) && channel.isOpen()) {
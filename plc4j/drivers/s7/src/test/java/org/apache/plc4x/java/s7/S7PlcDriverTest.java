@@ -78,4 +78,11 @@ public class S7PlcDriverTest {
         new S7PlcDriver().connect("s7://localhost/1/2", new PlcUsernamePasswordAuthentication("user", "pass"));
     }
 
+    @Test
+    @Category(FastTests.class)
+    public void getPoolableKey() throws PlcConnectionException {
+        assertThat(new S7PlcDriver().getPoolableKey("s7://localhost/1/2?randomOption=true"), equalTo("s7://localhost/1/2"));
+        assertThat(new S7PlcDriver().getPoolableKey("s7://localhost/1/2"), equalTo("s7://localhost/1/2"));
+    }
+
 }
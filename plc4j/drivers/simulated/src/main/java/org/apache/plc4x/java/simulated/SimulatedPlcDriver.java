@@ -21,8 +21,11 @@ package org.apache.plc4x.java.simulated;
 import org.apache.plc4x.java.api.PlcConnection;
 import org.apache.plc4x.java.api.authentication.PlcAuthentication;
 import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
+import org.apache.plc4x.java.api.exceptions.PlcInvalidFieldException;
+import org.apache.plc4x.java.api.model.PlcField;
 import org.apache.plc4x.java.simulated.connection.SimulatedPlcConnection;
 import org.apache.plc4x.java.simulated.connection.TestDevice;
+import org.apache.plc4x.java.simulated.connection.TestFieldHandler;
 import org.apache.plc4x.java.spi.PlcDriver;
 
 /**
@@ -60,4 +63,9 @@ public class SimulatedPlcDriver implements PlcDriver {
         throw new PlcConnectionException("Test driver does not support authentication.");
     }
 
+    @Override
+    public PlcField prepareField(String fieldQuery) throws PlcInvalidFieldException {
+        return new TestFieldHandler().createField(fieldQuery);
+    }
+
 }
@@ -95,6 +95,11 @@ public class TestField implements PlcField {
         return numElements;
     }
 
+    @Override
+    public Class<?> getDefaultJavaType() {
+        return dataType;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -20,6 +20,7 @@
 package org.apache.plc4x.java.simulated;
 
 import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
+import org.apache.plc4x.java.api.exceptions.PlcInvalidFieldException;
 import org.apache.plc4x.java.simulated.connection.SimulatedPlcConnection;
 import org.assertj.core.api.WithAssertions;
 import org.junit.jupiter.api.Test;
@@ -54,4 +55,10 @@ class SimulatedPlcDriverTest implements WithAssertions {
             .isInstanceOf(PlcConnectionException.class)
             .hasMessage("Invalid URL: no device name given.");
     }
+
+    @Test
+    void prepareField() {
+        assertThat(SUT.prepareField("RANDOM/foo:String").getDefaultJavaType()).isEqualTo(String.class);
+        assertThatThrownBy(() -> SUT.prepareField("foo")).isInstanceOf(PlcInvalidFieldException.class);
+    }
 }
\ No newline at end of file
@@ -37,6 +37,7 @@ public class TestFieldTest {
         assertThat(field.getName(), equalTo("test"));
         assertThat(field.getDataType(), equalTo(Integer.class));
         assertThat(field.getNumElements(), equalTo(2));
+        assertThat(field.getDefaultJavaType(), equalTo(Integer.class));
         assertThat(field.toString(),
             equalTo("TestField{type=RANDOM, name='test', dataType=class java.lang.Integer, numElements=2}"));
     }
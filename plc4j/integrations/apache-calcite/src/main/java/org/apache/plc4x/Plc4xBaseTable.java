@@ -25,24 +25,37 @@ import org.apache.calcite.linq4j.Enumerator;
 import org.apache.calcite.rel.*;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexLiteral;
+import org.apache.calcite.rex.RexNode;
 import org.apache.calcite.schema.Statistic;
 import org.apache.calcite.schema.impl.AbstractTable;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.sql.type.SqlTypeName;
 import org.apache.calcite.util.ImmutableBitSet;
-import org.apache.plc4x.java.api.exceptions.PlcRuntimeException;
 import org.apache.plc4x.java.scraper.config.JobConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.sql.Timestamp;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.*;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
 
 /**
  * Base for Stream and "Table" version of the Plc4xTable.
@@ -52,17 +65,62 @@ public abstract class Plc4xBaseTable extends AbstractTable {
 
     private static final Logger logger = LoggerFactory.getLogger(Plc4xBaseTable.class);
 
-    private final BlockingQueue<Plc4xSchema.Record> queue;
+    private static final int TIMESTAMP_COLUMN = 0;
+    private static final int SOURCE_COLUMN = 1;
+    private static final int FIRST_FIELD_COLUMN = 2;
+
+    // Calcite compares timestamps in local time
+    private static final TimeZone LOCAL_TZ = TimeZone.getDefault();
+
+    // Fields of these types become SQL columns, so Calcite can compare and aggregate them. All but strings are
+    // NOT NULL, so Calcite uses primitives for them.
+    private static final Map<Class<?>, SqlTypeName> SQL_TYPES = new HashMap<>();
+
+    static {
+        SQL_TYPES.put(Boolean.class, SqlTypeName.BOOLEAN);
+        SQL_TYPES.put(Byte.class, SqlTypeName.TINYINT);
+        SQL_TYPES.put(Short.class, SqlTypeName.SMALLINT);
+        SQL_TYPES.put(Integer.class, SqlTypeName.INTEGER);
+        SQL_TYPES.put(Long.class, SqlTypeName.BIGINT);
+        SQL_TYPES.put(Float.class, SqlTypeName.REAL);
+        SQL_TYPES.put(Double.class, SqlTypeName.DOUBLE);
+        SQL_TYPES.put(String.class, SqlTypeName.VARCHAR);
+    }
+
+    // Every scan reads the records through its own cursor
+    private final Supplier<RecordCursor> cursors;
+    private final Supplier<Plc4xSchema.Record> firstRecord;
     private final JobConfiguration conf;
     private final long tableCutoff;
-    private Plc4xSchema.Record current;
+    private final Map<String, Class<?>> fieldTypes;
+    private final Plc4xSchema schema;
     private List<String> names;
+    // Resolved with the first row type, so all row types and values of the table agree
+    private volatile Class<?>[] fieldClasses;
 
+    /**
+     * All scans consume the records of the same queue.
+     * The types of the fields are taken from the first queued record, if there is one when the row type is needed.
+     */
     public Plc4xBaseTable(BlockingQueue<Plc4xSchema.Record> queue, JobConfiguration conf, long tableCutoff) {
+        this(() -> queue::poll, queue::peek, conf, tableCutoff, Collections.emptyMap(), null);
+    }
+
+    /**
+     * @param cursors opens the cursor of each scan.
+     * @param firstRecord a record to infer the types of fields missing in fieldTypes from or null, must not block.
+     * @param fieldTypes default java type of the fields, e.g. from {@link org.apache.plc4x.java.api.model.PlcField#getDefaultJavaType()}.
+     * @param schema if given, only the fields needed by the open scans are scraped.
+     */
+    Plc4xBaseTable(Supplier<RecordCursor> cursors, Supplier<Plc4xSchema.Record> firstRecord, JobConfiguration conf,
+                   long tableCutoff, Map<String, Class<?>> fieldTypes, Plc4xSchema schema) {
         this.tableCutoff = tableCutoff;
         logger.info("Instantiating new PLC4X Table with configuration: {}", conf);
-        this.queue = queue;
+        this.cursors = cursors;
+        this.firstRecord = firstRecord;
         this.conf = conf;
+        this.fieldTypes = fieldTypes;
+        this.schema = schema;
         // Extract names
         names = new ArrayList<>(conf.getFields().keySet());
     }
@@ -93,67 +151,125 @@ public abstract class Plc4xBaseTable extends AbstractTable {
         };
     }
 
+    /**
+     * Fields with a known boxed primitive or string type become SQL columns, all others are typed by their java class.
+     * Boxed primitives are NOT NULL, the scans skip records without a value for them, see {@link #hasValues}. Strings
+     * and other types are nullable, so failed reads of them become nulls. Never waits for records, so tables of
+     * offline PLCs can be planned.
+     */
     @Override
     public RelDataType getRowType(RelDataTypeFactory typeFactory) {
-        // Create the table spec
-        // Block until the first result is in the queue
-        CompletableFuture<Plc4xSchema.Record> future = CompletableFuture.supplyAsync(new FirstElementFetcher(queue));
-        Plc4xSchema.Record first;
-        try {
-            first = future.get(5, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new PlcRuntimeException("Thread was interrupted!", e);
-        } catch (ExecutionException | TimeoutException e) {
-            throw new PlcRuntimeException("Unable to fetch first record and infer arguments!", e);
-        }
-        logger.info("Inferring types for Table '{}' based on values: {}", conf.getName(), first.values);
-        // Extract types
-        List<RelDataType> types = names.stream()
-            .map(n -> {
-                Object o = first.values.get(n);
-                logger.debug("Infer field '{}' as class '{}'", n, o.getClass());
-                return typeFactory.createJavaType(o.getClass());
-            })
-            .collect(Collectors.toList());
+        Class<?>[] classes = getFieldClasses();
         List<String> pre = new ArrayList<>(Arrays.asList("timestamp", "source"));
         pre.addAll(names);
-        List<RelDataType> preTypes = Stream.of(Timestamp.class, String.class)
-            .map(typeFactory::createJavaType)
-            .collect(Collectors.toList());
-        preTypes.addAll(types);
+        // The timestamp is a SQL type, so that it can be used in windows
+        List<RelDataType> preTypes = new ArrayList<>(Arrays.asList(
+            typeFactory.createSqlType(SqlTypeName.TIMESTAMP),
+            typeFactory.createSqlType(SqlTypeName.VARCHAR)));
+        for (Class<?> clazz : classes) {
+            SqlTypeName sqlType = SQL_TYPES.get(clazz);
+            RelDataType type = sqlType != null ? typeFactory.createSqlType(sqlType) : typeFactory.createJavaType(clazz);
+            preTypes.add(typeFactory.createTypeWithNullability(type, !isNotNull(clazz)));
+        }
         return typeFactory.createStructType(preTypes, pre);
     }
 
+    private static boolean isNotNull(Class<?> clazz) {
+        return clazz != String.class && SQL_TYPES.containsKey(clazz);
+    }
+
+    private Class<?>[] getFieldClasses() {
+        Class<?>[] classes = fieldClasses;
+        if (classes == null) {
+            synchronized (this) {
+                if (fieldClasses == null) {
+                    fieldClasses = resolveFieldClasses();
+                }
+                classes = fieldClasses;
+            }
+        }
+        return classes;
+    }
+
+    private Class<?>[] resolveFieldClasses() {
+        Plc4xSchema.Record first = firstRecord.get();
+        Class<?>[] classes = new Class<?>[names.size()];
+        for (int i = 0; i < classes.length; i++) {
+            String name = names.get(i);
+            Class<?> clazz = fieldTypes.get(name);
+            if ((clazz == null || clazz == Object.class) && first != null && first.values.get(name) != null) {
+                clazz = first.values.get(name).getClass();
+            }
+            classes[i] = clazz != null ? clazz : Object.class;
+            logger.debug("Infer field '{}' of table '{}' as class '{}'", name, conf.getName(), classes[i]);
+        }
+        return classes;
+    }
+
     /**
      * if tableCutoff is positive, then the row gets limited to that.
      */
     public Enumerable<Object[]> scan(DataContext root) {
+        return scan(root, new ArrayList<>(), null);
+    }
+
+    /**
+     * Only the projected columns are materialized and, if the table belongs to a schema, only the projected fields are
+     * scraped while the scan is open. Comparisons of the timestamp or source column with literals are evaluated before
+     * the rows are materialized and removed from the filters, all other filters are left to Calcite.
+     * If tableCutoff is positive, then the records scanned get limited to that. Records skipped for lacking a value
+     * of a NOT NULL column don't count.
+     */
+    public Enumerable<Object[]> scan(DataContext root, List<RexNode> filters, int[] projects) {
+        int[] columns = projects != null ? projects : IntStream.range(0, FIRST_FIELD_COLUMN + names.size()).toArray();
+        Set<String> fields = getFields(columns);
+        Set<String> notNullFields = getNotNullFields(fields);
+        Predicate<Plc4xSchema.Record> predicate = record -> true;
+        for (Iterator<RexNode> iterator = filters.iterator(); iterator.hasNext(); ) {
+            Predicate<Plc4xSchema.Record> filter = toPredicate(iterator.next());
+            if (filter != null) {
+                predicate = predicate.and(filter);
+                iterator.remove();
+            }
+        }
+        Predicate<Plc4xSchema.Record> pushedDownFilter = predicate;
         return new AbstractEnumerable<Object[]>() {
             @Override
             public Enumerator<Object[]> enumerator() {
+                Runnable releaseFields = requireFields(fields);
+                RecordCursor cursor = openCursor();
                 return new Enumerator<Object[]>() {
 
                     private final AtomicLong counter = new AtomicLong(0);
 
+                    private long skipped;
+
+                    private Object[] current;
+
                     @Override
                     public Object[] current() {
-                        List<Object> objects = new ArrayList<>(Arrays.asList(new Timestamp(current.timestamp.toEpochMilli()), current.source));
-                        List<Object> objects2 = names.stream().map(name -> current.values.get(name)).collect(Collectors.toList());
-                        objects.addAll(objects2);
-                        return objects.toArray();
+                        return current;
                     }
 
                     @Override
                     public boolean moveNext() {
                         try {
-                            current = queue.take();
-                            // If stream, simply return
-                            if (tableCutoff <= 0L) {
-                                return true;
+                            while (tableCutoff <= 0L || counter.get() < tableCutoff) {
+                                Plc4xSchema.Record record = cursor.poll(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                                if (record == null) {
+                                    // A snapshot is exhausted
+                                    return false;
+                                }
+                                if (!hasValues(record, notNullFields)) {
+                                    skipped++;
+                                    continue;
+                                }
+                                counter.incrementAndGet();
+                                if (pushedDownFilter.test(record)) {
+                                    current = materialize(record, columns);
+                                    return true;
+                                }
                             }
-                            // If table, return if below cutoff
-                            return counter.getAndIncrement() < tableCutoff;
                         } catch (InterruptedException e) {
                             Thread.currentThread().interrupt();
                         }
@@ -167,32 +283,168 @@ public abstract class Plc4xBaseTable extends AbstractTable {
 
                     @Override
                     public void close() {
-                        // Unimplemented
+                        releaseFields.run();
+                        if (skipped > 0) {
+                            logger.debug("Skipped {} records of table '{}' without values of {}", skipped,
+                                conf.getName(), notNullFields);
+                        }
                     }
                 };
             }
         };
     }
 
+    RecordCursor openCursor() {
+        return cursors.get();
+    }
+
     /**
-     * Waits until a first (non null) element is in the queue
+     * @return the fields read by the columns.
      */
-    private static class FirstElementFetcher implements Supplier<Plc4xSchema.Record> {
+    Set<String> getFields(int[] columns) {
+        Set<String> fields = new HashSet<>();
+        for (int column : columns) {
+            if (column >= FIRST_FIELD_COLUMN) {
+                fields.add(names.get(column - FIRST_FIELD_COLUMN));
+            }
+        }
+        return fields;
+    }
 
-        private final BlockingQueue<Plc4xSchema.Record> queue;
+    /**
+     * @return the fields of NOT NULL columns.
+     */
+    Set<String> getNotNullFields(Set<String> fields) {
+        Class<?>[] classes = getFieldClasses();
+        Set<String> notNullFields = new HashSet<>();
+        for (String field : fields) {
+            if (isNotNull(classes[names.indexOf(field)])) {
+                notNullFields.add(field);
+            }
+        }
+        return notNullFields;
+    }
+
+    /**
+     * Failed reads and records scraped before the fields were changed have no value for some fields. Such records
+     * can't be rows of NOT NULL columns and are skipped.
+     */
+    static boolean hasValues(Plc4xSchema.Record record, Set<String> notNullFields) {
+        for (String field : notNullFields) {
+            if (record.values.get(field) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Only scrapes the fields needed by the open scans, if the table belongs to a schema.
+     *
+     * @return releases the fields when the scan is closed.
+     */
+    Runnable requireFields(Set<String> fields) {
+        return schema != null ? schema.requireFields(conf.getName(), fields) : () -> { };
+    }
+
+    private Object[] materialize(Plc4xSchema.Record record, int[] columns) {
+        Object[] row = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            row[i] = getValue(record, columns[i]);
+        }
+        return row;
+    }
+
+    /**
+     * @return the value of the column in the row of the record.
+     */
+    Object getValue(Plc4xSchema.Record record, int column) {
+        if (column == TIMESTAMP_COLUMN) {
+            return localMillis(record.timestamp);
+        } else if (column == SOURCE_COLUMN) {
+            return record.source;
+        } else {
+            // Drivers might return a narrower type than their default java type
+            int field = column - FIRST_FIELD_COLUMN;
+            return WindowAggregator.convert(record.values.get(names.get(field)), getFieldClasses()[field]);
+        }
+    }
 
-        private FirstElementFetcher(BlockingQueue<Plc4xSchema.Record> queue) {
-            this.queue = queue;
+    /**
+     * @return the filter as predicate on the records or null if it can't be evaluated on them.
+     */
+    private static Predicate<Plc4xSchema.Record> toPredicate(RexNode filter) {
+        if (!(filter instanceof RexCall) || ((RexCall) filter).getOperands().size() != 2) {
+            return null;
+        }
+        RexCall call = (RexCall) filter;
+        SqlKind kind = call.getKind();
+        RexNode left = call.getOperands().get(0);
+        RexNode right = call.getOperands().get(1);
+        if (left instanceof RexLiteral && right instanceof RexInputRef) {
+            RexNode swap = left;
+            left = right;
+            right = swap;
+            kind = kind.reverse();
+        }
+        if (!(left instanceof RexInputRef) || !(right instanceof RexLiteral)) {
+            return null;
+        }
+        int column = ((RexInputRef) left).getIndex();
+        RexLiteral literal = (RexLiteral) right;
+        if (column == TIMESTAMP_COLUMN) {
+            Long timestamp = literal.getValueAs(Long.class);
+            if (timestamp == null) {
+                return null;
+            }
+            return toPredicate(kind, record -> Long.compare(localMillis(record.timestamp), timestamp));
+        }
+        if (column == SOURCE_COLUMN) {
+            String source = literal.getValueAs(String.class);
+            if (source == null) {
+                return null;
+            }
+            return toPredicate(kind, record -> record.source.compareTo(source));
         }
+        return null;
+    }
+
+    /**
+     * @return the timestamp as Calcite represents timestamps.
+     */
+    static long localMillis(Instant timestamp) {
+        long millis = timestamp.toEpochMilli();
+        return millis + LOCAL_TZ.getOffset(millis);
+    }
 
-        @Override
-        public Plc4xSchema.Record get() {
-            Plc4xSchema.Record first;
-            do {
-                first = queue.peek();
-            } while (first == null);
-            return first;
+    private static Predicate<Plc4xSchema.Record> toPredicate(SqlKind kind, ToIntFunction<Plc4xSchema.Record> comparison) {
+        switch (kind) {
+            case EQUALS:
+                return record -> comparison.applyAsInt(record) == 0;
+            case NOT_EQUALS:
+                return record -> comparison.applyAsInt(record) != 0;
+            case LESS_THAN:
+                return record -> comparison.applyAsInt(record) < 0;
+            case LESS_THAN_OR_EQUAL:
+                return record -> comparison.applyAsInt(record) <= 0;
+            case GREATER_THAN:
+                return record -> comparison.applyAsInt(record) > 0;
+            case GREATER_THAN_OR_EQUAL:
+                return record -> comparison.applyAsInt(record) >= 0;
+            default:
+                return null;
         }
     }
 
+    /**
+     * Position of a scan in the records of the table.
+     */
+    interface RecordCursor {
+
+        /**
+         * @return the next record or null if none arrived within the timeout.
+         */
+        Plc4xSchema.Record poll(long timeout, TimeUnit unit) throws InterruptedException;
+    }
+
 }
@@ -20,53 +20,170 @@ package org.apache.plc4x;
 
 import org.apache.calcite.schema.Table;
 import org.apache.calcite.schema.impl.AbstractSchema;
+import org.apache.plc4x.java.PlcDriverManager;
+import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
 import org.apache.plc4x.java.api.exceptions.PlcRuntimeException;
 import org.apache.plc4x.java.scraper.ResultHandler;
-import org.apache.plc4x.java.scraper.Scraper;
-import org.apache.plc4x.java.scraper.ScraperImpl;
+import org.apache.plc4x.java.scraper.ScrapeJob;
 import org.apache.plc4x.java.scraper.config.JobConfiguration;
+import org.apache.plc4x.java.scraper.config.JobConfigurationImpl;
 import org.apache.plc4x.java.scraper.config.ScraperConfiguration;
 import org.apache.plc4x.java.scraper.exception.ScraperException;
+import org.apache.plc4x.java.scraper.triggeredscraper.TriggeredScrapeJobImpl;
+import org.apache.plc4x.java.scraper.triggeredscraper.TriggeredScraperImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
-public class Plc4xSchema extends AbstractSchema {
+public class Plc4xSchema extends AbstractSchema implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(Plc4xSchema.class);
+
+    // Records retained per job
+    static final int BUFFER_SIZE = 1024;
 
     protected final ScraperConfiguration configuration;
-    protected final Scraper scraper;
-    protected final QueueHandler handler;
-    protected final Map<String, BlockingQueue<Record>> queues;
+    protected final TriggeredScraperImpl scraper;
+    protected final BufferHandler handler;
+    protected final Map<String, RecordRingBuffer> buffers;
     protected final Map<String, Table> tableMap;
+    // job -> field -> default java type of the field
+    protected final Map<String, Map<String, Class<?>>> fieldTypes;
+    // job -> fields needed by each open scan
+    private final Map<String, List<Set<String>>> requiredFields = new HashMap<>();
 
     public Plc4xSchema(ScraperConfiguration configuration, long tableCutoff) throws ScraperException {
         this.configuration = configuration;
-        this.handler = new QueueHandler();
-        this.scraper = new ScraperImpl(configuration, handler);
-        this.queues = configuration.getJobConfigurations().stream()
+        this.handler = new BufferHandler();
+        this.scraper = new TriggeredScraperImpl(handler, createJobs());
+        this.buffers = configuration.getJobConfigurations().stream()
             .collect(Collectors.toMap(
                 JobConfiguration::getName,
-                conf -> new ArrayBlockingQueue<Record>(1000)
+                conf -> new RecordRingBuffer(BUFFER_SIZE)
+            ));
+        PlcDriverManager driverManager = new PlcDriverManager();
+        this.fieldTypes = configuration.getJobConfigurations().stream()
+            .collect(Collectors.toMap(
+                JobConfiguration::getName,
+                conf -> resolveFieldTypes(driverManager, conf)
             ));
         // Create the tables
         this.tableMap = configuration.getJobConfigurations().stream()
             .collect(Collectors.toMap(
                 JobConfiguration::getName,
-                conf -> defineTable(queues.get(conf.getName()), conf, tableCutoff)
+                conf -> defineTable(buffers.get(conf.getName()), conf, tableCutoff)
             ));
         // Start the scraper
         this.scraper.start();
     }
 
-    Table defineTable(BlockingQueue<Record> queue, JobConfiguration configuration, Long limit) {
+    /**
+     * Stops the scraper and releases its threads.
+     */
+    @Override
+    public void close() {
+        scraper.stop();
+    }
+
+    Table defineTable(RecordRingBuffer buffer, JobConfiguration configuration, Long limit) {
+        Map<String, Class<?>> types = fieldTypes.get(configuration.getName());
         if (limit <= 0) {
-            return new Plc4xStreamTable(queue, configuration);
+            return new Plc4xStreamTable(buffer, configuration, types, this);
         } else {
-            return new Plc4xTable(queue, configuration, limit);
+            return new Plc4xTable(buffer, configuration, limit, types);
+        }
+    }
+
+    /**
+     * Parses the fields with the driver of the first source of the job, so the types are known without connecting.
+     * Fields the driver can't parse offline are typed as {@link Object}.
+     */
+    private Map<String, Class<?>> resolveFieldTypes(PlcDriverManager driverManager, JobConfiguration conf) {
+        Map<String, Class<?>> types = new HashMap<>();
+        String connectionString = conf.getSources().stream()
+            .map(alias -> configuration.getSources().get(alias))
+            .findFirst()
+            .orElse(null);
+        conf.getFields().forEach((alias, query) -> {
+            Class<?> type = Object.class;
+            if (connectionString != null) {
+                try {
+                    type = driverManager.prepareField(connectionString, query).getDefaultJavaType();
+                } catch (PlcConnectionException | RuntimeException e) {
+                    logger.debug("Unable to determine the type of field '{}' of job '{}'", alias, conf.getName(), e);
+                }
+            }
+            types.put(alias, type);
+        });
+        return types;
+    }
+
+    /**
+     * Restricts the fields scraped for the job to the fields needed by the open scans.
+     * All fields are scraped while no scan is open.
+     *
+     * @return releases the fields when the scan is closed.
+     */
+    synchronized Runnable requireFields(String job, Set<String> fields) {
+        List<Set<String>> openScans = requiredFields.computeIfAbsent(job, name -> new ArrayList<>());
+        openScans.add(fields);
+        updateScrapedFields();
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                synchronized (this) {
+                    openScans.remove(fields);
+                    updateScrapedFields();
+                }
+            }
+        };
+    }
+
+    private void updateScrapedFields() {
+        try {
+            // Only jobs with changed fields are rescheduled
+            scraper.reconfigure(createJobs());
+        } catch (ScraperException e) {
+            throw new PlcRuntimeException("Unable to change the scraped fields", e);
+        }
+    }
+
+    private List<ScrapeJob> createJobs() throws ScraperException {
+        List<ScrapeJob> jobs = new ArrayList<>();
+        for (JobConfigurationImpl conf : configuration.getJobConfigurations()) {
+            Map<String, String> sources = new LinkedHashMap<>();
+            conf.getSources().forEach(alias -> sources.put(alias, configuration.getSources().get(alias)));
+            jobs.add(new TriggeredScrapeJobImpl(conf.getName(), "(SCHEDULED," + conf.getScrapeRate() + ")", sources, getScrapedFields(conf)));
         }
+        return jobs;
+    }
+
+    private Map<String, String> getScrapedFields(JobConfiguration conf) {
+        List<Set<String>> openScans = requiredFields.getOrDefault(conf.getName(), Collections.emptyList());
+        if (openScans.isEmpty()) {
+            return conf.getFields();
+        }
+        Map<String, String> fields = new LinkedHashMap<>();
+        conf.getFields().forEach((alias, query) -> {
+            if (openScans.stream().anyMatch(scanFields -> scanFields.contains(alias))) {
+                fields.put(alias, query);
+            }
+        });
+        if (fields.isEmpty()) {
+            // Scans without fields still need records, e.g. to count them
+            conf.getFields().entrySet().stream().findFirst().ifPresent(entry -> fields.put(entry.getKey(), entry.getValue()));
+        }
+        return fields;
     }
 
     @Override
@@ -88,17 +205,14 @@ public class Plc4xSchema extends AbstractSchema {
         }
     }
 
-    class QueueHandler implements ResultHandler {
+    /**
+     * Publishing never blocks, so slow queries don't stall the scraper.
+     */
+    class BufferHandler implements ResultHandler {
 
         @Override
         public void handle(String job, String alias, Map<String, Object> results) {
-            try {
-                Record record = new Record(Instant.now(), alias, results);
-                queues.get(job).put(record);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new PlcRuntimeException("Handling got interrupted", e);
-            }
+            buffers.get(job).publish(new Record(Instant.now(), alias, results));
         }
 
     }
@@ -19,20 +19,48 @@ under the License.
 package org.apache.plc4x;
 
 import org.apache.calcite.DataContext;
+import org.apache.calcite.linq4j.AbstractEnumerable;
 import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.plan.RelOptTable;
+import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.schema.ScannableTable;
 import org.apache.calcite.schema.StreamableTable;
 import org.apache.calcite.schema.Table;
+import org.apache.calcite.schema.TranslatableTable;
 import org.apache.plc4x.java.scraper.config.JobConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
-public class Plc4xStreamTable extends Plc4xBaseTable implements ScannableTable, StreamableTable {
+public class Plc4xStreamTable extends Plc4xBaseTable implements ScannableTable, StreamableTable, TranslatableTable {
+
+    private static final Logger logger = LoggerFactory.getLogger(Plc4xStreamTable.class);
+
+    // Windows are closed without further records once the clock passed their end by this
+    private static final long IDLE_WATERMARK_DELAY_MS = 100;
 
     public Plc4xStreamTable(BlockingQueue<Plc4xSchema.Record> queue, JobConfiguration conf) {
         super(queue, conf, -1L);
     }
 
+    /**
+     * Scans start at the next record published to the buffer.
+     *
+     * @param fieldTypes default java type of the fields.
+     * @param schema if given, only the fields needed by the open scans are scraped.
+     */
+    public Plc4xStreamTable(RecordRingBuffer buffer, JobConfiguration conf, Map<String, Class<?>> fieldTypes, Plc4xSchema schema) {
+        super(() -> buffer.newCursor(false)::poll, buffer::peekOldest, conf, -1L, fieldTypes, schema);
+    }
+
     @Override
     public Enumerable<Object[]> scan(DataContext root) {
         return super.scan(root);
@@ -42,4 +70,83 @@ public class Plc4xStreamTable extends Plc4xBaseTable implements ScannableTable,
     public Table stream() {
         return this;
     }
+
+    @Override
+    public RelNode toRel(RelOptTable.ToRelContext context, RelOptTable relOptTable) {
+        return new Plc4xStreamTableScan(context.getCluster(), relOptTable);
+    }
+
+    /**
+     * Evaluates a window aggregation incrementally, see {@link WindowAggregator}.
+     */
+    public Enumerable<Object[]> aggregate(long sizeMs, long slideMs, int[] keyColumns, WindowAggregator.Function[] functions,
+                                          int[] arguments, Class<?>[] resultClasses) {
+        return new AbstractEnumerable<Object[]>() {
+            @Override
+            public Enumerator<Object[]> enumerator() {
+                WindowAggregator aggregator = new WindowAggregator(sizeMs, slideMs, keyColumns, functions, arguments,
+                    resultClasses, Plc4xStreamTable.this::getValue);
+                Set<String> fields = getFields(keyColumns);
+                fields.addAll(getFields(arguments));
+                Set<String> notNullFields = getNotNullFields(fields);
+                Runnable releaseFields = requireFields(fields);
+                RecordCursor cursor = openCursor();
+                return new Enumerator<Object[]>() {
+
+                    private final Deque<Object[]> rows = new ArrayDeque<>();
+
+                    private Object[] current;
+
+                    @Override
+                    public Object[] current() {
+                        return current;
+                    }
+
+                    @Override
+                    public boolean moveNext() {
+                        try {
+                            while (rows.isEmpty()) {
+                                Long nextWindowEnd = aggregator.getNextWindowEnd();
+                                long timeout = nextWindowEnd == null
+                                    ? Long.MAX_VALUE
+                                    : nextWindowEnd + IDLE_WATERMARK_DELAY_MS - now();
+                                Plc4xSchema.Record record = cursor.poll(Math.max(timeout, 0), TimeUnit.MILLISECONDS);
+                                if (record != null) {
+                                    if (!hasValues(record, notNullFields)) {
+                                        continue;
+                                    }
+                                    aggregator.add(record, localMillis(record.timestamp), rows::add);
+                                } else {
+                                    // No records arrive, so the clock drives the watermark
+                                    aggregator.advance(now() - IDLE_WATERMARK_DELAY_MS, rows::add);
+                                }
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return false;
+                        }
+                        current = rows.poll();
+                        return true;
+                    }
+
+                    @Override
+                    public void reset() {
+                        throw new UnsupportedOperationException("A stream can't be reset");
+                    }
+
+                    @Override
+                    public void close() {
+                        releaseFields.run();
+                        if (aggregator.getLateRecords() > 0) {
+                            logger.debug("Dropped {} late records of {}", aggregator.getLateRecords(), aggregator);
+                        }
+                    }
+                };
+            }
+        };
+    }
+
+    private static long now() {
+        return localMillis(Instant.now());
+    }
 }
@@ -0,0 +1,53 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x;
+
+import org.apache.calcite.adapter.enumerable.EnumerableConvention;
+import org.apache.calcite.adapter.enumerable.EnumerableTableScan;
+import org.apache.calcite.plan.RelOptCluster;
+import org.apache.calcite.plan.RelOptPlanner;
+import org.apache.calcite.plan.RelOptTable;
+import org.apache.calcite.rel.RelCollation;
+import org.apache.calcite.rel.RelCollationTraitDef;
+import org.apache.calcite.schema.Table;
+
+import java.util.Collections;
+
+/**
+ * Scan of a {@link Plc4xStreamTable}, which registers the rules for the incremental evaluation of window aggregations.
+ */
+public class Plc4xStreamTableScan extends EnumerableTableScan {
+
+    public Plc4xStreamTableScan(RelOptCluster cluster, RelOptTable relOptTable) {
+        super(cluster,
+            cluster.traitSetOf(EnumerableConvention.INSTANCE)
+                .replaceIfs(RelCollationTraitDef.INSTANCE, () -> {
+                    Table table = relOptTable.unwrap(Table.class);
+                    return table != null ? table.getStatistic().getCollations() : Collections.<RelCollation>emptyList();
+                }),
+            relOptTable,
+            Object[].class);
+    }
+
+    @Override
+    public void register(RelOptPlanner planner) {
+        super.register(planner);
+        planner.addRule(Plc4xWindowAggregateRule.INSTANCE);
+    }
+}
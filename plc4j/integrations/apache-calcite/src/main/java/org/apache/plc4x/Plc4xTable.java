@@ -20,20 +20,33 @@ package org.apache.plc4x;
 
 import org.apache.calcite.DataContext;
 import org.apache.calcite.linq4j.Enumerable;
-import org.apache.calcite.schema.ScannableTable;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.schema.ProjectableFilterableTable;
 import org.apache.plc4x.java.scraper.config.JobConfiguration;
 
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 
-public class Plc4xTable extends Plc4xBaseTable implements ScannableTable {
+public class Plc4xTable extends Plc4xBaseTable implements ProjectableFilterableTable {
 
     public Plc4xTable(BlockingQueue<Plc4xSchema.Record> queue, JobConfiguration conf, long tableCutoff) {
         super(queue, conf, tableCutoff);
     }
 
+    /**
+     * Scans read the last tableCutoff records retained in the buffer when they were opened, so they never wait for
+     * the PLC.
+     *
+     * @param fieldTypes default java type of the fields.
+     */
+    public Plc4xTable(RecordRingBuffer buffer, JobConfiguration conf, long tableCutoff, Map<String, Class<?>> fieldTypes) {
+        super(() -> buffer.snapshot(tableCutoff)::poll, buffer::peekOldest, conf, tableCutoff, fieldTypes, null);
+    }
+
     @Override
-    public Enumerable<Object[]> scan(DataContext root) {
-        return super.scan(root);
+    public Enumerable<Object[]> scan(DataContext root, List<RexNode> filters, int[] projects) {
+        return super.scan(root, filters, projects);
     }
 
 }
@@ -0,0 +1,146 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x;
+
+import org.apache.calcite.DataContext;
+import org.apache.calcite.adapter.enumerable.EnumerableRel;
+import org.apache.calcite.adapter.enumerable.EnumerableRelImplementor;
+import org.apache.calcite.adapter.enumerable.JavaRowFormat;
+import org.apache.calcite.adapter.enumerable.PhysType;
+import org.apache.calcite.adapter.enumerable.PhysTypeImpl;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.tree.Blocks;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.apache.calcite.plan.RelOptCluster;
+import org.apache.calcite.plan.RelOptCost;
+import org.apache.calcite.plan.RelOptPlanner;
+import org.apache.calcite.plan.RelOptTable;
+import org.apache.calcite.plan.RelTraitSet;
+import org.apache.calcite.rel.AbstractRelNode;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.RelWriter;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.schema.SchemaPlus;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Window aggregation over a {@link Plc4xStreamTable}, evaluated incrementally by a {@link WindowAggregator} while the
+ * records arrive.
+ * <p>
+ * It reads the table itself, but it is no table scan, else the rules for scans would apply to it.
+ */
+public class Plc4xWindowAggregate extends AbstractRelNode implements EnumerableRel {
+
+    private final RelOptTable table;
+
+    private final RelDataType aggregateRowType;
+
+    private final long sizeMs;
+
+    private final long slideMs;
+
+    private final int[] keyColumns;
+
+    private final WindowAggregator.Function[] functions;
+
+    private final int[] arguments;
+
+    private final Class<?>[] resultClasses;
+
+    public Plc4xWindowAggregate(RelOptCluster cluster, RelTraitSet traitSet, RelOptTable table, RelDataType aggregateRowType,
+                                long sizeMs, long slideMs, int[] keyColumns, WindowAggregator.Function[] functions,
+                                int[] arguments, Class<?>[] resultClasses) {
+        super(cluster, traitSet);
+        this.table = table;
+        this.aggregateRowType = aggregateRowType;
+        this.sizeMs = sizeMs;
+        this.slideMs = slideMs;
+        this.keyColumns = keyColumns;
+        this.functions = functions;
+        this.arguments = arguments;
+        this.resultClasses = resultClasses;
+    }
+
+    @Override
+    public RelOptTable getTable() {
+        return table;
+    }
+
+    @Override
+    protected RelDataType deriveRowType() {
+        return aggregateRowType;
+    }
+
+    @Override
+    public RelNode copy(RelTraitSet traitSet, List<RelNode> inputs) {
+        return new Plc4xWindowAggregate(getCluster(), traitSet, table, aggregateRowType, sizeMs, slideMs, keyColumns,
+            functions, arguments, resultClasses);
+    }
+
+    @Override
+    public RelWriter explainTerms(RelWriter pw) {
+        return super.explainTerms(pw)
+            .item("table", table.getQualifiedName())
+            .item("size", sizeMs)
+            .item("slide", slideMs)
+            .item("keys", Arrays.toString(keyColumns))
+            .item("functions", Arrays.toString(functions))
+            .item("arguments", Arrays.toString(arguments));
+    }
+
+    @Override
+    public RelOptCost computeSelfCost(RelOptPlanner planner, RelMetadataQuery mq) {
+        // Replaces the scan, the projection and the aggregation
+        return planner.getCostFactory().makeTinyCost();
+    }
+
+    @Override
+    public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
+        PhysType physType = PhysTypeImpl.of(implementor.getTypeFactory(), getRowType(), JavaRowFormat.ARRAY);
+        Expression aggregation = Expressions.call(Plc4xWindowAggregate.class, "aggregate",
+            DataContext.ROOT,
+            Expressions.constant(table.getQualifiedName().toArray(new String[0])),
+            Expressions.constant(sizeMs),
+            Expressions.constant(slideMs),
+            Expressions.constant(keyColumns),
+            Expressions.constant(functions),
+            Expressions.constant(arguments),
+            Expressions.constant(resultClasses));
+        return implementor.result(physType, Blocks.toBlock(aggregation));
+    }
+
+    /**
+     * Called by the generated code.
+     *
+     * @param path of the table in the schema.
+     */
+    public static Enumerable<Object[]> aggregate(DataContext root, String[] path, long sizeMs, long slideMs, int[] keyColumns,
+                                                 WindowAggregator.Function[] functions, int[] arguments, Class<?>[] resultClasses) {
+        SchemaPlus schema = root.getRootSchema();
+        for (int i = 0; i < path.length - 1; i++) {
+            schema = schema.getSubSchema(path[i]);
+        }
+        Plc4xStreamTable streamTable = (Plc4xStreamTable) schema.getTable(path[path.length - 1]);
+        return streamTable.aggregate(sizeMs, slideMs, keyColumns, functions, arguments, resultClasses);
+    }
+}
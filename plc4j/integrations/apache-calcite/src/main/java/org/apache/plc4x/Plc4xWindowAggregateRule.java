@@ -0,0 +1,166 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x;
+
+import org.apache.calcite.adapter.enumerable.EnumerableConvention;
+import org.apache.calcite.adapter.java.JavaTypeFactory;
+import org.apache.calcite.plan.RelOptRule;
+import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.rel.core.Aggregate;
+import org.apache.calcite.rel.core.AggregateCall;
+import org.apache.calcite.rel.core.TableScan;
+import org.apache.calcite.rel.logical.LogicalAggregate;
+import org.apache.calcite.rel.logical.LogicalProject;
+import org.apache.calcite.rel.stream.Delta;
+import org.apache.calcite.rel.type.RelDataTypeField;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexLiteral;
+import org.apache.calcite.rex.RexNode;
+
+import java.util.List;
+
+/**
+ * Replaces an aggregation grouped by a TUMBLE or HOP window over the timestamp of a {@link Plc4xStreamTable} by a
+ * {@link Plc4xWindowAggregate}, which emits every window as soon as it is complete instead of waiting for the end of
+ * the stream.
+ */
+public class Plc4xWindowAggregateRule extends RelOptRule {
+
+    public static final Plc4xWindowAggregateRule INSTANCE = new Plc4xWindowAggregateRule();
+
+    private Plc4xWindowAggregateRule() {
+        super(operand(LogicalAggregate.class,
+            operand(Delta.class, operand(LogicalProject.class, operand(TableScan.class, none())))),
+            "Plc4xWindowAggregateRule");
+    }
+
+    @Override
+    public void onMatch(RelOptRuleCall call) {
+        LogicalAggregate aggregate = call.rel(0);
+        LogicalProject project = call.rel(2);
+        TableScan scan = call.rel(3);
+        if (scan.getTable().unwrap(Plc4xStreamTable.class) == null || aggregate.getGroupType() != Aggregate.Group.SIMPLE) {
+            return;
+        }
+        List<RexNode> projects = project.getProjects();
+        // size and slide of the window
+        long[] window = null;
+        int[] keyColumns = new int[aggregate.getGroupCount()];
+        int key = 0;
+        for (int groupColumn : aggregate.getGroupSet()) {
+            RexNode expression = projects.get(groupColumn);
+            if (expression instanceof RexInputRef) {
+                keyColumns[key++] = ((RexInputRef) expression).getIndex();
+            } else if (window == null && (window = toWindow(expression)) != null) {
+                keyColumns[key++] = WindowAggregator.WINDOW;
+            } else {
+                return;
+            }
+        }
+        if (window == null) {
+            return;
+        }
+        List<AggregateCall> aggregateCalls = aggregate.getAggCallList();
+        WindowAggregator.Function[] functions = new WindowAggregator.Function[aggregateCalls.size()];
+        int[] arguments = new int[aggregateCalls.size()];
+        for (int i = 0; i < aggregateCalls.size(); i++) {
+            AggregateCall aggregateCall = aggregateCalls.get(i);
+            functions[i] = toFunction(aggregateCall);
+            if (functions[i] == null) {
+                return;
+            }
+            List<Integer> argumentList = aggregateCall.getArgList();
+            if (argumentList.isEmpty() && functions[i] == WindowAggregator.Function.COUNT) {
+                arguments[i] = WindowAggregator.COUNT_ALL;
+            } else if (argumentList.size() == 1 && projects.get(argumentList.get(0)) instanceof RexInputRef) {
+                arguments[i] = ((RexInputRef) projects.get(argumentList.get(0))).getIndex();
+            } else {
+                return;
+            }
+        }
+        JavaTypeFactory typeFactory = (JavaTypeFactory) aggregate.getCluster().getTypeFactory();
+        List<RelDataTypeField> fields = aggregate.getRowType().getFieldList();
+        Class<?>[] resultClasses = new Class<?>[aggregateCalls.size()];
+        for (int i = 0; i < resultClasses.length; i++) {
+            resultClasses[i] = (Class<?>) typeFactory.getJavaClass(fields.get(keyColumns.length + i).getType());
+        }
+        call.transformTo(new Plc4xWindowAggregate(aggregate.getCluster(),
+            aggregate.getTraitSet().replace(EnumerableConvention.INSTANCE), scan.getTable(), aggregate.getRowType(),
+            window[0], window[1], keyColumns, functions, arguments, resultClasses));
+    }
+
+    /**
+     * @return size and slide of a TUMBLE or HOP window over the timestamp or null if it is none.
+     */
+    private static long[] toWindow(RexNode expression) {
+        if (!(expression instanceof RexCall)) {
+            return null;
+        }
+        RexCall call = (RexCall) expression;
+        List<RexNode> operands = call.getOperands();
+        if (operands.isEmpty() || !(operands.get(0) instanceof RexInputRef) || ((RexInputRef) operands.get(0)).getIndex() != 0) {
+            return null;
+        }
+        switch (call.getKind()) {
+            case TUMBLE: {
+                Long size = operands.size() == 2 ? toMillis(operands.get(1)) : null;
+                return size != null ? new long[]{size, size} : null;
+            }
+            case HOP: {
+                // HOP(timestamp, slide, size)
+                Long slide = operands.size() == 3 ? toMillis(operands.get(1)) : null;
+                Long size = operands.size() == 3 ? toMillis(operands.get(2)) : null;
+                return slide != null && size != null ? new long[]{size, slide} : null;
+            }
+            default:
+                return null;
+        }
+    }
+
+    private static Long toMillis(RexNode interval) {
+        if (!(interval instanceof RexLiteral)) {
+            return null;
+        }
+        Long millis = ((RexLiteral) interval).getValueAs(Long.class);
+        return millis != null && millis > 0 ? millis : null;
+    }
+
+    private static WindowAggregator.Function toFunction(AggregateCall aggregateCall) {
+        if (aggregateCall.isDistinct() || aggregateCall.filterArg >= 0) {
+            return null;
+        }
+        switch (aggregateCall.getAggregation().getKind()) {
+            case COUNT:
+                return WindowAggregator.Function.COUNT;
+            case SUM:
+                return WindowAggregator.Function.SUM;
+            case SUM0:
+                return WindowAggregator.Function.SUM0;
+            case MIN:
+                return WindowAggregator.Function.MIN;
+            case MAX:
+                return WindowAggregator.Function.MAX;
+            case AVG:
+                return WindowAggregator.Function.AVG;
+            default:
+                return null;
+        }
+    }
+}
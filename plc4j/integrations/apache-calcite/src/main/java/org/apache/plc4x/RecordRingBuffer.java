@@ -0,0 +1,189 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ring buffer of the most recent records of a job which can be read by any number of {@link Cursor}s.
+ * <p>
+ * Publishing never blocks, if the buffer is full the oldest record is overwritten. Every cursor has its own position,
+ * so several queries read the same records without copying them, and a cursor that falls behind by more than the
+ * capacity skips the records it missed instead of stalling the scraper.
+ */
+public class RecordRingBuffer {
+
+    private final AtomicReferenceArray<Plc4xSchema.Record> records;
+
+    private final int mask;
+
+    // Sequence of the record being published, it is incremented before its slot is overwritten.
+    private volatile long claimed;
+
+    // Sequence of the next record to publish, i.e. all records before it are readable.
+    private volatile long published;
+
+    // Number of cursors waiting for the next record, guarded by this.
+    private int waiting;
+
+    private final LongAdder missed = new LongAdder();
+
+    /**
+     * @param capacity gets rounded up to the next power of two.
+     */
+    public RecordRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity has to be positive but was " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.records = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Adds the record, overwriting the oldest one if the buffer is full.
+     */
+    public synchronized void publish(Plc4xSchema.Record record) {
+        long sequence = published;
+        claimed = sequence + 1;
+        records.set((int) (sequence & mask), record);
+        published = sequence + 1;
+        if (waiting > 0) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * @param fromOldest if true, the cursor starts at the oldest retained record, else at the next record published.
+     */
+    public Cursor newCursor(boolean fromOldest) {
+        long head = published;
+        return new Cursor(fromOldest ? Math.max(head - getCapacity(), 0) : head, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param limit maximum number of records, all retained records if not positive.
+     * @return a cursor over the most recent records published before this call, it never waits for further records.
+     */
+    public Cursor snapshot(long limit) {
+        long head = published;
+        long start = Math.max(head - getCapacity(), 0);
+        if (limit > 0) {
+            start = Math.max(start, head - limit);
+        }
+        return new Cursor(start, head);
+    }
+
+    /**
+     * @return the oldest retained record or null if no record was published yet.
+     */
+    public Plc4xSchema.Record peekOldest() {
+        return newCursor(true).poll();
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * @return the number of records published since creation.
+     */
+    public long getPublished() {
+        return published;
+    }
+
+    /**
+     * @return the number of records skipped by all cursors because they fell behind.
+     */
+    public long getMissed() {
+        return missed.sum();
+    }
+
+    /**
+     * Position of a single reader in the buffer, not thread safe.
+     */
+    public final class Cursor {
+
+        private long next;
+
+        // Sequence after the last record of a snapshot
+        private final long end;
+
+        private Cursor(long next, long end) {
+            this.next = next;
+            this.end = end;
+        }
+
+        /**
+         * @return the next record or null if there is none yet.
+         */
+        public Plc4xSchema.Record poll() {
+            while (true) {
+                long head = published;
+                if (next >= Math.min(head, end)) {
+                    return null;
+                }
+                if (head - next > getCapacity()) {
+                    missed.add(head - getCapacity() - next);
+                    next = head - getCapacity();
+                }
+                Plc4xSchema.Record record = records.get((int) (next & mask));
+                // The slot could have been overwritten while reading it
+                if (claimed - next <= getCapacity()) {
+                    next++;
+                    return record;
+                }
+            }
+        }
+
+        /**
+         * Waits until the next record is published.
+         *
+         * @return the next record or null if none was published within the timeout or the snapshot is exhausted.
+         */
+        public Plc4xSchema.Record poll(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (true) {
+                Plc4xSchema.Record record = poll();
+                if (record != null || next >= end) {
+                    return record;
+                }
+                synchronized (RecordRingBuffer.this) {
+                    waiting++;
+                    try {
+                        while (next >= published) {
+                            long remaining = deadline - System.nanoTime();
+                            if (remaining <= 0) {
+                                return null;
+                            }
+                            TimeUnit.NANOSECONDS.timedWait(RecordRingBuffer.this, remaining);
+                        }
+                    } finally {
+                        waiting--;
+                    }
+                }
+            }
+        }
+    }
+}
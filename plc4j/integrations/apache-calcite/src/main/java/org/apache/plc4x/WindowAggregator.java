@@ -0,0 +1,273 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Incrementally evaluates a tumbling or hopping window aggregation over records arriving in timestamp order.
+ * <p>
+ * Every record is added to the accumulators of all windows containing it, so only the open windows are kept. A window
+ * is emitted as soon as the watermark, the latest timestamp seen, passes its end. Records of windows already emitted
+ * are dropped.
+ */
+public class WindowAggregator {
+
+    /**
+     * Supported aggregate functions, COUNT with the argument {@link #COUNT_ALL} counts all rows.
+     */
+    public enum Function {
+        COUNT, SUM, SUM0, MIN, MAX, AVG
+    }
+
+    /**
+     * Marks the window start in the group key.
+     */
+    public static final int WINDOW = -1;
+
+    /**
+     * Marks the missing argument of COUNT(*).
+     */
+    public static final int COUNT_ALL = -1;
+
+    private final long sizeMs;
+
+    private final long slideMs;
+
+    private final int[] keyColumns;
+
+    private final Function[] functions;
+
+    private final int[] arguments;
+
+    private final Class<?>[] resultClasses;
+
+    private final BiFunction<Plc4xSchema.Record, Integer, Object> columns;
+
+    // window start -> group key -> accumulators
+    private final TreeMap<Long, Map<List<Object>, Accumulator[]>> windows = new TreeMap<>();
+
+    private long watermark = Long.MIN_VALUE;
+
+    private long lateRecords;
+
+    /**
+     * @param sizeMs length of the windows.
+     * @param slideMs distance between the starts of two windows, equal to the size for tumbling windows.
+     * @param keyColumns columns of the group key or {@link #WINDOW}.
+     * @param functions aggregate functions.
+     * @param arguments column aggregated by each function.
+     * @param resultClasses class of the result of each function.
+     * @param columns reads a column of the row of a record.
+     */
+    WindowAggregator(long sizeMs, long slideMs, int[] keyColumns, Function[] functions, int[] arguments,
+                     Class<?>[] resultClasses, BiFunction<Plc4xSchema.Record, Integer, Object> columns) {
+        if (sizeMs <= 0 || slideMs <= 0) {
+            throw new IllegalArgumentException("Size and slide have to be positive but were " + sizeMs + " and " + slideMs);
+        }
+        this.sizeMs = sizeMs;
+        this.slideMs = slideMs;
+        this.keyColumns = keyColumns;
+        this.functions = functions;
+        this.arguments = arguments;
+        this.resultClasses = resultClasses;
+        this.columns = columns;
+    }
+
+    /**
+     * Adds the record to all open windows containing it and emits the windows closed by its timestamp.
+     */
+    void add(Plc4xSchema.Record record, long timestamp, Consumer<Object[]> rows) {
+        List<Object> key = new ArrayList<>(keyColumns.length);
+        for (int column : keyColumns) {
+            key.add(column == WINDOW ? null : columns.apply(record, column));
+        }
+        Object[] values = new Object[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            values[i] = arguments[i] == COUNT_ALL ? Boolean.TRUE : columns.apply(record, arguments[i]);
+        }
+        boolean added = false;
+        for (long start = Math.floorDiv(timestamp, slideMs) * slideMs; start > timestamp - sizeMs; start -= slideMs) {
+            if (start + sizeMs <= watermark) {
+                // This and all earlier windows were already emitted
+                break;
+            }
+            Accumulator[] accumulators = windows.computeIfAbsent(start, windowStart -> new LinkedHashMap<>())
+                .computeIfAbsent(key, groupKey -> newAccumulators());
+            for (int i = 0; i < values.length; i++) {
+                accumulators[i].add(values[i]);
+            }
+            added = true;
+        }
+        if (!added) {
+            lateRecords++;
+        }
+        advance(timestamp, rows);
+    }
+
+    /**
+     * Emits all windows ending before the watermark.
+     */
+    void advance(long newWatermark, Consumer<Object[]> rows) {
+        watermark = Math.max(watermark, newWatermark);
+        while (!windows.isEmpty() && windows.firstKey() + sizeMs <= watermark) {
+            Map.Entry<Long, Map<List<Object>, Accumulator[]>> window = windows.pollFirstEntry();
+            window.getValue().forEach((key, accumulators) -> rows.accept(toRow(window.getKey(), key, accumulators)));
+        }
+    }
+
+    /**
+     * @return the end of the earliest open window or null if there is none.
+     */
+    Long getNextWindowEnd() {
+        return windows.isEmpty() ? null : windows.firstKey() + sizeMs;
+    }
+
+    long getLateRecords() {
+        return lateRecords;
+    }
+
+    private Accumulator[] newAccumulators() {
+        Accumulator[] accumulators = new Accumulator[functions.length];
+        for (int i = 0; i < accumulators.length; i++) {
+            accumulators[i] = new Accumulator();
+        }
+        return accumulators;
+    }
+
+    private Object[] toRow(long start, List<Object> key, Accumulator[] accumulators) {
+        Object[] row = new Object[keyColumns.length + functions.length];
+        for (int i = 0; i < keyColumns.length; i++) {
+            row[i] = keyColumns[i] == WINDOW ? start : key.get(i);
+        }
+        for (int i = 0; i < functions.length; i++) {
+            row[keyColumns.length + i] = convert(accumulators[i].getResult(functions[i]), resultClasses[i]);
+        }
+        return row;
+    }
+
+    /**
+     * Converts numbers to the class Calcite expects for the column.
+     */
+    static Object convert(Object value, Class<?> clazz) {
+        if (!(value instanceof Number) || clazz.isInstance(value)) {
+            return value;
+        }
+        Number number = (Number) value;
+        if (clazz == Integer.class || clazz == int.class) {
+            return number.intValue();
+        } else if (clazz == Long.class || clazz == long.class) {
+            return number.longValue();
+        } else if (clazz == Double.class || clazz == double.class) {
+            return number.doubleValue();
+        } else if (clazz == Float.class || clazz == float.class) {
+            return number.floatValue();
+        } else if (clazz == Short.class || clazz == short.class) {
+            return number.shortValue();
+        } else if (clazz == Byte.class || clazz == byte.class) {
+            return number.byteValue();
+        } else if (clazz == BigDecimal.class) {
+            return number instanceof Long || number instanceof Integer
+                ? BigDecimal.valueOf(number.longValue())
+                : BigDecimal.valueOf(number.doubleValue());
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "WindowAggregator{" +
+            "sizeMs=" + sizeMs +
+            ", slideMs=" + slideMs +
+            ", keyColumns=" + Arrays.toString(keyColumns) +
+            ", functions=" + Arrays.toString(functions) +
+            ", arguments=" + Arrays.toString(arguments) +
+            '}';
+    }
+
+    private static final class Accumulator {
+
+        private long count;
+
+        private long longSum;
+
+        private double doubleSum;
+
+        private boolean floating;
+
+        private Comparable<Object> min;
+
+        private Comparable<Object> max;
+
+        @SuppressWarnings("unchecked")
+        private void add(Object value) {
+            if (value == null) {
+                return;
+            }
+            count++;
+            if (value instanceof Number) {
+                if (value instanceof Double || value instanceof Float || value instanceof BigDecimal) {
+                    floating = true;
+                }
+                longSum += ((Number) value).longValue();
+                doubleSum += ((Number) value).doubleValue();
+            }
+            if (value instanceof Comparable) {
+                Comparable<Object> comparable = (Comparable<Object>) value;
+                if (min == null || comparable.compareTo(min) < 0) {
+                    min = comparable;
+                }
+                if (max == null || comparable.compareTo(max) > 0) {
+                    max = comparable;
+                }
+            }
+        }
+
+        private Object getResult(Function function) {
+            switch (function) {
+                case COUNT:
+                    return count;
+                case SUM:
+                    return count == 0 ? null : getSum();
+                case SUM0:
+                    return getSum();
+                case MIN:
+                    return min;
+                case MAX:
+                    return max;
+                case AVG:
+                    return count == 0 ? null : doubleSum / count;
+                default:
+                    throw new IllegalStateException("Unsupported function " + function);
+            }
+        }
+
+        private Number getSum() {
+            return floating ? (Number) doubleSum : (Number) longSum;
+        }
+    }
+}
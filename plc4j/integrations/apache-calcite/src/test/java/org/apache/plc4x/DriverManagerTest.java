@@ -35,12 +35,14 @@ import java.util.Properties;
 public class DriverManagerTest implements WithAssertions {
 
     @Test
-    void query() throws SQLException, IOException, ScraperException {
+    void query() throws SQLException, IOException, ScraperException, InterruptedException {
         Driver driver = new Driver();
         Connection connection = driver.connect("jdbc:calcite:asdf;lex=MYSQL_ANSI", new Properties());
 
         CalciteConnection calciteConnection = connection.unwrap(CalciteConnection.class);
-        calciteConnection.getRootSchema().add("plc4x", new Plc4xSchema(ScraperConfiguration.fromFile("src/test/resources/example.yml"), 100));
+        Plc4xSchema schema = new Plc4xSchema(ScraperConfiguration.fromFile("src/test/resources/example.yml"), 100);
+        calciteConnection.getRootSchema().add("plc4x", schema);
+        awaitRecords(schema);
 
         ResultSet rs = connection.prepareStatement("SELECT * FROM \"plc4x\".\"job1\"").executeQuery();
         validateResult(rs);
@@ -49,9 +51,10 @@ public class DriverManagerTest implements WithAssertions {
     }
 
     @Test
-    void query2() throws IOException, SQLException {
+    void query2() throws IOException, SQLException, InterruptedException {
         Driver driver = new Driver();
         Connection connection = driver.connect("jdbc:calcite:model=src/test/resources/model.json", new Properties());
+        awaitRecords(connection.unwrap(CalciteConnection.class).getRootSchema().getSubSchema("PLC4X-TABLES").unwrap(Plc4xSchema.class));
 
         ResultSet rs = connection.prepareStatement("SELECT * FROM \"PLC4X-TABLES\".\"job1\"").executeQuery();
 
@@ -60,6 +63,17 @@ public class DriverManagerTest implements WithAssertions {
         connection.close();
     }
 
+    /**
+     * The tables only read the records buffered so far, so wait until there are enough.
+     */
+    private void awaitRecords(Plc4xSchema schema) throws InterruptedException {
+        RecordRingBuffer buffer = schema.buffers.get("job1");
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (buffer.getPublished() < 100 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
     private void validateResult(ResultSet rs) throws SQLException {
         // Assert columns
         ResultSetMetaData metadata = rs.getMetaData();
@@ -18,13 +18,23 @@ under the License.
 */
 package org.apache.plc4x;
 
+import org.apache.calcite.jdbc.JavaTypeFactoryImpl;
 import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.sql.fun.SqlStdOperatorTable;
+import org.apache.calcite.sql.type.SqlTypeName;
 import org.apache.plc4x.java.scraper.config.JobConfigurationImpl;
 import org.assertj.core.api.WithAssertions;
 import org.junit.jupiter.api.Test;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
 
@@ -45,4 +55,105 @@ class Plc4XBaseTableTest implements WithAssertions {
         assertThat(enumerator.moveNext()).isTrue();
         assertThat(enumerator.current()).contains("value");
     }
-}
\ No newline at end of file
+
+    @Test
+    void pushesDownProjectionAndSourceFilter() {
+        ArrayBlockingQueue<Plc4xSchema.Record> queue = new ArrayBlockingQueue<>(100);
+        Map<String, String> fields = new HashMap<>();
+        fields.put("a", "A");
+        fields.put("b", "B");
+        Plc4xTable SUT = new Plc4xTable(queue, new JobConfigurationImpl("job1", 100,
+            Collections.emptyList(), fields), 3);
+        queue.add(new Plc4xSchema.Record(Instant.now(), "other", values("a1", "b1")));
+        queue.add(new Plc4xSchema.Record(Instant.now(), "source", values("a2", "b2")));
+        queue.add(new Plc4xSchema.Record(Instant.now(), "other", values("a3", "b3")));
+
+        RelDataTypeFactory typeFactory = new JavaTypeFactoryImpl();
+        RexBuilder rexBuilder = new RexBuilder(typeFactory);
+        RexNode sourceFilter = rexBuilder.makeCall(SqlStdOperatorTable.EQUALS,
+            rexBuilder.makeLiteral("source"),
+            rexBuilder.makeInputRef(typeFactory.createSqlType(SqlTypeName.VARCHAR), 1));
+        List<RexNode> filters = new ArrayList<>(Collections.singletonList(sourceFilter));
+        int bColumn = 2 + new ArrayList<>(fields.keySet()).indexOf("b");
+        Enumerator<Object[]> enumerator = SUT.scan(null, filters, new int[]{bColumn, 1}).enumerator();
+
+        // The filter is evaluated by the table and removed, the cutoff counts all scanned records
+        assertThat(filters).isEmpty();
+        assertThat(enumerator.moveNext()).isTrue();
+        assertThat(enumerator.current()).containsExactly("b2", "source");
+        assertThat(enumerator.moveNext()).isFalse();
+    }
+
+    @Test
+    void failedReadsOfNullableColumnsBecomeNulls() {
+        ArrayBlockingQueue<Plc4xSchema.Record> queue = new ArrayBlockingQueue<>(100);
+        Map<String, String> fields = new HashMap<>();
+        fields.put("a", "A");
+        fields.put("b", "B");
+        Plc4xTable SUT = new Plc4xTable(queue, new JobConfigurationImpl("job1", 100,
+            Collections.emptyList(), fields), 2);
+        // b fails permanently, so it never has a value
+        queue.add(new Plc4xSchema.Record(Instant.now(), "source", Collections.singletonMap("a", "a1")));
+        queue.add(new Plc4xSchema.Record(Instant.now(), "source", Collections.singletonMap("a", "a2")));
+
+        RelDataType rowType = SUT.getRowType(new JavaTypeFactoryImpl());
+        int aColumn = 2 + new ArrayList<>(fields.keySet()).indexOf("a");
+        int bColumn = 2 + new ArrayList<>(fields.keySet()).indexOf("b");
+        Enumerator<Object[]> enumerator = SUT.scan(null, new ArrayList<>(), new int[]{aColumn, bColumn}).enumerator();
+
+        assertThat(rowType.getFieldList()).filteredOn(field -> field.getIndex() >= 2)
+            .allMatch(field -> field.getType().isNullable());
+        assertThat(enumerator.moveNext()).isTrue();
+        assertThat(enumerator.current()).containsExactly("a1", null);
+        assertThat(enumerator.moveNext()).isTrue();
+        assertThat(enumerator.current()).containsExactly("a2", null);
+        assertThat(enumerator.moveNext()).isFalse();
+    }
+
+    @Test
+    void recordsWithoutValuesOfPrimitiveColumnsAreSkipped() {
+        RecordRingBuffer buffer = new RecordRingBuffer(10);
+        Map<String, String> fields = new HashMap<>();
+        fields.put("a", "A");
+        fields.put("b", "B");
+        Map<String, Class<?>> fieldTypes = new HashMap<>();
+        fieldTypes.put("a", Integer.class);
+        fieldTypes.put("b", String.class);
+        Plc4xTable SUT = new Plc4xTable(buffer, new JobConfigurationImpl("job1", 100,
+            Collections.emptyList(), fields), 3, fieldTypes);
+        buffer.publish(new Plc4xSchema.Record(Instant.now(), "source", values(1, "b1")));
+        buffer.publish(new Plc4xSchema.Record(Instant.now(), "source", Collections.singletonMap("b", "b2")));
+        buffer.publish(new Plc4xSchema.Record(Instant.now(), "source", Collections.singletonMap("a", 3)));
+
+        RelDataType rowType = SUT.getRowType(new JavaTypeFactoryImpl());
+        int aColumn = 2 + new ArrayList<>(fields.keySet()).indexOf("a");
+        int bColumn = 2 + new ArrayList<>(fields.keySet()).indexOf("b");
+        Enumerator<Object[]> both = SUT.scan(null, new ArrayList<>(), new int[]{aColumn, bColumn}).enumerator();
+        Enumerator<Object[]> onlyB = SUT.scan(null, new ArrayList<>(), new int[]{bColumn}).enumerator();
+
+        // Primitive columns stay NOT NULL, strings are nullable
+        assertThat(rowType.getFieldList().get(aColumn).getType().isNullable()).isFalse();
+        assertThat(rowType.getFieldList().get(aColumn).getType().getSqlTypeName()).isEqualTo(SqlTypeName.INTEGER);
+        assertThat(rowType.getFieldList().get(bColumn).getType().isNullable()).isTrue();
+        assertThat(both.moveNext()).isTrue();
+        assertThat(both.current()).containsExactly(1, "b1");
+        assertThat(both.moveNext()).isTrue();
+        assertThat(both.current()).containsExactly(3, null);
+        assertThat(both.moveNext()).isFalse();
+        // Records are only skipped for the columns that are scanned
+        assertThat(onlyB.moveNext()).isTrue();
+        assertThat(onlyB.current()).containsExactly("b1");
+        assertThat(onlyB.moveNext()).isTrue();
+        assertThat(onlyB.current()).containsExactly("b2");
+        assertThat(onlyB.moveNext()).isTrue();
+        assertThat(onlyB.current()).containsExactly((Object) null);
+        assertThat(onlyB.moveNext()).isFalse();
+    }
+
+    private static Map<String, Object> values(Object a, Object b) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("a", a);
+        values.put("b", b);
+        return values;
+    }
+}
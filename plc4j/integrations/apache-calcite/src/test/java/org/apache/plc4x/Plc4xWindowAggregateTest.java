@@ -0,0 +1,129 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x;
+
+import org.apache.calcite.jdbc.CalciteConnection;
+import org.apache.calcite.jdbc.Driver;
+import org.apache.plc4x.java.scraper.config.ScraperConfiguration;
+import org.assertj.core.api.WithAssertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Runs window aggregations through the planner over a stream table fed by the simulated driver.
+ */
+class Plc4xWindowAggregateTest implements WithAssertions {
+
+    private static final String TUMBLE = "SELECT STREAM TUMBLE_START(\"timestamp\", INTERVAL '1' SECOND) AS ws, " +
+        "TUMBLE_END(\"timestamp\", INTERVAL '1' SECOND) AS we, \"source\", COUNT(*) AS c, MIN(\"test\") AS mn, MAX(\"test\") AS mx " +
+        "FROM \"plc4x\".\"job1\" GROUP BY TUMBLE(\"timestamp\", INTERVAL '1' SECOND), \"source\"";
+
+    private static final String HOP = "SELECT STREAM HOP_START(\"timestamp\", INTERVAL '1' SECOND, INTERVAL '2' SECOND) AS ws, " +
+        "HOP_END(\"timestamp\", INTERVAL '1' SECOND, INTERVAL '2' SECOND) AS we, \"source\", COUNT(*) AS c, MIN(\"test\") AS mn, MAX(\"test\") AS mx " +
+        "FROM \"plc4x\".\"job1\" GROUP BY HOP(\"timestamp\", INTERVAL '1' SECOND, INTERVAL '2' SECOND), \"source\"";
+
+    private Plc4xSchema schema;
+
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        connection = new Driver().connect("jdbc:calcite:lex=MYSQL_ANSI", new Properties());
+        // A non positive cutoff makes the jobs stream tables
+        schema = new Plc4xSchema(ScraperConfiguration.fromFile("src/test/resources/example.yml"), -1);
+        connection.unwrap(CalciteConnection.class).getRootSchema().add("plc4x", schema);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        connection.close();
+        schema.close();
+    }
+
+    @Test
+    void tumbleIsAggregatedByWindows() throws SQLException {
+        assertThat(explain(TUMBLE))
+            .contains("Plc4xWindowAggregate(table=[[plc4x, job1]], size=[1000], slide=[1000], keys=[[-1, 1]], " +
+                "functions=[[COUNT, MIN, MAX]], arguments=[[-1, 2, 2]])")
+            .doesNotContain("EnumerableAggregate");
+
+        validateWindows(TUMBLE, 1000, 1000);
+    }
+
+    @Test
+    void hopIsAggregatedByWindows() throws SQLException {
+        assertThat(explain(HOP))
+            .contains("Plc4xWindowAggregate(table=[[plc4x, job1]], size=[2000], slide=[1000], keys=[[-1, 1]], " +
+                "functions=[[COUNT, MIN, MAX]], arguments=[[-1, 2, 2]])")
+            .doesNotContain("EnumerableAggregate");
+
+        validateWindows(HOP, 2000, 1000);
+    }
+
+    private String explain(String query) throws SQLException {
+        ResultSet rs = connection.createStatement().executeQuery("EXPLAIN PLAN FOR " + query);
+        StringBuilder plan = new StringBuilder();
+        while (rs.next()) {
+            plan.append(rs.getString(1));
+        }
+        return plan.toString();
+    }
+
+    /**
+     * Reads the first windows of both sources, which are emitted while the stream is still running.
+     */
+    private void validateWindows(String query, long sizeMs, long slideMs) throws SQLException {
+        ResultSet rs = connection.createStatement().executeQuery(query);
+        assertThat(rs.getMetaData().getColumnTypeName(1)).isEqualTo("TIMESTAMP");
+        assertThat(rs.getMetaData().getColumnTypeName(3)).isEqualTo("VARCHAR");
+        assertThat(rs.getMetaData().getColumnTypeName(5)).isEqualTo("INTEGER");
+
+        Map<String, List<Long>> windowStarts = new HashMap<>();
+        for (int row = 0; row < 6; row++) {
+            assertThat(rs.next()).isTrue();
+            long start = rs.getTimestamp("ws").getTime();
+            long end = rs.getTimestamp("we").getTime();
+            assertThat(start % slideMs).isZero();
+            assertThat(end - start).isEqualTo(sizeMs);
+            // The group key is the field that is not aggregated
+            String source = rs.getString("source");
+            assertThat(source).isIn("test", "test2");
+            assertThat(rs.getLong("c")).isPositive();
+            assertThat(rs.getInt("mn")).isLessThanOrEqualTo(rs.getInt("mx"));
+            windowStarts.computeIfAbsent(source, key -> new ArrayList<>()).add(start);
+        }
+
+        // Every source gets one row per window, in order of the windows
+        for (List<Long> starts : windowStarts.values()) {
+            for (int i = 1; i < starts.size(); i++) {
+                assertThat(starts.get(i) - starts.get(i - 1)).isEqualTo(slideMs);
+            }
+        }
+    }
+}
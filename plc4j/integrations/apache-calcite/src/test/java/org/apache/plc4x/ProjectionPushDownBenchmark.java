@@ -0,0 +1,90 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x;
+
+import org.apache.calcite.jdbc.CalciteConnection;
+import org.apache.calcite.jdbc.Driver;
+import org.apache.plc4x.java.scraper.config.ScraperConfiguration;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares selecting all fields of a job with 200 fields to selecting a single one. With the projection pushed down
+ * only the selected column of the buffered records is materialized.
+ */
+public class ProjectionPushDownBenchmark {
+
+    private static final int NUM_FIELDS = 200;
+
+    private static final int NUM_ROWS = 1000;
+
+    public static void main(String[] args) throws Exception {
+        StringBuilder yaml = new StringBuilder()
+            .append("sources:\n")
+            .append("  device: test:benchmark\n")
+            .append("jobs:\n")
+            .append("  - name: job\n")
+            .append("    scrapeRate: 1\n")
+            .append("    sources:\n")
+            .append("      - device\n")
+            .append("    fields:\n");
+        for (int i = 0; i < NUM_FIELDS; i++) {
+            yaml.append("      f").append(i).append(": 'RANDOM/f").append(i).append(":Integer'\n");
+        }
+        ScraperConfiguration configuration = ScraperConfiguration.fromYaml(yaml.toString());
+
+        Driver driver = new Driver();
+        try (Connection connection = driver.connect("jdbc:calcite:lex=MYSQL_ANSI", new Properties())) {
+            CalciteConnection calciteConnection = connection.unwrap(CalciteConnection.class);
+            Plc4xSchema schema = new Plc4xSchema(configuration, NUM_ROWS);
+            calciteConnection.getRootSchema().add("plc4x", schema);
+            // Tables only read the records buffered so far
+            while (schema.buffers.get("job").getPublished() < NUM_ROWS) {
+                Thread.sleep(10);
+            }
+
+            // Warm up
+            run(connection, "SELECT * FROM \"plc4x\".\"job\"");
+            for (String query : new String[]{"SELECT * FROM \"plc4x\".\"job\"", "SELECT \"f0\" FROM \"plc4x\".\"job\""}) {
+                long start = System.nanoTime();
+                int rows = run(connection, query);
+                long duration = System.nanoTime() - start;
+
+                System.out.println(query + ": " + rows + " rows in " + TimeUnit.NANOSECONDS.toMillis(duration) + "ms");
+                System.out.println("That's " + ((float) duration / rows / 1000) + "us per row");
+            }
+        }
+        // The scraper doesn't use daemon threads
+        System.exit(0);
+    }
+
+    private static int run(Connection connection, String query) throws Exception {
+        int rows = 0;
+        try (ResultSet rs = connection.prepareStatement(query).executeQuery()) {
+            while (rs.next()) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+}
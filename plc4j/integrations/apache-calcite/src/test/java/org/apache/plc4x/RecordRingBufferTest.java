@@ -0,0 +1,98 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x;
+
+import org.assertj.core.api.WithAssertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+class RecordRingBufferTest implements WithAssertions {
+
+    @Test
+    void cursorsReadIndependently() throws Exception {
+        RecordRingBuffer SUT = new RecordRingBuffer(4);
+        RecordRingBuffer.Cursor first = SUT.newCursor(false);
+        Plc4xSchema.Record record = record("a");
+        SUT.publish(record);
+        RecordRingBuffer.Cursor second = SUT.newCursor(true);
+
+        assertThat(first.poll()).isSameAs(record);
+        assertThat(first.poll()).isNull();
+        assertThat(second.poll()).isSameAs(record);
+        assertThat(SUT.newCursor(false).poll()).isNull();
+    }
+
+    @Test
+    void overwritesOldestRecords() {
+        RecordRingBuffer SUT = new RecordRingBuffer(3);
+        RecordRingBuffer.Cursor cursor = SUT.newCursor(false);
+        for (int i = 0; i < 6; i++) {
+            SUT.publish(record("r" + i));
+        }
+
+        // Rounded up to 4, the slow cursor skips the two overwritten records
+        assertThat(SUT.getCapacity()).isEqualTo(4);
+        assertThat(SUT.peekOldest().source).isEqualTo("r2");
+        assertThat(cursor.poll().source).isEqualTo("r2");
+        assertThat(SUT.getMissed()).isEqualTo(2);
+    }
+
+    @Test
+    void pollWaitsForRecord() throws Exception {
+        RecordRingBuffer SUT = new RecordRingBuffer(4);
+        RecordRingBuffer.Cursor cursor = SUT.newCursor(false);
+        assertThat(cursor.poll(10, TimeUnit.MILLISECONDS)).isNull();
+
+        CompletableFuture<Plc4xSchema.Record> polled = CompletableFuture.supplyAsync(() -> {
+            try {
+                return cursor.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(20);
+        SUT.publish(record("a"));
+
+        assertThat(polled.get(1, TimeUnit.SECONDS).source).isEqualTo("a");
+    }
+
+    @Test
+    void snapshotEndsAtCreation() throws Exception {
+        RecordRingBuffer SUT = new RecordRingBuffer(4);
+        for (int i = 0; i < 3; i++) {
+            SUT.publish(record("r" + i));
+        }
+        RecordRingBuffer.Cursor snapshot = SUT.snapshot(2);
+        SUT.publish(record("r3"));
+
+        // Only the two most recent records before the snapshot, without waiting for further ones
+        assertThat(snapshot.poll(1, TimeUnit.SECONDS).source).isEqualTo("r1");
+        assertThat(snapshot.poll().source).isEqualTo("r2");
+        assertThat(snapshot.poll(1, TimeUnit.SECONDS)).isNull();
+        assertThat(SUT.snapshot(0).poll().source).isEqualTo("r0");
+    }
+
+    private static Plc4xSchema.Record record(String source) {
+        return new Plc4xSchema.Record(Instant.now(), source, Collections.emptyMap());
+    }
+}
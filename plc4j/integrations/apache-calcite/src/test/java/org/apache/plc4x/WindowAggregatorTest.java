@@ -0,0 +1,90 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x;
+
+import org.assertj.core.api.WithAssertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+class WindowAggregatorTest implements WithAssertions {
+
+    private final List<Object[]> rows = new ArrayList<>();
+
+    @Test
+    void emitsTumblingWindowsWhenComplete() {
+        WindowAggregator SUT = new WindowAggregator(1000, 1000, new int[]{WindowAggregator.WINDOW, 1},
+            new WindowAggregator.Function[]{WindowAggregator.Function.COUNT, WindowAggregator.Function.AVG, WindowAggregator.Function.MAX},
+            new int[]{WindowAggregator.COUNT_ALL, 2, 2},
+            new Class<?>[]{long.class, Double.class, Integer.class},
+            WindowAggregatorTest::getValue);
+
+        add(SUT, 100, "a", 1);
+        add(SUT, 200, "b", 2);
+        add(SUT, 900, "a", 4);
+        assertThat(rows).isEmpty();
+
+        // The first record of the next window completes the previous one
+        add(SUT, 1000, "a", 8);
+        assertThat(rows).containsExactly(
+            new Object[]{0L, "a", 2L, 2.5, 4},
+            new Object[]{0L, "b", 1L, 2.0, 2});
+        assertThat(SUT.getNextWindowEnd()).isEqualTo(2000);
+
+        // Late records are dropped
+        add(SUT, 999, "a", 16);
+        assertThat(SUT.getLateRecords()).isEqualTo(1);
+
+        SUT.advance(2000, rows::add);
+        assertThat(rows).hasSize(3);
+        assertThat(rows.get(2)).containsExactly(1000L, "a", 1L, 8.0, 8);
+    }
+
+    @Test
+    void addsRecordsToAllHoppingWindows() {
+        WindowAggregator SUT = new WindowAggregator(2000, 1000, new int[]{WindowAggregator.WINDOW},
+            new WindowAggregator.Function[]{WindowAggregator.Function.SUM},
+            new int[]{2},
+            new Class<?>[]{Integer.class},
+            WindowAggregatorTest::getValue);
+
+        add(SUT, 500, "a", 1);
+        add(SUT, 1500, "a", 2);
+        add(SUT, 2500, "a", 4);
+        add(SUT, 3500, "a", 8);
+
+        // Windows [-1000, 1000), [0, 2000) and [1000, 3000)
+        assertThat(rows).containsExactly(
+            new Object[]{-1000L, 1},
+            new Object[]{0L, 3},
+            new Object[]{1000L, 6});
+    }
+
+    private void add(WindowAggregator aggregator, long timestamp, String source, int value) {
+        Plc4xSchema.Record record = new Plc4xSchema.Record(Instant.ofEpochMilli(timestamp), source, Collections.singletonMap("value", value));
+        aggregator.add(record, timestamp, rows::add);
+    }
+
+    private static Object getValue(Plc4xSchema.Record record, int column) {
+        return column == 1 ? record.source : record.values.get("value");
+    }
+}
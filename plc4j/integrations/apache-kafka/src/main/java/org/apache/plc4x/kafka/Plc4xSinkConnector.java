@@ -33,10 +33,22 @@ public class Plc4xSinkConnector extends SinkConnector {
     static final String URL_CONFIG = "url";
     private static final String URL_DOC = "Connection string used by PLC4X to connect to the PLC";
 
+    static final String MAX_IN_FLIGHT_REQUESTS_CONFIG = "max.in.flight.requests";
+    private static final Integer MAX_IN_FLIGHT_REQUESTS_DEFAULT = 5;
+    private static final String MAX_IN_FLIGHT_REQUESTS_DOC = "Maximum number of write requests executed concurrently, writes of the same field are still executed in order";
+
+    static final String REQUEST_TIMEOUT_CONFIG = "request.timeout.ms";
+    private static final Integer REQUEST_TIMEOUT_DEFAULT = 5000;
+    private static final String REQUEST_TIMEOUT_DOC = "Time to wait for a write request to complete when the maximum number is in flight";
+
     static final ConfigDef CONFIG_DEF = new ConfigDef()
-        .define(URL_CONFIG, ConfigDef.Type.STRING, ConfigDef.Importance.HIGH, URL_DOC);
+        .define(URL_CONFIG, ConfigDef.Type.STRING, ConfigDef.Importance.HIGH, URL_DOC)
+        .define(MAX_IN_FLIGHT_REQUESTS_CONFIG, ConfigDef.Type.INT, MAX_IN_FLIGHT_REQUESTS_DEFAULT, ConfigDef.Range.atLeast(1), ConfigDef.Importance.MEDIUM, MAX_IN_FLIGHT_REQUESTS_DOC)
+        .define(REQUEST_TIMEOUT_CONFIG, ConfigDef.Type.INT, REQUEST_TIMEOUT_DEFAULT, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW, REQUEST_TIMEOUT_DOC);
 
     private String url;
+    private Integer maxInFlightRequests;
+    private Integer requestTimeoutMs;
     private String query;
 
     @Override
@@ -50,6 +62,8 @@ public class Plc4xSinkConnector extends SinkConnector {
         for (int i = 0; i < maxTasks; i++) {
             Map<String, String> taskConfig = new HashMap<>();
             taskConfig.put(URL_CONFIG, url);
+            taskConfig.put(MAX_IN_FLIGHT_REQUESTS_CONFIG, maxInFlightRequests.toString());
+            taskConfig.put(REQUEST_TIMEOUT_CONFIG, requestTimeoutMs.toString());
             configs.add(taskConfig);
         }
         return configs;
@@ -59,6 +73,8 @@ public class Plc4xSinkConnector extends SinkConnector {
     public void start(Map<String, String> props) {
         AbstractConfig config = new AbstractConfig(Plc4xSinkConnector.CONFIG_DEF, props);
         url = config.getString(URL_CONFIG);
+        maxInFlightRequests = config.getInt(MAX_IN_FLIGHT_REQUESTS_CONFIG);
+        requestTimeoutMs = config.getInt(REQUEST_TIMEOUT_CONFIG);
     }
 
     @Override
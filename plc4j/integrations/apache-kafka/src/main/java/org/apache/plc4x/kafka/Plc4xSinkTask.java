@@ -18,8 +18,15 @@ under the License.
 */
 package org.apache.plc4x.kafka;
 
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.config.AbstractConfig;
+import org.apache.kafka.connect.data.Date;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Time;
 import org.apache.kafka.connect.errors.ConnectException;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.errors.RetriableException;
 import org.apache.kafka.connect.sink.SinkRecord;
 import org.apache.kafka.connect.sink.SinkTask;
 import org.apache.plc4x.java.PlcDriverManager;
@@ -27,17 +34,72 @@ import org.apache.plc4x.java.api.PlcConnection;
 import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
 import org.apache.plc4x.java.api.exceptions.PlcRuntimeException;
 import org.apache.plc4x.java.api.messages.PlcWriteRequest;
+import org.apache.plc4x.java.api.messages.PlcWriteResponse;
+import org.apache.plc4x.java.api.types.PlcResponseCode;
 import org.apache.plc4x.kafka.util.VersionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Sink Connector Task writing the values of records to the fields given by their keys.
+ * All records passed to put() are merged into a single write request, when a field is written several times only the
+ * last value is written. Up to max.in.flight.requests write requests are executed concurrently, put() blocks when the
+ * limit is reached. A request writing a field that is still written by an earlier request is only sent once the earlier
+ * one completed, so the last value wins on the PLC as well. The offsets of records are only committed once their request
+ * was acknowledged by the PLC, a failed write fails the task, so the unacknowledged records are written again after the
+ * restart. Records with an empty array as value are skipped, as no field can be written with them.
+ */
 public class Plc4xSinkTask extends SinkTask {
+    private static final Logger log = LoggerFactory.getLogger(Plc4xSinkTask.class);
+
+    private final PlcDriverManager driverManager;
+
     private String url;
 
+    private long requestTimeoutMs;
+
+    private Semaphore inFlightRequests;
+
+    private int maxInFlightRequests;
+
     private PlcConnection plcConnection;
 
+    // Writes in the order they were sent, offsets are only committed in this order
+    private final Deque<PendingWrite> pendingWrites = new ConcurrentLinkedDeque<>();
+
+    private final Map<TopicPartition, OffsetAndMetadata> acknowledgedOffsets = new HashMap<>();
+
+    // Field query -> the last write request containing the field, while it's in flight
+    private final ConcurrentMap<String, CompletableFuture<?>> lastWrites = new ConcurrentHashMap<>();
+
+    private volatile Throwable writeFailure;
+
+    public Plc4xSinkTask() {
+        this(new PlcDriverManager());
+    }
+
+    Plc4xSinkTask(PlcDriverManager driverManager) {
+        this.driverManager = driverManager;
+    }
+
     @Override
     public String version() {
         return VersionUtil.getVersion();
@@ -47,6 +109,9 @@ public class Plc4xSinkTask extends SinkTask {
     public void start(Map<String, String> props) {
         AbstractConfig config = new AbstractConfig(Plc4xSinkConnector.CONFIG_DEF, props);
         url = config.getString(Plc4xSinkConnector.URL_CONFIG);
+        maxInFlightRequests = config.getInt(Plc4xSinkConnector.MAX_IN_FLIGHT_REQUESTS_CONFIG);
+        requestTimeoutMs = config.getInt(Plc4xSinkConnector.REQUEST_TIMEOUT_CONFIG);
+        inFlightRequests = new Semaphore(maxInFlightRequests);
 
         openConnection();
 
@@ -57,38 +122,188 @@ public class Plc4xSinkTask extends SinkTask {
 
     @Override
     public void stop() {
+        try {
+            // Give the writes in flight a chance to complete
+            if (inFlightRequests != null && inFlightRequests.tryAcquire(maxInFlightRequests, requestTimeoutMs, TimeUnit.MILLISECONDS)) {
+                inFlightRequests.release(maxInFlightRequests);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
         closeConnection();
     }
 
     @Override
     public void put(Collection<SinkRecord> records) {
+        checkWriteFailure();
+        if (records.isEmpty()) {
+            return;
+        }
+        // Last write wins, records of a partition are passed in the order of their offsets
+        Map<String, Object[]> values = new LinkedHashMap<>();
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
         for (SinkRecord record: records) {
-            String query = record.key().toString();
-            Object value = record.value();
-            PlcWriteRequest.Builder builder = plcConnection.writeRequestBuilder();
-            PlcWriteRequest plcRequest = addToBuilder(builder, query, value).build();
-            doWrite(plcRequest);
+            offsets.put(new TopicPartition(record.topic(), record.kafkaPartition()), new OffsetAndMetadata(record.kafkaOffset() + 1));
+            if (record.key() == null || record.value() == null) {
+                // Nothing to write
+                continue;
+            }
+            Object[] plcValues = toPlcValues(record.valueSchema(), record.value());
+            if (plcValues.length == 0) {
+                // Would fail the write request of the whole batch
+                log.error("Skipping record of {}-{} at offset {}, it has no values to write to field {}",
+                    record.topic(), record.kafkaPartition(), record.kafkaOffset(), record.key());
+                continue;
+            }
+            values.put(record.key().toString(), plcValues);
+        }
+        PendingWrite pendingWrite = new PendingWrite(offsets);
+        if (values.isEmpty()) {
+            pendingWrite.acknowledged = true;
+            pendingWrites.add(pendingWrite);
+            return;
+        }
+
+        PlcWriteRequest plcRequest = createWriteRequest(values);
+        acquireInFlightRequest();
+        pendingWrites.add(pendingWrite);
+        CompletableFuture<PlcWriteResponse> write = afterEarlierWrites(values.keySet())
+            .thenCompose(ignore -> plcRequest.execute().thenApply(PlcWriteResponse.class::cast));
+        values.keySet().forEach(field -> lastWrites.put(field, write));
+        write.whenComplete((response, throwable) -> {
+            values.keySet().forEach(field -> lastWrites.remove(field, write));
+            inFlightRequests.release();
+            if (throwable != null) {
+                writeFailure = throwable;
+            } else {
+                acknowledge(pendingWrite, response);
+            }
+        });
+        // Fails right away if the request couldn't be sent
+        checkWriteFailure();
+    }
+
+    /**
+     * @return a future completing when all writes in flight of the given fields are done, only put() writes there.
+     */
+    private CompletableFuture<Void> afterEarlierWrites(Collection<String> fields) {
+        CompletableFuture<?>[] earlierWrites = fields.stream()
+            .map(lastWrites::get)
+            .filter(Objects::nonNull)
+            .distinct()
+            .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(earlierWrites);
+    }
+
+    /**
+     * @return the offsets of all records whose writes and the writes before them have been acknowledged.
+     */
+    @Override
+    public synchronized Map<TopicPartition, OffsetAndMetadata> preCommit(Map<TopicPartition, OffsetAndMetadata> currentOffsets) {
+        checkWriteFailure();
+        PendingWrite pendingWrite;
+        while ((pendingWrite = pendingWrites.peek()) != null && pendingWrite.acknowledged) {
+            pendingWrites.poll();
+            acknowledgedOffsets.putAll(pendingWrite.offsets);
         }
+        Map<TopicPartition, OffsetAndMetadata> committableOffsets = new HashMap<>();
+        currentOffsets.keySet().forEach(partition -> {
+            OffsetAndMetadata offset = acknowledgedOffsets.get(partition);
+            if (offset != null) {
+                committableOffsets.put(partition, offset);
+            }
+        });
+        return committableOffsets;
+    }
+
+    @Override
+    public synchronized void close(Collection<TopicPartition> partitions) {
+        partitions.forEach(acknowledgedOffsets::remove);
+    }
+
+    private PlcWriteRequest createWriteRequest(Map<String, Object[]> values) {
+        PlcWriteRequest.Builder builder = plcConnection.writeRequestBuilder();
+        try {
+            values.forEach((query, value) -> builder.addItem(query, query, value));
+            return builder.build();
+        } catch (RuntimeException e) {
+            throw new DataException("Invalid field query or value in records", e);
+        }
+    }
+
+    private void acquireInFlightRequest() {
+        try {
+            if (!inFlightRequests.tryAcquire(requestTimeoutMs, TimeUnit.MILLISECONDS)) {
+                // Nothing has been sent yet, so the records can be passed again
+                throw new RetriableException("Timed out waiting for the writes in flight");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectException("Interrupted waiting for the writes in flight", e);
+        }
+    }
+
+    private void acknowledge(PendingWrite pendingWrite, PlcWriteResponse response) {
+        for (String fieldName : response.getFieldNames()) {
+            PlcResponseCode responseCode = response.getResponseCode(fieldName);
+            if (responseCode != PlcResponseCode.OK) {
+                writeFailure = new ConnectException(String.format("Writing %s failed with %s", fieldName, responseCode));
+                return;
+            }
+        }
+        pendingWrite.acknowledged = true;
     }
 
-    // TODO: fix this
-    private PlcWriteRequest.Builder addToBuilder(PlcWriteRequest.Builder builder, String query, Object obj) {
-        Class<?> type = obj.getClass();
+    private void checkWriteFailure() {
+        Throwable failure = writeFailure;
+        if (failure != null) {
+            throw new ConnectException("Caught exception during write", failure);
+        }
+    }
 
-        if (type.equals(Integer.class)) {
-            int value = (int) obj;
-            builder.addItem(query, query, value);
-        } else if (type.equals(String.class)) {
-            String value = (String) obj;
-            builder.addItem(query, query, value);
+    /**
+     * Converts the value of a record to the values of a field, arrays are written as multiple values.
+     */
+    private static Object[] toPlcValues(Schema schema, Object value) {
+        if (value instanceof List) {
+            Schema elementSchema = schema != null ? schema.valueSchema() : null;
+            return ((List<?>) value).stream()
+                .map(element -> toPlcValue(elementSchema, element))
+                .toArray();
         }
+        return new Object[] {toPlcValue(schema, value)};
+    }
 
-        return builder;
+    private static Object toPlcValue(Schema schema, Object value) {
+        if (value instanceof Boolean || value instanceof Byte || value instanceof Short || value instanceof Integer
+            || value instanceof Long || value instanceof Float || value instanceof Double || value instanceof BigDecimal
+            || value instanceof String || value instanceof byte[]) {
+            return value;
+        }
+        if (value instanceof ByteBuffer) {
+            ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return bytes;
+        }
+        if (value instanceof java.util.Date) {
+            // The logical types of Connect are all in UTC
+            LocalDateTime dateTime = LocalDateTime.ofInstant(((java.util.Date) value).toInstant(), ZoneOffset.UTC);
+            String logicalName = schema != null ? schema.name() : null;
+            if (Date.LOGICAL_NAME.equals(logicalName)) {
+                return dateTime.toLocalDate();
+            }
+            if (Time.LOGICAL_NAME.equals(logicalName)) {
+                return dateTime.toLocalTime();
+            }
+            return dateTime;
+        }
+        throw new DataException(String.format("Unsupported data type %s", value.getClass().getName()));
     }
 
     private void openConnection() {
         try {
-            plcConnection = new PlcDriverManager().getConnection(url);
+            plcConnection = driverManager.getConnection(url);
             plcConnection.connect();
         } catch (PlcConnectionException e) {
             throw new ConnectException("Could not establish a PLC connection", e);
@@ -105,11 +320,13 @@ public class Plc4xSinkTask extends SinkTask {
         }
     }
 
-    private void doWrite(PlcWriteRequest request) {
-        try {
-            request.execute().get();
-        } catch (ExecutionException | InterruptedException e) {
-            throw new ConnectException("Caught exception during write", e);
+    private static class PendingWrite {
+        private final Map<TopicPartition, OffsetAndMetadata> offsets;
+
+        private volatile boolean acknowledged;
+
+        private PendingWrite(Map<TopicPartition, OffsetAndMetadata> offsets) {
+            this.offsets = offsets;
         }
     }
 
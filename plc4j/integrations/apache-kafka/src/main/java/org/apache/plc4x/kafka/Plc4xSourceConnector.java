@@ -32,7 +32,6 @@ import java.io.IOException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class Plc4xSourceConnector extends SourceConnector {
 
@@ -56,39 +55,80 @@ public class Plc4xSourceConnector extends SourceConnector {
         .define(TOPIC_CONFIG, ConfigDef.Type.STRING, ConfigDef.Importance.HIGH, TOPIC_DOC)
         .define(QUERIES_CONFIG, ConfigDef.Type.LIST, new LinkedList<>(), ConfigDef.Importance.HIGH, QUERIES_DOC)
         .define(JSON_CONFIG, ConfigDef.Type.STRING, JSON_DEFAULT, ConfigDef.Importance.HIGH, JSON_DOC)
-        .define(RATE_CONFIG, ConfigDef.Type.INT, RATE_DEFAULT, ConfigDef.Importance.MEDIUM, RATE_DOC);
+        .define(RATE_CONFIG, ConfigDef.Type.INT, RATE_DEFAULT, ConfigDef.Range.atLeast(1), ConfigDef.Importance.MEDIUM, RATE_DOC)
+        .define(Plc4xSourceTask.BUFFER_SIZE_CONFIG, ConfigDef.Type.INT, Plc4xSourceTask.BUFFER_SIZE_DEFAULT, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW, Plc4xSourceTask.BUFFER_SIZE_DOC)
+        .define(Plc4xSourceTask.BATCH_SIZE_CONFIG, ConfigDef.Type.INT, Plc4xSourceTask.BATCH_SIZE_DEFAULT, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW, Plc4xSourceTask.BATCH_SIZE_DOC);
 
     private String topic;
     private List<String> queries;
     private String json;
     private Integer rate;
+    private Integer bufferSize;
+    private Integer batchSize;
 
     @Override
     public Class<? extends Task> taskClass() {
         return Plc4xSourceTask.class;
     }
 
+    /**
+     * Distributes the sources over the tasks by their load, the number of fields read per second.
+     * Sources with more than the average load per task are split into groups of fields first, then the sources are
+     * assigned to the task with the least load, starting with the largest ones. Groups of the same source assigned to
+     * the same task are merged again, so a task opens only one connection per PLC.
+     */
     @Override
-    @SuppressWarnings("unchecked")
     public List<Map<String, String>> taskConfigs(int maxTasks) {
+        List<Source> sources = split(getSources(), maxTasks);
+        if (sources.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int numTasks = Math.min(maxTasks, sources.size());
+        List<List<Source>> tasks = new ArrayList<>(numTasks);
+        PriorityQueue<Integer> leastLoaded = new PriorityQueue<>(numTasks, Comparator.comparingDouble(task -> load(tasks.get(task))));
+        for (int i = 0; i < numTasks; i++) {
+            tasks.add(new ArrayList<>());
+            leastLoaded.add(i);
+        }
+        sources.sort(Comparator.comparingDouble(Source::getLoad).reversed());
+        for (Source source : sources) {
+            Integer task = leastLoaded.poll();
+            tasks.get(task).add(source);
+            leastLoaded.add(task);
+        }
+
         List<Map<String, String>> configs = new LinkedList<>();
-        if (json.isEmpty()) {
-            Map<String, List<String>> groupedByHost = new HashMap<>();
-            queries.stream().map(query -> query.split("#", 2)).collect(Collectors.groupingBy(parts -> parts[0])).forEach((host, q) ->
-                groupedByHost.put(host, q.stream().map(parts -> parts[1]).collect(Collectors.toList())));
-            if (groupedByHost.size() > maxTasks) {
-                // Not enough tasks
-                // TODO: throw exception?
-                return Collections.emptyList();
+        int sourceNumber = 0;
+        for (List<Source> assigned : tasks) {
+            Collection<Source> taskSources = mergeByUrl(assigned);
+            Map<String, String> taskConfig = new HashMap<>();
+            List<String> names = new ArrayList<>(taskSources.size());
+            for (Source source : taskSources) {
+                String name = Integer.toString(sourceNumber++);
+                String prefix = Plc4xSourceTask.SOURCE_PREFIX + name + ".";
+                names.add(name);
+                taskConfig.put(prefix + Plc4xSourceTask.TOPIC_CONFIG, source.topic);
+                taskConfig.put(prefix + Plc4xSourceTask.URL_CONFIG, source.url);
+                taskConfig.put(prefix + Plc4xSourceTask.QUERIES_CONFIG, String.join(",", source.queries));
+                taskConfig.put(prefix + Plc4xSourceTask.RATE_CONFIG, Integer.toString(source.rate));
             }
-            groupedByHost.forEach((host, qs) -> {
-                Map<String, String> taskConfig = new HashMap<>();
-                taskConfig.put(Plc4xSourceTask.TOPIC_CONFIG, topic);
-                taskConfig.put(Plc4xSourceTask.URL_CONFIG, host);
-                taskConfig.put(Plc4xSourceTask.QUERIES_CONFIG, String.join(",", qs));
-                taskConfig.put(Plc4xSourceTask.RATE_CONFIG, rate.toString());
-                configs.add(taskConfig);
-            });
+            taskConfig.put(Plc4xSourceTask.SOURCES_CONFIG, String.join(",", names));
+            taskConfig.put(Plc4xSourceTask.BUFFER_SIZE_CONFIG, bufferSize.toString());
+            taskConfig.put(Plc4xSourceTask.BATCH_SIZE_CONFIG, batchSize.toString());
+            configs.add(taskConfig);
+        }
+        log.info("Distributed {} sources over {} tasks", sources.size(), configs.size());
+        return configs;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Source> getSources() {
+        List<Source> sources = new ArrayList<>();
+        if (json.isEmpty()) {
+            Map<String, List<String>> groupedByHost = new LinkedHashMap<>();
+            queries.stream().map(query -> query.split("#", 2)).forEach(parts ->
+                groupedByHost.computeIfAbsent(parts[0], host -> new ArrayList<>()).add(parts[1]));
+            groupedByHost.forEach((host, qs) -> sources.add(new Source(topic, host, qs, rate)));
         } else {
             try {
                 // TODO
@@ -96,33 +136,58 @@ public class Plc4xSourceConnector extends SourceConnector {
                 ObjectMapper mapper = new ObjectMapper();
                 Map<String, Object> values = mapper.readValue(config, new TypeReference<Map<String, Object>>() {});
                 List<Map<String, Object>> plcs = (List<Map<String, Object>>) values.get("PLCs");
-                log.info("TASKS REQUIRED: " + plcs.size());
-                if (plcs.size() > maxTasks) {
-                    // not enough tasks
-                    log.warn("NOT ENOUGH TASKS!");
-                    return Collections.emptyList();
-                }
                 for (Map<String, Object> plc : plcs) {
-                    Map<String, String> taskConfig = new HashMap<>();
                     String ip = plc.get("IP").toString();
-                    String topic = ip;
                     String url = "s7://" + ip + "/1/" + plc.get("Slot");
                     List<String> queries = new LinkedList<>();
                     for (Map<String, Object> operand : (List<Map<String, Object>>)plc.get("operands")) {
                         String query = "%" + operand.get("Operand") + ":" + operand.get("Datatype");
                         queries.add(query);
                     }
-                    taskConfig.put(Plc4xSourceTask.TOPIC_CONFIG, topic);
-                    taskConfig.put(Plc4xSourceTask.URL_CONFIG, url);
-                    taskConfig.put(RATE_CONFIG, rate.toString());
-                    taskConfig.put(Plc4xSourceTask.QUERIES_CONFIG, String.join(",", queries));
-                    configs.add(taskConfig);
+                    sources.add(new Source(ip, url, queries, rate));
                 }
             } catch (IOException e) {
                 log.error("ERROR CONFIGURING TASK", e);
             }
         }
-        return configs;
+        return sources;
+    }
+
+    /**
+     * Splits sources with more than the average load per task into groups of adjacent fields.
+     */
+    private static List<Source> split(List<Source> sources, int maxTasks) {
+        double loadPerTask = sources.stream().mapToDouble(Source::getLoad).sum() / maxTasks;
+        List<Source> splitSources = new ArrayList<>();
+        for (Source source : sources) {
+            int groups = Math.min((int) Math.ceil(source.getLoad() / loadPerTask), source.queries.size());
+            if (groups <= 1) {
+                splitSources.add(source);
+                continue;
+            }
+            int groupSize = (int) Math.ceil((double) source.queries.size() / groups);
+            for (int i = 0; i < source.queries.size(); i += groupSize) {
+                List<String> group = source.queries.subList(i, Math.min(i + groupSize, source.queries.size()));
+                splitSources.add(new Source(source.topic, source.url, group, source.rate));
+            }
+        }
+        return splitSources;
+    }
+
+    private static Collection<Source> mergeByUrl(List<Source> sources) {
+        Map<String, Source> merged = new LinkedHashMap<>();
+        for (Source source : sources) {
+            merged.merge(source.url, source, (first, second) -> {
+                List<String> queries = new ArrayList<>(first.queries);
+                queries.addAll(second.queries);
+                return new Source(first.topic, first.url, queries, first.rate);
+            });
+        }
+        return merged.values();
+    }
+
+    private static double load(List<Source> sources) {
+        return sources.stream().mapToDouble(Source::getLoad).sum();
     }
 
     @Override
@@ -132,6 +197,8 @@ public class Plc4xSourceConnector extends SourceConnector {
         queries = config.getList(QUERIES_CONFIG);
         rate = config.getInt(RATE_CONFIG);
         json = config.getString(JSON_CONFIG);
+        bufferSize = config.getInt(Plc4xSourceTask.BUFFER_SIZE_CONFIG);
+        batchSize = config.getInt(Plc4xSourceTask.BATCH_SIZE_CONFIG);
     }
 
     @Override
@@ -147,4 +214,28 @@ public class Plc4xSourceConnector extends SourceConnector {
         return VersionUtil.getVersion();
     }
 
+    /**
+     * Fields read from the same connection at the same rate.
+     */
+    private static class Source {
+        private final String topic;
+        private final String url;
+        private final List<String> queries;
+        private final int rate;
+
+        private Source(String topic, String url, List<String> queries, int rate) {
+            this.topic = topic;
+            this.url = url;
+            this.queries = queries;
+            this.rate = rate;
+        }
+
+        /**
+         * @return the number of fields read per second.
+         */
+        private double getLoad() {
+            return queries.size() * 1000.0 / rate;
+        }
+    }
+
 }
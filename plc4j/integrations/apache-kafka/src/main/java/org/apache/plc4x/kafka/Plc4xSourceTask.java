@@ -28,23 +28,42 @@ import org.apache.kafka.connect.source.SourceRecord;
 import org.apache.kafka.connect.source.SourceTask;
 import org.apache.plc4x.java.PlcDriverManager;
 import org.apache.plc4x.java.api.PlcConnection;
-import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
-import org.apache.plc4x.java.api.exceptions.PlcRuntimeException;
 import org.apache.plc4x.java.api.messages.PlcReadRequest;
 import org.apache.plc4x.java.api.messages.PlcReadResponse;
+import org.apache.plc4x.java.api.messages.PlcSubscriptionRequest;
+import org.apache.plc4x.java.api.messages.PlcSubscriptionResponse;
+import org.apache.plc4x.java.api.model.PlcConsumerRegistration;
+import org.apache.plc4x.java.api.model.PlcSubscriptionHandle;
 import org.apache.plc4x.java.api.types.PlcResponseCode;
 import org.apache.plc4x.kafka.util.VersionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
- * Source Connector Task polling the data source at a given rate.
- * A timer thread is scheduled which sets the fetch flag to true every rate milliseconds.
- * When poll() is invoked, the calling thread waits until the fetch flag is set for WAIT_LIMIT_MILLIS.
- * If the flag does not become true, the method returns null, otherwise a fetch is performed.
+ * Source Connector Task reading the fields of one or more sources, each with its own connection and rate.
+ * If a connection supports subscriptions, the fields are subscribed cyclically at the rate, otherwise or if the
+ * subscription fails a timer thread executes the same read request at the rate. The values received are buffered as records in a bounded queue, which
+ * is drained in batches by poll(). When the queue is full, new values are dropped until poll() caught up.
+ * The timestamps of the records, which are also used as their offsets, are the timestamps of the subscription events
+ * or the time the read response has been received.
+ * A source whose connection fails is reconnected after a delay, so it doesn't affect the other sources of the task.
  */
 public class Plc4xSourceTask extends SourceTask {
+
+    private static final Logger log = LoggerFactory.getLogger(Plc4xSourceTask.class);
+
+    static final String SOURCES_CONFIG = "sources";
+    private static final String SOURCES_DOC = "Names of the sources of this task, each configured by source.<name>.<config>";
+
+    static final String SOURCE_PREFIX = "source.";
+
     static final String TOPIC_CONFIG = "topic";
     private static final String TOPIC_DOC = "Kafka topic to publish to";
 
@@ -58,14 +77,29 @@ public class Plc4xSourceTask extends SourceTask {
     private static final Integer RATE_DEFAULT = 1000;
     private static final String RATE_DOC = "Polling rate";
 
+    static final String BUFFER_SIZE_CONFIG = "buffer.size";
+    static final Integer BUFFER_SIZE_DEFAULT = 10000;
+    static final String BUFFER_SIZE_DOC = "Maximum number of records buffered between polls";
+
+    static final String BATCH_SIZE_CONFIG = "batch.size";
+    static final Integer BATCH_SIZE_DEFAULT = 1000;
+    static final String BATCH_SIZE_DOC = "Maximum number of records returned by a single poll";
+
     private static final ConfigDef CONFIG_DEF = new ConfigDef()
+        .define(SOURCES_CONFIG, ConfigDef.Type.LIST, ConfigDef.Importance.HIGH, SOURCES_DOC)
+        .define(BUFFER_SIZE_CONFIG, ConfigDef.Type.INT, BUFFER_SIZE_DEFAULT, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW, BUFFER_SIZE_DOC)
+        .define(BATCH_SIZE_CONFIG, ConfigDef.Type.INT, BATCH_SIZE_DEFAULT, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW, BATCH_SIZE_DOC);
+
+    private static final ConfigDef SOURCE_CONFIG_DEF = new ConfigDef()
         .define(TOPIC_CONFIG, ConfigDef.Type.STRING, ConfigDef.Importance.HIGH, TOPIC_DOC)
         .define(URL_CONFIG, ConfigDef.Type.STRING, ConfigDef.Importance.HIGH, URL_DOC)
         .define(QUERIES_CONFIG, ConfigDef.Type.LIST, ConfigDef.Importance.HIGH, QUERIES_DOC)
-        .define(RATE_CONFIG, ConfigDef.Type.INT, RATE_DEFAULT, ConfigDef.Importance.MEDIUM, RATE_DOC);
+        .define(RATE_CONFIG, ConfigDef.Type.INT, RATE_DEFAULT, ConfigDef.Range.atLeast(1), ConfigDef.Importance.MEDIUM, RATE_DOC);
 
     private static final long WAIT_LIMIT_MILLIS = 100;
     private static final long TIMEOUT_LIMIT_MILLIS = 5000;
+    private static final long RECONNECT_DELAY_MILLIS = 5000;
+    private static final int MAX_THREADS = 4;
 
     private static final String URL_FIELD = "url";
     private static final String QUERY_FIELD = "query";
@@ -76,15 +110,34 @@ public class Plc4xSourceTask extends SourceTask {
             .field(QUERY_FIELD, Schema.STRING_SCHEMA)
             .build();
 
-    private String topic;
-    private String url;
-    private List<String> queries;
+    private int batchSize;
+
+    private final List<Source> sources = new ArrayList<>();
 
-    private PlcConnection plcConnection;
+    private BlockingQueue<SourceRecord> buffer;
+    private final AtomicLong droppedRecords = new AtomicLong();
+    private volatile Throwable failure;
 
-    // TODO: should we use shared (static) thread pool for this?
+    private final PlcDriverManager driverManager;
+    private final long timeoutMillis;
+    private final long reconnectDelayMillis;
+
+    // Timers of the polling, reconnects and timeouts, nothing executed on it blocks
     private ScheduledExecutorService scheduler;
-    private boolean fetch = true;
+
+    public Plc4xSourceTask() {
+        this(new PlcDriverManager(), TIMEOUT_LIMIT_MILLIS, RECONNECT_DELAY_MILLIS);
+    }
+
+    /**
+     * @param timeoutMillis time to wait for a read or subscription, connects wait ten times as long.
+     * @param reconnectDelayMillis time to wait before a failed source is connected again.
+     */
+    Plc4xSourceTask(PlcDriverManager driverManager, long timeoutMillis, long reconnectDelayMillis) {
+        this.driverManager = driverManager;
+        this.timeoutMillis = timeoutMillis;
+        this.reconnectDelayMillis = reconnectDelayMillis;
+    }
 
     @Override
     public String version() {
@@ -94,133 +147,70 @@ public class Plc4xSourceTask extends SourceTask {
     @Override
     public void start(Map<String, String> props) {
         AbstractConfig config = new AbstractConfig(CONFIG_DEF, props);
-        topic = config.getString(TOPIC_CONFIG);
-        url = config.getString(URL_CONFIG);
-        queries = config.getList(QUERIES_CONFIG);
-
-        openConnection();
-
-        if (!plcConnection.getMetadata().canRead()) {
-            throw new ConnectException("Reading not supported on this connection");
+        batchSize = config.getInt(BATCH_SIZE_CONFIG);
+        buffer = new ArrayBlockingQueue<>(config.getInt(BUFFER_SIZE_CONFIG));
+        for (String name : config.getList(SOURCES_CONFIG)) {
+            // Parsed without logging, there might be hundreds of sources
+            sources.add(new Source(SOURCE_CONFIG_DEF.parse(config.originalsWithPrefix(SOURCE_PREFIX + name + "."))));
         }
 
-        int rate = Integer.parseInt(props.get(RATE_CONFIG));
-        scheduler = Executors.newScheduledThreadPool(1);
-        scheduler.scheduleAtFixedRate(Plc4xSourceTask.this::scheduleFetch, rate, rate, TimeUnit.MILLISECONDS);
+        scheduler = Executors.newScheduledThreadPool(Math.max(Math.min(sources.size(), MAX_THREADS), 1));
+        // Connect all sources concurrently, a slow or unavailable one must not delay the others
+        sources.forEach(Source::start);
     }
 
     @Override
     public void stop() {
-        scheduler.shutdown();
-        closeConnection();
-        synchronized (this) {
-            notify(); // wake up thread waiting in awaitFetch
+        if (scheduler != null) {
+            scheduler.shutdown();
         }
+        sources.forEach(Source::stop);
+        sources.clear();
     }
 
     @Override
     public List<SourceRecord> poll() throws InterruptedException {
-        return awaitFetch(WAIT_LIMIT_MILLIS) ? doFetch() : null;
-    }
-
-    private void openConnection() {
-        try {
-            plcConnection = new PlcDriverManager().getConnection(url);
-            plcConnection.connect();
-        } catch (PlcConnectionException e) {
-            throw new ConnectException("Could not establish a PLC connection", e);
+        Throwable currentFailure = failure;
+        if (currentFailure != null) {
+            throw new ConnectException("Could not fetch data from source", currentFailure);
         }
-    }
-
-    private void closeConnection() {
-        if (plcConnection != null) {
-            try {
-                plcConnection.close();
-            } catch (Exception e) {
-                throw new PlcRuntimeException("Caught exception while closing connection to PLC", e);
-            }
+        long dropped = droppedRecords.getAndSet(0);
+        if (dropped > 0) {
+            log.warn("Dropped {} records as the buffer was full", dropped);
         }
+        SourceRecord first = buffer.poll(WAIT_LIMIT_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return null;
+        }
+        List<SourceRecord> records = new ArrayList<>(Math.min(buffer.size() + 1, batchSize));
+        records.add(first);
+        buffer.drainTo(records, batchSize - 1);
+        return records;
     }
 
     /**
-     * Schedule next fetch operation.
-     */
-    private synchronized void scheduleFetch() {
-        fetch = true;
-        notify();
-    }
-
-    /**
-     * Wait for next scheduled fetch operation or till the source is closed.
-     * @param milliseconds maximum time to wait
-     * @throws InterruptedException if the thread is interrupted
-     * @return true if a fetch should be performed, false otherwise
+     * Fails the given future with a {@link TimeoutException} if it isn't completed in time, without blocking a thread.
+     *
+     * @param lateResult releases a result completed after the timeout.
      */
-    private synchronized boolean awaitFetch(long milliseconds) throws InterruptedException {
-        if (!fetch) {
-            wait(milliseconds);
-        }
+    private <T> CompletableFuture<T> withTimeout(CompletableFuture<? extends T> future, long timeoutMs, Consumer<? super T> lateResult) {
+        CompletableFuture<T> result = new CompletableFuture<>();
         try {
-            return fetch;
-        } finally {
-            fetch = false;
+            ScheduledFuture<?> timeout = scheduler.schedule(
+                () -> result.completeExceptionally(new TimeoutException("Not completed within " + timeoutMs + " ms")),
+                timeoutMs, TimeUnit.MILLISECONDS);
+            result.whenComplete((value, throwable) -> timeout.cancel(false));
+        } catch (RejectedExecutionException e) {
+            // The task is stopping
+            result.completeExceptionally(e);
         }
-    }
-
-    private List<SourceRecord> doFetch() throws InterruptedException {
-        final CompletableFuture<? extends PlcReadResponse> response = createReadRequest().execute();
-        try {
-            final PlcReadResponse received = response.get(TIMEOUT_LIMIT_MILLIS, TimeUnit.MILLISECONDS);
-            return extractValues(received);
-        } catch (ExecutionException e) {
-            throw new ConnectException("Could not fetch data from source", e);
-        } catch (TimeoutException e) {
-            throw new ConnectException("Timed out waiting for data from source", e);
-        }
-    }
-
-    private PlcReadRequest createReadRequest() {
-        PlcReadRequest.Builder builder = plcConnection.readRequestBuilder();
-        for (String query : queries) {
-            builder.addItem(query, query);
-        }
-        return builder.build();
-    }
-
-    private List<SourceRecord> extractValues(PlcReadResponse response) {
-        final List<SourceRecord> result = new LinkedList<>();
-        for (String query : queries) {
-            final PlcResponseCode rc = response.getResponseCode(query);
-            if (!rc.equals(PlcResponseCode.OK))  {
-                continue;
+        future.whenComplete((value, throwable) -> {
+            if (throwable != null) {
+                result.completeExceptionally(throwable);
+            } else if (!result.complete(value) && value != null) {
+                lateResult.accept(value);
             }
-
-            Struct key = new Struct(KEY_SCHEMA)
-                .put(URL_FIELD, url)
-                .put(QUERY_FIELD, query);
-
-            Object value = response.getObject(query);
-            Schema valueSchema = getSchema(value);
-            Long timestamp = System.currentTimeMillis();
-            Map<String, String> sourcePartition = new HashMap<>();
-            sourcePartition.put("url", url);
-            sourcePartition.put("query", query);
-            Map<String, Long> sourceOffset = Collections.singletonMap("offset", timestamp);
-
-            SourceRecord record =
-                new SourceRecord(
-                    sourcePartition,
-                    sourceOffset,
-                    topic,
-                    KEY_SCHEMA,
-                    key,
-                    valueSchema,
-                    value
-                );
-
-            result.add(record);
-        }
-
+        });
         return result;
     }
 
@@ -258,4 +248,331 @@ public class Plc4xSourceTask extends SourceTask {
         throw new ConnectException(String.format("Unsupported data type %s", value.getClass().getName()));
     }
 
+    /**
+     * A connection and the fields read from it.
+     * All callbacks carry the connection they belong to and are ignored once it has been replaced, so a late response
+     * of a closed connection can't restart the current one.
+     */
+    private class Source {
+        private final String topic;
+        private final String url;
+        private final List<String> queries;
+        private final int rate;
+
+        // query -> everything about a field that doesn't change between records
+        private final Map<String, FieldContext> fieldContexts = new HashMap<>();
+
+        private PlcConnection plcConnection;
+
+        private final List<PlcConsumerRegistration> registrations = new ArrayList<>();
+        private Collection<PlcSubscriptionHandle> subscriptionHandles = Collections.emptyList();
+
+        private ScheduledFuture<?> polling;
+        private PlcReadRequest readRequest;
+        private boolean readInFlight;
+        private long readStartedNanos;
+
+        // At most one connect is pending or scheduled at a time
+        private boolean connecting;
+        private ScheduledFuture<?> reconnect;
+        private boolean stopped;
+
+        @SuppressWarnings("unchecked")
+        private Source(Map<String, Object> config) {
+            topic = (String) config.get(TOPIC_CONFIG);
+            url = (String) config.get(URL_CONFIG);
+            queries = (List<String>) config.get(QUERIES_CONFIG);
+            rate = (Integer) config.get(RATE_CONFIG);
+            for (String query : queries) {
+                fieldContexts.put(query, new FieldContext(topic, url, query));
+            }
+        }
+
+        /**
+         * Connects without blocking, the fields are subscribed or polled once connected.
+         */
+        private synchronized void start() {
+            reconnect = null;
+            if (stopped || connecting || plcConnection != null) {
+                return;
+            }
+            connecting = true;
+            CompletableFuture<PlcConnection> connection;
+            try {
+                connection = withTimeout(driverManager.getConnectionAsync(url), 10 * timeoutMillis, this::close);
+            } catch (RuntimeException e) {
+                connection = new CompletableFuture<>();
+                connection.completeExceptionally(e);
+            }
+            connection.whenComplete(this::connected);
+        }
+
+        private synchronized void connected(PlcConnection connection, Throwable throwable) {
+            connecting = false;
+            if (throwable != null) {
+                log.warn("Could not establish a PLC connection to {}, retrying in {} ms", url, reconnectDelayMillis, throwable);
+                restart();
+                return;
+            }
+            if (stopped || plcConnection != null) {
+                close(connection);
+                return;
+            }
+            plcConnection = connection;
+
+            if (!plcConnection.getMetadata().canRead()) {
+                failure = new ConnectException("Reading not supported on the connection to " + url);
+                return;
+            }
+
+            if (plcConnection.getMetadata().canSubscribe()) {
+                subscribe(plcConnection);
+            } else {
+                startPolling();
+            }
+        }
+
+        private synchronized void stop() {
+            stopped = true;
+            if (reconnect != null) {
+                reconnect.cancel(false);
+                reconnect = null;
+            }
+            disconnect();
+        }
+
+        /**
+         * Drops the connection and connects again after a delay.
+         */
+        private synchronized void restart() {
+            disconnect();
+            if (stopped || connecting || reconnect != null || scheduler.isShutdown()) {
+                return;
+            }
+            try {
+                reconnect = scheduler.schedule(this::start, reconnectDelayMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // The task is stopping
+            }
+        }
+
+        private void disconnect() {
+            if (polling != null) {
+                polling.cancel(false);
+                polling = null;
+            }
+            unsubscribe();
+            if (plcConnection != null) {
+                close(plcConnection);
+                plcConnection = null;
+            }
+            readRequest = null;
+            readInFlight = false;
+        }
+
+        private void close(PlcConnection connection) {
+            try {
+                connection.close();
+            } catch (Exception e) {
+                log.warn("Caught exception while closing connection to {}", url, e);
+            }
+        }
+
+        /**
+         * Subscribes all fields cyclically without blocking, the fields are polled if not all of them can be subscribed.
+         */
+        private void subscribe(PlcConnection connection) {
+            CompletableFuture<PlcSubscriptionResponse> subscription;
+            try {
+                PlcSubscriptionRequest.Builder builder = connection.subscriptionRequestBuilder();
+                for (String query : queries) {
+                    builder.addCyclicField(query, query, Duration.ofMillis(rate));
+                }
+                subscription = withTimeout(builder.build().execute(), timeoutMillis,
+                    lateResponse -> unsubscribe(connection, lateResponse.getSubscriptionHandles()));
+            } catch (RuntimeException e) {
+                subscription = new CompletableFuture<>();
+                subscription.completeExceptionally(e);
+            }
+            subscription.whenComplete((response, throwable) -> subscribed(connection, response, throwable));
+        }
+
+        private synchronized void subscribed(PlcConnection connection, PlcSubscriptionResponse response, Throwable throwable) {
+            if (connection != plcConnection) {
+                // Disconnected in the meantime, the subscriptions ended with the connection
+                return;
+            }
+            if (throwable != null) {
+                log.info("Subscriptions not available on {}, falling back to polling", url, throwable);
+                startPolling();
+                return;
+            }
+            try {
+                subscriptionHandles = response.getSubscriptionHandles();
+                for (String query : queries) {
+                    if (response.getResponseCode(query) != PlcResponseCode.OK) {
+                        log.info("Could not subscribe {} on {}, falling back to polling", query, url);
+                        unsubscribe();
+                        startPolling();
+                        return;
+                    }
+                }
+                for (PlcSubscriptionHandle handle : subscriptionHandles) {
+                    registrations.add(handle.register(event -> enqueue(event, event.getTimestamp())));
+                }
+            } catch (RuntimeException e) {
+                log.info("Subscriptions not available on {}, falling back to polling", url, e);
+                unsubscribe();
+                startPolling();
+            }
+        }
+
+        private void unsubscribe() {
+            registrations.forEach(PlcConsumerRegistration::unregister);
+            registrations.clear();
+            unsubscribe(plcConnection, subscriptionHandles);
+            subscriptionHandles = Collections.emptyList();
+        }
+
+        private void unsubscribe(PlcConnection connection, Collection<PlcSubscriptionHandle> handles) {
+            if (handles.isEmpty()) {
+                return;
+            }
+            try {
+                connection.unsubscriptionRequestBuilder().addHandles(handles).build().execute();
+            } catch (RuntimeException e) {
+                log.debug("Could not unsubscribe from {}", url, e);
+            }
+        }
+
+        private void startPolling() {
+            if (polling != null) {
+                return;
+            }
+            readRequest = createReadRequest();
+            try {
+                polling = scheduler.scheduleAtFixedRate(this::read, 0, rate, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // The task is stopping
+            }
+        }
+
+        private PlcReadRequest createReadRequest() {
+            PlcReadRequest.Builder builder = plcConnection.readRequestBuilder();
+            for (String query : queries) {
+                builder.addItem(query, query);
+            }
+            return builder.build();
+        }
+
+        /**
+         * Reads all fields unless the previous read is still in flight.
+         */
+        private void read() {
+            PlcConnection connection;
+            PlcReadRequest request;
+            synchronized (this) {
+                connection = plcConnection;
+                request = readRequest;
+                if (connection == null || request == null) {
+                    return;
+                }
+                if (readInFlight) {
+                    if (System.nanoTime() - readStartedNanos > TimeUnit.MILLISECONDS.toNanos(timeoutMillis)) {
+                        log.warn("Timed out waiting for data from {}, reconnecting", url);
+                        restart();
+                    }
+                    return;
+                }
+                readInFlight = true;
+                readStartedNanos = System.nanoTime();
+            }
+            // Executed outside of the lock, some drivers send the request synchronously
+            CompletableFuture<? extends PlcReadResponse> response;
+            try {
+                response = request.execute();
+            } catch (RuntimeException e) {
+                CompletableFuture<PlcReadResponse> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                response = failed;
+            }
+            response.whenComplete((readResponse, throwable) -> readCompleted(connection, readResponse, throwable));
+        }
+
+        private void readCompleted(PlcConnection connection, PlcReadResponse response, Throwable throwable) {
+            synchronized (this) {
+                if (connection != plcConnection) {
+                    // The read timed out and the connection has been replaced
+                    return;
+                }
+                readInFlight = false;
+                if (throwable != null) {
+                    log.warn("Could not fetch data from {}, reconnecting", url, throwable);
+                    restart();
+                    return;
+                }
+            }
+            enqueue(response, Instant.now());
+        }
+
+        private void enqueue(PlcReadResponse response, Instant timestamp) {
+            for (String query : response.getFieldNames()) {
+                final PlcResponseCode rc = response.getResponseCode(query);
+                FieldContext fieldContext = fieldContexts.get(query);
+                if (!rc.equals(PlcResponseCode.OK) || fieldContext == null) {
+                    continue;
+                }
+                SourceRecord record;
+                try {
+                    record = fieldContext.createRecord(response.getObject(query), timestamp.toEpochMilli());
+                } catch (RuntimeException e) {
+                    // Called by the driver, so fail the next poll instead
+                    failure = e;
+                    return;
+                }
+                if (!buffer.offer(record)) {
+                    droppedRecords.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private class FieldContext {
+        private final String topic;
+        private final Map<String, String> sourcePartition;
+        private final Struct key;
+        private Class<?> valueClass;
+        private Schema valueSchema;
+
+        private FieldContext(String topic, String url, String query) {
+            this.topic = topic;
+            Map<String, String> partition = new HashMap<>();
+            partition.put("url", url);
+            partition.put("query", query);
+            sourcePartition = Collections.unmodifiableMap(partition);
+            key = new Struct(KEY_SCHEMA)
+                .put(URL_FIELD, url)
+                .put(QUERY_FIELD, query);
+        }
+
+        private synchronized SourceRecord createRecord(Object value, long timestamp) {
+            // The type of a field rarely changes, so the schema is only looked up again if it does
+            if (value.getClass() != valueClass) {
+                valueSchema = getSchema(value);
+                valueClass = value.getClass();
+            }
+            return new SourceRecord(
+                sourcePartition,
+                Collections.singletonMap("offset", timestamp),
+                topic,
+                null,
+                KEY_SCHEMA,
+                key,
+                valueSchema,
+                value,
+                timestamp
+            );
+        }
+    }
+
 }
\ No newline at end of file
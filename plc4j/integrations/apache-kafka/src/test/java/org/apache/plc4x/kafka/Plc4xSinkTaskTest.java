@@ -0,0 +1,173 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x.kafka;
+
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.errors.ConnectException;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.apache.plc4x.java.PlcDriverManager;
+import org.apache.plc4x.java.api.PlcConnection;
+import org.apache.plc4x.java.api.messages.PlcWriteRequest;
+import org.apache.plc4x.java.api.messages.PlcWriteResponse;
+import org.apache.plc4x.java.api.metadata.PlcConnectionMetadata;
+import org.apache.plc4x.java.api.types.PlcResponseCode;
+import org.assertj.core.api.WithAssertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class Plc4xSinkTaskTest implements WithAssertions {
+
+    private static final TopicPartition PARTITION = new TopicPartition("topic", 0);
+
+    @Mock
+    PlcDriverManager driverManager;
+
+    @Mock
+    PlcConnection connection;
+
+    @Mock
+    PlcConnectionMetadata metadata;
+
+    @Mock
+    PlcWriteRequest request;
+
+    @Mock
+    PlcWriteResponse okResponse;
+
+    // Futures of the executed write requests in the order they were sent
+    private final List<CompletableFuture<PlcWriteResponse>> writes = new CopyOnWriteArrayList<>();
+
+    private Plc4xSinkTask SUT;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        PlcWriteRequest.Builder builder = mock(PlcWriteRequest.Builder.class, RETURNS_SELF);
+        when(driverManager.getConnection("mock:sink")).thenReturn(connection);
+        when(connection.getMetadata()).thenReturn(metadata);
+        when(metadata.canWrite()).thenReturn(true);
+        lenient().when(connection.writeRequestBuilder()).thenReturn(builder);
+        lenient().when(builder.build()).thenReturn(request);
+        lenient().when(request.execute()).then(invocation -> {
+            CompletableFuture<PlcWriteResponse> write = new CompletableFuture<>();
+            writes.add(write);
+            return write;
+        });
+        lenient().when(okResponse.getFieldNames()).thenReturn(Collections.singletonList("field"));
+        lenient().when(okResponse.getResponseCode(anyString())).thenReturn(PlcResponseCode.OK);
+
+        SUT = new Plc4xSinkTask(driverManager);
+        Map<String, String> props = new HashMap<>();
+        props.put(Plc4xSinkConnector.URL_CONFIG, "mock:sink");
+        props.put(Plc4xSinkConnector.MAX_IN_FLIGHT_REQUESTS_CONFIG, "5");
+        props.put(Plc4xSinkConnector.REQUEST_TIMEOUT_CONFIG, "100");
+        SUT.start(props);
+    }
+
+    @AfterEach
+    void tearDown() {
+        writes.forEach(write -> write.complete(okResponse));
+        SUT.stop();
+    }
+
+    @Test
+    void commitsOnlyAcknowledgedOffsetsInOrder() {
+        SUT.put(Collections.singletonList(record("A", 0)));
+        SUT.put(Collections.singletonList(record("B", 1)));
+        assertThat(writes).hasSize(2);
+
+        // The later write is acknowledged first, but the earlier one is still in flight
+        writes.get(1).complete(okResponse);
+        assertThat(SUT.preCommit(currentOffsets(2))).isEmpty();
+
+        writes.get(0).complete(okResponse);
+        assertThat(SUT.preCommit(currentOffsets(2))).containsOnly(entry(PARTITION, new OffsetAndMetadata(2)));
+    }
+
+    @Test
+    void failedWriteFailsTask() {
+        SUT.put(Collections.singletonList(record("A", 0)));
+        PlcWriteResponse failedResponse = mock(PlcWriteResponse.class);
+        when(failedResponse.getFieldNames()).thenReturn(Collections.singletonList("A"));
+        when(failedResponse.getResponseCode("A")).thenReturn(PlcResponseCode.ACCESS_DENIED);
+
+        writes.get(0).complete(failedResponse);
+
+        assertThatThrownBy(() -> SUT.preCommit(currentOffsets(1))).isInstanceOf(ConnectException.class);
+        assertThatThrownBy(() -> SUT.put(Collections.singletonList(record("A", 1)))).isInstanceOf(ConnectException.class);
+    }
+
+    @Test
+    void writesOfSameFieldAreOrdered() {
+        SUT.put(Collections.singletonList(record("A", 0)));
+        SUT.put(Collections.singletonList(record("B", 1)));
+        SUT.put(Collections.singletonList(record("A", 2)));
+
+        // Only the write of another field is sent concurrently
+        assertThat(writes).hasSize(2);
+        writes.get(0).complete(okResponse);
+        assertThat(writes).hasSize(3);
+
+        writes.forEach(write -> write.complete(okResponse));
+        assertThat(SUT.preCommit(currentOffsets(3))).containsOnly(entry(PARTITION, new OffsetAndMetadata(3)));
+    }
+
+    @Test
+    void recordWithoutValuesIsSkipped() {
+        SinkRecord empty = new SinkRecord(PARTITION.topic(), PARTITION.partition(), Schema.STRING_SCHEMA, "B",
+            SchemaBuilder.array(Schema.INT32_SCHEMA).build(), Collections.emptyList(), 1);
+
+        SUT.put(Arrays.asList(record("A", 0), empty, record("C", 2)));
+
+        // Only the valid records are written
+        assertThat(mockingDetails(connection.writeRequestBuilder()).getInvocations())
+            .filteredOn(invocation -> invocation.getMethod().getName().equals("addItem"))
+            .extracting(invocation -> invocation.getArgument(0))
+            .containsExactly("A", "C");
+        assertThat(writes).hasSize(1);
+        writes.get(0).complete(okResponse);
+        assertThat(SUT.preCommit(currentOffsets(3))).containsOnly(entry(PARTITION, new OffsetAndMetadata(3)));
+    }
+
+    private static SinkRecord record(String field, long offset) {
+        return new SinkRecord(PARTITION.topic(), PARTITION.partition(), Schema.STRING_SCHEMA, field, Schema.INT32_SCHEMA, 42, offset);
+    }
+
+    private static Map<TopicPartition, OffsetAndMetadata> currentOffsets(long offset) {
+        return Collections.singletonMap(PARTITION, new OffsetAndMetadata(offset));
+    }
+}
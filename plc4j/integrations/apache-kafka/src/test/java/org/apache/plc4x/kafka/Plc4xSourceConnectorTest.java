@@ -0,0 +1,136 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x.kafka;
+
+import org.assertj.core.api.WithAssertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+class Plc4xSourceConnectorTest implements WithAssertions {
+
+    private final Plc4xSourceConnector SUT = new Plc4xSourceConnector();
+
+    @Test
+    void splitsHostsWithMoreThanTheAverageLoad() {
+        start("s7://a#q1", "s7://a#q2", "s7://a#q3", "s7://a#q4", "s7://b#q5");
+
+        List<Map<String, String>> configs = SUT.taskConfigs(2);
+
+        // The four fields of a are more than the average load of 2.5 fields per task
+        assertThat(configs).hasSize(2);
+        assertThat(sources(configs)).extracting(source -> source.url + " " + source.queries).containsExactlyInAnyOrder(
+            "s7://a [q1, q2]", "s7://a [q3, q4]", "s7://b [q5]");
+        assertThat(loads(configs)).containsExactlyInAnyOrder(3, 2);
+    }
+
+    @Test
+    void assignsLargestSourcesFirst() {
+        start("s7://c#q1", "s7://c#q2", "s7://b#q3", "s7://b#q4", "s7://a#q5", "s7://a#q6", "s7://a#q7", "s7://d#q8");
+
+        List<Map<String, String>> configs = SUT.taskConfigs(2);
+
+        // a goes first to one task, then b and c to the other one and d fills up the first
+        assertThat(configs).hasSize(2);
+        assertThat(sources(configs)).hasSize(4);
+        assertThat(loads(configs)).containsExactly(4, 4);
+    }
+
+    @Test
+    void mergesGroupsOfSameHostInTask() {
+        start("s7://a#q1", "s7://a#q2", "s7://a#q3", "s7://a#q4", "s7://a#q5", "s7://a#q6", "s7://a#q7",
+            "s7://b#r1", "s7://b#r2", "s7://b#r3", "s7://b#r4");
+
+        List<Map<String, String>> configs = SUT.taskConfigs(3);
+
+        // Both groups of b go to the least loaded task, which reads them over one connection
+        assertThat(configs).hasSize(3);
+        assertThat(sources(configs)).extracting(source -> source.url + " " + source.queries).containsExactlyInAnyOrder(
+            "s7://a [q1, q2, q3, q4]", "s7://a [q5, q6, q7]", "s7://b [r1, r2, r3, r4]");
+        for (Map<String, String> config : configs) {
+            assertThat(sources(Collections.singletonList(config))).extracting(source -> source.url).doesNotHaveDuplicates();
+        }
+    }
+
+    @Test
+    void moreHostsThanTasks() {
+        start("s7://a#q1", "s7://b#q2", "s7://c#q3", "s7://d#q4", "s7://e#q5");
+
+        List<Map<String, String>> configs = SUT.taskConfigs(2);
+
+        assertThat(configs).hasSize(2);
+        assertThat(sources(configs)).extracting(source -> source.url)
+            .containsExactlyInAnyOrder("s7://a", "s7://b", "s7://c", "s7://d", "s7://e");
+        assertThat(loads(configs)).containsExactlyInAnyOrder(3, 2);
+    }
+
+    @Test
+    void fewerHostsThanTasks() {
+        start("s7://a#q1");
+
+        List<Map<String, String>> configs = SUT.taskConfigs(3);
+
+        assertThat(configs).hasSize(1);
+        assertThat(sources(configs)).extracting(source -> source.url).containsExactly("s7://a");
+    }
+
+    private void start(String... queries) {
+        Map<String, String> props = new HashMap<>();
+        props.put("topic", "topic");
+        props.put("queries", String.join(",", queries));
+        SUT.start(props);
+    }
+
+    private static List<TaskSource> sources(List<Map<String, String>> configs) {
+        List<TaskSource> sources = new ArrayList<>();
+        for (Map<String, String> config : configs) {
+            for (String name : config.get(Plc4xSourceTask.SOURCES_CONFIG).split(",")) {
+                String prefix = Plc4xSourceTask.SOURCE_PREFIX + name + ".";
+                sources.add(new TaskSource(config.get(prefix + Plc4xSourceTask.URL_CONFIG),
+                    Arrays.asList(config.get(prefix + Plc4xSourceTask.QUERIES_CONFIG).split(","))));
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * @return the number of fields read by each task, all sources have the same rate.
+     */
+    private static List<Integer> loads(List<Map<String, String>> configs) {
+        return configs.stream()
+            .map(config -> sources(Collections.singletonList(config)).stream().mapToInt(source -> source.queries.size()).sum())
+            .collect(Collectors.toList());
+    }
+
+    private static final class TaskSource {
+        private final String url;
+        private final List<String> queries;
+
+        private TaskSource(String url, List<String> queries) {
+            this.url = url;
+            this.queries = queries;
+        }
+    }
+}
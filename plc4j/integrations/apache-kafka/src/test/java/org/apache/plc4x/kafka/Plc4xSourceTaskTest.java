@@ -0,0 +1,230 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x.kafka;
+
+import org.apache.kafka.connect.source.SourceRecord;
+import org.apache.plc4x.java.PlcDriverManager;
+import org.apache.plc4x.java.api.PlcConnection;
+import org.apache.plc4x.java.api.messages.PlcReadRequest;
+import org.apache.plc4x.java.api.messages.PlcReadResponse;
+import org.apache.plc4x.java.api.messages.PlcSubscriptionRequest;
+import org.apache.plc4x.java.api.messages.PlcSubscriptionResponse;
+import org.apache.plc4x.java.api.metadata.PlcConnectionMetadata;
+import org.apache.plc4x.java.api.types.PlcResponseCode;
+import org.assertj.core.api.WithAssertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class Plc4xSourceTaskTest implements WithAssertions {
+
+    private static final long TIMEOUT_MILLIS = 100;
+
+    private final PlcDriverManager driverManager = mock(PlcDriverManager.class);
+
+    private final Plc4xSourceTask SUT = new Plc4xSourceTask(driverManager, TIMEOUT_MILLIS, 10);
+
+    @AfterEach
+    void tearDown() {
+        SUT.stop();
+    }
+
+    @Test
+    void pollsIfSubscriptionFails() throws Exception {
+        PlcConnection connection = connection(() -> CompletableFuture.completedFuture(response("q1", "q2")));
+        when(connection.getMetadata().canSubscribe()).thenReturn(true);
+        PlcSubscriptionRequest.Builder builder = mock(PlcSubscriptionRequest.Builder.class, RETURNS_SELF);
+        PlcSubscriptionRequest subscription = mock(PlcSubscriptionRequest.class);
+        when(connection.subscriptionRequestBuilder()).thenReturn(builder);
+        when(builder.build()).thenReturn(subscription);
+        when(subscription.execute()).then(invocation -> {
+            CompletableFuture<PlcSubscriptionResponse> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new UnsupportedOperationException());
+            return failed;
+        });
+        connect("mock:a", connection);
+
+        start(60000, "mock:a#q1,q2");
+
+        assertThat(awaitRecords(2)).extracting(SourceRecord::value).containsExactly(42, 42);
+        verify(builder).addCyclicField("q1", "q1", Duration.ofMillis(60000));
+    }
+
+    @Test
+    void dropsRecordsIfBufferIsFullAndPollsInBatches() throws Exception {
+        CompletableFuture<PlcReadResponse> read = new CompletableFuture<>();
+        connect("mock:a", connection(() -> read));
+        Map<String, String> props = props(60000, "mock:a#q1,q2,q3,q4");
+        props.put(Plc4xSourceTask.BUFFER_SIZE_CONFIG, "3");
+        props.put(Plc4xSourceTask.BATCH_SIZE_CONFIG, "2");
+
+        SUT.start(props);
+        // Buffers all values of the read before the first poll
+        while (read.getNumberOfDependents() == 0) {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        read.complete(response("q1", "q2", "q3", "q4"));
+
+        assertThat(SUT.poll()).hasSize(2);
+        assertThat(SUT.poll()).hasSize(1);
+        assertThat(SUT.poll()).isNull();
+    }
+
+    @Test
+    void startDoesNotWaitForSlowSource() throws Exception {
+        when(driverManager.getConnectionAsync("mock:slow")).thenReturn(new CompletableFuture<>());
+        connect("mock:fast", connection(() -> CompletableFuture.completedFuture(response("q1"))));
+
+        long startNanos = System.nanoTime();
+        start(60000, "mock:slow#q1", "mock:fast#q1");
+
+        // The connect of the slow source times out after ten times the timeout
+        assertThat(System.nanoTime() - startNanos).isLessThan(TimeUnit.MILLISECONDS.toNanos(10 * TIMEOUT_MILLIS));
+        assertThat(awaitRecords(1)).hasSize(1);
+    }
+
+    @Test
+    void reconnectsAfterFailedRead() throws Exception {
+        CompletableFuture<PlcReadResponse> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("Connection reset"));
+        PlcConnection broken = connection(() -> failed);
+        PlcConnection working = connection(() -> CompletableFuture.completedFuture(response("q1")));
+        connect("mock:a", broken, working);
+
+        start(20, "mock:a#q1");
+
+        assertThat(awaitRecords(1)).isNotEmpty();
+        verify(broken).close();
+        verify(working, never()).close();
+    }
+
+    @Test
+    void lateReadOfReplacedConnectionIsIgnored() throws Exception {
+        CompletableFuture<PlcReadResponse> stuck = new CompletableFuture<>();
+        PlcConnection stuckConnection = connection(() -> stuck);
+        PlcConnection working = connection(() -> CompletableFuture.completedFuture(response("q1")));
+        connect("mock:a", stuckConnection, working);
+
+        start(20, "mock:a#q1");
+        assertThat(awaitRecords(1)).isNotEmpty();
+        // The read timed out, the late response must neither restart nor replace the new connection
+        stuck.completeExceptionally(new IllegalStateException("Connection reset"));
+        TimeUnit.MILLISECONDS.sleep(5 * TIMEOUT_MILLIS);
+
+        verify(driverManager, times(2)).getConnectionAsync("mock:a");
+        verify(stuckConnection).close();
+        verify(working, never()).close();
+        assertThat(awaitRecords(1)).isNotEmpty();
+    }
+
+    @Test
+    void lateConnectionIsClosed() throws Exception {
+        CompletableFuture<PlcConnection> late = new CompletableFuture<>();
+        PlcConnection lateConnection = connection(() -> new CompletableFuture<>());
+        PlcConnection working = connection(() -> CompletableFuture.completedFuture(response("q1")));
+        when(driverManager.getConnectionAsync("mock:a"))
+            .thenReturn(late, CompletableFuture.completedFuture(working));
+
+        start(20, "mock:a#q1");
+        assertThat(awaitRecords(1)).isNotEmpty();
+        late.complete(lateConnection);
+
+        verify(lateConnection, timeout(1000)).close();
+        verify(lateConnection, never()).readRequestBuilder();
+        verify(working, never()).close();
+    }
+
+    private void start(int rate, String... queries) {
+        SUT.start(props(rate, queries));
+    }
+
+    private static Map<String, String> props(int rate, String... queries) {
+        Map<String, String> props = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < queries.length; i++) {
+            String[] parts = queries[i].split("#", 2);
+            String prefix = Plc4xSourceTask.SOURCE_PREFIX + i + ".";
+            props.put(prefix + Plc4xSourceTask.TOPIC_CONFIG, "topic");
+            props.put(prefix + Plc4xSourceTask.URL_CONFIG, parts[0]);
+            props.put(prefix + Plc4xSourceTask.QUERIES_CONFIG, parts[1]);
+            props.put(prefix + Plc4xSourceTask.RATE_CONFIG, Integer.toString(rate));
+            names.add(Integer.toString(i));
+        }
+        props.put(Plc4xSourceTask.SOURCES_CONFIG, String.join(",", names));
+        return props;
+    }
+
+    private void connect(String url, PlcConnection connection, PlcConnection... reconnections) {
+        CompletableFuture[] futures = Arrays.stream(reconnections).map(CompletableFuture::completedFuture)
+            .toArray(CompletableFuture[]::new);
+        when(driverManager.getConnectionAsync(url)).thenReturn(CompletableFuture.completedFuture(connection), futures);
+    }
+
+    /**
+     * @param reads the futures returned by the reads of all fields.
+     */
+    private static PlcConnection connection(Supplier<CompletableFuture<PlcReadResponse>> reads) {
+        PlcConnection connection = mock(PlcConnection.class);
+        PlcConnectionMetadata metadata = mock(PlcConnectionMetadata.class);
+        when(connection.getMetadata()).thenReturn(metadata);
+        when(metadata.canRead()).thenReturn(true);
+        PlcReadRequest.Builder builder = mock(PlcReadRequest.Builder.class, RETURNS_SELF);
+        PlcReadRequest request = mock(PlcReadRequest.class);
+        when(connection.readRequestBuilder()).thenReturn(builder);
+        when(builder.build()).thenReturn(request);
+        when(request.execute()).then(invocation -> reads.get());
+        return connection;
+    }
+
+    private static PlcReadResponse response(String... queries) {
+        PlcReadResponse response = mock(PlcReadResponse.class);
+        when(response.getFieldNames()).thenReturn(new LinkedHashSet<>(Arrays.asList(queries)));
+        when(response.getResponseCode(anyString())).thenReturn(PlcResponseCode.OK);
+        when(response.getObject(anyString())).thenReturn(42);
+        return response;
+    }
+
+    /**
+     * The values of a response are buffered one after another, so a poll might only return some of them.
+     */
+    private List<SourceRecord> awaitRecords(int count) throws InterruptedException {
+        List<SourceRecord> records = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (records.size() < count && System.nanoTime() < deadline) {
+            List<SourceRecord> polled = SUT.poll();
+            if (polled != null) {
+                records.addAll(polled);
+            }
+        }
+        return records;
+    }
+}
@@ -23,11 +23,34 @@ import io.netty.channel.ChannelHandler;
 import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
 import org.apache.plc4x.java.api.exceptions.PlcException;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface ChannelFactory {
 
     Channel createChannel(ChannelHandler channelHandler)
         throws PlcConnectionException;
 
+    /**
+     * Creates the channel without blocking the caller till it is connected.
+     * Factories not supporting this create the channel synchronously.
+     */
+    default CompletableFuture<Channel> createChannelAsync(ChannelHandler channelHandler) {
+        CompletableFuture<Channel> future = new CompletableFuture<>();
+        try {
+            future.complete(createChannel(channelHandler));
+        } catch (PlcConnectionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
     void ping() throws PlcException;
 
+    /**
+     * Limits the time for connecting the channel, 0 means no limit.
+     * Factories without a connect phase of their own ignore it.
+     */
+    default void setConnectTimeout(long connectTimeoutMs) {
+    }
+
 }
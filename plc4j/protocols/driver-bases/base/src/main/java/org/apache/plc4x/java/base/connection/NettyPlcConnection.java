@@ -21,13 +21,17 @@ package org.apache.plc4x.java.base.connection;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
 import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
 import io.netty.util.Timer;
 import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
 import org.apache.plc4x.java.api.exceptions.PlcException;
 import org.apache.plc4x.java.api.exceptions.PlcIoException;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public abstract class NettyPlcConnection extends AbstractPlcConnection {
 
@@ -45,6 +49,10 @@ public abstract class NettyPlcConnection extends AbstractPlcConnection {
 
     protected boolean connected;
 
+    // Maximum time in ms for establishing the connection including the session setup, 0 means no limit.
+    // The blocking connect applies it to connecting the channel and to the session setup separately.
+    protected long connectTimeout = 0;
+
     protected NettyPlcConnection(ChannelFactory channelFactory) {
         this(channelFactory, false);
     }
@@ -64,19 +72,16 @@ public abstract class NettyPlcConnection extends AbstractPlcConnection {
             CompletableFuture<Void> sessionSetupCompleteFuture = new CompletableFuture<>();
 
             // Have the channel factory create a new channel instance.
-            channel = channelFactory.createChannel(getChannelHandler(sessionSetupCompleteFuture));
-            channel.closeFuture().addListener(future -> {
-                if (!sessionSetupCompleteFuture.isDone()) {
-                    sessionSetupCompleteFuture.completeExceptionally(
-                        new PlcIoException("Connection terminated by remote"));
-                }
-            });
-            // Send an event to the pipeline telling the Protocol filters what's going on.
-            sendChannelCreatedEvent();
+            channelFactory.setConnectTimeout(connectTimeout);
+            channelCreated(channelFactory.createChannel(getChannelHandler(sessionSetupCompleteFuture)), sessionSetupCompleteFuture);
 
             // Wait till the connection is established.
             if (awaitSessionSetupComplete) {
-                sessionSetupCompleteFuture.get();
+                if (connectTimeout > 0) {
+                    sessionSetupCompleteFuture.get(connectTimeout, TimeUnit.MILLISECONDS);
+                } else {
+                    sessionSetupCompleteFuture.get();
+                }
             }
 
             // Set the connection to "connected"
@@ -86,7 +91,73 @@ public abstract class NettyPlcConnection extends AbstractPlcConnection {
             throw new PlcConnectionException(e);
         } catch (ExecutionException e) {
             throw new PlcConnectionException(e);
+        } catch (TimeoutException e) {
+            channel.close();
+            throw new PlcConnectionException("Session setup not completed within " + connectTimeout + "ms", e);
+        }
+    }
+
+    /**
+     * Establishes the connection without blocking: the channel is connected asynchronously and the session setup
+     * is signalled by the pipeline. If a {@link #connectTimeout} is set, the returned future fails with a
+     * {@link PlcConnectionException} if the connection isn't established in time and the channel is closed.
+     */
+    @Override
+    public CompletableFuture<Void> connectAsync() {
+        CompletableFuture<Void> connectFuture = new CompletableFuture<>();
+        CompletableFuture<Void> sessionSetupCompleteFuture = new CompletableFuture<>();
+        if (connectTimeout > 0) {
+            Timeout timeout = timer.newTimeout(ignore -> {
+                if (connectFuture.completeExceptionally(
+                    new PlcConnectionException("Connection not established within " + connectTimeout + "ms")) && channel != null) {
+                    channel.close();
+                }
+            }, connectTimeout, TimeUnit.MILLISECONDS);
+            connectFuture.whenComplete((ignore, throwable) -> timeout.cancel());
         }
+        CompletableFuture<Channel> channelFuture;
+        try {
+            channelFactory.setConnectTimeout(connectTimeout);
+            channelFuture = channelFactory.createChannelAsync(getChannelHandler(sessionSetupCompleteFuture));
+        } catch (RuntimeException e) {
+            connectFuture.completeExceptionally(new PlcConnectionException(e));
+            return connectFuture;
+        }
+        channelFuture
+            .thenCompose(createdChannel -> {
+                channelCreated(createdChannel, sessionSetupCompleteFuture);
+                if (connectFuture.isDone()) {
+                    // Timed out while connecting the channel.
+                    createdChannel.close();
+                }
+                return awaitSessionSetupComplete ? sessionSetupCompleteFuture : CompletableFuture.completedFuture(null);
+            })
+            .whenComplete((ignore, throwable) -> {
+                if (throwable != null) {
+                    Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+                    connectFuture.completeExceptionally(cause instanceof PlcConnectionException ? cause : new PlcConnectionException(cause));
+                    return;
+                }
+                connected = true;
+                if (!connectFuture.complete(null)) {
+                    // Timed out in the meantime.
+                    connected = false;
+                    channel.close();
+                }
+            });
+        return connectFuture;
+    }
+
+    private void channelCreated(Channel createdChannel, CompletableFuture<Void> sessionSetupCompleteFuture) {
+        channel = createdChannel;
+        channel.closeFuture().addListener(future -> {
+            if (!sessionSetupCompleteFuture.isDone()) {
+                sessionSetupCompleteFuture.completeExceptionally(
+                    new PlcIoException("Connection terminated by remote"));
+            }
+        });
+        // Send an event to the pipeline telling the Protocol filters what's going on.
+        sendChannelCreatedEvent();
     }
 
     @Override
@@ -123,6 +194,10 @@ public abstract class NettyPlcConnection extends AbstractPlcConnection {
         return channel;
     }
 
+    public long getConnectTimeout() {
+        return connectTimeout;
+    }
+
     protected abstract ChannelHandler getChannelHandler(CompletableFuture<Void> sessionSetupCompleteFuture);
 
     protected void sendChannelCreatedEvent() {
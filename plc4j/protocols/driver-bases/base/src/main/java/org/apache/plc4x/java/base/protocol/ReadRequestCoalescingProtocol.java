@@ -0,0 +1,183 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one
+ or more contributor license agreements.  See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership.  The ASF licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+ */
+package org.apache.plc4x.java.base.protocol;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.plc4x.java.api.model.PlcField;
+import org.apache.plc4x.java.api.types.PlcResponseCode;
+import org.apache.plc4x.java.base.messages.*;
+import org.apache.plc4x.java.base.messages.items.BaseDefaultFieldItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This layer merges {@link InternalPlcReadRequest}s which are written to the channel within a configurable
+ * coalescing window into a single {@link org.apache.plc4x.java.api.messages.PlcReadRequest} containing the union of
+ * their {@link PlcField}s. The response of the merged request is fanned out into one response per original request.
+ * <p>
+ * This is useful if several consumers poll the same fields on one connection at nearly the same time.
+ * All other messages are passed through untouched.
+ * Should be added to the pipeline after (closer to the application than) the protocol layer translating
+ * {@link PlcRequestContainer}s and before a possible {@link SingleItemToSingleRequestProtocol}. In the outbound
+ * direction the splitter then comes after this layer and sends every distinct field of a coalesced request on its own,
+ * so protocols reading one field per request only save the reads of identical fields.
+ */
+public class ReadRequestCoalescingProtocol extends ChannelDuplexHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadRequestCoalescingProtocol.class);
+
+    private final PlcReader reader;
+
+    private final long coalescingWindow;
+
+    private final TimeUnit coalescingWindowUnit;
+
+    // Only accessed from the channels event loop.
+    private final List<Pair<PlcRequestContainer<InternalPlcReadRequest, InternalPlcResponse>, ChannelPromise>> pendingReads = new ArrayList<>();
+
+    private ScheduledFuture<?> scheduledSend;
+
+    private final AtomicLong receivedRequests = new AtomicLong();
+
+    private final AtomicLong sentRequests = new AtomicLong();
+
+    private final AtomicLong coalescedRequests = new AtomicLong();
+
+    public ReadRequestCoalescingProtocol(PlcReader reader, long coalescingWindow, TimeUnit coalescingWindowUnit) {
+        this.reader = Objects.requireNonNull(reader);
+        this.coalescingWindow = coalescingWindow;
+        this.coalescingWindowUnit = Objects.requireNonNull(coalescingWindowUnit);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        // Send everything so we get a proper failure for those pending writes
+        if (scheduledSend != null) {
+            scheduledSend.cancel(false);
+            scheduledSend = null;
+        }
+        pendingReads.forEach(pendingRead -> ctx.write(pendingRead.getKey(), pendingRead.getValue()));
+        pendingReads.clear();
+        ctx.flush();
+        super.channelInactive(ctx);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // Encoding
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof PlcRequestContainer && ((PlcRequestContainer<?, ?>) msg).getRequest() instanceof InternalPlcReadRequest) {
+            @SuppressWarnings("unchecked")
+            PlcRequestContainer<InternalPlcReadRequest, InternalPlcResponse> in = (PlcRequestContainer<InternalPlcReadRequest, InternalPlcResponse>) msg;
+            receivedRequests.incrementAndGet();
+            pendingReads.add(Pair.of(in, promise));
+            if (scheduledSend == null) {
+                scheduledSend = ctx.executor().schedule(() -> sendPendingReads(ctx), coalescingWindow, coalescingWindowUnit);
+            }
+        } else {
+            super.write(ctx, msg, promise);
+        }
+    }
+
+    protected void sendPendingReads(ChannelHandlerContext ctx) {
+        scheduledSend = null;
+        if (pendingReads.isEmpty()) {
+            return;
+        }
+        List<Pair<PlcRequestContainer<InternalPlcReadRequest, InternalPlcResponse>, ChannelPromise>> reads = new ArrayList<>(pendingReads);
+        pendingReads.clear();
+        sentRequests.incrementAndGet();
+
+        // Nothing to merge, so just pass the original request on.
+        if (reads.size() == 1) {
+            ctx.writeAndFlush(reads.get(0).getKey(), reads.get(0).getValue());
+            return;
+        }
+
+        // Build the union of all fields, requesting equal fields only once.
+        LinkedHashMap<String, PlcField> coalescedFields = new LinkedHashMap<>();
+        Map<PlcField, String> coalescedNames = new HashMap<>();
+        for (Pair<PlcRequestContainer<InternalPlcReadRequest, InternalPlcResponse>, ChannelPromise> read : reads) {
+            for (Pair<String, PlcField> namedField : read.getKey().getRequest().getNamedFields()) {
+                coalescedNames.computeIfAbsent(namedField.getValue(), field -> {
+                    String coalescedName = "coalesced-" + coalescedFields.size();
+                    coalescedFields.put(coalescedName, field);
+                    return coalescedName;
+                });
+            }
+        }
+        coalescedRequests.addAndGet(reads.size());
+        LOGGER.debug("Coalesced {} read requests into one request with {} fields", reads.size(), coalescedFields.size());
+
+        CompletableFuture<InternalPlcResponse> coalescedFuture = new CompletableFuture<>();
+        coalescedFuture.whenComplete((response, throwable) -> reads.forEach(read -> {
+            CompletableFuture<InternalPlcResponse> responseFuture = read.getKey().getResponseFuture();
+            if (throwable != null) {
+                responseFuture.completeExceptionally(throwable);
+            } else {
+                responseFuture.complete(fanOut(read.getKey().getRequest(), (InternalPlcReadResponse) response, coalescedNames));
+            }
+        }));
+        ChannelPromise coalescedPromise = ctx.newPromise();
+        coalescedPromise.addListener(future -> reads.forEach(read -> {
+            if (future.isSuccess()) {
+                read.getValue().trySuccess();
+            } else {
+                read.getValue().tryFailure(future.cause());
+            }
+        }));
+        ctx.writeAndFlush(new PlcRequestContainer<>(new CoalescedPlcReadRequest(reader, coalescedFields), coalescedFuture), coalescedPromise);
+    }
+
+    protected InternalPlcReadResponse fanOut(InternalPlcReadRequest request, InternalPlcReadResponse coalescedResponse, Map<PlcField, String> coalescedNames) {
+        Map<String, Pair<PlcResponseCode, BaseDefaultFieldItem>> values = new HashMap<>();
+        for (Pair<String, PlcField> namedField : request.getNamedFields()) {
+            Pair<PlcResponseCode, BaseDefaultFieldItem> value = coalescedResponse.getValues().get(coalescedNames.get(namedField.getValue()));
+            values.put(namedField.getKey(), value != null ? value : Pair.of(PlcResponseCode.NOT_FOUND, null));
+        }
+        return new DefaultPlcReadResponse(request, values);
+    }
+
+    public Map<String, Number> getStatistics() {
+        HashMap<String, Number> statistics = new HashMap<>();
+        statistics.put("receivedRequests", receivedRequests.get());
+        statistics.put("sentRequests", sentRequests.get());
+        statistics.put("coalescedRequests", coalescedRequests.get());
+        return statistics;
+    }
+
+    protected static class CoalescedPlcReadRequest extends DefaultPlcReadRequest {
+
+        protected CoalescedPlcReadRequest(PlcReader reader, LinkedHashMap<String, PlcField> fields) {
+            super(reader, fields);
+        }
+    }
+
+}
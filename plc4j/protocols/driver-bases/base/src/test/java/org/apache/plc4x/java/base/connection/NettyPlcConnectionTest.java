@@ -79,6 +79,14 @@ public class NettyPlcConnectionTest implements WithAssertions {
         assertThat(channel).isNotNull();
     }
 
+    @Test
+    public void connectAsync() throws Exception {
+        CompletableFuture<Void> connectFuture = SUT.connectAsync();
+        assertThat(connectFuture).isCompleted();
+        assertThat(SUT.isConnected()).isTrue();
+        assertThat(SUT.getChannel()).isNotNull();
+    }
+
     @Test
     public void close() throws Exception {
         SUT.close();
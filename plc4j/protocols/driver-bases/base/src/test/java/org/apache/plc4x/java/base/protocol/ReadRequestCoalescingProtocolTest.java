@@ -0,0 +1,136 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one
+ or more contributor license agreements.  See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership.  The ASF licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+ */
+package org.apache.plc4x.java.base.protocol;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.plc4x.java.api.model.PlcField;
+import org.apache.plc4x.java.api.types.PlcResponseCode;
+import org.apache.plc4x.java.base.messages.*;
+import org.apache.plc4x.java.base.messages.items.BaseDefaultFieldItem;
+import org.apache.plc4x.java.base.messages.items.DefaultIntegerFieldItem;
+import org.assertj.core.api.WithAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+@ExtendWith(MockitoExtension.class)
+class ReadRequestCoalescingProtocolTest implements WithAssertions {
+
+    ReadRequestCoalescingProtocol SUT;
+
+    EmbeddedChannel channel;
+
+    @Mock
+    PlcReader mockReader;
+
+    @Mock
+    PlcField field1;
+
+    @Mock
+    PlcField field2;
+
+    @Mock
+    PlcField field3;
+
+    @BeforeEach
+    void setUp() {
+        SUT = new ReadRequestCoalescingProtocol(mockReader, 0, TimeUnit.MILLISECONDS);
+        channel = new EmbeddedChannel(SUT);
+    }
+
+    @Test
+    void singleRequestIsPassedThrough() {
+        PlcRequestContainer<InternalPlcReadRequest, InternalPlcResponse> container = container("a", field1);
+
+        channel.write(container);
+        channel.runPendingTasks();
+
+        assertThat((Object) channel.readOutbound()).isSameAs(container);
+        assertThat((Object) channel.readOutbound()).isNull();
+    }
+
+    @Test
+    void concurrentRequestsAreCoalesced() throws Exception {
+        PlcRequestContainer<InternalPlcReadRequest, InternalPlcResponse> first = container("a", field1, "b", field2);
+        PlcRequestContainer<InternalPlcReadRequest, InternalPlcResponse> second = container("c", field1, "d", field3);
+
+        channel.write(first);
+        channel.write(second);
+        channel.runPendingTasks();
+
+        PlcRequestContainer<InternalPlcReadRequest, InternalPlcResponse> coalesced = channel.readOutbound();
+        assertThat((Object) channel.readOutbound()).isNull();
+        assertThat(coalesced.getRequest().getFields()).containsExactly(field1, field2, field3);
+
+        Map<String, Pair<PlcResponseCode, BaseDefaultFieldItem>> values = new HashMap<>();
+        coalesced.getRequest().getNamedFields().forEach(namedField -> values.put(namedField.getKey(),
+            Pair.of(PlcResponseCode.OK, new DefaultIntegerFieldItem(coalesced.getRequest().getFields().indexOf(namedField.getValue())))));
+        coalesced.getResponseFuture().complete(new DefaultPlcReadResponse(coalesced.getRequest(), values));
+
+        InternalPlcReadResponse firstResponse = (InternalPlcReadResponse) first.getResponseFuture().get(1, TimeUnit.SECONDS);
+        assertThat(firstResponse.getRequest()).isSameAs(first.getRequest());
+        assertThat(firstResponse.getFieldNames()).containsOnly("a", "b");
+        assertThat(firstResponse.getInteger("a")).isEqualTo(0);
+        assertThat(firstResponse.getInteger("b")).isEqualTo(1);
+
+        InternalPlcReadResponse secondResponse = (InternalPlcReadResponse) second.getResponseFuture().get(1, TimeUnit.SECONDS);
+        assertThat(secondResponse.getFieldNames()).containsOnly("c", "d");
+        assertThat(secondResponse.getInteger("c")).isEqualTo(0);
+        assertThat(secondResponse.getInteger("d")).isEqualTo(2);
+
+        assertThat(SUT.getStatistics()).containsOnly(
+            entry("receivedRequests", 2L),
+            entry("sentRequests", 1L),
+            entry("coalescedRequests", 2L)
+        );
+    }
+
+    @Test
+    void failureIsPropagatedToAllRequests() {
+        PlcRequestContainer<InternalPlcReadRequest, InternalPlcResponse> first = container("a", field1);
+        PlcRequestContainer<InternalPlcReadRequest, InternalPlcResponse> second = container("b", field2);
+
+        channel.write(first);
+        channel.write(second);
+        channel.runPendingTasks();
+
+        PlcRequestContainer<InternalPlcReadRequest, InternalPlcResponse> coalesced = channel.readOutbound();
+        coalesced.getResponseFuture().completeExceptionally(new IllegalStateException("failed"));
+
+        assertThat(first.getResponseFuture()).isCompletedExceptionally();
+        assertThat(second.getResponseFuture()).isCompletedExceptionally();
+    }
+
+    private PlcRequestContainer<InternalPlcReadRequest, InternalPlcResponse> container(Object... namesAndFields) {
+        LinkedHashMap<String, PlcField> fields = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndFields.length; i += 2) {
+            fields.put((String) namesAndFields[i], (PlcField) namesAndFields[i + 1]);
+        }
+        return new PlcRequestContainer<>(new ReadRequestCoalescingProtocol.CoalescedPlcReadRequest(mockReader, fields), new CompletableFuture<>());
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.plc4x.java.base.connection;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.nio.NioEventLoopGroup;
@@ -31,6 +32,7 @@ import org.apache.plc4x.java.api.exceptions.PlcException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.util.concurrent.CompletableFuture;
 
 public class TcpSocketChannelFactory implements ChannelFactory {
 
@@ -39,6 +41,8 @@ public class TcpSocketChannelFactory implements ChannelFactory {
     private final InetAddress address;
     private final int port;
 
+    private long connectTimeoutMs = 0;
+
     public TcpSocketChannelFactory(InetAddress address, int port) {
         this.address = address;
         this.port = port;
@@ -48,14 +52,8 @@ public class TcpSocketChannelFactory implements ChannelFactory {
     public Channel createChannel(ChannelHandler channelHandler)
         throws PlcConnectionException {
         try {
-            Bootstrap bootstrap = new Bootstrap();
-            bootstrap.group(new NioEventLoopGroup());
-            bootstrap.channel(NioSocketChannel.class);
-            bootstrap.option(ChannelOption.SO_KEEPALIVE, true);
-            bootstrap.option(ChannelOption.TCP_NODELAY, true);
-            bootstrap.handler(channelHandler);
             // Start the client.
-            ChannelFuture f = bootstrap.connect(address, port).sync();
+            ChannelFuture f = createBootstrap(channelHandler).connect(address, port).sync();
             f.awaitUninterruptibly();
             // Wait till the session is finished initializing.
             return f.channel();
@@ -67,6 +65,32 @@ public class TcpSocketChannelFactory implements ChannelFactory {
         }
     }
 
+    @Override
+    public CompletableFuture<Channel> createChannelAsync(ChannelHandler channelHandler) {
+        CompletableFuture<Channel> future = new CompletableFuture<>();
+        createBootstrap(channelHandler).connect(address, port).addListener((ChannelFutureListener) channelFuture -> {
+            if (channelFuture.isSuccess()) {
+                future.complete(channelFuture.channel());
+            } else {
+                future.completeExceptionally(new PlcConnectionException("Error creating channel.", channelFuture.cause()));
+            }
+        });
+        return future;
+    }
+
+    private Bootstrap createBootstrap(ChannelHandler channelHandler) {
+        Bootstrap bootstrap = new Bootstrap();
+        bootstrap.group(new NioEventLoopGroup());
+        bootstrap.channel(NioSocketChannel.class);
+        bootstrap.option(ChannelOption.SO_KEEPALIVE, true);
+        bootstrap.option(ChannelOption.TCP_NODELAY, true);
+        if (connectTimeoutMs > 0) {
+            bootstrap.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) Math.min(connectTimeoutMs, Integer.MAX_VALUE));
+        }
+        bootstrap.handler(channelHandler);
+        return bootstrap;
+    }
+
     @Override
     public void ping() throws PlcException {
         // TODO: Replace this check with a more accurate one ...
@@ -80,6 +104,11 @@ public class TcpSocketChannelFactory implements ChannelFactory {
         }
     }
 
+    @Override
+    public void setConnectTimeout(long connectTimeoutMs) {
+        this.connectTimeoutMs = connectTimeoutMs;
+    }
+
     public InetAddress getAddress() {
         return address;
     }
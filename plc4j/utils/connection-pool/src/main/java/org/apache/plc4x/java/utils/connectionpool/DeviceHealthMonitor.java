@@ -0,0 +1,348 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.utils.connectionpool;
+
+import org.apache.plc4x.java.api.PlcConnection;
+import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
+import org.apache.plc4x.java.api.exceptions.PlcUnsupportedOperationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps track of the health of every device (identified by its {@link PoolKey}) of a {@link PooledPlcDriverManager}.
+ * <p>
+ * Each device has a circuit breaker: after {@code failureThreshold} consecutive connect or ping failures the device is
+ * considered down and borrows fail fast with a {@link PlcConnectionException} instead of waiting for the connect
+ * timeout. While a device is down only the monitor tries to reconnect in the background, with an exponential backoff
+ * between {@code initialBackoffMs} and {@code maxBackoffMs}. Connections of healthy devices are pinged at most every
+ * {@code pingIntervalMs} using {@link PlcConnection#ping()}, which the drivers implement with their cheapest request.
+ */
+public class DeviceHealthMonitor implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeviceHealthMonitor.class);
+
+    public static final long DEFAULT_PING_INTERVAL_MS = 10_000;
+
+    public static final long DEFAULT_PING_TIMEOUT_MS = 2_000;
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+
+    public static final long DEFAULT_INITIAL_BACKOFF_MS = 500;
+
+    public static final long DEFAULT_MAX_BACKOFF_MS = 60_000;
+
+    public enum State {
+        /**
+         * Connections are handed out.
+         */
+        UP,
+        /**
+         * Borrows fail fast till the backoff elapsed.
+         */
+        DOWN,
+        /**
+         * The monitor is trying to reconnect, borrows still fail fast.
+         */
+        PROBING
+    }
+
+    /**
+     * Callbacks of the monitor into the pool.
+     */
+    interface Prober {
+
+        /**
+         * @return a future completing when the existing connection(s) of the device answered a ping or {@code null}
+         * if there is nothing to ping.
+         */
+        CompletableFuture<Void> ping(PoolKey poolKey);
+
+        /**
+         * @return a future completing when a new connection to the device has been established.
+         */
+        CompletableFuture<Void> reconnect(PoolKey poolKey);
+    }
+
+    private final long pingIntervalMs;
+
+    private final long pingTimeoutMs;
+
+    private final int failureThreshold;
+
+    private final long initialBackoffMs;
+
+    private final long maxBackoffMs;
+
+    private final ConcurrentMap<PoolKey, DeviceHealth> devices = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    public DeviceHealthMonitor() {
+        this(DEFAULT_PING_INTERVAL_MS, DEFAULT_PING_TIMEOUT_MS, DEFAULT_FAILURE_THRESHOLD, DEFAULT_INITIAL_BACKOFF_MS, DEFAULT_MAX_BACKOFF_MS);
+    }
+
+    public DeviceHealthMonitor(long pingIntervalMs, long pingTimeoutMs, int failureThreshold, long initialBackoffMs, long maxBackoffMs) {
+        if (pingIntervalMs < 1 || pingTimeoutMs < 1 || initialBackoffMs < 1) {
+            throw new IllegalArgumentException("Intervals, timeouts and backoffs must be positive");
+        }
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("failureThreshold must be at least 1");
+        }
+        if (maxBackoffMs < initialBackoffMs) {
+            throw new IllegalArgumentException("maxBackoffMs must not be smaller than initialBackoffMs");
+        }
+        this.pingIntervalMs = pingIntervalMs;
+        this.pingTimeoutMs = pingTimeoutMs;
+        this.failureThreshold = failureThreshold;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    public long getPingIntervalMs() {
+        return pingIntervalMs;
+    }
+
+    synchronized void start(Prober prober) {
+        if (scheduler != null) {
+            throw new IllegalStateException("DeviceHealthMonitor already started");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "plc4x-device-health-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long tickMs = Math.min(pingIntervalMs, initialBackoffMs);
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                check(prober);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Error checking device health", e);
+            }
+        }, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * @throws PlcConnectionException if the device is known to be down.
+     */
+    void checkAvailable(PoolKey poolKey) throws PlcConnectionException {
+        DeviceHealth deviceHealth = health(poolKey);
+        if (deviceHealth.state != State.UP) {
+            deviceHealth.rejectedBorrows.increment();
+            throw new PlcConnectionException("Device " + poolKey.getPoolableKey() + " is down, retrying in background");
+        }
+    }
+
+    State getState(PoolKey poolKey) {
+        DeviceHealth deviceHealth = devices.get(poolKey);
+        return deviceHealth != null ? deviceHealth.state : State.UP;
+    }
+
+    /**
+     * @param latencyNanos the latency of the successful ping or connect, negative if unknown.
+     */
+    void onSuccess(PoolKey poolKey, long latencyNanos) {
+        DeviceHealth deviceHealth = health(poolKey);
+        if (latencyNanos < 0 && deviceHealth.state == State.UP && deviceHealth.consecutiveFailures == 0) {
+            // Fast path for successful borrows.
+            return;
+        }
+        synchronized (deviceHealth) {
+            if (deviceHealth.state != State.UP) {
+                LOGGER.info("Device {} is up again", poolKey.getPoolableKey());
+            }
+            deviceHealth.state = State.UP;
+            deviceHealth.consecutiveFailures = 0;
+            deviceHealth.backoffMs = initialBackoffMs;
+            if (latencyNanos >= 0) {
+                deviceHealth.lastLatencyNanos = latencyNanos;
+            }
+        }
+    }
+
+    void onFailure(PoolKey poolKey, Throwable cause) {
+        DeviceHealth deviceHealth = health(poolKey);
+        deviceHealth.failures.increment();
+        synchronized (deviceHealth) {
+            deviceHealth.consecutiveFailures++;
+            if (deviceHealth.state == State.PROBING || deviceHealth.consecutiveFailures >= failureThreshold) {
+                if (deviceHealth.state == State.UP) {
+                    LOGGER.warn("Device {} is down after {} failures", poolKey.getPoolableKey(), deviceHealth.consecutiveFailures, cause);
+                }
+                deviceHealth.state = State.DOWN;
+                deviceHealth.nextAttemptNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deviceHealth.backoffMs);
+                deviceHealth.backoffMs = Math.min(deviceHealth.backoffMs * 2, maxBackoffMs);
+            }
+        }
+    }
+
+    /**
+     * Validates a pooled connection, pinging it if the device wasn't checked within the ping interval.
+     */
+    boolean validate(PoolKey poolKey, PlcConnection connection) {
+        DeviceHealth deviceHealth = health(poolKey);
+        if (System.nanoTime() - deviceHealth.lastCheckNanos < TimeUnit.MILLISECONDS.toNanos(pingIntervalMs)) {
+            return true;
+        }
+        deviceHealth.lastCheckNanos = System.nanoTime();
+        long start = System.nanoTime();
+        try {
+            connection.ping().get(pingTimeoutMs, TimeUnit.MILLISECONDS);
+            deviceHealth.pings.increment();
+            onSuccess(poolKey, System.nanoTime() - start);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof PlcUnsupportedOperationException) {
+                // Nothing better than isConnected available.
+                return true;
+            }
+            onFailure(poolKey, e.getCause());
+            return false;
+        } catch (TimeoutException e) {
+            onFailure(poolKey, e);
+            return false;
+        }
+    }
+
+    private void check(Prober prober) {
+        long now = System.nanoTime();
+        for (Map.Entry<PoolKey, DeviceHealth> entry : devices.entrySet()) {
+            PoolKey poolKey = entry.getKey();
+            DeviceHealth deviceHealth = entry.getValue();
+            if (deviceHealth.state == State.DOWN) {
+                if (now - deviceHealth.nextAttemptNanos >= 0) {
+                    probe(prober, poolKey, deviceHealth);
+                }
+            } else if (deviceHealth.state == State.UP
+                && now - deviceHealth.lastCheckNanos >= TimeUnit.MILLISECONDS.toNanos(pingIntervalMs)) {
+                keepAlive(prober, poolKey, deviceHealth);
+            }
+        }
+    }
+
+    private void probe(Prober prober, PoolKey poolKey, DeviceHealth deviceHealth) {
+        synchronized (deviceHealth) {
+            deviceHealth.state = State.PROBING;
+        }
+        LOGGER.debug("Trying to reconnect to {}", poolKey.getPoolableKey());
+        long start = System.nanoTime();
+        withTimeout(prober.reconnect(poolKey), maxBackoffMs)
+            .whenComplete((ignore, throwable) -> {
+                if (throwable != null) {
+                    onFailure(poolKey, throwable);
+                } else {
+                    onSuccess(poolKey, System.nanoTime() - start);
+                }
+            });
+    }
+
+    private void keepAlive(Prober prober, PoolKey poolKey, DeviceHealth deviceHealth) {
+        deviceHealth.lastCheckNanos = System.nanoTime();
+        CompletableFuture<Void> ping = prober.ping(poolKey);
+        if (ping == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        withTimeout(ping, pingTimeoutMs).whenComplete((ignore, throwable) -> {
+            deviceHealth.pings.increment();
+            Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+            if (cause == null || cause instanceof PlcUnsupportedOperationException) {
+                onSuccess(poolKey, System.nanoTime() - start);
+            } else {
+                onFailure(poolKey, cause);
+            }
+        });
+    }
+
+    private <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future, long timeoutMs) {
+        ScheduledExecutorService currentScheduler = scheduler;
+        if (currentScheduler == null || future.isDone()) {
+            return future;
+        }
+        ScheduledFuture<?> timeout = currentScheduler.schedule(
+            () -> future.completeExceptionally(new TimeoutException("No answer within " + timeoutMs + "ms")),
+            timeoutMs, TimeUnit.MILLISECONDS);
+        future.whenComplete((ignore, throwable) -> timeout.cancel(false));
+        return future;
+    }
+
+    private DeviceHealth health(PoolKey poolKey) {
+        return devices.computeIfAbsent(poolKey, ignore -> new DeviceHealth(initialBackoffMs));
+    }
+
+    public Map<String, Number> getStatistics() {
+        HashMap<String, Number> statistics = new HashMap<>();
+        long now = System.nanoTime();
+        for (Map.Entry<PoolKey, DeviceHealth> entry : devices.entrySet()) {
+            DeviceHealth deviceHealth = entry.getValue();
+            String prefix = entry.getKey() + ".health.";
+            statistics.put(prefix + "state", deviceHealth.state.ordinal());
+            statistics.put(prefix + "consecutiveFailures", deviceHealth.consecutiveFailures);
+            statistics.put(prefix + "failures", deviceHealth.failures.sum());
+            statistics.put(prefix + "pings", deviceHealth.pings.sum());
+            statistics.put(prefix + "rejectedBorrows", deviceHealth.rejectedBorrows.sum());
+            statistics.put(prefix + "latencyMicros", TimeUnit.NANOSECONDS.toMicros(deviceHealth.lastLatencyNanos));
+            if (deviceHealth.state == State.DOWN) {
+                statistics.put(prefix + "nextAttemptInMs", Math.max(0, TimeUnit.NANOSECONDS.toMillis(deviceHealth.nextAttemptNanos - now)));
+            }
+        }
+        return statistics;
+    }
+
+    private static final class DeviceHealth {
+
+        private volatile State state = State.UP;
+
+        // Guarded by this.
+        private volatile int consecutiveFailures;
+
+        // Guarded by this.
+        private long backoffMs;
+
+        private volatile long nextAttemptNanos;
+
+        private volatile long lastCheckNanos = System.nanoTime();
+
+        private volatile long lastLatencyNanos;
+
+        private final LongAdder failures = new LongAdder();
+
+        private final LongAdder pings = new LongAdder();
+
+        private final LongAdder rejectedBorrows = new LongAdder();
+
+        private DeviceHealth(long backoffMs) {
+            this.backoffMs = backoffMs;
+        }
+    }
+}
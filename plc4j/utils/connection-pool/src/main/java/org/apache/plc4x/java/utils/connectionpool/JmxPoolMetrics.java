@@ -0,0 +1,82 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.utils.connectionpool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link SimplePoolMetrics} that registers a {@link PoolKeyMetricsMXBean} per {@link PoolKey} with the given
+ * {@link MBeanServer}, named {@code org.apache.plc4x.java.utils.connectionpool:type=PoolKeyMetrics,name=<scope>,poolKey=<key>}.
+ * Closing unregisters all of them.
+ */
+public class JmxPoolMetrics extends SimplePoolMetrics implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JmxPoolMetrics.class);
+
+    public static final String DOMAIN = "org.apache.plc4x.java.utils.connectionpool";
+
+    private final MBeanServer mBeanServer;
+
+    private final String scope;
+
+    private final Map<PoolKey, ObjectName> registeredNames = new ConcurrentHashMap<>();
+
+    /**
+     * @param scope distinguishes the MXBeans of several pools, e.g. the name of the application.
+     */
+    public JmxPoolMetrics(String scope) {
+        this(ManagementFactory.getPlatformMBeanServer(), scope);
+    }
+
+    public JmxPoolMetrics(MBeanServer mBeanServer, String scope) {
+        this.mBeanServer = mBeanServer;
+        this.scope = scope;
+    }
+
+    @Override
+    protected void onNewPoolKey(PoolKey poolKey, PoolKeyMetricsMXBean poolKeyMetrics) {
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=PoolKeyMetrics"
+                + ",name=" + ObjectName.quote(scope)
+                + ",poolKey=" + ObjectName.quote(poolKey.getPoolableKey()));
+            mBeanServer.registerMBean(new StandardMBean(poolKeyMetrics, PoolKeyMetricsMXBean.class, true), objectName);
+            registeredNames.put(poolKey, objectName);
+        } catch (JMException e) {
+            // Metrics must never break the pool.
+            LOGGER.warn("Unable to register metrics of {}", poolKey, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (ObjectName objectName : registeredNames.values()) {
+            try {
+                mBeanServer.unregisterMBean(objectName);
+            } catch (JMException e) {
+                LOGGER.debug("Unable to unregister {}", objectName, e);
+            }
+        }
+        registeredNames.clear();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.utils.connectionpool;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative values like latencies in the style of an HdrHistogram.
+ * <p>
+ * Every power of two range is split into {@value #SUB_BUCKETS} linear sub-buckets, so percentiles are accurate to
+ * about 6% over the whole range of long while the memory footprint is fixed. Values are never discarded, so all
+ * statistics are since creation. Used for the pool metrics as well as for the scraper statistics.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // Values below SUB_BUCKETS are counted exactly, then SUB_BUCKETS for every further power of two.
+    private static final int NUM_BUCKETS = SUB_BUCKETS + (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+    public void record(long value) {
+        long positiveValue = Math.max(value, 0);
+        buckets.incrementAndGet(bucketIndex(positiveValue));
+        count.increment();
+        sum.add(positiveValue);
+        max.accumulate(positiveValue);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMean() {
+        long currentCount = count.sum();
+        return currentCount == 0 ? 0 : (double) sum.sum() / currentCount;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile between 0 and 100.
+     * @return the upper bound of the bucket containing the percentile, at most the maximum recorded value.
+     */
+    public long getPercentile(double percentile) {
+        long currentCount = count.sum();
+        if (currentCount == 0) {
+            return 0;
+        }
+        long threshold = Math.max((long) Math.ceil(currentCount * percentile / 100), 1);
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= threshold) {
+                return Math.min(upperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * @return the percentage of recorded values that are definitely larger than the given threshold.
+     */
+    public double getPercentageAbove(long threshold) {
+        long currentCount = count.sum();
+        if (currentCount == 0) {
+            return 0;
+        }
+        long above = 0;
+        for (int i = bucketIndex(Math.max(threshold, 0)) + 1; i < NUM_BUCKETS; i++) {
+            above += buckets.get(i);
+        }
+        return 100.0 * above / currentCount;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBound(int bucketIndex) {
+        if (bucketIndex < SUB_BUCKETS) {
+            return bucketIndex;
+        }
+        int shift = (bucketIndex - SUB_BUCKETS) / SUB_BUCKETS;
+        long subBucket = (bucketIndex - SUB_BUCKETS) % SUB_BUCKETS;
+        if (shift == Long.SIZE - 1 - SUB_BUCKET_BITS - 1 && subBucket == SUB_BUCKETS - 1) {
+            return Long.MAX_VALUE;
+        }
+        return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+}
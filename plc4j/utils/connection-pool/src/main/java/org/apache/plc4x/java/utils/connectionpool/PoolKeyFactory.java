@@ -21,18 +21,77 @@ package org.apache.plc4x.java.utils.connectionpool;
 
 import org.apache.plc4x.java.api.authentication.PlcAuthentication;
 import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
+import org.apache.plc4x.java.spi.PlcDriver;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * Derives the {@link PoolKey} of a connection string.
+ * <p>
+ * The poolable part of a connection string is contributed by its {@link PlcDriver#getPoolableKey(String)}. If no
+ * driver is known for the protocol, built-in patterns for s7, ads and modbus are used, all other connection strings
+ * are pooled by their complete string. Derived keys are cached, so for known connection strings getting the key
+ * is a single map lookup.
+ */
 public class PoolKeyFactory {
 
-    // TODO 11.12.18 jf: add a property to the drivers to keep this generic
+    // Fallback patterns in case the drivers aren't available.
+    private static final Pattern S7_URI_PATTERN = Pattern.compile("^(?<poolablePart>s7://(?<host>.*)/(?<rack>\\d{1,4})/(?<slot>\\d{1,4}))(?<params>\\?.*)?");
+
+    private static final Pattern AMS_PORT_PATTERN = Pattern.compile("\\d+");
+
+    private static final Pattern AMS_NET_ID_PATTERN = Pattern.compile("\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}");
+
+    private static final Pattern ADS_ADDRESS_PATTERN =
+        Pattern.compile("(?<targetAmsNetId>" + AMS_NET_ID_PATTERN + "):(?<targetAmsPort>" + AMS_PORT_PATTERN + ")"
+            + "(/"
+            + "(?<sourceAmsNetId>" + AMS_NET_ID_PATTERN + "):(?<sourceAmsPort>" + AMS_PORT_PATTERN + ")"
+            + ")?");
+
+    private static final Pattern INET_ADDRESS_PATTERN = Pattern.compile("tcp://(?<host>[\\w.]+)(:(?<port>\\d*))?");
+
+    private static final Pattern SERIAL_PATTERN = Pattern.compile("serial://(?<serialDefinition>((?!/\\d).)*)");
+
+    private static final Pattern ADS_URI_PATTERN = Pattern.compile("^(?<poolablePart>ads:(" + INET_ADDRESS_PATTERN + "|" + SERIAL_PATTERN + "))/" + ADS_ADDRESS_PATTERN + "(\\?.*)?");
+
+    private static final Pattern MODBUS_URI_PATTERN = Pattern.compile("^(?<poolablePart>modbus:(" + INET_ADDRESS_PATTERN + "|" + SERIAL_PATTERN + "))/?" + "(?<params>\\?.*)?");
+
+    // Upper bound for the cache to not grow endlessly with generated connection strings.
+    static final int MAX_CACHED_KEYS = 1024;
+
+    // Keys of connections without authentication by url.
+    private final Map<String, PoolKey> poolKeyCache = new ConcurrentHashMap<>();
+
     public PoolKey getPoolKey(String url, PlcAuthentication plcAuthentication) throws PlcConnectionException {
+        return getPoolKey(url, plcAuthentication, protocolCode -> null);
+    }
+
+    /**
+     * @param driverForProtocol lookup for the driver of a protocol code, returns {@code null} for unknown protocols.
+     */
+    public PoolKey getPoolKey(String url, PlcAuthentication plcAuthentication, Function<String, PlcDriver> driverForProtocol) throws PlcConnectionException {
         Objects.requireNonNull(url);
+        PoolKey poolKey = poolKeyCache.get(url);
+        if (poolKey == null) {
+            poolKey = new DerivedPoolKey(url, PooledPlcDriverManager.noPlcAuthentication, derivePoolableKey(url, driverForProtocol));
+            if (poolKeyCache.size() < MAX_CACHED_KEYS) {
+                poolKeyCache.put(url, poolKey);
+            }
+        }
+        if (plcAuthentication == PooledPlcDriverManager.noPlcAuthentication) {
+            return poolKey;
+        }
+        return new DerivedPoolKey(url, plcAuthentication, poolKey.getPoolableKey());
+    }
+
+    private String derivePoolableKey(String url, Function<String, PlcDriver> driverForProtocol) throws PlcConnectionException {
         URI connectionUri;
         try {
             connectionUri = new URI(url);
@@ -40,65 +99,43 @@ public class PoolKeyFactory {
             throw new PlcConnectionException("Invalid plc4j connection string '" + url + "'", e);
         }
         String protocol = connectionUri.getScheme().toLowerCase();
+        PlcDriver driver = driverForProtocol.apply(protocol);
+        if (driver != null) {
+            String poolableKey = driver.getPoolableKey(url);
+            return poolableKey != null ? poolableKey : url;
+        }
         switch (protocol) {
             case "s7":
-                return new PoolKey(url, plcAuthentication) {
-                    private final Pattern s7URIPattern = Pattern.compile("^(?<poolablePart>s7://(?<host>.*)/(?<rack>\\d{1,4})/(?<slot>\\d{1,4}))(?<params>\\?.*)?");
-
-                    @Override
-                    public String getPoolableKey() {
-                        Matcher matcher = s7URIPattern.matcher(url);
-                        if (!matcher.matches()) {
-                            throw new IllegalArgumentException(url + " doesn't match " + s7URIPattern);
-                        }
-                        return Objects.requireNonNull(matcher.group("poolablePart"));
-                    }
-                };
+                return getPoolablePart(url, S7_URI_PATTERN);
             case "ads":
-                return new PoolKey(url, plcAuthentication) {
-                    private final Pattern amsPortPattern = Pattern.compile("\\d+");
-                    private final Pattern amsNetIdPattern = Pattern.compile("\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}");
-                    private final Pattern adsAddressPattern =
-                        Pattern.compile("(?<targetAmsNetId>" + amsNetIdPattern + "):(?<targetAmsPort>" + amsPortPattern + ")"
-                            + "(/"
-                            + "(?<sourceAmsNetId>" + amsNetIdPattern + "):(?<sourceAmsPort>" + amsPortPattern + ")"
-                            + ")?");
-                    private final Pattern inetAddressPattern = Pattern.compile("tcp://(?<host>[\\w.]+)(:(?<port>\\d*))?");
-                    private final Pattern serialPattern = Pattern.compile("serial://(?<serialDefinition>((?!/\\d).)*)");
-                    private final Pattern adsUriPattern = Pattern.compile("^(?<poolablePart>ads:(" + inetAddressPattern + "|" + serialPattern + "))/" + adsAddressPattern + "(\\?.*)?");
-
-                    @Override
-                    public String getPoolableKey() {
-                        Matcher matcher =
-                            adsUriPattern.matcher(url);
-                        if (!matcher.matches()) {
-                            throw new IllegalArgumentException(url + " doesn't match " + adsUriPattern);
-                        }
-                        return Objects.requireNonNull(matcher.group("poolablePart"));
-                    }
-                };
+                return getPoolablePart(url, ADS_URI_PATTERN);
             case "modbus":
-                return new PoolKey(url, plcAuthentication) {
-                    private final Pattern inetAddressPattern = Pattern.compile("tcp://(?<host>[\\w.]+)(:(?<port>\\d*))?");
-                    private final Pattern serialPattern = Pattern.compile("serial://(?<serialDefinition>((?!/\\d).)*)");
-                    private final Pattern modbusUriPattern = Pattern.compile("^(?<poolablePart>modbus:(" + inetAddressPattern + "|" + serialPattern + "))/?" + "(?<params>\\?.*)?");
-
-                    @Override
-                    public String getPoolableKey() {
-                        Matcher matcher = modbusUriPattern.matcher(url);
-                        if (!matcher.matches()) {
-                            throw new IllegalArgumentException(url + " doesn't match " + modbusUriPattern);
-                        }
-                        return Objects.requireNonNull(matcher.group("poolablePart"));
-                    }
-                };
+                return getPoolablePart(url, MODBUS_URI_PATTERN);
             default:
-                return new PoolKey(url, plcAuthentication) {
-                    @Override
-                    public String getPoolableKey() {
-                        return url;
-                    }
-                };
+                return url;
+        }
+    }
+
+    private static String getPoolablePart(String url, Pattern pattern) throws PlcConnectionException {
+        Matcher matcher = pattern.matcher(url);
+        if (!matcher.matches()) {
+            throw new PlcConnectionException(url + " doesn't match " + pattern);
+        }
+        return Objects.requireNonNull(matcher.group("poolablePart"));
+    }
+
+    private static final class DerivedPoolKey extends PoolKey {
+
+        private final String poolableKey;
+
+        private DerivedPoolKey(String url, PlcAuthentication plcAuthentication, String poolableKey) {
+            super(url, plcAuthentication);
+            this.poolableKey = poolableKey;
+        }
+
+        @Override
+        public String getPoolableKey() {
+            return poolableKey;
         }
     }
 }
@@ -0,0 +1,49 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.utils.connectionpool;
+
+/**
+ * Metrics of the pooled connections of one {@link PoolKey} as exported by {@link JmxPoolMetrics}.
+ * Counters are cumulative, rates are up to the monitoring system.
+ */
+public interface PoolKeyMetricsMXBean {
+
+    String getPoolKey();
+
+    int getNumActive();
+
+    int getNumIdle();
+
+    long getBorrowCount();
+
+    double getBorrowWaitTimeMeanMicros();
+
+    long getBorrowWaitTime99thPercentileMicros();
+
+    long getBorrowWaitTimeMaxMicros();
+
+    long getCreatedCount();
+
+    long getDestroyedCount();
+
+    long getValidationFailureCount();
+
+    double getConnectionAgeMeanMillis();
+
+    long getConnectionAgeMaxMillis();
+}
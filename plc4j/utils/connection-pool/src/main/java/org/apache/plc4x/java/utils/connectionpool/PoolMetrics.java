@@ -0,0 +1,63 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.utils.connectionpool;
+
+import org.apache.commons.pool2.KeyedObjectPool;
+import org.apache.plc4x.java.api.PlcConnection;
+
+/**
+ * Receives the events of the connections pooled by a {@link PooledPlcDriverManager}.
+ * <p>
+ * Implement this to bridge the pool into a meter registry of your choice. {@link SimplePoolMetrics} keeps the
+ * metrics in memory, {@link JmxPoolMetrics} additionally exports them as MXBeans. With {@link #NOOP}, the default,
+ * the pool doesn't even take the timestamps.
+ */
+public interface PoolMetrics {
+
+    PoolMetrics NOOP = new PoolMetrics() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+    };
+
+    /**
+     * @return {@code false} if the events don't need to be recorded at all.
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Called once with the pool the metrics are recorded for, e.g. for reading the active and idle counts.
+     */
+    default void bindTo(KeyedObjectPool<PoolKey, PlcConnection> keyedObjectPool) {
+    }
+
+    default void connectionBorrowed(PoolKey poolKey, long waitNanos) {
+    }
+
+    default void connectionCreated(PoolKey poolKey) {
+    }
+
+    default void connectionDestroyed(PoolKey poolKey, long ageMillis) {
+    }
+
+    default void validationFailed(PoolKey poolKey) {
+    }
+}
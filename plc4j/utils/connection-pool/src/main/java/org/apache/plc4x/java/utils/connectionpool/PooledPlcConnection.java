@@ -0,0 +1,159 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.utils.connectionpool;
+
+import org.apache.commons.pool2.KeyedObjectPool;
+import org.apache.plc4x.java.api.PlcConnection;
+import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
+import org.apache.plc4x.java.api.exceptions.PlcInvalidFieldException;
+import org.apache.plc4x.java.api.messages.PlcReadRequest;
+import org.apache.plc4x.java.api.messages.PlcSubscriptionRequest;
+import org.apache.plc4x.java.api.messages.PlcUnsubscriptionRequest;
+import org.apache.plc4x.java.api.messages.PlcWriteRequest;
+import org.apache.plc4x.java.api.metadata.PlcConnectionMetadata;
+import org.apache.plc4x.java.api.model.PlcField;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Delegates to a {@link PlcConnection} borrowed from a {@link KeyedObjectPool}.
+ * <p>
+ * Closing returns the connection to the pool, a {@link PlcConnectionException} invalidates it in the pool.
+ * In both cases this instance can't be used anymore and all calls fail with an {@link IllegalStateException}.
+ */
+class PooledPlcConnection implements PlcConnection {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PooledPlcConnection.class);
+
+    private final KeyedObjectPool<PoolKey, PlcConnection> keyedObjectPool;
+
+    private final PoolKey poolKey;
+
+    private final PlcConnection plcConnection;
+
+    // Called once the connection has been returned to or invalidated in the pool
+    private final Runnable onRelease;
+
+    private volatile boolean invalidated = false;
+
+    PooledPlcConnection(KeyedObjectPool<PoolKey, PlcConnection> keyedObjectPool, PoolKey poolKey, PlcConnection plcConnection) {
+        this(keyedObjectPool, poolKey, plcConnection, () -> { });
+    }
+
+    PooledPlcConnection(KeyedObjectPool<PoolKey, PlcConnection> keyedObjectPool, PoolKey poolKey, PlcConnection plcConnection, Runnable onRelease) {
+        this.keyedObjectPool = keyedObjectPool;
+        this.poolKey = poolKey;
+        this.plcConnection = plcConnection;
+        this.onRelease = onRelease;
+    }
+
+    @Override
+    public void connect() throws PlcConnectionException {
+        checkValid();
+        try {
+            plcConnection.connect();
+        } catch (PlcConnectionException e) {
+            invalidated = true;
+            try {
+                keyedObjectPool.invalidateObject(poolKey, plcConnection);
+            } catch (Exception invalidationException) {
+                e.addSuppressed(invalidationException);
+            } finally {
+                onRelease.run();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        checkValid();
+        return plcConnection.isConnected();
+    }
+
+    @Override
+    public void close() throws Exception {
+        checkValid();
+        LOGGER.debug("close called on {}", plcConnection);
+        invalidated = true;
+        try {
+            keyedObjectPool.returnObject(poolKey, plcConnection);
+        } finally {
+            onRelease.run();
+        }
+    }
+
+    @Override
+    public PlcField prepareField(String fieldQuery) throws PlcInvalidFieldException {
+        checkValid();
+        return plcConnection.prepareField(fieldQuery);
+    }
+
+    @Override
+    public PlcConnectionMetadata getMetadata() {
+        checkValid();
+        return plcConnection.getMetadata();
+    }
+
+    @Override
+    public CompletableFuture<Void> ping() {
+        checkValid();
+        return plcConnection.ping();
+    }
+
+    @Override
+    public PlcReadRequest.Builder readRequestBuilder() {
+        checkValid();
+        return plcConnection.readRequestBuilder();
+    }
+
+    @Override
+    public PlcWriteRequest.Builder writeRequestBuilder() {
+        checkValid();
+        return plcConnection.writeRequestBuilder();
+    }
+
+    @Override
+    public PlcSubscriptionRequest.Builder subscriptionRequestBuilder() {
+        checkValid();
+        return plcConnection.subscriptionRequestBuilder();
+    }
+
+    @Override
+    public PlcUnsubscriptionRequest.Builder unsubscriptionRequestBuilder() {
+        checkValid();
+        return plcConnection.unsubscriptionRequestBuilder();
+    }
+
+    private void checkValid() {
+        if (invalidated) {
+            throw new IllegalStateException("Proxy not valid anymore");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PooledPlcConnection{" +
+            "poolKey=" + poolKey +
+            ", plcConnection=" + plcConnection +
+            ", invalidated=" + invalidated +
+            '}';
+    }
+}
@@ -24,18 +24,75 @@ import org.apache.plc4x.java.api.PlcConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
 public abstract class PooledPlcConnectionFactory extends BaseKeyedPooledObjectFactory<PoolKey, PlcConnection> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PooledPlcConnectionFactory.class);
 
+    private PoolMetrics metrics = PoolMetrics.NOOP;
+
+    // Connections established asynchronously, handed to the pool by the next makeObject of their key
+    private final ConcurrentMap<PoolKey, Queue<PlcConnection>> preparedConnections = new ConcurrentHashMap<>();
+
+    void setMetrics(PoolMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Creates a connection without blocking the caller till it is established.
+     * By default the connection is created synchronously using {@link #create(Object)}.
+     */
+    public CompletableFuture<PlcConnection> createAsync(PoolKey key) {
+        CompletableFuture<PlcConnection> future = new CompletableFuture<>();
+        try {
+            future.complete(create(key));
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
     @Override
     public PooledObject<PlcConnection> wrap(PlcConnection plcConnection) {
         LOGGER.debug("Wrapping connection {}", plcConnection);
         return new DefaultPooledObject<>(plcConnection);
     }
 
+    /**
+     * Lets the next {@link #makeObject(PoolKey)} of the key use the given connection instead of creating one, so a
+     * connection established with {@link #createAsync(PoolKey)} can be added to a pool without blocking.
+     */
+    void prepare(PoolKey key, PlcConnection connection) {
+        preparedConnections.computeIfAbsent(key, ignore -> new ConcurrentLinkedQueue<>()).add(connection);
+    }
+
+    /**
+     * @return true if the connection wasn't used by {@link #makeObject(PoolKey)} yet, it is no longer prepared then.
+     */
+    boolean unprepare(PoolKey key, PlcConnection connection) {
+        Queue<PlcConnection> connections = preparedConnections.get(key);
+        return connections != null && connections.remove(connection);
+    }
+
+    @Override
+    public PooledObject<PlcConnection> makeObject(PoolKey key) throws Exception {
+        Queue<PlcConnection> connections = preparedConnections.get(key);
+        PlcConnection preparedConnection = connections != null ? connections.poll() : null;
+        PooledObject<PlcConnection> pooledObject = preparedConnection != null ? wrap(preparedConnection) : super.makeObject(key);
+        metrics.connectionCreated(key);
+        return pooledObject;
+    }
+
     @Override
     public void destroyObject(PoolKey key, PooledObject<PlcConnection> p) throws Exception {
+        if (metrics.isEnabled()) {
+            metrics.connectionDestroyed(key, System.currentTimeMillis() - p.getCreateTime());
+        }
         p.getObject().close();
     }
 
@@ -17,27 +17,47 @@
 
 package org.apache.plc4x.java.utils.connectionpool;
 
-import org.apache.commons.lang3.reflect.FieldUtils;
 import org.apache.commons.pool2.KeyedObjectPool;
+import org.apache.commons.pool2.PooledObject;
 import org.apache.commons.pool2.impl.GenericKeyedObjectPool;
 import org.apache.plc4x.java.PlcDriverManager;
 import org.apache.plc4x.java.api.PlcConnection;
 import org.apache.plc4x.java.api.authentication.PlcAuthentication;
 import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
-import org.apache.plc4x.java.api.exceptions.PlcRuntimeException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Proxy;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class PooledPlcDriverManager extends PlcDriverManager {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PooledPlcDriverManager.class);
 
+    public static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 8;
+
+    // Runs the pool calls of asynchronous borrows, which might validate, ping or connect synchronously.
+    // No thread waits for a returned connection, so its threads die when idle.
+    private static final ExecutorService POOL_EXECUTOR = createPoolExecutor();
+
+    // Times out asynchronous borrows waiting for a connection, if the pool has a maximum wait time
+    private static final ScheduledExecutorService WAIT_TIMER = createWaitTimer();
+
+    // Only set in exclusive mode
     private KeyedObjectPool<PoolKey, PlcConnection> keyedObjectPool;
 
     // Marker class do detected a non null value
@@ -45,6 +65,34 @@ public class PooledPlcDriverManager extends PlcDriverManager {
 
     private final PoolKeyFactory poolKeyFactory;
 
+    private PooledPlcConnectionFactory pooledPlcConnectionFactory;
+
+    // Only set in shared mode
+    private SharedPlcConnectionPool sharedConnectionPool;
+
+    // Only set if health checks are enabled
+    private DeviceHealthMonitor healthMonitor;
+
+    private PoolMetrics metrics = PoolMetrics.NOOP;
+
+    // Asynchronous borrows of exhausted pools, served one at a time when a connection is returned or invalidated
+    private final ConcurrentMap<PoolKey, Queue<CompletableFuture<PlcConnection>>> waiters = new ConcurrentHashMap<>();
+
+    /**
+     * How connections are handed out by the {@link PooledPlcDriverManager}.
+     */
+    public enum Mode {
+        /**
+         * Every {@link PlcConnection} is borrowed exclusively from the {@link KeyedObjectPool}.
+         */
+        EXCLUSIVE,
+        /**
+         * One physical connection per {@link PoolKey} is shared by all returned {@link PlcConnection}s,
+         * see {@link SharedPlcConnectionPool}.
+         */
+        SHARED
+    }
+
     public PooledPlcDriverManager() {
         this(GenericKeyedObjectPool::new);
     }
@@ -78,8 +126,89 @@ public class PooledPlcDriverManager extends PlcDriverManager {
         poolKeyFactory = new PoolKeyFactory();
     }
 
+    public PooledPlcDriverManager(Mode mode) {
+        this(Thread.currentThread().getContextClassLoader(), new PoolKeyFactory(), mode, DEFAULT_MAX_IN_FLIGHT_REQUESTS);
+    }
+
+    /**
+     * @param maxInFlightRequests maximum number of concurrently outstanding read and write requests per physical
+     *                            connection, only used in {@link Mode#SHARED}.
+     */
+    public PooledPlcDriverManager(ClassLoader classLoader, PoolKeyFactory poolKeyFactory, Mode mode, int maxInFlightRequests) {
+        this(classLoader, poolKeyFactory, mode, maxInFlightRequests, null);
+    }
+
+    /**
+     * @param maxInFlightRequests maximum number of concurrently outstanding read and write requests per physical
+     *                            connection, only used in {@link Mode#SHARED}.
+     * @param healthMonitor       keeps the connections alive and makes borrows fail fast while a device is down,
+     *                            {@code null} disables health checks.
+     */
+    public PooledPlcDriverManager(ClassLoader classLoader, PoolKeyFactory poolKeyFactory, Mode mode, int maxInFlightRequests, DeviceHealthMonitor healthMonitor) {
+        this(classLoader, poolKeyFactory, mode, maxInFlightRequests, healthMonitor, PoolMetrics.NOOP);
+    }
+
+    /**
+     * @param maxInFlightRequests maximum number of concurrently outstanding read and write requests per physical
+     *                            connection, only used in {@link Mode#SHARED}.
+     * @param healthMonitor       keeps the connections alive and makes borrows fail fast while a device is down,
+     *                            {@code null} disables health checks.
+     * @param metrics             receives the borrow, create, destroy and validation events of the pooled connections,
+     *                            e.g. {@link JmxPoolMetrics}.
+     */
+    public PooledPlcDriverManager(ClassLoader classLoader, PoolKeyFactory poolKeyFactory, Mode mode, int maxInFlightRequests, DeviceHealthMonitor healthMonitor, PoolMetrics metrics) {
+        super(classLoader);
+        this.pooledPlcConnectionFactory = createConnectionFactory();
+        this.poolKeyFactory = poolKeyFactory;
+        // Only the pool of the mode is created, so shared mode has no idle evictor
+        if (mode == Mode.SHARED) {
+            sharedConnectionPool = new SharedPlcConnectionPool(pooledPlcConnectionFactory, maxInFlightRequests, metrics);
+        } else {
+            keyedObjectPool = new GenericKeyedObjectPool<>(pooledPlcConnectionFactory);
+        }
+        if (healthMonitor != null) {
+            enableHealthChecks(healthMonitor);
+        }
+        this.metrics = metrics;
+        pooledPlcConnectionFactory.setMetrics(metrics);
+        if (keyedObjectPool != null) {
+            metrics.bindTo(keyedObjectPool);
+        }
+    }
+
+    private void enableHealthChecks(DeviceHealthMonitor healthMonitor) {
+        this.healthMonitor = healthMonitor;
+        if (keyedObjectPool instanceof GenericKeyedObjectPool) {
+            // Let the evictor ping idle connections, see PooledPlcConnectionFactory#validateObject.
+            GenericKeyedObjectPool<PoolKey, PlcConnection> genericKeyedObjectPool = (GenericKeyedObjectPool<PoolKey, PlcConnection>) keyedObjectPool;
+            genericKeyedObjectPool.setTestWhileIdle(true);
+            genericKeyedObjectPool.setTimeBetweenEvictionRunsMillis(healthMonitor.getPingIntervalMs());
+        }
+        healthMonitor.start(new DeviceHealthMonitor.Prober() {
+            @Override
+            public CompletableFuture<Void> ping(PoolKey poolKey) {
+                // Exclusively pooled connections are pinged by the evictor.
+                return sharedConnectionPool != null ? sharedConnectionPool.ping(poolKey) : null;
+            }
+
+            @Override
+            public CompletableFuture<Void> reconnect(PoolKey poolKey) {
+                if (sharedConnectionPool != null) {
+                    return sharedConnectionPool.reconnect(poolKey);
+                }
+                // Prepare an idle connection for the next borrower.
+                return addObjectAsync(poolKey).thenRun(() -> released(poolKey));
+            }
+        });
+    }
+
     private void setFromPoolCreator(PoolCreator poolCreator) {
-        this.keyedObjectPool = poolCreator.createPool(new PooledPlcConnectionFactory() {
+        this.pooledPlcConnectionFactory = createConnectionFactory();
+        this.keyedObjectPool = poolCreator.createPool(pooledPlcConnectionFactory);
+    }
+
+    private PooledPlcConnectionFactory createConnectionFactory() {
+        return new PooledPlcConnectionFactory() {
             @Override
             public PlcConnection create(PoolKey key) throws Exception {
                 PlcAuthentication plcAuthentication = key.plcAuthentication;
@@ -92,7 +221,29 @@ public class PooledPlcDriverManager extends PlcDriverManager {
                     return PooledPlcDriverManager.super.getConnection(url, plcAuthentication);
                 }
             }
-        });
+
+            @Override
+            public CompletableFuture<PlcConnection> createAsync(PoolKey key) {
+                PlcAuthentication plcAuthentication = key.plcAuthentication;
+                String url = key.url;
+                if (plcAuthentication == noPlcAuthentication) {
+                    LOGGER.debug("getting actual connection asynchronously for {}", url);
+                    return PooledPlcDriverManager.super.getConnectionAsync(url);
+                } else {
+                    LOGGER.debug("getting actual connection asynchronously for {} and plcAuthentication {}", url, plcAuthentication);
+                    return PooledPlcDriverManager.super.getConnectionAsync(url, plcAuthentication);
+                }
+            }
+
+            @Override
+            public boolean validateObject(PoolKey key, PooledObject<PlcConnection> p) {
+                boolean valid = super.validateObject(key, p) && (healthMonitor == null || healthMonitor.validate(key, p.getObject()));
+                if (!valid) {
+                    metrics.validationFailed(key);
+                }
+                return valid;
+            }
+        };
     }
 
     @Override
@@ -102,7 +253,7 @@ public class PooledPlcDriverManager extends PlcDriverManager {
 
     @Override
     public PlcConnection getConnection(String url, PlcAuthentication authentication) throws PlcConnectionException {
-        PoolKey poolKey = poolKeyFactory.getPoolKey(url, authentication);
+        PoolKey poolKey = poolKeyFactory.getPoolKey(url, authentication, this::getDriverForProtocol);
         if (LOGGER.isDebugEnabled()) {
             if (authentication != noPlcAuthentication) {
                 LOGGER.debug("Try to borrow an object for url {} and authentication {}", url, authentication);
@@ -110,61 +261,280 @@ public class PooledPlcDriverManager extends PlcDriverManager {
                 LOGGER.debug("Try to borrow an object for url {}", url);
             }
         }
-        PlcConnection plcConnection;
+        if (healthMonitor == null) {
+            return sharedConnectionPool != null ? sharedConnectionPool.getConnection(poolKey) : borrow(poolKey);
+        }
+        healthMonitor.checkAvailable(poolKey);
         try {
-            plcConnection = keyedObjectPool.borrowObject(poolKey);
-        } catch (Exception e) {
-            throw new PlcConnectionException(e);
+            PlcConnection plcConnection = sharedConnectionPool != null ? sharedConnectionPool.getConnection(poolKey) : borrow(poolKey);
+            healthMonitor.onSuccess(poolKey, -1);
+            return plcConnection;
+        } catch (PlcConnectionException e) {
+            healthMonitor.onFailure(poolKey, e);
+            throw e;
         }
-        // Used to invalidate a proxy
-        AtomicBoolean proxyInvalidated = new AtomicBoolean(false);
-        return (PlcConnection) Proxy.newProxyInstance(classLoader, new Class[]{PlcConnection.class}, (proxy, method, args) -> {
-            if (proxyInvalidated.get()) {
-                throw new IllegalStateException("Proxy not valid anymore");
-            }
-            if ("close".equals(method.getName())) {
-                LOGGER.debug("close called on {}", plcConnection);
-                proxyInvalidated.set(true);
-                keyedObjectPool.returnObject(poolKey, plcConnection);
-                return null;
+    }
+
+    @Override
+    public CompletableFuture<PlcConnection> getConnectionAsync(String url) {
+        return getConnectionAsync(url, noPlcAuthentication);
+    }
+
+    /**
+     * The physical connection is established without blocking the caller. In exclusive mode an idle pooled
+     * connection is handed out, otherwise a new connection is established asynchronously and added to the pool.
+     * All calls into the pool, which might validate or ping the idle connections, run on a pool executor. If the pool
+     * of the key is exhausted, the borrow is queued without occupying a thread until a connection is returned or
+     * invalidated, or the maximum wait time of the pool elapsed.
+     */
+    @Override
+    public CompletableFuture<PlcConnection> getConnectionAsync(String url, PlcAuthentication authentication) {
+        PoolKey poolKey;
+        try {
+            poolKey = poolKeyFactory.getPoolKey(url, authentication, this::getDriverForProtocol);
+        } catch (PlcConnectionException e) {
+            CompletableFuture<PlcConnection> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        LOGGER.debug("Try to borrow an object asynchronously for {}", poolKey);
+        if (healthMonitor == null) {
+            return borrowAsync(poolKey);
+        }
+        try {
+            healthMonitor.checkAvailable(poolKey);
+        } catch (PlcConnectionException e) {
+            CompletableFuture<PlcConnection> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        return borrowAsync(poolKey).whenComplete((plcConnection, throwable) -> {
+            if (throwable != null) {
+                healthMonitor.onFailure(poolKey, throwable);
             } else {
-                try {
-                    return method.invoke(plcConnection, args);
-                } catch (InvocationTargetException e) {
-                    if (e.getCause().getClass() == PlcConnectionException.class) {
-                        keyedObjectPool.invalidateObject(poolKey, plcConnection);
-                        proxyInvalidated.set(true);
+                healthMonitor.onSuccess(poolKey, -1);
+            }
+        });
+    }
+
+    private CompletableFuture<PlcConnection> borrowAsync(PoolKey poolKey) {
+        if (sharedConnectionPool != null) {
+            return sharedConnectionPool.getConnectionAsync(poolKey);
+        }
+        CompletableFuture<PlcConnection> future = new CompletableFuture<>();
+        long maxWaitMillis = keyedObjectPool instanceof GenericKeyedObjectPool
+            ? ((GenericKeyedObjectPool<PoolKey, PlcConnection>) keyedObjectPool).getMaxWaitMillis()
+            : -1;
+        if (maxWaitMillis >= 0) {
+            ScheduledFuture<?> timeout = WAIT_TIMER.schedule(() -> {
+                if (future.completeExceptionally(new PlcConnectionException(new NoSuchElementException("Timeout waiting for idle object")))) {
+                    Queue<CompletableFuture<PlcConnection>> queue = waiters.get(poolKey);
+                    if (queue != null) {
+                        queue.remove(future);
                     }
-                    throw e;
                 }
+            }, maxWaitMillis, TimeUnit.MILLISECONDS);
+            future.whenComplete((plcConnection, throwable) -> timeout.cancel(false));
+        }
+        POOL_EXECUTOR.execute(() -> tryBorrow(poolKey, future));
+        return future;
+    }
+
+    /**
+     * Runs on the pool executor. Hands out an idle connection, adds a new one to the pool without blocking or queues
+     * the borrow if the pool is exhausted.
+     */
+    private void tryBorrow(PoolKey poolKey, CompletableFuture<PlcConnection> future) {
+        if (future.isDone()) {
+            // Timed out
+            return;
+        }
+        boolean generic = keyedObjectPool instanceof GenericKeyedObjectPool;
+        if (!generic || keyedObjectPool.getNumIdle(poolKey) > 0) {
+            try {
+                // Only other pools than GenericKeyedObjectPool might block here
+                PlcConnection plcConnection = borrow(poolKey, generic ? 0 : -1);
+                if (!future.complete(plcConnection)) {
+                    closeQuietly(plcConnection);
+                }
+                return;
+            } catch (PlcConnectionException e) {
+                if (!(e.getCause() instanceof NoSuchElementException)) {
+                    future.completeExceptionally(e);
+                    return;
+                }
+                // Another borrower was faster
+            }
+        }
+        if (isExhausted(poolKey)) {
+            if (((GenericKeyedObjectPool<PoolKey, PlcConnection>) keyedObjectPool).getBlockWhenExhausted()) {
+                await(poolKey, future);
+            } else {
+                future.completeExceptionally(new PlcConnectionException(new NoSuchElementException("Pool exhausted")));
+            }
+            return;
+        }
+        // The new idle connection is borrowed right away, unless another borrower was faster
+        addObjectAsync(poolKey).whenComplete((ignore, throwable) -> {
+            if (throwable != null) {
+                future.completeExceptionally(throwable);
+            } else {
+                POOL_EXECUTOR.execute(() -> tryBorrow(poolKey, future));
             }
         });
     }
 
+    private void await(PoolKey poolKey, CompletableFuture<PlcConnection> future) {
+        Queue<CompletableFuture<PlcConnection>> queue = waiters.computeIfAbsent(poolKey, ignore -> new ConcurrentLinkedQueue<>());
+        queue.add(future);
+        // A connection might have been released before the borrow was queued
+        if ((keyedObjectPool.getNumIdle(poolKey) > 0 || !isExhausted(poolKey)) && queue.remove(future)) {
+            POOL_EXECUTOR.execute(() -> tryBorrow(poolKey, future));
+        }
+    }
+
+    /**
+     * A connection of the key has been returned to or invalidated in the pool, so the next queued borrow retries.
+     * Borrows of other keys are only served if there is none of the key, as they can only wait for the total limit.
+     */
+    private void released(PoolKey poolKey) {
+        if (serveWaiter(poolKey)) {
+            return;
+        }
+        for (PoolKey waitingKey : waiters.keySet()) {
+            if (serveWaiter(waitingKey)) {
+                return;
+            }
+        }
+    }
+
+    private boolean serveWaiter(PoolKey poolKey) {
+        Queue<CompletableFuture<PlcConnection>> queue = waiters.get(poolKey);
+        CompletableFuture<PlcConnection> waiter;
+        while (queue != null && (waiter = queue.poll()) != null) {
+            if (!waiter.isDone()) {
+                CompletableFuture<PlcConnection> next = waiter;
+                POOL_EXECUTOR.execute(() -> tryBorrow(poolKey, next));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Establishes a connection without blocking and adds it to the pool as idle object on the pool executor.
+     * The connection is closed if the pool is full in the meantime.
+     */
+    private CompletableFuture<Void> addObjectAsync(PoolKey poolKey) {
+        return pooledPlcConnectionFactory.createAsync(poolKey).thenAcceptAsync(connection -> {
+            pooledPlcConnectionFactory.prepare(poolKey, connection);
+            try {
+                keyedObjectPool.addObject(poolKey);
+            } catch (Exception e) {
+                throw new CompletionException(new PlcConnectionException(e));
+            } finally {
+                if (pooledPlcConnectionFactory.unprepare(poolKey, connection)) {
+                    closeQuietly(connection);
+                }
+            }
+        }, POOL_EXECUTOR);
+    }
+
+    /**
+     * @return true if no further connection can be created for the key, so borrowing waits for a returned one.
+     */
+    private boolean isExhausted(PoolKey poolKey) {
+        if (!(keyedObjectPool instanceof GenericKeyedObjectPool)) {
+            return false;
+        }
+        GenericKeyedObjectPool<PoolKey, PlcConnection> genericKeyedObjectPool = (GenericKeyedObjectPool<PoolKey, PlcConnection>) keyedObjectPool;
+        int maxTotalPerKey = genericKeyedObjectPool.getMaxTotalPerKey();
+        int maxTotal = genericKeyedObjectPool.getMaxTotal();
+        return maxTotalPerKey >= 0 && genericKeyedObjectPool.getNumActive(poolKey) + genericKeyedObjectPool.getNumIdle(poolKey) >= maxTotalPerKey
+            || maxTotal >= 0 && genericKeyedObjectPool.getNumActive() + genericKeyedObjectPool.getNumIdle() >= maxTotal;
+    }
+
+    private static void closeQuietly(PlcConnection connection) {
+        try {
+            connection.close();
+        } catch (Exception e) {
+            LOGGER.debug("Error closing {}", connection, e);
+        }
+    }
+
+    private PlcConnection borrow(PoolKey poolKey) throws PlcConnectionException {
+        return borrow(poolKey, -1);
+    }
+
+    /**
+     * @param maxWaitMillis time to wait for a returned connection of an exhausted {@link GenericKeyedObjectPool}, the
+     *                      configured maximum wait time of the pool if negative.
+     */
+    private PlcConnection borrow(PoolKey poolKey, long maxWaitMillis) throws PlcConnectionException {
+        PlcConnection plcConnection;
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        try {
+            plcConnection = maxWaitMillis >= 0 && keyedObjectPool instanceof GenericKeyedObjectPool
+                ? ((GenericKeyedObjectPool<PoolKey, PlcConnection>) keyedObjectPool).borrowObject(poolKey, maxWaitMillis)
+                : keyedObjectPool.borrowObject(poolKey);
+        } catch (Exception e) {
+            throw new PlcConnectionException(e);
+        }
+        if (metrics.isEnabled()) {
+            metrics.connectionBorrowed(poolKey, System.nanoTime() - start);
+        }
+        return new PooledPlcConnection(keyedObjectPool, poolKey, plcConnection, () -> released(poolKey));
+    }
+
+    private static ExecutorService createPoolExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "plc4x-pool-borrow-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static ScheduledExecutorService createWaitTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "plc4x-pool-wait-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
     @FunctionalInterface
     public interface PoolCreator {
         KeyedObjectPool<PoolKey, PlcConnection> createPool(PooledPlcConnectionFactory pooledPlcConnectionFactory);
     }
 
-    // TODO: maybe export to jmx // generic poolKey has builting jmx too
+    // For jmx see JmxPoolMetrics, GenericKeyedObjectPool has its own jmx support too
     public Map<String, Number> getStatistics() {
         HashMap<String, Number> statistics = new HashMap<>();
-        statistics.put("numActive", keyedObjectPool.getNumActive());
-        statistics.put("numIdle", keyedObjectPool.getNumIdle());
+        if (keyedObjectPool != null) {
+            statistics.put("numActive", keyedObjectPool.getNumActive());
+            statistics.put("numIdle", keyedObjectPool.getNumIdle());
+        }
         if (keyedObjectPool instanceof GenericKeyedObjectPool) {
             GenericKeyedObjectPool<PoolKey, PlcConnection> genericKeyedObjectPool = (GenericKeyedObjectPool<PoolKey, PlcConnection>) this.keyedObjectPool;
-            // Thats pretty ugly and we really should't do that...
-            try {
-                Map poolMap = (Map) FieldUtils.getField(GenericKeyedObjectPool.class, "poolMap", true).get(this.keyedObjectPool);
-                statistics.put("pools.count", poolMap.size());
-            } catch (IllegalAccessException e) {
-                throw new PlcRuntimeException(e);
-            }
+            // Contains an entry for every key with a pool
             Map<String, Integer> numActivePerKey = genericKeyedObjectPool.getNumActivePerKey();
+            statistics.put("pools.count", numActivePerKey.size());
             for (Map.Entry<String, Integer> entry : numActivePerKey.entrySet()) {
                 statistics.put(entry.getKey() + ".numActive", entry.getValue());
             }
         }
+        if (sharedConnectionPool != null) {
+            statistics.putAll(sharedConnectionPool.getStatistics());
+        }
+        if (healthMonitor != null) {
+            statistics.putAll(healthMonitor.getStatistics());
+        }
+        if (metrics instanceof SimplePoolMetrics) {
+            statistics.putAll(((SimplePoolMetrics) metrics).getStatistics());
+        }
 
         return statistics;
     }
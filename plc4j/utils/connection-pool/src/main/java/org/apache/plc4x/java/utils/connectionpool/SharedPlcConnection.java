@@ -0,0 +1,343 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.utils.connectionpool;
+
+import org.apache.plc4x.java.api.PlcConnection;
+import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
+import org.apache.plc4x.java.api.exceptions.PlcInvalidFieldException;
+import org.apache.plc4x.java.api.exceptions.PlcRuntimeException;
+import org.apache.plc4x.java.api.messages.*;
+import org.apache.plc4x.java.api.metadata.PlcConnectionMetadata;
+import org.apache.plc4x.java.api.model.PlcField;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Logical connection handed out by a {@link SharedPlcConnectionPool}.
+ * <p>
+ * All calls go to the current physical connection of the {@link SharedPlcConnectionPool.SharedConnection}, read and
+ * write requests are executed through it to respect the in-flight limit. Closing releases the reference to the
+ * physical connection, afterwards every call fails with an {@link IllegalStateException}.
+ * Subscriptions are passed through to the physical connection and don't survive a reconnect.
+ * <p>
+ * The connection is connected when it's handed out. If the physical connection got lost in the meantime, the calls
+ * that need it, e.g. {@link #readRequestBuilder()} or {@link #getMetadata()}, block while it is re-established, as
+ * requests can only be built by a connected driver. Callers that must not block use
+ * {@link PooledPlcDriverManager#getConnectionAsync(String)} for every usage instead of keeping the connection.
+ */
+class SharedPlcConnection implements PlcConnection {
+
+    private final SharedPlcConnectionPool pool;
+
+    private final SharedPlcConnectionPool.SharedConnection sharedConnection;
+
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    SharedPlcConnection(SharedPlcConnectionPool pool, SharedPlcConnectionPool.SharedConnection sharedConnection) {
+        this.pool = pool;
+        this.sharedConnection = sharedConnection;
+    }
+
+    @Override
+    public void connect() throws PlcConnectionException {
+        checkNotClosed();
+        sharedConnection.ensureConnected();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return !closed.get() && sharedConnection.isConnected();
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            pool.release(sharedConnection);
+        }
+    }
+
+    @Override
+    public PlcField prepareField(String fieldQuery) throws PlcInvalidFieldException {
+        return physicalConnection().prepareField(fieldQuery);
+    }
+
+    @Override
+    public PlcConnectionMetadata getMetadata() {
+        return physicalConnection().getMetadata();
+    }
+
+    @Override
+    public CompletableFuture<Void> ping() {
+        return physicalConnection().ping();
+    }
+
+    @Override
+    public PlcReadRequest.Builder readRequestBuilder() {
+        PlcConnection connection = physicalConnection();
+        return new SharedReadRequestBuilder(connection, connection.readRequestBuilder());
+    }
+
+    @Override
+    public PlcWriteRequest.Builder writeRequestBuilder() {
+        PlcConnection connection = physicalConnection();
+        return new SharedWriteRequestBuilder(connection, connection.writeRequestBuilder());
+    }
+
+    @Override
+    public PlcSubscriptionRequest.Builder subscriptionRequestBuilder() {
+        return physicalConnection().subscriptionRequestBuilder();
+    }
+
+    @Override
+    public PlcUnsubscriptionRequest.Builder unsubscriptionRequestBuilder() {
+        return physicalConnection().unsubscriptionRequestBuilder();
+    }
+
+    private void checkNotClosed() {
+        if (closed.get()) {
+            throw new IllegalStateException("Shared connection handle already closed");
+        }
+    }
+
+    /**
+     * @return the physical connection, blocks while it is re-established after it got lost.
+     */
+    private PlcConnection physicalConnection() {
+        checkNotClosed();
+        try {
+            return sharedConnection.ensureConnected();
+        } catch (PlcConnectionException e) {
+            throw new PlcRuntimeException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SharedPlcConnection{" +
+            "sharedConnection=" + sharedConnection +
+            ", closed=" + closed +
+            '}';
+    }
+
+    private class SharedReadRequestBuilder implements PlcReadRequest.Builder {
+
+        private final PlcConnection connection;
+
+        private final PlcReadRequest.Builder delegate;
+
+        private SharedReadRequestBuilder(PlcConnection connection, PlcReadRequest.Builder delegate) {
+            this.connection = connection;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public PlcReadRequest.Builder addItem(String name, String fieldQuery) {
+            delegate.addItem(name, fieldQuery);
+            return this;
+        }
+
+        @Override
+        public PlcReadRequest build() {
+            return new SharedReadRequest(connection, delegate.build());
+        }
+    }
+
+    private class SharedReadRequest extends SharedFieldRequest<PlcReadRequest> implements PlcReadRequest {
+
+        private SharedReadRequest(PlcConnection connection, PlcReadRequest delegate) {
+            super(connection, delegate);
+        }
+
+        @Override
+        public CompletableFuture<PlcReadResponse> execute() {
+            return sharedConnection.execute(connection, delegate::execute);
+        }
+    }
+
+    private class SharedWriteRequestBuilder implements PlcWriteRequest.Builder {
+
+        private final PlcConnection connection;
+
+        private final PlcWriteRequest.Builder delegate;
+
+        private SharedWriteRequestBuilder(PlcConnection connection, PlcWriteRequest.Builder delegate) {
+            this.connection = connection;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public PlcWriteRequest.Builder addItem(String name, String fieldQuery, Boolean... values) {
+            delegate.addItem(name, fieldQuery, values);
+            return this;
+        }
+
+        @Override
+        public PlcWriteRequest.Builder addItem(String name, String fieldQuery, Byte... values) {
+            delegate.addItem(name, fieldQuery, values);
+            return this;
+        }
+
+        @Override
+        public PlcWriteRequest.Builder addItem(String name, String fieldQuery, Short... values) {
+            delegate.addItem(name, fieldQuery, values);
+            return this;
+        }
+
+        @Override
+        public PlcWriteRequest.Builder addItem(String name, String fieldQuery, Integer... values) {
+            delegate.addItem(name, fieldQuery, values);
+            return this;
+        }
+
+        @Override
+        public PlcWriteRequest.Builder addItem(String name, String fieldQuery, BigInteger... values) {
+            delegate.addItem(name, fieldQuery, values);
+            return this;
+        }
+
+        @Override
+        public PlcWriteRequest.Builder addItem(String name, String fieldQuery, Long... values) {
+            delegate.addItem(name, fieldQuery, values);
+            return this;
+        }
+
+        @Override
+        public PlcWriteRequest.Builder addItem(String name, String fieldQuery, Float... values) {
+            delegate.addItem(name, fieldQuery, values);
+            return this;
+        }
+
+        @Override
+        public PlcWriteRequest.Builder addItem(String name, String fieldQuery, Double... values) {
+            delegate.addItem(name, fieldQuery, values);
+            return this;
+        }
+
+        @Override
+        public PlcWriteRequest.Builder addItem(String name, String fieldQuery, BigDecimal... values) {
+            delegate.addItem(name, fieldQuery, values);
+            return this;
+        }
+
+        @Override
+        public PlcWriteRequest.Builder addItem(String name, String fieldQuery, String... values) {
+            delegate.addItem(name, fieldQuery, values);
+            return this;
+        }
+
+        @Override
+        public PlcWriteRequest.Builder addItem(String name, String fieldQuery, LocalTime... values) {
+            delegate.addItem(name, fieldQuery, values);
+            return this;
+        }
+
+        @Override
+        public PlcWriteRequest.Builder addItem(String name, String fieldQuery, LocalDate... values) {
+            delegate.addItem(name, fieldQuery, values);
+            return this;
+        }
+
+        @Override
+        public PlcWriteRequest.Builder addItem(String name, String fieldQuery, LocalDateTime... values) {
+            delegate.addItem(name, fieldQuery, values);
+            return this;
+        }
+
+        @Override
+        public PlcWriteRequest.Builder addItem(String name, String fieldQuery, byte[]... values) {
+            delegate.addItem(name, fieldQuery, values);
+            return this;
+        }
+
+        @Override
+        public PlcWriteRequest.Builder addItem(String name, String fieldQuery, Byte[]... values) {
+            delegate.addItem(name, fieldQuery, values);
+            return this;
+        }
+
+        @SafeVarargs
+        @Override
+        public final <T> PlcWriteRequest.Builder addItem(String name, String fieldQuery, T... values) {
+            delegate.addItem(name, fieldQuery, values);
+            return this;
+        }
+
+        @Override
+        public PlcWriteRequest build() {
+            return new SharedWriteRequest(connection, delegate.build());
+        }
+    }
+
+    private class SharedWriteRequest extends SharedFieldRequest<PlcWriteRequest> implements PlcWriteRequest {
+
+        private SharedWriteRequest(PlcConnection connection, PlcWriteRequest delegate) {
+            super(connection, delegate);
+        }
+
+        @Override
+        public CompletableFuture<PlcWriteResponse> execute() {
+            return sharedConnection.execute(connection, delegate::execute);
+        }
+
+        @Override
+        public int getNumberOfValues(String name) {
+            return delegate.getNumberOfValues(name);
+        }
+    }
+
+    private abstract static class SharedFieldRequest<T extends PlcFieldRequest> {
+
+        protected final PlcConnection connection;
+
+        protected final T delegate;
+
+        private SharedFieldRequest(PlcConnection connection, T delegate) {
+            this.connection = connection;
+            this.delegate = delegate;
+        }
+
+        public int getNumberOfFields() {
+            return delegate.getNumberOfFields();
+        }
+
+        public LinkedHashSet<String> getFieldNames() {
+            return delegate.getFieldNames();
+        }
+
+        public PlcField getField(String name) {
+            return delegate.getField(name);
+        }
+
+        public List<PlcField> getFields() {
+            return delegate.getFields();
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+}
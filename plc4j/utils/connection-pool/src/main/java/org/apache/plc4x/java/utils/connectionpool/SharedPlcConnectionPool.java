@@ -0,0 +1,404 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.utils.connectionpool;
+
+import org.apache.plc4x.java.api.PlcConnection;
+import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Shares one physical {@link PlcConnection} per {@link PoolKey} between any number of logical connections.
+ * <p>
+ * The physical connection is opened with the first logical connection of a key and closed as soon as the last
+ * logical connection of this key is closed. Read and write requests of all logical connections are limited to
+ * {@code maxInFlightRequests} concurrently outstanding requests per physical connection, additional requests are
+ * queued until a response arrives. If a request fails with a {@link PlcConnectionException} the physical connection
+ * is dropped and transparently re-established on the next usage, so the logical connections stay valid.
+ */
+public class SharedPlcConnectionPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedPlcConnectionPool.class);
+
+    private final PooledPlcConnectionFactory connectionFactory;
+
+    private final int maxInFlightRequests;
+
+    private final Map<PoolKey, SharedConnection> sharedConnections = new ConcurrentHashMap<>();
+
+    private final PoolMetrics metrics;
+
+    public SharedPlcConnectionPool(PooledPlcConnectionFactory connectionFactory, int maxInFlightRequests) {
+        this(connectionFactory, maxInFlightRequests, PoolMetrics.NOOP);
+    }
+
+    /**
+     * @param metrics receives the borrow, create and destroy events of the physical connections.
+     */
+    public SharedPlcConnectionPool(PooledPlcConnectionFactory connectionFactory, int maxInFlightRequests, PoolMetrics metrics) {
+        if (maxInFlightRequests < 1) {
+            throw new IllegalArgumentException("maxInFlightRequests must be at least 1 but was " + maxInFlightRequests);
+        }
+        this.connectionFactory = connectionFactory;
+        this.maxInFlightRequests = maxInFlightRequests;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns a new logical connection using the physical connection of the given key, which is opened if necessary.
+     */
+    public PlcConnection getConnection(PoolKey poolKey) throws PlcConnectionException {
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        SharedConnection sharedConnection = acquire(poolKey);
+        try {
+            sharedConnection.ensureConnected();
+        } catch (PlcConnectionException e) {
+            release(sharedConnection);
+            throw e;
+        }
+        if (metrics.isEnabled()) {
+            metrics.connectionBorrowed(poolKey, System.nanoTime() - start);
+        }
+        LOGGER.debug("Handing out shared connection for {} ({} references)", poolKey, sharedConnection.references);
+        return new SharedPlcConnection(this, sharedConnection);
+    }
+
+    /**
+     * Returns a new logical connection without blocking till the physical connection is established.
+     */
+    public CompletableFuture<PlcConnection> getConnectionAsync(PoolKey poolKey) {
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        SharedConnection sharedConnection = acquire(poolKey);
+        CompletableFuture<PlcConnection> future = new CompletableFuture<>();
+        sharedConnection.ensureConnectedAsync().whenComplete((connection, throwable) -> {
+            if (throwable != null) {
+                release(sharedConnection);
+                future.completeExceptionally(throwable instanceof CompletionException ? throwable.getCause() : throwable);
+            } else {
+                if (metrics.isEnabled()) {
+                    metrics.connectionBorrowed(poolKey, System.nanoTime() - start);
+                }
+                future.complete(new SharedPlcConnection(this, sharedConnection));
+            }
+        });
+        return future;
+    }
+
+    private SharedConnection acquire(PoolKey poolKey) {
+        return sharedConnections.compute(poolKey, (key, existing) -> {
+            SharedConnection shared = existing != null ? existing : new SharedConnection(key);
+            shared.references++;
+            return shared;
+        });
+    }
+
+    void release(SharedConnection sharedConnection) {
+        AtomicBoolean lastReference = new AtomicBoolean(false);
+        sharedConnections.computeIfPresent(sharedConnection.poolKey, (key, shared) -> {
+            if (shared != sharedConnection || --shared.references > 0) {
+                return shared;
+            }
+            lastReference.set(true);
+            return null;
+        });
+        if (lastReference.get()) {
+            LOGGER.debug("Last reference to shared connection for {} released", sharedConnection.poolKey);
+            sharedConnection.closePhysicalConnection();
+        }
+    }
+
+    /**
+     * @return the ping of the physical connection of the given key or {@code null} if there is no connected one.
+     */
+    CompletableFuture<Void> ping(PoolKey poolKey) {
+        SharedConnection sharedConnection = sharedConnections.get(poolKey);
+        PlcConnection connection = sharedConnection != null ? sharedConnection.connection : null;
+        if (connection == null || !connection.isConnected()) {
+            return null;
+        }
+        return connection.ping();
+    }
+
+    /**
+     * Replaces the physical connection of the given key if it's still referenced, otherwise only checks that a
+     * connection can be established.
+     */
+    CompletableFuture<Void> reconnect(PoolKey poolKey) {
+        SharedConnection sharedConnection = sharedConnections.get(poolKey);
+        if (sharedConnection == null) {
+            return connectionFactory.createAsync(poolKey).thenAccept(SharedPlcConnectionPool::closeQuietly);
+        }
+        PlcConnection current = sharedConnection.connection;
+        if (current != null) {
+            sharedConnection.invalidate(current);
+        }
+        return sharedConnection.ensureConnectedAsync().thenApply(connection -> null);
+    }
+
+    public Map<String, Number> getStatistics() {
+        HashMap<String, Number> statistics = new HashMap<>();
+        statistics.put("shared.count", sharedConnections.size());
+        for (SharedConnection sharedConnection : sharedConnections.values()) {
+            String prefix = sharedConnection.poolKey + ".";
+            statistics.put(prefix + "references", sharedConnection.references);
+            statistics.put(prefix + "inFlight", maxInFlightRequests - sharedConnection.permits.availablePermits());
+            statistics.put(prefix + "queued", sharedConnection.pendingRequests.size());
+            statistics.put(prefix + "executedRequests", sharedConnection.executedRequests.sum());
+            statistics.put(prefix + "connects", sharedConnection.connects.sum());
+            statistics.put(prefix + "connectionFailures", sharedConnection.connectionFailures.sum());
+        }
+        return statistics;
+    }
+
+    /**
+     * The physical connection of one {@link PoolKey}, shared by all logical connections of this key.
+     */
+    class SharedConnection {
+
+        private final PoolKey poolKey;
+
+        // Only modified inside the compute functions of sharedConnections
+        private volatile int references;
+
+        private volatile PlcConnection connection;
+
+        // When the current physical connection was established, guarded by this.
+        private long connectedAt;
+
+        // The pending connection attempt, guarded by this.
+        private CompletableFuture<PlcConnection> connecting;
+
+        // Set once the last reference has been released, guarded by this. Connections established afterwards are
+        // closed right away, as this instance has been removed from the pool.
+        private boolean closed;
+
+        private final Semaphore permits = new Semaphore(maxInFlightRequests);
+
+        private final Queue<Runnable> pendingRequests = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger drainRequests = new AtomicInteger();
+
+        private final LongAdder executedRequests = new LongAdder();
+
+        private final LongAdder connects = new LongAdder();
+
+        private final LongAdder connectionFailures = new LongAdder();
+
+        private SharedConnection(PoolKey poolKey) {
+            this.poolKey = poolKey;
+        }
+
+        boolean isConnected() {
+            PlcConnection current = connection;
+            return current != null && current.isConnected();
+        }
+
+        /**
+         * @return the current physical connection, which is (re-)established if it isn't connected.
+         */
+        PlcConnection ensureConnected() throws PlcConnectionException {
+            PlcConnection current = connection;
+            if (current != null && current.isConnected()) {
+                return current;
+            }
+            try {
+                return ensureConnectedAsync().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PlcConnectionException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof PlcConnectionException) {
+                    throw (PlcConnectionException) e.getCause();
+                }
+                throw new PlcConnectionException(e.getCause());
+            }
+        }
+
+        /**
+         * @return the current physical connection, which is (re-)established asynchronously if it isn't connected.
+         * Concurrent callers share the same connection attempt. Fails if the last reference has been released.
+         */
+        CompletableFuture<PlcConnection> ensureConnectedAsync() {
+            PlcConnection current = connection;
+            if (current != null && current.isConnected()) {
+                return CompletableFuture.completedFuture(current);
+            }
+            synchronized (this) {
+                current = connection;
+                if (current != null && current.isConnected()) {
+                    return CompletableFuture.completedFuture(current);
+                }
+                if (connecting != null) {
+                    return connecting;
+                }
+                if (closed) {
+                    return failedFuture(new PlcConnectionException("Shared connection for " + poolKey + " already closed"));
+                }
+                if (current != null) {
+                    LOGGER.info("Shared connection for {} got disconnected, reconnecting", poolKey);
+                    connection = null;
+                    destroy(current);
+                }
+                CompletableFuture<PlcConnection> connectFuture = connectionFactory.createAsync(poolKey)
+                    .whenComplete((newConnection, throwable) -> {
+                        synchronized (this) {
+                            connecting = null;
+                            if (newConnection != null && closed) {
+                                // Released while connecting, nobody would ever close it
+                                closeQuietly(newConnection);
+                            } else if (newConnection != null) {
+                                connects.increment();
+                                connection = newConnection;
+                                connectedAt = System.currentTimeMillis();
+                                metrics.connectionCreated(poolKey);
+                            }
+                        }
+                    });
+                // If connecting completed synchronously there is nothing to share.
+                if (!connectFuture.isDone()) {
+                    connecting = connectFuture;
+                }
+                return connectFuture;
+            }
+        }
+
+        /**
+         * Executes the request as soon as less than {@code maxInFlightRequests} requests are outstanding.
+         *
+         * @param builtOn the physical connection the request was built for.
+         */
+        <T> CompletableFuture<T> execute(PlcConnection builtOn, Supplier<CompletableFuture<? extends T>> request) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            pendingRequests.add(() -> {
+                CompletableFuture<? extends T> responseFuture;
+                try {
+                    responseFuture = request.get();
+                } catch (RuntimeException e) {
+                    responseFuture = failedFuture(e);
+                }
+                responseFuture.whenComplete((response, throwable) -> {
+                    executedRequests.increment();
+                    permits.release();
+                    drainPendingRequests();
+                    if (throwable != null) {
+                        if (isConnectionFailure(throwable)) {
+                            invalidate(builtOn);
+                        }
+                        future.completeExceptionally(throwable);
+                    } else {
+                        future.complete(response);
+                    }
+                });
+            });
+            drainPendingRequests();
+            return future;
+        }
+
+        private void drainPendingRequests() {
+            // Only one thread drains at a time, concurrent (or reentrant, if a response completes synchronously)
+            // calls just make the draining thread loop again, so no request is left behind in the queue.
+            if (drainRequests.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                while (!pendingRequests.isEmpty() && permits.tryAcquire()) {
+                    Runnable pendingRequest = pendingRequests.poll();
+                    if (pendingRequest == null) {
+                        permits.release();
+                        break;
+                    }
+                    pendingRequest.run();
+                }
+                missed = drainRequests.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private synchronized void invalidate(PlcConnection brokenConnection) {
+            if (connection != brokenConnection) {
+                // Already replaced by another failing request.
+                return;
+            }
+            LOGGER.warn("Shared connection for {} failed, will reconnect on next usage", poolKey);
+            connectionFailures.increment();
+            connection = null;
+            destroy(brokenConnection);
+        }
+
+        private synchronized void closePhysicalConnection() {
+            closed = true;
+            if (connection != null) {
+                destroy(connection);
+                connection = null;
+            }
+        }
+
+        // Only called while holding the lock of this
+        private void destroy(PlcConnection physicalConnection) {
+            if (metrics.isEnabled()) {
+                metrics.connectionDestroyed(poolKey, System.currentTimeMillis() - connectedAt);
+            }
+            closeQuietly(physicalConnection);
+        }
+
+        @Override
+        public String toString() {
+            return "SharedConnection{" +
+                "poolKey=" + poolKey +
+                ", references=" + references +
+                '}';
+        }
+    }
+
+    private static boolean isConnectionFailure(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PlcConnectionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(Throwable throwable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(throwable);
+        return future;
+    }
+
+    private static void closeQuietly(PlcConnection connection) {
+        try {
+            connection.close();
+        } catch (Exception e) {
+            LOGGER.debug("Error closing {}", connection, e);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.utils.connectionpool;
+
+import org.apache.commons.pool2.KeyedObjectPool;
+import org.apache.plc4x.java.api.PlcConnection;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the {@link PoolMetrics} per {@link PoolKey} in memory, lock-free on the borrow path.
+ */
+public class SimplePoolMetrics implements PoolMetrics {
+
+    private final ConcurrentMap<PoolKey, PoolKeyMetrics> metrics = new ConcurrentHashMap<>();
+
+    private volatile KeyedObjectPool<PoolKey, PlcConnection> keyedObjectPool;
+
+    @Override
+    public void bindTo(KeyedObjectPool<PoolKey, PlcConnection> keyedObjectPool) {
+        this.keyedObjectPool = keyedObjectPool;
+    }
+
+    @Override
+    public void connectionBorrowed(PoolKey poolKey, long waitNanos) {
+        metrics(poolKey).borrowWaitTimes.record(waitNanos);
+    }
+
+    @Override
+    public void connectionCreated(PoolKey poolKey) {
+        metrics(poolKey).created.increment();
+    }
+
+    @Override
+    public void connectionDestroyed(PoolKey poolKey, long ageMillis) {
+        metrics(poolKey).connectionAges.record(ageMillis);
+    }
+
+    @Override
+    public void validationFailed(PoolKey poolKey) {
+        metrics(poolKey).validationFailures.increment();
+    }
+
+    public PoolKeyMetricsMXBean getMetrics(PoolKey poolKey) {
+        return metrics(poolKey);
+    }
+
+    private PoolKeyMetrics metrics(PoolKey poolKey) {
+        PoolKeyMetrics poolKeyMetrics = metrics.get(poolKey);
+        if (poolKeyMetrics != null) {
+            return poolKeyMetrics;
+        }
+        return metrics.computeIfAbsent(poolKey, key -> {
+            PoolKeyMetrics newMetrics = new PoolKeyMetrics(key);
+            onNewPoolKey(key, newMetrics);
+            return newMetrics;
+        });
+    }
+
+    /**
+     * Called once for every {@link PoolKey} when its first event is recorded.
+     */
+    protected void onNewPoolKey(PoolKey poolKey, PoolKeyMetricsMXBean poolKeyMetrics) {
+    }
+
+    protected Map<PoolKey, ? extends PoolKeyMetricsMXBean> getAllMetrics() {
+        return metrics;
+    }
+
+    public Map<String, Number> getStatistics() {
+        HashMap<String, Number> statistics = new HashMap<>();
+        for (PoolKeyMetrics poolKeyMetrics : metrics.values()) {
+            String prefix = poolKeyMetrics.poolKey + ".";
+            statistics.put(prefix + "borrows", poolKeyMetrics.getBorrowCount());
+            statistics.put(prefix + "borrowWaitTimeMeanMicros", poolKeyMetrics.getBorrowWaitTimeMeanMicros());
+            statistics.put(prefix + "borrowWaitTime99thPercentileMicros", poolKeyMetrics.getBorrowWaitTime99thPercentileMicros());
+            statistics.put(prefix + "borrowWaitTimeMaxMicros", poolKeyMetrics.getBorrowWaitTimeMaxMicros());
+            statistics.put(prefix + "created", poolKeyMetrics.getCreatedCount());
+            statistics.put(prefix + "destroyed", poolKeyMetrics.getDestroyedCount());
+            statistics.put(prefix + "validationFailures", poolKeyMetrics.getValidationFailureCount());
+            statistics.put(prefix + "connectionAgeMeanMillis", poolKeyMetrics.getConnectionAgeMeanMillis());
+        }
+        return statistics;
+    }
+
+    private final class PoolKeyMetrics implements PoolKeyMetricsMXBean {
+
+        private final PoolKey poolKey;
+
+        private final LatencyHistogram borrowWaitTimes = new LatencyHistogram();
+
+        private final LatencyHistogram connectionAges = new LatencyHistogram();
+
+        private final LongAdder created = new LongAdder();
+
+        private final LongAdder validationFailures = new LongAdder();
+
+        private PoolKeyMetrics(PoolKey poolKey) {
+            this.poolKey = poolKey;
+        }
+
+        @Override
+        public String getPoolKey() {
+            return poolKey.toString();
+        }
+
+        @Override
+        public int getNumActive() {
+            KeyedObjectPool<PoolKey, PlcConnection> pool = keyedObjectPool;
+            return pool != null ? pool.getNumActive(poolKey) : 0;
+        }
+
+        @Override
+        public int getNumIdle() {
+            KeyedObjectPool<PoolKey, PlcConnection> pool = keyedObjectPool;
+            return pool != null ? pool.getNumIdle(poolKey) : 0;
+        }
+
+        @Override
+        public long getBorrowCount() {
+            return borrowWaitTimes.getCount();
+        }
+
+        @Override
+        public double getBorrowWaitTimeMeanMicros() {
+            return borrowWaitTimes.getMean() / 1000;
+        }
+
+        @Override
+        public long getBorrowWaitTime99thPercentileMicros() {
+            return TimeUnit.NANOSECONDS.toMicros(borrowWaitTimes.getPercentile(99));
+        }
+
+        @Override
+        public long getBorrowWaitTimeMaxMicros() {
+            return TimeUnit.NANOSECONDS.toMicros(borrowWaitTimes.getMax());
+        }
+
+        @Override
+        public long getCreatedCount() {
+            return created.sum();
+        }
+
+        @Override
+        public long getDestroyedCount() {
+            return connectionAges.getCount();
+        }
+
+        @Override
+        public long getValidationFailureCount() {
+            return validationFailures.sum();
+        }
+
+        @Override
+        public double getConnectionAgeMeanMillis() {
+            return connectionAges.getMean();
+        }
+
+        @Override
+        public long getConnectionAgeMaxMillis() {
+            return connectionAges.getMax();
+        }
+    }
+}
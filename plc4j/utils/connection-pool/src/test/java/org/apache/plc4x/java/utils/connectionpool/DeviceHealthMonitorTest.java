@@ -0,0 +1,122 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.utils.connectionpool;
+
+import org.apache.plc4x.java.api.PlcConnection;
+import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
+import org.apache.plc4x.java.api.exceptions.PlcUnsupportedOperationException;
+import org.assertj.core.api.WithAssertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DeviceHealthMonitorTest implements WithAssertions {
+
+    private static final PoolKey POOL_KEY = new PoolKey("dummydummy:health", PooledPlcDriverManager.noPlcAuthentication) {
+        @Override
+        public String getPoolableKey() {
+            return url;
+        }
+    };
+
+    private final DeviceHealthMonitor SUT = new DeviceHealthMonitor(60_000, 100, 2, 10, 40);
+
+    @AfterEach
+    void tearDown() {
+        SUT.close();
+    }
+
+    @Test
+    void borrowsFailFastAfterConsecutiveFailures() throws Exception {
+        SUT.checkAvailable(POOL_KEY);
+
+        SUT.onFailure(POOL_KEY, new PlcConnectionException("unreachable"));
+        SUT.checkAvailable(POOL_KEY);
+
+        SUT.onFailure(POOL_KEY, new PlcConnectionException("unreachable"));
+        assertThat(SUT.getState(POOL_KEY)).isEqualTo(DeviceHealthMonitor.State.DOWN);
+        assertThatThrownBy(() -> SUT.checkAvailable(POOL_KEY)).isInstanceOf(PlcConnectionException.class);
+        assertThat(SUT.getStatistics()).contains(
+            entry(POOL_KEY + ".health.consecutiveFailures", 2),
+            entry(POOL_KEY + ".health.rejectedBorrows", 1L)
+        );
+    }
+
+    @Test
+    void reconnectsInBackgroundWithBackoff() throws Exception {
+        AtomicInteger reconnects = new AtomicInteger();
+        AtomicBoolean reachable = new AtomicBoolean(false);
+        SUT.start(new DeviceHealthMonitor.Prober() {
+            @Override
+            public CompletableFuture<Void> ping(PoolKey poolKey) {
+                return null;
+            }
+
+            @Override
+            public CompletableFuture<Void> reconnect(PoolKey poolKey) {
+                reconnects.incrementAndGet();
+                CompletableFuture<Void> future = new CompletableFuture<>();
+                if (reachable.get()) {
+                    future.complete(null);
+                } else {
+                    future.completeExceptionally(new PlcConnectionException("unreachable"));
+                }
+                return future;
+            }
+        });
+        SUT.onFailure(POOL_KEY, new PlcConnectionException("unreachable"));
+        SUT.onFailure(POOL_KEY, new PlcConnectionException("unreachable"));
+
+        Thread.sleep(200);
+        // With a backoff of 10, 20, 40, 40... ms there are only a few attempts
+        assertThat(reconnects.get()).isBetween(1, 8);
+        assertThat(SUT.getState(POOL_KEY)).isNotEqualTo(DeviceHealthMonitor.State.UP);
+
+        reachable.set(true);
+        Thread.sleep(200);
+        assertThat(SUT.getState(POOL_KEY)).isEqualTo(DeviceHealthMonitor.State.UP);
+        SUT.checkAvailable(POOL_KEY);
+    }
+
+    @Test
+    void validatePingsConnection() throws Exception {
+        DeviceHealthMonitor monitor = new DeviceHealthMonitor(1, 100, 1, 10, 40);
+        PlcConnection connection = mock(PlcConnection.class);
+
+        when(connection.ping()).thenReturn(CompletableFuture.completedFuture(null));
+        assertThat(monitor.validate(POOL_KEY, connection)).isTrue();
+
+        CompletableFuture<Void> unsupported = new CompletableFuture<>();
+        unsupported.completeExceptionally(new PlcUnsupportedOperationException("no ping"));
+        when(connection.ping()).thenReturn(unsupported);
+        // Wait for the ping interval to elapse
+        Thread.sleep(5);
+        assertThat(monitor.validate(POOL_KEY, connection)).isTrue();
+
+        when(connection.ping()).thenReturn(new CompletableFuture<>());
+        Thread.sleep(5);
+        assertThat(monitor.validate(POOL_KEY, connection)).isFalse();
+        assertThat(monitor.getState(POOL_KEY)).isEqualTo(DeviceHealthMonitor.State.DOWN);
+    }
+}
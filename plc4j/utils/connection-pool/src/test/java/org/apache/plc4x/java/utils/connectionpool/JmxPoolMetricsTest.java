@@ -0,0 +1,114 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.utils.connectionpool;
+
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.apache.plc4x.java.api.PlcConnection;
+import org.apache.plc4x.java.spi.PlcDriver;
+import org.assertj.core.api.WithAssertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JmxPoolMetricsTest implements WithAssertions {
+
+    private final MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+
+    private final JmxPoolMetrics metrics = new JmxPoolMetrics(mBeanServer, "test");
+
+    private PooledPlcDriverManager SUT;
+
+    @Mock
+    PlcDriver plcDriver;
+
+    @SuppressWarnings("unchecked")
+    @BeforeEach
+    void setUp() throws Exception {
+        SUT = new PooledPlcDriverManager(getClass().getClassLoader(), new PoolKeyFactory(),
+            PooledPlcDriverManager.Mode.EXCLUSIVE, PooledPlcDriverManager.DEFAULT_MAX_IN_FLIGHT_REQUESTS, null, metrics);
+        Map<String, PlcDriver> driverMap = (Map) FieldUtils.getField(PooledPlcDriverManager.class, "driverMap", true).get(SUT);
+        driverMap.put("dummydummy", plcDriver);
+        lenient().when(plcDriver.connect(anyString())).then(invocation -> {
+            PlcConnection connection = mock(PlcConnection.class);
+            lenient().when(connection.isConnected()).thenReturn(true);
+            lenient().when(connection.connectAsync()).thenReturn(CompletableFuture.completedFuture(null));
+            return connection;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        metrics.close();
+    }
+
+    @Test
+    void borrowsAreExportedPerPoolKey() throws Exception {
+        PlcConnection first = SUT.getConnection("dummydummy:metrics");
+        PlcConnection second = SUT.getConnection("dummydummy:metrics");
+        first.close();
+        second.close();
+        SUT.getConnection("dummydummy:metrics").close();
+
+        ObjectName objectName = new ObjectName(JmxPoolMetrics.DOMAIN + ":type=PoolKeyMetrics,name=\"test\",poolKey=\"dummydummy:metrics\"");
+        assertThat(mBeanServer.isRegistered(objectName)).isTrue();
+        assertThat(mBeanServer.getAttribute(objectName, "BorrowCount")).isEqualTo(3L);
+        assertThat(mBeanServer.getAttribute(objectName, "CreatedCount")).isEqualTo(2L);
+        assertThat(mBeanServer.getAttribute(objectName, "NumIdle")).isEqualTo(2);
+        assertThat(mBeanServer.getAttribute(objectName, "NumActive")).isEqualTo(0);
+        assertThat(SUT.getStatistics()).contains(
+            entry("pools.count", 1),
+            entry("PoolKey{url='dummydummy:metrics'}.borrows", 3L)
+        );
+
+        metrics.close();
+        assertThat(mBeanServer.isRegistered(objectName)).isFalse();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void sharedBorrowsAreExported() throws Exception {
+        SUT = new PooledPlcDriverManager(getClass().getClassLoader(), new PoolKeyFactory(),
+            PooledPlcDriverManager.Mode.SHARED, PooledPlcDriverManager.DEFAULT_MAX_IN_FLIGHT_REQUESTS, null, metrics);
+        Map<String, PlcDriver> driverMap = (Map) FieldUtils.getField(PooledPlcDriverManager.class, "driverMap", true).get(SUT);
+        driverMap.put("dummydummy", plcDriver);
+
+        PlcConnection first = SUT.getConnection("dummydummy:shared");
+        PlcConnection second = SUT.getConnection("dummydummy:shared");
+        first.close();
+        second.close();
+
+        ObjectName objectName = new ObjectName(JmxPoolMetrics.DOMAIN + ":type=PoolKeyMetrics,name=\"test\",poolKey=\"dummydummy:shared\"");
+        assertThat(mBeanServer.getAttribute(objectName, "BorrowCount")).isEqualTo(2L);
+        assertThat(mBeanServer.getAttribute(objectName, "CreatedCount")).isEqualTo(1L);
+        // The physical connection is closed with the last logical one
+        assertThat(mBeanServer.getAttribute(objectName, "DestroyedCount")).isEqualTo(1L);
+    }
+}
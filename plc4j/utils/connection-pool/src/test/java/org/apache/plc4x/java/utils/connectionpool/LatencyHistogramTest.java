@@ -0,0 +1,60 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.utils.connectionpool;
+
+import org.assertj.core.api.WithAssertions;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest implements WithAssertions {
+
+    private final LatencyHistogram SUT = new LatencyHistogram();
+
+    @Test
+    void percentilesWithinPrecision() {
+        for (int i = 1; i <= 1000; i++) {
+            SUT.record(i * 1_000L);
+        }
+        assertThat(SUT.getCount()).isEqualTo(1000);
+        assertThat(SUT.getMean()).isEqualTo(500_500.0);
+        assertThat(SUT.getMax()).isEqualTo(1_000_000);
+        assertThat(SUT.getPercentile(50)).isBetween(500_000L, 500_000L * 17 / 16);
+        assertThat(SUT.getPercentile(99)).isBetween(990_000L, 1_000_000L);
+        assertThat(SUT.getPercentile(100)).isEqualTo(1_000_000);
+    }
+
+    @Test
+    void percentageAbove() {
+        for (int i = 0; i < 10; i++) {
+            SUT.record(i);
+        }
+        SUT.record(1_000_000);
+        assertThat(SUT.getPercentageAbove(100)).isCloseTo(100.0 / 11, within(1e-9));
+        assertThat(new LatencyHistogram().getPercentageAbove(100)).isZero();
+    }
+
+    @Test
+    void bucketsCoverAllValues() {
+        for (long value : new long[]{0, 1, 15, 16, 17, 1023, 1024, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucketIndex(value);
+            assertThat(LatencyHistogram.upperBound(bucket)).isGreaterThanOrEqualTo(value);
+            if (bucket > 0) {
+                assertThat(LatencyHistogram.upperBound(bucket - 1)).isLessThan(value);
+            }
+        }
+    }
+}
@@ -19,11 +19,15 @@
 
 package org.apache.plc4x.java.utils.connectionpool;
 
+import org.apache.plc4x.java.api.authentication.PlcUsernamePasswordAuthentication;
+import org.apache.plc4x.java.spi.PlcDriver;
 import org.assertj.core.api.WithAssertions;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import static org.mockito.Mockito.*;
+
 class PoolKeyFactoryTest implements WithAssertions {
 
     private PoolKeyFactory SUT = new PoolKeyFactory();
@@ -89,5 +93,35 @@ class PoolKeyFactoryTest implements WithAssertions {
         }
     }
 
+    @Nested
+    class DriverContributed {
+        @Test
+        void getPoolKey() throws Exception {
+            PlcDriver driver = mock(PlcDriver.class);
+            when(driver.getPoolableKey("dummy:host/1?option=1")).thenReturn("dummy:host");
+
+            PoolKey poolKey = SUT.getPoolKey("dummy:host/1?option=1", PooledPlcDriverManager.noPlcAuthentication,
+                protocolCode -> "dummy".equals(protocolCode) ? driver : null);
+            assertThat(poolKey.getUrl()).isEqualTo("dummy:host/1?option=1");
+            assertThat(poolKey.getPoolableKey()).isEqualTo("dummy:host");
+        }
+    }
+
+    @Nested
+    class Caching {
+        @Test
+        void getPoolKey() throws Exception {
+            PlcDriver driver = mock(PlcDriver.class);
+            when(driver.getPoolableKey("dummy:host?option=1")).thenReturn("dummy:host");
 
-}
\ No newline at end of file
+            PoolKey first = SUT.getPoolKey("dummy:host?option=1", PooledPlcDriverManager.noPlcAuthentication, protocolCode -> driver);
+            PoolKey second = SUT.getPoolKey("dummy:host?option=1", PooledPlcDriverManager.noPlcAuthentication, protocolCode -> driver);
+            PoolKey authenticated = SUT.getPoolKey("dummy:host?option=1", new PlcUsernamePasswordAuthentication("user", "password"), protocolCode -> driver);
+
+            assertThat(second).isSameAs(first);
+            assertThat(authenticated.getPoolableKey()).isEqualTo("dummy:host");
+            assertThat(authenticated).isNotEqualTo(first);
+            verify(driver, times(1)).getPoolableKey(anyString());
+        }
+    }
+}
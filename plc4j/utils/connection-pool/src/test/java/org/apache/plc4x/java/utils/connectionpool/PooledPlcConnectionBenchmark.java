@@ -0,0 +1,119 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.utils.connectionpool;
+
+import org.apache.commons.pool2.KeyedObjectPool;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPool;
+import org.apache.plc4x.java.api.PlcConnection;
+import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Compares the per call overhead of the {@link PooledPlcConnection} with the formerly used reflective
+ * {@link Proxy} around a pooled connection.
+ */
+public class PooledPlcConnectionBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class PooledConnections {
+
+        PlcConnection reflectiveProxy;
+
+        PlcConnection pooledPlcConnection;
+
+        @Setup(Level.Trial)
+        public void doSetup() throws Exception {
+            PoolKey poolKey = new PoolKeyFactory().getPoolKey("benchmark:device", PooledPlcDriverManager.noPlcAuthentication);
+            KeyedObjectPool<PoolKey, PlcConnection> keyedObjectPool = new GenericKeyedObjectPool<>(new PooledPlcConnectionFactory() {
+                @Override
+                public PlcConnection create(PoolKey key) {
+                    return mock(PlcConnection.class, RETURNS_DEEP_STUBS);
+                }
+            });
+            reflectiveProxy = reflectiveProxy(keyedObjectPool, poolKey, keyedObjectPool.borrowObject(poolKey));
+            pooledPlcConnection = new PooledPlcConnection(keyedObjectPool, poolKey, keyedObjectPool.borrowObject(poolKey));
+        }
+    }
+
+    @Benchmark
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void reflectiveProxy(Blackhole blackhole, PooledConnections pooledConnections) {
+        blackhole.consume(pooledConnections.reflectiveProxy.isConnected());
+        blackhole.consume(pooledConnections.reflectiveProxy.readRequestBuilder());
+    }
+
+    @Benchmark
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void pooledPlcConnection(Blackhole blackhole, PooledConnections pooledConnections) {
+        blackhole.consume(pooledConnections.pooledPlcConnection.isConnected());
+        blackhole.consume(pooledConnections.pooledPlcConnection.readRequestBuilder());
+    }
+
+    /**
+     * The proxy as it was created by the {@link PooledPlcDriverManager} before the {@link PooledPlcConnection}.
+     */
+    private static PlcConnection reflectiveProxy(KeyedObjectPool<PoolKey, PlcConnection> keyedObjectPool, PoolKey poolKey, PlcConnection plcConnection) {
+        AtomicBoolean proxyInvalidated = new AtomicBoolean(false);
+        return (PlcConnection) Proxy.newProxyInstance(PooledPlcConnectionBenchmark.class.getClassLoader(), new Class[]{PlcConnection.class}, (proxy, method, args) -> {
+            if (proxyInvalidated.get()) {
+                throw new IllegalStateException("Proxy not valid anymore");
+            }
+            if ("close".equals(method.getName())) {
+                proxyInvalidated.set(true);
+                keyedObjectPool.returnObject(poolKey, plcConnection);
+                return null;
+            } else {
+                try {
+                    return method.invoke(plcConnection, args);
+                } catch (InvocationTargetException e) {
+                    if (e.getCause().getClass() == PlcConnectionException.class) {
+                        keyedObjectPool.invalidateObject(poolKey, plcConnection);
+                        proxyInvalidated.set(true);
+                    }
+                    throw e;
+                }
+            }
+        });
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+            .include(PooledPlcConnectionBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+
+}
@@ -255,9 +255,7 @@ class PooledPlcDriverManagerTest implements WithAssertions {
             connection.connect();
             fail("This should throw an exception");
         } catch (Exception e) {
-            // TODO: currently UndeclaredThrowableException is the top one which should be InvocationTargetException
-            //assertThat(e).isInstanceOf(InvocationTargetException.class);
-            assertThat(e).hasRootCauseInstanceOf(PlcConnectionException.class);
+            assertThat(e).isInstanceOf(PlcConnectionException.class);
         }
         // Faulty connection should have been discarded
         assertThat(SUT.getStatistics()).containsOnly(
@@ -267,6 +265,101 @@ class PooledPlcDriverManagerTest implements WithAssertions {
         );
     }
 
+    @Test
+    void getConnectionAsync() throws Exception {
+        when(plcDriver.connect(anyString())).then(invocationOnMock -> new DummyPlcConnection(invocationOnMock.getArgument(0)));
+
+        PlcConnection connection = SUT.getConnectionAsync("dummydummy:async").get(1, TimeUnit.SECONDS);
+        assertThat(connection).isInstanceOf(PooledPlcConnection.class);
+        assertThat(SUT.getStatistics()).contains(entry("PoolKey{url='dummydummy:async'}.numActive", 1));
+        connection.close();
+
+        // The idle connection is handed out again without connecting.
+        SUT.getConnectionAsync("dummydummy:async").get(1, TimeUnit.SECONDS).close();
+        verify(plcDriver, times(1)).connect(anyString());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void getConnectionAsyncWaitsForReturnedConnection() throws Exception {
+        when(plcDriver.connect(anyString())).then(invocationOnMock -> new DummyPlcConnection(invocationOnMock.getArgument(0)));
+        GenericKeyedObjectPool<PoolKey, PlcConnection> pool = (GenericKeyedObjectPool<PoolKey, PlcConnection>) FieldUtils.readField(SUT, "keyedObjectPool", true);
+        pool.setMaxTotalPerKey(1);
+
+        PlcConnection connection = SUT.getConnectionAsync("dummydummy:exhausted").get(1, TimeUnit.SECONDS);
+        CompletableFuture<PlcConnection> waiting = SUT.getConnectionAsync("dummydummy:exhausted");
+        Thread.sleep(50);
+        assertThat(waiting).isNotDone();
+        connection.close();
+
+        waiting.get(1, TimeUnit.SECONDS).close();
+        verify(plcDriver, times(1)).connect(anyString());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void exhaustedKeysDoNotStarveOtherKeys() throws Exception {
+        when(plcDriver.connect(anyString())).then(invocationOnMock -> new DummyPlcConnection(invocationOnMock.getArgument(0)));
+        GenericKeyedObjectPool<PoolKey, PlcConnection> pool = (GenericKeyedObjectPool<PoolKey, PlcConnection>) FieldUtils.readField(SUT, "keyedObjectPool", true);
+        pool.setMaxTotalPerKey(1);
+
+        // More waiting borrows than a fixed pool of borrow threads could take
+        List<PlcConnection> borrowed = new LinkedList<>();
+        List<CompletableFuture<PlcConnection>> waiting = new LinkedList<>();
+        for (int i = 0; i < 10; i++) {
+            borrowed.add(SUT.getConnectionAsync("dummydummy:exhausted" + i).get(1, TimeUnit.SECONDS));
+            waiting.add(SUT.getConnectionAsync("dummydummy:exhausted" + i));
+        }
+
+        SUT.getConnectionAsync("dummydummy:other").get(1, TimeUnit.SECONDS).close();
+        assertThat(waiting).noneMatch(CompletableFuture::isDone);
+        // The last key is served although the borrows of all other keys still wait
+        borrowed.get(9).close();
+        waiting.get(9).get(1, TimeUnit.SECONDS).close();
+        assertThat(waiting.subList(0, 9)).noneMatch(CompletableFuture::isDone);
+        for (int i = 0; i < 9; i++) {
+            borrowed.get(i).close();
+            waiting.get(i).get(1, TimeUnit.SECONDS).close();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void getConnectionAsyncTimesOutAfterMaxWait() throws Exception {
+        when(plcDriver.connect(anyString())).then(invocationOnMock -> new DummyPlcConnection(invocationOnMock.getArgument(0)));
+        GenericKeyedObjectPool<PoolKey, PlcConnection> pool = (GenericKeyedObjectPool<PoolKey, PlcConnection>) FieldUtils.readField(SUT, "keyedObjectPool", true);
+        pool.setMaxTotalPerKey(1);
+        pool.setMaxWaitMillis(50);
+
+        PlcConnection connection = SUT.getConnectionAsync("dummydummy:exhausted").get(1, TimeUnit.SECONDS);
+        CompletableFuture<PlcConnection> waiting = SUT.getConnectionAsync("dummydummy:exhausted");
+
+        assertThatThrownBy(() -> waiting.get(1, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasCauseInstanceOf(PlcConnectionException.class);
+        connection.close();
+        // The returned connection isn't handed to the timed out borrow
+        assertThat(SUT.getStatistics()).contains(entry("PoolKey{url='dummydummy:exhausted'}.numActive", 0));
+    }
+
+    @Test
+    void getConnectionAsyncFailure() throws Exception {
+        when(plcDriver.connect(anyString())).thenThrow(new PlcConnectionException("unreachable"));
+
+        CompletableFuture<PlcConnection> future = SUT.getConnectionAsync("dummydummy:unreachable");
+        assertThatThrownBy(() -> future.get(1, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasRootCauseInstanceOf(PlcConnectionException.class);
+    }
+
+    @Test
+    void sharedModeCreatesNoKeyedPool() throws Exception {
+        PooledPlcDriverManager shared = new PooledPlcDriverManager(PooledPlcDriverManager.Mode.SHARED);
+
+        assertThat(FieldUtils.readField(shared, "keyedObjectPool", true)).isNull();
+        assertThat(shared.getStatistics()).containsOnly(entry("shared.count", 0));
+    }
+
     @Test
     public void testOtherConstructors() {
         assertThat(new PooledPlcDriverManager()).isNotNull();
@@ -0,0 +1,85 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.utils.connectionpool;
+
+import org.apache.plc4x.java.api.PlcConnection;
+import org.apache.plc4x.java.api.messages.PlcReadRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the exclusive and the shared mode of the {@link PooledPlcDriverManager} with 64 threads concurrently
+ * reading from the same simulated device, each borrowing a connection per read.
+ */
+public class SharedConnectionContentionBenchmark {
+
+    private static final int NUM_THREADS = 64;
+
+    private static final int NUM_READS_PER_THREAD = 10000;
+
+    private static final String URL = "test:benchmark";
+
+    public static void main(String[] args) throws Exception {
+        for (PooledPlcDriverManager.Mode mode : PooledPlcDriverManager.Mode.values()) {
+            PooledPlcDriverManager driverManager = new PooledPlcDriverManager(mode);
+            // Warm up
+            run(driverManager, NUM_READS_PER_THREAD / 10);
+
+            long start = System.nanoTime();
+            run(driverManager, NUM_READS_PER_THREAD);
+            long duration = System.nanoTime() - start;
+
+            int numReads = NUM_THREADS * NUM_READS_PER_THREAD;
+            System.out.println(mode + ": " + numReads + " reads with " + NUM_THREADS + " threads in "
+                + TimeUnit.NANOSECONDS.toMillis(duration) + "ms");
+            System.out.println("That's " + ((float) duration / numReads / 1000) + "us per read");
+            System.out.println("Statistics: " + driverManager.getStatistics());
+        }
+    }
+
+    private static void run(PooledPlcDriverManager driverManager, int numReads) throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(NUM_THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < NUM_THREADS; i++) {
+                futures.add(executorService.submit(() -> {
+                    for (int j = 0; j < numReads; j++) {
+                        try (PlcConnection connection = driverManager.getConnection(URL)) {
+                            PlcReadRequest readRequest = connection.readRequestBuilder()
+                                .addItem("value", "RANDOM/value:INTEGER")
+                                .build();
+                            readRequest.execute().get();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,231 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.utils.connectionpool;
+
+import org.apache.plc4x.java.api.PlcConnection;
+import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
+import org.apache.plc4x.java.api.messages.PlcReadRequest;
+import org.apache.plc4x.java.api.messages.PlcReadResponse;
+import org.assertj.core.api.WithAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SharedPlcConnectionPoolTest implements WithAssertions {
+
+    private static final PoolKey POOL_KEY = new PoolKey("dummydummy:single", PooledPlcDriverManager.noPlcAuthentication) {
+        @Override
+        public String getPoolableKey() {
+            return url;
+        }
+    };
+
+    private SharedPlcConnectionPool SUT;
+
+    private final List<PlcConnection> physicalConnections = new ArrayList<>();
+
+    private final List<CompletableFuture<PlcReadResponse>> responses = new ArrayList<>();
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    PlcReadResponse readResponse;
+
+    @BeforeEach
+    void setUp() {
+        SUT = new SharedPlcConnectionPool(new PooledPlcConnectionFactory() {
+            @Override
+            public PlcConnection create(PoolKey key) {
+                PlcConnection connection = mock(PlcConnection.class, RETURNS_DEEP_STUBS);
+                lenient().when(connection.isConnected()).thenReturn(true);
+                PlcReadRequest readRequest = mock(PlcReadRequest.class);
+                lenient().doAnswer(invocation -> {
+                    CompletableFuture<PlcReadResponse> response = new CompletableFuture<>();
+                    responses.add(response);
+                    return response;
+                }).when(readRequest).execute();
+                lenient().when(connection.readRequestBuilder().build()).thenReturn(readRequest);
+                physicalConnections.add(connection);
+                return connection;
+            }
+        }, 2);
+    }
+
+    @Test
+    void physicalConnectionIsSharedAndReferenceCounted() throws Exception {
+        PlcConnection first = SUT.getConnection(POOL_KEY);
+        PlcConnection second = SUT.getConnection(POOL_KEY);
+
+        assertThat(physicalConnections).hasSize(1);
+        assertThat(SUT.getStatistics()).contains(
+            entry("shared.count", 1),
+            entry(POOL_KEY + ".references", 2)
+        );
+
+        first.close();
+        assertThatThrownBy(first::getMetadata).isInstanceOf(IllegalStateException.class);
+        assertThat(second.isConnected()).isTrue();
+        verify(physicalConnections.get(0), never()).close();
+
+        second.close();
+        verify(physicalConnections.get(0)).close();
+        assertThat(SUT.getStatistics()).containsOnly(entry("shared.count", 0));
+    }
+
+    @Test
+    void concurrentAsyncConnectsShareOneAttempt() throws Exception {
+        CompletableFuture<PlcConnection> pendingConnect = new CompletableFuture<>();
+        SUT = new SharedPlcConnectionPool(new PooledPlcConnectionFactory() {
+            @Override
+            public PlcConnection create(PoolKey key) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public CompletableFuture<PlcConnection> createAsync(PoolKey key) {
+                return pendingConnect;
+            }
+        }, 2);
+
+        CompletableFuture<PlcConnection> first = SUT.getConnectionAsync(POOL_KEY);
+        CompletableFuture<PlcConnection> second = SUT.getConnectionAsync(POOL_KEY);
+        assertThat(first).isNotDone();
+        assertThat(second).isNotDone();
+
+        PlcConnection physicalConnection = mock(PlcConnection.class);
+        when(physicalConnection.isConnected()).thenReturn(true);
+        pendingConnect.complete(physicalConnection);
+
+        assertThat(first.getNow(null).isConnected()).isTrue();
+        assertThat(second.getNow(null).isConnected()).isTrue();
+        assertThat(SUT.getStatistics()).contains(
+            entry(POOL_KEY + ".references", 2),
+            entry(POOL_KEY + ".connects", 1L)
+        );
+    }
+
+    @Test
+    void connectionCompletingAfterReleaseIsClosed() throws Exception {
+        PlcConnection firstConnection = mock(PlcConnection.class);
+        lenient().when(firstConnection.isConnected()).thenReturn(true);
+        CompletableFuture<PlcConnection> pendingReconnect = new CompletableFuture<>();
+        List<CompletableFuture<PlcConnection>> connects = new ArrayList<>();
+        connects.add(CompletableFuture.completedFuture(firstConnection));
+        connects.add(pendingReconnect);
+        SUT = new SharedPlcConnectionPool(new PooledPlcConnectionFactory() {
+            @Override
+            public PlcConnection create(PoolKey key) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public CompletableFuture<PlcConnection> createAsync(PoolKey key) {
+                return connects.remove(0);
+            }
+        }, 2);
+
+        PlcConnection connection = SUT.getConnectionAsync(POOL_KEY).get();
+        CompletableFuture<Void> reconnect = SUT.reconnect(POOL_KEY);
+        connection.close();
+
+        PlcConnection lateConnection = mock(PlcConnection.class);
+        pendingReconnect.complete(lateConnection);
+
+        assertThat(reconnect).isDone();
+        verify(firstConnection).close();
+        verify(lateConnection).close();
+        assertThat(SUT.getStatistics()).containsOnly(entry("shared.count", 0));
+    }
+
+    @Test
+    void failedAsyncConnectReleasesReference() {
+        CompletableFuture<PlcConnection> failedConnect = new CompletableFuture<>();
+        failedConnect.completeExceptionally(new PlcConnectionException("unreachable"));
+        SUT = new SharedPlcConnectionPool(new PooledPlcConnectionFactory() {
+            @Override
+            public PlcConnection create(PoolKey key) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public CompletableFuture<PlcConnection> createAsync(PoolKey key) {
+                return failedConnect;
+            }
+        }, 2);
+
+        assertThat(SUT.getConnectionAsync(POOL_KEY)).isCompletedExceptionally();
+        assertThat(SUT.getStatistics()).containsOnly(entry("shared.count", 0));
+    }
+
+    @Test
+    void inFlightRequestsAreLimited() throws Exception {
+        PlcConnection connection = SUT.getConnection(POOL_KEY);
+
+        List<CompletableFuture<? extends PlcReadResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(connection.readRequestBuilder().build().execute());
+        }
+
+        assertThat(responses).hasSize(2);
+        assertThat(SUT.getStatistics()).contains(
+            entry(POOL_KEY + ".inFlight", 2),
+            entry(POOL_KEY + ".queued", 1)
+        );
+
+        responses.get(0).complete(readResponse);
+        assertThat((Object) futures.get(0).getNow(null)).isSameAs(readResponse);
+        assertThat(responses).hasSize(3);
+
+        responses.get(1).complete(readResponse);
+        responses.get(2).complete(readResponse);
+        assertThat(futures).allMatch(future -> future.isDone() && !future.isCompletedExceptionally());
+        assertThat(SUT.getStatistics()).contains(
+            entry(POOL_KEY + ".inFlight", 0),
+            entry(POOL_KEY + ".executedRequests", 3L)
+        );
+    }
+
+    @Test
+    void reconnectAfterConnectionFailure() throws Exception {
+        PlcConnection connection = SUT.getConnection(POOL_KEY);
+
+        CompletableFuture<? extends PlcReadResponse> failed = connection.readRequestBuilder().build().execute();
+        responses.get(0).completeExceptionally(new PlcConnectionException("broken"));
+
+        assertThat(failed).isCompletedExceptionally();
+        verify(physicalConnections.get(0)).close();
+
+        CompletableFuture<? extends PlcReadResponse> succeeded = connection.readRequestBuilder().build().execute();
+        responses.get(1).complete(readResponse);
+
+        assertThat((Object) succeeded.getNow(null)).isSameAs(readResponse);
+        assertThat(physicalConnections).hasSize(2);
+        assertThat(SUT.getStatistics()).contains(
+            entry(POOL_KEY + ".connects", 2L),
+            entry(POOL_KEY + ".connectionFailures", 1L)
+        );
+    }
+}
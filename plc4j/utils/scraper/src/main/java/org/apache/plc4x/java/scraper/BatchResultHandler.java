@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.plc4x.java.scraper;
+
+import java.util.List;
+
+/**
+ * Callback interface to handle the results of many runs of {@link ScraperTask}s at once, e.g. to write them to a sink
+ * in a single round trip. Use a {@link BatchingResultHandler} to pass it to a scraper.
+ */
+@FunctionalInterface
+public interface BatchResultHandler {
+
+    /**
+     * Callback handler.
+     * @param results Results in the order they have been received, the list must not be modified
+     */
+    void handle(List<ScrapeResult> results);
+
+}
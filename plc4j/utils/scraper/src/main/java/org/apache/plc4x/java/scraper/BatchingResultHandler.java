@@ -0,0 +1,348 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.plc4x.java.scraper;
+
+import org.apache.plc4x.java.utils.connectionpool.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link ResultHandler} that passes the results in batches to a {@link BatchResultHandler} on a single thread.
+ * <p>
+ * Results are buffered in a bounded queue, so a slow sink can't exhaust the memory. A batch is handed over when
+ * {@code batchSize} results are available or {@code lingerMs} after its first result was received, whatever comes first.
+ * When the queue is full, the {@link OverflowPolicy} decides what happens to further results.
+ * <p>
+ * Results are accepted without ever blocking the scraper by {@link #handleAsync(String, String, Map, Executor)}, so
+ * they can be handed over directly on the I/O threads of the drivers.
+ */
+public class BatchingResultHandler implements ResultHandler, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchingResultHandler.class);
+
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    public static final long DEFAULT_LINGER_MS = 100;
+
+    public static final int DEFAULT_SAMPLE_RATE = 10;
+
+    private static final long POLL_INTERVAL_MS = 100;
+
+    public enum OverflowPolicy {
+        /**
+         * Results that don't fit into the queue are dropped.
+         */
+        DROP,
+        /**
+         * Results wait until there is space in the queue, so scrapes overrun and are skipped instead. Only
+         * {@link #handle(String, String, Map)} blocks the calling thread, {@link #handleAsync(String, String, Map, Executor)}
+         * completes its future once the result is queued.
+         */
+        BLOCK,
+        /**
+         * Once the queue is three quarters full, only every n-th result is accepted, results that don't fit into the
+         * queue are dropped. This thins out the results of all jobs evenly instead of dropping the latest ones.
+         */
+        SAMPLE
+    }
+
+    private final BatchResultHandler batchResultHandler;
+
+    private final BlockingQueue<QueuedResult> queue;
+
+    // Results of handleAsync waiting for space in the queue, at most one per job and connection
+    private final Queue<PendingResult> pending = new ConcurrentLinkedQueue<>();
+
+    private final int capacity;
+
+    private final int batchSize;
+
+    private final long lingerNanos;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final int sampleRate;
+
+    private final Thread consumer;
+
+    private volatile boolean running = true;
+
+    private final AtomicLong sampleCounter = new AtomicLong();
+
+    private final LongAdder enqueued = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder handlerFailures = new LongAdder();
+
+    // Batch sizes and latencies in ns
+    private final LatencyHistogram batchSizes = new LatencyHistogram();
+
+    private final LatencyHistogram queueLatencies = new LatencyHistogram();
+
+    private final LatencyHistogram handlerLatencies = new LatencyHistogram();
+
+    private final LatencyHistogram blockedLatencies = new LatencyHistogram();
+
+    public BatchingResultHandler(BatchResultHandler batchResultHandler) {
+        this(batchResultHandler, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_LINGER_MS, OverflowPolicy.DROP, DEFAULT_SAMPLE_RATE);
+    }
+
+    /**
+     * @param capacity   maximum number of queued results.
+     * @param batchSize  maximum number of results per batch.
+     * @param lingerMs   maximum time to wait for a batch to fill up.
+     * @param sampleRate only every n-th result is accepted by {@link OverflowPolicy#SAMPLE} when the queue fills up.
+     */
+    public BatchingResultHandler(BatchResultHandler batchResultHandler, int capacity, int batchSize, long lingerMs, OverflowPolicy overflowPolicy, int sampleRate) {
+        if (capacity < 1 || batchSize < 1 || sampleRate < 1) {
+            throw new IllegalArgumentException("capacity, batchSize and sampleRate must be positive");
+        }
+        this.batchResultHandler = batchResultHandler;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        this.overflowPolicy = overflowPolicy;
+        this.sampleRate = sampleRate;
+        this.consumer = new Thread(this::consume, "scraper-batching-result-handler");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    @Override
+    public void handle(String job, String alias, Map<String, Object> results) {
+        QueuedResult queuedResult = new QueuedResult(new ScrapeResult(job, alias, results, System.currentTimeMillis()));
+        if (!running) {
+            dropped.increment();
+            return;
+        }
+        switch (overflowPolicy) {
+            case SAMPLE:
+                sample(queuedResult);
+                break;
+            case BLOCK:
+                if (queue.offer(queuedResult)) {
+                    enqueued.increment();
+                    return;
+                }
+                long blockedSince = System.nanoTime();
+                try {
+                    queue.put(queuedResult);
+                    enqueued.increment();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.increment();
+                }
+                blockedLatencies.record(System.nanoTime() - blockedSince);
+                break;
+            default:
+                offer(queuedResult);
+        }
+    }
+
+    /**
+     * Never blocks, with {@link OverflowPolicy#BLOCK} the returned future completes once the result is queued.
+     */
+    @Override
+    public CompletableFuture<Void> handleAsync(String job, String alias, Map<String, Object> results, Executor executor) {
+        QueuedResult queuedResult = new QueuedResult(new ScrapeResult(job, alias, results, System.currentTimeMillis()));
+        if (!running) {
+            dropped.increment();
+            return CompletableFuture.completedFuture(null);
+        }
+        switch (overflowPolicy) {
+            case SAMPLE:
+                sample(queuedResult);
+                return CompletableFuture.completedFuture(null);
+            case BLOCK:
+                // Results already waiting go first
+                if (pending.isEmpty() && queue.offer(queuedResult)) {
+                    enqueued.increment();
+                    return CompletableFuture.completedFuture(null);
+                }
+                PendingResult pendingResult = new PendingResult(queuedResult);
+                pending.add(pendingResult);
+                if (!running && pending.remove(pendingResult)) {
+                    // Closed in the meantime, the consumer might not see it anymore
+                    dropped.increment();
+                    pendingResult.accepted.complete(null);
+                }
+                return pendingResult.accepted;
+            default:
+                offer(queuedResult);
+                return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private void sample(QueuedResult queuedResult) {
+        if (queue.size() >= capacity - capacity / 4 && sampleCounter.getAndIncrement() % sampleRate != 0) {
+            dropped.increment();
+            return;
+        }
+        offer(queuedResult);
+    }
+
+    private void offer(QueuedResult queuedResult) {
+        if (queue.offer(queuedResult)) {
+            enqueued.increment();
+        } else {
+            dropped.increment();
+            LOGGER.trace("Dropping result of job {} as the queue is full", queuedResult.scrapeResult.getJob());
+        }
+    }
+
+    private void consume() {
+        List<QueuedResult> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty() || !pending.isEmpty()) {
+            queuePending();
+            try {
+                QueuedResult first = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    QueuedResult next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Hand over what we have and stop
+                running = false;
+                queue.drainTo(batch, batchSize - batch.size());
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+    }
+
+    /**
+     * Moves waiting results into the free space of the queue, only called by the consumer.
+     */
+    private void queuePending() {
+        PendingResult pendingResult;
+        while ((pendingResult = pending.peek()) != null && queue.offer(pendingResult.queuedResult)) {
+            pending.poll();
+            enqueued.increment();
+            blockedLatencies.record(System.nanoTime() - pendingResult.queuedResult.enqueuedNanos);
+            pendingResult.accepted.complete(null);
+        }
+    }
+
+    private void flush(List<QueuedResult> batch) {
+        long now = System.nanoTime();
+        List<ScrapeResult> results = new ArrayList<>(batch.size());
+        for (QueuedResult queuedResult : batch) {
+            queueLatencies.record(now - queuedResult.enqueuedNanos);
+            results.add(queuedResult.scrapeResult);
+        }
+        batchSizes.record(results.size());
+        try {
+            batchResultHandler.handle(Collections.unmodifiableList(results));
+        } catch (RuntimeException e) {
+            handlerFailures.increment();
+            LOGGER.warn("Error handling a batch of {} results", results.size(), e);
+        }
+        handlerLatencies.record(System.nanoTime() - now);
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting results and waits till all queued results have been handed over.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        consumer.join();
+    }
+
+    public Map<String, Number> getStatistics() {
+        HashMap<String, Number> statistics = new HashMap<>();
+        statistics.put("queue.depth", getQueueDepth());
+        statistics.put("queue.pending", pending.size());
+        statistics.put("queue.capacity", capacity);
+        statistics.put("enqueued", enqueued.sum());
+        statistics.put("dropped", dropped.sum());
+        statistics.put("batches", batchSizes.getCount());
+        statistics.put("batchSize.mean", batchSizes.getMean());
+        statistics.put("handlerFailures", handlerFailures.sum());
+        statistics.put("queueLatency.meanMs", queueLatencies.getMean() / 1e6);
+        statistics.put("queueLatency.99thPercentileMs", queueLatencies.getPercentile(99) / 1e6);
+        statistics.put("queueLatency.maxMs", queueLatencies.getMax() / 1e6);
+        statistics.put("handlerLatency.meanMs", handlerLatencies.getMean() / 1e6);
+        statistics.put("handlerLatency.maxMs", handlerLatencies.getMax() / 1e6);
+        statistics.put("blocked", blockedLatencies.getCount());
+        statistics.put("blockedLatency.maxMs", blockedLatencies.getMax() / 1e6);
+        return statistics;
+    }
+
+    private static final class PendingResult {
+
+        private final QueuedResult queuedResult;
+
+        private final CompletableFuture<Void> accepted = new CompletableFuture<>();
+
+        private PendingResult(QueuedResult queuedResult) {
+            this.queuedResult = queuedResult;
+        }
+    }
+
+    private static final class QueuedResult {
+
+        private final ScrapeResult scrapeResult;
+
+        private final long enqueuedNanos = System.nanoTime();
+
+        private QueuedResult(ScrapeResult scrapeResult) {
+            this.scrapeResult = scrapeResult;
+        }
+    }
+}
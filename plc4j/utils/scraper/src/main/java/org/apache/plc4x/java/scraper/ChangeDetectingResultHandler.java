@@ -0,0 +1,263 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.plc4x.java.scraper;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link ResultHandler} that only passes fields whose value changed since it was passed the last time
+ * (report by exception) to the given {@link ResultHandler}.
+ * <p>
+ * The last passed value is kept per job, connection alias and field. Numeric values only count as changed when they
+ * moved beyond the deadbands of the job, so noise is suppressed while a slow drift is still reported. Every heartbeat
+ * interval all fields are passed, so consumers regularly get a full snapshot. Results without any changed field are
+ * not passed at all.
+ */
+public class ChangeDetectingResultHandler implements ResultHandler {
+
+    private final ResultHandler resultHandler;
+
+    private final Settings defaultSettings;
+
+    private final Map<String, Settings> jobSettings;
+
+    private final ConcurrentMap<String, SourceState> states = new ConcurrentHashMap<>();
+
+    private final LongAdder received = new LongAdder();
+
+    private final LongAdder emitted = new LongAdder();
+
+    private final LongAdder heartbeats = new LongAdder();
+
+    private final LongAdder receivedFields = new LongAdder();
+
+    private final LongAdder suppressedFields = new LongAdder();
+
+    /**
+     * Deadbands and heartbeat of a job.
+     */
+    public static final class Settings {
+
+        /**
+         * Passes every change and never a snapshot of unchanged fields.
+         */
+        public static final Settings EXACT = new Settings(0, 0, 0);
+
+        private final double absoluteDeadband;
+
+        private final double percentDeadband;
+
+        private final long heartbeatMs;
+
+        /**
+         * @param absoluteDeadband numeric values must change by more than this to be passed, 0 to disable.
+         * @param percentDeadband  numeric values must change by more than this percentage of the last passed value to be
+         *                         passed, 0 to disable.
+         * @param heartbeatMs      interval in which all fields are passed regardless of changes, 0 to disable.
+         */
+        public Settings(double absoluteDeadband, double percentDeadband, long heartbeatMs) {
+            if (absoluteDeadband < 0 || percentDeadband < 0 || heartbeatMs < 0) {
+                throw new IllegalArgumentException("Deadbands and heartbeat must not be negative");
+            }
+            this.absoluteDeadband = absoluteDeadband;
+            this.percentDeadband = percentDeadband;
+            this.heartbeatMs = heartbeatMs;
+        }
+
+        public double getAbsoluteDeadband() {
+            return absoluteDeadband;
+        }
+
+        public double getPercentDeadband() {
+            return percentDeadband;
+        }
+
+        public long getHeartbeatMs() {
+            return heartbeatMs;
+        }
+    }
+
+    public ChangeDetectingResultHandler(ResultHandler resultHandler, Settings settings) {
+        this(resultHandler, settings, Collections.emptyMap());
+    }
+
+    /**
+     * @param defaultSettings used for all jobs without own settings.
+     * @param jobSettings     job name to the settings of the job.
+     */
+    public ChangeDetectingResultHandler(ResultHandler resultHandler, Settings defaultSettings, Map<String, Settings> jobSettings) {
+        this.resultHandler = resultHandler;
+        this.defaultSettings = defaultSettings;
+        this.jobSettings = new HashMap<>(jobSettings);
+    }
+
+    @Override
+    public void handle(String job, String alias, Map<String, Object> results) {
+        Map<String, Object> changed = detectChanges(job, alias, results);
+        if (!changed.isEmpty()) {
+            resultHandler.handle(job, alias, changed);
+        }
+    }
+
+    /**
+     * Detecting changes never blocks, so only the changed fields are handed to the wrapped handler in its own way.
+     */
+    @Override
+    public CompletableFuture<Void> handleAsync(String job, String alias, Map<String, Object> results, Executor executor) {
+        Map<String, Object> changed = detectChanges(job, alias, results);
+        if (changed.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return resultHandler.handleAsync(job, alias, changed, executor);
+    }
+
+    private Map<String, Object> detectChanges(String job, String alias, Map<String, Object> results) {
+        received.increment();
+        receivedFields.add(results.size());
+        SourceState state = states.computeIfAbsent(job + '\u0000' + alias,
+            key -> new SourceState(jobSettings.getOrDefault(job, defaultSettings)));
+        Map<String, Object> changed;
+        synchronized (state) {
+            changed = state.update(results, System.currentTimeMillis());
+        }
+        if (changed == results) {
+            heartbeats.increment();
+        }
+        suppressedFields.add(results.size() - changed.size());
+        if (!changed.isEmpty()) {
+            emitted.increment();
+        }
+        return changed;
+    }
+
+    /**
+     * Forgets all last values, so the next result of every source is passed completely.
+     */
+    public void reset() {
+        states.clear();
+    }
+
+    public Map<String, Number> getStatistics() {
+        HashMap<String, Number> statistics = new HashMap<>();
+        long fields = receivedFields.sum();
+        statistics.put("sources", states.size());
+        statistics.put("received", received.sum());
+        statistics.put("emitted", emitted.sum());
+        statistics.put("heartbeats", heartbeats.sum());
+        statistics.put("suppressedFields", suppressedFields.sum());
+        statistics.put("percentageSuppressed", fields == 0 ? 0 : 100.0 * suppressedFields.sum() / fields);
+        return statistics;
+    }
+
+    /**
+     * Last passed values of the fields of one job and connection. Fields are mapped to an index once, the values are
+     * then kept in arrays, numeric values unboxed.
+     */
+    private static final class SourceState {
+
+        private final Settings settings;
+
+        private final Map<String, Integer> fieldIndices = new HashMap<>();
+
+        private Object[] lastValues = new Object[8];
+
+        private double[] lastNumbers = new double[8];
+
+        private boolean[] numeric = new boolean[8];
+
+        // 0 until the first snapshot has been passed
+        private long lastSnapshotMillis;
+
+        private SourceState(Settings settings) {
+            this.settings = settings;
+        }
+
+        /**
+         * @return the given results if all fields are passed, otherwise the changed fields.
+         */
+        private Map<String, Object> update(Map<String, Object> results, long now) {
+            boolean snapshot = lastSnapshotMillis == 0
+                || (settings.heartbeatMs > 0 && now - lastSnapshotMillis >= settings.heartbeatMs);
+            if (snapshot) {
+                lastSnapshotMillis = now;
+                results.forEach((field, value) -> store(index(field), value));
+                return results;
+            }
+            Map<String, Object> changed = new HashMap<>();
+            for (Map.Entry<String, Object> entry : results.entrySet()) {
+                Integer index = fieldIndices.get(entry.getKey());
+                if (index == null) {
+                    index = index(entry.getKey());
+                } else if (!isChanged(index, entry.getValue())) {
+                    continue;
+                }
+                store(index, entry.getValue());
+                changed.put(entry.getKey(), entry.getValue());
+            }
+            return changed;
+        }
+
+        private int index(String field) {
+            return fieldIndices.computeIfAbsent(field, key -> {
+                int index = fieldIndices.size();
+                if (index == lastValues.length) {
+                    lastValues = Arrays.copyOf(lastValues, index * 2);
+                    lastNumbers = Arrays.copyOf(lastNumbers, index * 2);
+                    numeric = Arrays.copyOf(numeric, index * 2);
+                }
+                return index;
+            });
+        }
+
+        private void store(int index, Object value) {
+            lastValues[index] = value;
+            numeric[index] = value instanceof Number;
+            if (numeric[index]) {
+                lastNumbers[index] = ((Number) value).doubleValue();
+            }
+        }
+
+        private boolean isChanged(int index, Object value) {
+            if (!numeric[index] || !(value instanceof Number)) {
+                return !Objects.equals(lastValues[index], value);
+            }
+            double last = lastNumbers[index];
+            double current = ((Number) value).doubleValue();
+            if (Double.isNaN(last) || Double.isNaN(current)) {
+                return Double.isNaN(last) != Double.isNaN(current);
+            }
+            double delta = Math.abs(current - last);
+            if (delta == 0) {
+                return false;
+            }
+            return delta > settings.absoluteDeadband
+                && delta > settings.percentDeadband / 100 * Math.abs(last);
+        }
+    }
+}
@@ -20,6 +20,8 @@
 package org.apache.plc4x.java.scraper;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Callback interface to handle results of one run of a {@link ScraperTask}.
@@ -35,4 +37,18 @@ public interface ResultHandler {
      */
     void handle(String job, String alias, Map<String, Object> results);
 
+    /**
+     * Hands over the results without blocking the calling thread, which might be an I/O thread of a driver.
+     * <p>
+     * By default {@link #handle(String, String, Map)} is called on the given executor. Handlers that never block
+     * override this to accept the results directly. Scrapers don't start the next scrape of the job before the returned
+     * future completed, so a handler applies backpressure by completing it late.
+     *
+     * @param executor executor of the scraper for handlers that might block.
+     * @return a future completing when the results have been accepted.
+     */
+    default CompletableFuture<Void> handleAsync(String job, String alias, Map<String, Object> results, Executor executor) {
+        return CompletableFuture.runAsync(() -> handle(job, alias, results), executor);
+    }
+
 }
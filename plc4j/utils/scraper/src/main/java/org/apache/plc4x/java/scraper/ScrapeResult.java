@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.plc4x.java.scraper;
+
+import java.util.Map;
+
+/**
+ * Result of one run of a {@link ScraperTask} as handed to a {@link BatchResultHandler}.
+ */
+public final class ScrapeResult {
+
+    private final String job;
+
+    private final String alias;
+
+    private final Map<String, Object> results;
+
+    private final long timestamp;
+
+    /**
+     * @param job       name of the job (from config)
+     * @param alias     alias of the connection (<b>not</b> connection String)
+     * @param results   Results in the form alias to result value
+     * @param timestamp when the results have been received in ms since the epoch
+     */
+    public ScrapeResult(String job, String alias, Map<String, Object> results, long timestamp) {
+        this.job = job;
+        this.alias = alias;
+        this.results = results;
+        this.timestamp = timestamp;
+    }
+
+    public String getJob() {
+        return job;
+    }
+
+    public String getAlias() {
+        return alias;
+    }
+
+    public Map<String, Object> getResults() {
+        return results;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "ScrapeResult{" +
+            "job='" + job + '\'' +
+            ", alias='" + alias + '\'' +
+            ", results=" + results +
+            ", timestamp=" + timestamp +
+            '}';
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.scraper.triggeredscraper;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Schedules periodic asynchronous scrapes on a single {@link HashedWheelTimer} thread.
+ * <p>
+ * The timer thread only hands the due scrapes to a cached thread pool, which starts them. Starting a scrape might
+ * block, e.g. while a connection is established or validated, so a slow device must not delay the other schedules.
+ * As a scrape is never started again before the previous one completed, there are at most as many start threads as
+ * scheduled scrapes. Scrapes return a future completing when the scrape is done. Scrapes are scheduled at a fixed rate relative to their first execution, so there is no drift. If a scrape is
+ * still running when it's due again, that's an overrun which is handled according to the {@link OverrunPolicy}.
+ */
+public class ScrapeScheduler implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScrapeScheduler.class);
+
+    public static final long DEFAULT_TICK_DURATION_MS = 1;
+
+    public static final int DEFAULT_TICKS_PER_WHEEL = 512;
+
+    public enum OverrunPolicy {
+        /**
+         * An execution that is due while the previous one is still running is skipped.
+         */
+        SKIP,
+        /**
+         * An execution that is due while the previous one is still running is started as soon as the previous one
+         * completed. At most one execution is queued, further overruns are skipped.
+         */
+        QUEUE
+    }
+
+    /**
+     * Handle of a scheduled scrape.
+     */
+    public interface ScheduledScrape {
+
+        void cancel();
+
+        boolean isCancelled();
+    }
+
+    private final HashedWheelTimer timer;
+
+    private final ExecutorService startExecutor = Executors.newCachedThreadPool(
+        new BasicThreadFactory.Builder()
+            .namingPattern("triggeredscraper-start-thread-%d")
+            .daemon(true)
+            .build()
+    );
+
+    private final OverrunPolicy overrunPolicy;
+
+    private final Set<ScheduledScrapeImpl> scheduledScrapes = ConcurrentHashMap.newKeySet();
+
+    public ScrapeScheduler() {
+        this(DEFAULT_TICK_DURATION_MS, DEFAULT_TICKS_PER_WHEEL, OverrunPolicy.SKIP);
+    }
+
+    /**
+     * @param tickDurationMs the resolution of the scheduler.
+     * @param ticksPerWheel  the size of the wheel, should be larger than the typical scrape rate in ticks.
+     */
+    public ScrapeScheduler(long tickDurationMs, int ticksPerWheel, OverrunPolicy overrunPolicy) {
+        this.timer = new HashedWheelTimer(
+            new BasicThreadFactory.Builder()
+                .namingPattern("triggeredscraper-scheduling-thread-%d")
+                .daemon(true)
+                .build(),
+            tickDurationMs, TimeUnit.MILLISECONDS, ticksPerWheel);
+        this.overrunPolicy = overrunPolicy;
+    }
+
+    /**
+     * Starts the given scrape immediately and then every {@code periodMs}.
+     *
+     * @param name   used for logging and the statistics.
+     * @param scrape starts a scrape without blocking and returns a future completing when the scrape is done.
+     */
+    public ScheduledScrape schedule(String name, Supplier<CompletableFuture<?>> scrape, long periodMs) {
+        if (periodMs < 1) {
+            throw new IllegalArgumentException("periodMs must be positive but was " + periodMs);
+        }
+        ScheduledScrapeImpl scheduledScrape = new ScheduledScrapeImpl(name, scrape, TimeUnit.MILLISECONDS.toNanos(periodMs));
+        scheduledScrapes.add(scheduledScrape);
+        scheduledScrape.nextExecutionNanos = System.nanoTime();
+        scheduledScrape.timeout = timer.newTimeout(scheduledScrape, 0, TimeUnit.MILLISECONDS);
+        return scheduledScrape;
+    }
+
+    public int getNumberOfScheduledScrapes() {
+        return scheduledScrapes.size();
+    }
+
+    @Override
+    public void close() {
+        scheduledScrapes.forEach(ScheduledScrapeImpl::cancel);
+        timer.stop();
+        startExecutor.shutdown();
+    }
+
+    public Map<String, Number> getStatistics() {
+        HashMap<String, Number> statistics = new HashMap<>();
+        for (ScheduledScrapeImpl scheduledScrape : scheduledScrapes) {
+            String prefix = scheduledScrape.name + ".";
+            long cycles = scheduledScrape.cycles.sum();
+            statistics.put(prefix + "targetCycleTimeMs", TimeUnit.NANOSECONDS.toMillis(scheduledScrape.periodNanos));
+            statistics.put(prefix + "actualCycleTimeMeanMs", cycles == 0 ? 0 : scheduledScrape.cycleTimeNanos.sum() / cycles / 1e6);
+            statistics.put(prefix + "actualCycleTimeMaxMs", scheduledScrape.maxCycleTimeNanos.get() / 1e6);
+            statistics.put(prefix + "executions", scheduledScrape.executions.sum());
+            statistics.put(prefix + "overruns", scheduledScrape.overruns.sum());
+            statistics.put(prefix + "skipped", scheduledScrape.skipped.sum());
+        }
+        return statistics;
+    }
+
+    private final class ScheduledScrapeImpl implements ScheduledScrape, TimerTask {
+
+        private final String name;
+
+        private final Supplier<CompletableFuture<?>> scrape;
+
+        private final long periodNanos;
+
+        private final AtomicBoolean running = new AtomicBoolean(false);
+
+        private final AtomicBoolean queued = new AtomicBoolean(false);
+
+        // Only accessed by the timer thread.
+        private long nextExecutionNanos;
+
+        private volatile Timeout timeout;
+
+        private volatile boolean cancelled;
+
+        private volatile long lastStartNanos;
+
+        private final LongAdder executions = new LongAdder();
+
+        private final LongAdder overruns = new LongAdder();
+
+        private final LongAdder skipped = new LongAdder();
+
+        private final LongAdder cycles = new LongAdder();
+
+        private final LongAdder cycleTimeNanos = new LongAdder();
+
+        private final LongAccumulator maxCycleTimeNanos = new LongAccumulator(Long::max, 0);
+
+        private ScheduledScrapeImpl(String name, Supplier<CompletableFuture<?>> scrape, long periodNanos) {
+            this.name = name;
+            this.scrape = scrape;
+            this.periodNanos = periodNanos;
+        }
+
+        @Override
+        public void run(Timeout currentTimeout) {
+            if (cancelled) {
+                return;
+            }
+            scheduleNext();
+            if (running.compareAndSet(false, true)) {
+                start();
+                return;
+            }
+            overruns.increment();
+            if (overrunPolicy == OverrunPolicy.QUEUE && !queued.getAndSet(true)) {
+                // The running scrape might have completed in the meantime without seeing the queued flag.
+                if (running.compareAndSet(false, true)) {
+                    queued.set(false);
+                    start();
+                }
+            } else {
+                skipped.increment();
+                LOGGER.debug("Skipping scrape {} as the previous one is still running", name);
+            }
+        }
+
+        private void scheduleNext() {
+            nextExecutionNanos += periodNanos;
+            long delayNanos = nextExecutionNanos - System.nanoTime();
+            if (delayNanos < 0) {
+                // We're more than a period late, don't try to catch up on the missed executions.
+                long missed = -delayNanos / periodNanos + 1;
+                skipped.add(missed);
+                nextExecutionNanos += missed * periodNanos;
+                delayNanos = nextExecutionNanos - System.nanoTime();
+            }
+            timeout = timer.newTimeout(this, Math.max(delayNanos, 0), TimeUnit.NANOSECONDS);
+        }
+
+        private void start() {
+            long now = System.nanoTime();
+            long lastStart = lastStartNanos;
+            if (lastStart != 0) {
+                long cycleTime = now - lastStart;
+                cycles.increment();
+                cycleTimeNanos.add(cycleTime);
+                maxCycleTimeNanos.accumulate(cycleTime);
+            }
+            lastStartNanos = now;
+            executions.increment();
+            try {
+                startExecutor.execute(this::startScrape);
+            } catch (RejectedExecutionException e) {
+                // The scheduler is closed
+                running.set(false);
+            }
+        }
+
+        private void startScrape() {
+            if (cancelled) {
+                running.set(false);
+                return;
+            }
+            CompletableFuture<?> future;
+            try {
+                future = scrape.get();
+            } catch (RuntimeException e) {
+                LOGGER.warn("Error starting scrape {}", name, e);
+                future = CompletableFuture.completedFuture(null);
+            }
+            future.whenComplete((ignore, throwable) -> onComplete());
+        }
+
+        private void onComplete() {
+            running.set(false);
+            if (queued.getAndSet(false) && !cancelled && running.compareAndSet(false, true)) {
+                start();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            Timeout currentTimeout = timeout;
+            if (currentTimeout != null) {
+                currentTimeout.cancel();
+            }
+            scheduledScrapes.remove(this);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public String toString() {
+            return "ScheduledScrape{" +
+                "name='" + name + '\'' +
+                ", periodMs=" + TimeUnit.NANOSECONDS.toMillis(periodNanos) +
+                ", cancelled=" + cancelled +
+                '}';
+        }
+    }
+}
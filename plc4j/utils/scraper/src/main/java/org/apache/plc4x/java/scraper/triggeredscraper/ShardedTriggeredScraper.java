@@ -0,0 +1,156 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.scraper.triggeredscraper;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.plc4x.java.PlcDriverManager;
+import org.apache.plc4x.java.scraper.ResultHandler;
+import org.apache.plc4x.java.scraper.ScrapeJob;
+import org.apache.plc4x.java.scraper.Scraper;
+import org.apache.plc4x.java.scraper.config.triggeredscraper.TriggeredScraperConfiguration;
+import org.apache.plc4x.java.scraper.exception.ScraperException;
+import org.apache.plc4x.java.scraper.triggeredscraper.cluster.ClusterMembership;
+import org.apache.plc4x.java.scraper.triggeredscraper.cluster.ConsistentHashRing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs a {@link TriggeredScraperImpl} as one node of a scraper cluster.
+ * <p>
+ * All nodes share the same configuration, the sources are assigned to the nodes by consistent hashing of their
+ * connection strings, so all jobs of a device are scraped by the same node and can still share their requests and
+ * connections. When nodes join or leave the tasks of this node are reconfigured incrementally, only the sources that
+ * moved are started or stopped. Until all nodes saw a change of the members, a source might be scraped twice or not
+ * at all for up to a lease duration.
+ */
+public class ShardedTriggeredScraper implements Scraper {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShardedTriggeredScraper.class);
+
+    private final TriggeredScraperImpl scraper;
+
+    private final List<ScrapeJob> jobs;
+
+    private final ClusterMembership membership;
+
+    private Set<String> members = Collections.emptySet();
+
+    private int ownedSources;
+
+    // Late notifications of the membership are ignored once stopped
+    private boolean started;
+
+    public ShardedTriggeredScraper(TriggeredScraperConfiguration config, ResultHandler resultHandler, ClusterMembership membership) throws ScraperException {
+        this(new TriggeredScraperImpl(config, resultHandler), config.getJobs(), membership);
+    }
+
+    public ShardedTriggeredScraper(ResultHandler resultHandler, PlcDriverManager driverManager, List<ScrapeJob> jobs, ClusterMembership membership) {
+        this(new TriggeredScraperImpl(resultHandler, driverManager, jobs), jobs, membership);
+    }
+
+    private ShardedTriggeredScraper(TriggeredScraperImpl scraper, List<ScrapeJob> jobs, ClusterMembership membership) {
+        Validate.notEmpty(jobs);
+        this.scraper = scraper;
+        this.jobs = jobs;
+        this.membership = membership;
+        // Nothing is owned before joining
+        scraper.reconfigure(Collections.emptyList());
+        membership.addListener(this::rebalance);
+    }
+
+    /**
+     * Joins the cluster and starts scraping the sources of this node.
+     */
+    @Override
+    public void start() {
+        scraper.start();
+        synchronized (this) {
+            started = true;
+        }
+        membership.join();
+        rebalance(membership.getMembers());
+    }
+
+    /**
+     * Leaves the cluster, so the other nodes take over the sources of this node, and stops scraping.
+     */
+    @Override
+    public void stop() {
+        synchronized (this) {
+            started = false;
+            members = Collections.emptySet();
+            ownedSources = 0;
+        }
+        membership.leave();
+        scraper.stop();
+    }
+
+    @Override
+    public int getNumberOfActiveTasks() {
+        return scraper.getNumberOfActiveTasks();
+    }
+
+    public synchronized Map<String, Number> getStatistics() {
+        Map<String, Number> statistics = new LinkedHashMap<>(scraper.getStatistics());
+        statistics.put("cluster.members", members.size());
+        statistics.put("cluster.ownedSources", ownedSources);
+        return statistics;
+    }
+
+    // Called by the notifier of the membership and by start
+    private synchronized void rebalance(Set<String> newMembers) {
+        if (!started || newMembers.equals(members)) {
+            return;
+        }
+        members = newMembers;
+        List<ScrapeJob> ownedJobs = ownedJobs(new ConsistentHashRing(newMembers), membership.getLocalNodeId());
+        ownedSources = ownedJobs.stream().mapToInt(job -> job.getSourceConnections().size()).sum();
+        LOGGER.info("Node {} of {} owns {} sources", membership.getLocalNodeId(), newMembers, ownedSources);
+        scraper.reconfigure(ownedJobs);
+    }
+
+    private List<ScrapeJob> ownedJobs(ConsistentHashRing ring, String localNodeId) {
+        List<ScrapeJob> ownedJobs = new ArrayList<>();
+        for (ScrapeJob job : jobs) {
+            Map<String, String> ownedConnections = new LinkedHashMap<>();
+            job.getSourceConnections().forEach((alias, connectionString) -> {
+                if (localNodeId.equals(ring.getNode(connectionString))) {
+                    ownedConnections.put(alias, connectionString);
+                }
+            });
+            if (ownedConnections.isEmpty()) {
+                continue;
+            }
+            try {
+                ownedJobs.add(new TriggeredScrapeJobImpl(job.getJobName(), ((TriggeredScrapeJobImpl) job).getTriggerConfig(),
+                    ownedConnections, job.getFields()));
+            } catch (ScraperException e) {
+                // The trigger of the job was valid already
+                LOGGER.warn("Unable to assign the job {}", job.getJobName(), e);
+            }
+        }
+        return ownedJobs;
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.scraper.triggeredscraper;
+
+import org.apache.plc4x.java.PlcDriverManager;
+import org.apache.plc4x.java.api.messages.PlcReadResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Scrapes the fields of several scheduled {@link TriggeredScraperTask}s of the same connection with a single request.
+ * <p>
+ * The rates of all tasks are multiples of the rate of the group, so on every tick the fields of all due tasks are
+ * merged into one read request, fields queried by several tasks are only read once. The response is then handed to
+ * each due task as if it had performed the request itself, so results and statistics are still reported per job. The
+ * scrape is done once all results have been accepted by the result handlers.
+ * <p>
+ * Tasks with a trigger variable only piggyback the trigger variable onto the merged request. When the trigger fired,
+ * their fields are taken from the same response if the due scheduled tasks read them anyway, otherwise they are read
+ * with a request of their own, so the fields aren't read on every tick.
+ */
+final class TriggeredScrapeGroup {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TriggeredScrapeGroup.class);
+
+    private final PlcDriverManager driverManager;
+
+    private final String connectionString;
+
+    private final long rateMs;
+
+    private final long requestTimeoutMs;
+
+    private final List<Member> members = new ArrayList<>();
+
+    // field-query -> alias in the merged request
+    private final Map<String, String> mergedAliases = new HashMap<>();
+
+    private final AtomicLong ticks = new AtomicLong();
+
+    private TriggeredScrapeGroup(PlcDriverManager driverManager, String connectionString, long rateMs, long requestTimeoutMs) {
+        this.driverManager = driverManager;
+        this.connectionString = connectionString;
+        this.rateMs = rateMs;
+        this.requestTimeoutMs = requestTimeoutMs;
+    }
+
+    /**
+     * Groups the given tasks of the same connection so that the rate of each task is a multiple of the rate of its
+     * group.
+     *
+     * @param rates scrape rate in ms of each task.
+     */
+    static List<TriggeredScrapeGroup> group(Map<TriggeredScraperTask, Long> rates) {
+        List<TriggeredScraperTask> sorted = rates.keySet().stream()
+            .sorted(Comparator.comparing(rates::get))
+            .collect(Collectors.toList());
+        Map<String, List<TriggeredScrapeGroup>> groupsByConnection = new LinkedHashMap<>();
+        for (TriggeredScraperTask task : sorted) {
+            long rate = rates.get(task);
+            if (rate < 1) {
+                continue;
+            }
+            List<TriggeredScrapeGroup> groups = groupsByConnection.computeIfAbsent(task.getConnectionString(), key -> new ArrayList<>());
+            TriggeredScrapeGroup group = groups.stream()
+                .filter(candidate -> rate % candidate.rateMs == 0)
+                .findFirst()
+                .orElseGet(() -> {
+                    TriggeredScrapeGroup newGroup = new TriggeredScrapeGroup(task.getDriverManager(), task.getConnectionString(), rate, task.getRequestTimeoutMs());
+                    groups.add(newGroup);
+                    return newGroup;
+                });
+            group.add(task, rate);
+        }
+        return groupsByConnection.values().stream()
+            .flatMap(Collection::stream)
+            .collect(Collectors.toList());
+    }
+
+    private void add(TriggeredScraperTask task, long taskRateMs) {
+        members.add(new Member(task, taskRateMs / rateMs));
+        for (String fieldQuery : mergedFieldQueries(task)) {
+            mergedAliases.computeIfAbsent(fieldQuery, key -> "field" + mergedAliases.size());
+        }
+    }
+
+    /**
+     * @return the field-queries of the task that are merged into the request of each tick the task is due.
+     */
+    private static Collection<String> mergedFieldQueries(TriggeredScraperTask task) {
+        return task.isScheduled() ? task.getFields().values() : Collections.singletonList(task.getTriggerFieldQuery());
+    }
+
+    /**
+     * Performs the merged request of all tasks due on this tick.
+     *
+     * @return a future completing when the responses have been handed to the tasks.
+     */
+    CompletableFuture<Void> scrape() {
+        long tick = ticks.getAndIncrement();
+        List<Member> dueMembers = members.stream()
+            .filter(member -> tick % member.divisor == 0)
+            .collect(Collectors.toList());
+        Map<String, String> fields = new LinkedHashMap<>();
+        for (Member member : dueMembers) {
+            if (member.task.isScheduled()) {
+                member.task.countRequest();
+            }
+            for (String fieldQuery : mergedFieldQueries(member.task)) {
+                fields.put(mergedAliases.get(fieldQuery), fieldQuery);
+            }
+        }
+        LOGGER.trace("Start merged scrape of {} fields for {} tasks on {}", fields.size(), dueMembers.size(), connectionString);
+        TriggeredScraperTask.ScrapeTimings timings = new TriggeredScraperTask.ScrapeTimings();
+        return TriggeredScraperTask.read(driverManager, connectionString, fields, requestTimeoutMs, timings).handle((response, throwable) -> {
+            // Results accepted by the handlers and scrapes of the fields of fired triggers
+            List<CompletableFuture<Void>> pending = new ArrayList<>();
+            for (Member member : dueMembers) {
+                TriggeredScraperTask task = member.task;
+                if (throwable != null && task.isScheduled()) {
+                    task.handleFailure(throwable, timings);
+                } else if (throwable != null) {
+                    // Only the trigger of this task was read
+                    task.handleTriggerFailure(throwable, timings);
+                } else if (task.isScheduled()) {
+                    pending.add(handleResponse(task, response, timings));
+                } else if (task.checkTrigger(response, mergedAliases.get(task.getTriggerFieldQuery()))) {
+                    if (isContained(task, fields)) {
+                        task.countRequest();
+                        pending.add(handleResponse(task, response, timings));
+                    } else {
+                        pending.add(task.scrapeFields());
+                    }
+                }
+            }
+            return CompletableFuture.allOf(pending.toArray(new CompletableFuture[0]));
+        }).thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<Void> handleResponse(TriggeredScraperTask task, PlcReadResponse response, TriggeredScraperTask.ScrapeTimings timings) {
+        Map<String, String> taskFields = task.getFields();
+        return task.handleResponse(response, taskFields.keySet(), alias -> mergedAliases.get(taskFields.get(alias)), timings);
+    }
+
+    /**
+     * @param fields the fields of the merged request of the current tick.
+     * @return true if all fields of the task are read by the merged request anyway.
+     */
+    private boolean isContained(TriggeredScraperTask task, Map<String, String> fields) {
+        return task.getFields().values().stream()
+            .allMatch(fieldQuery -> mergedAliases.containsKey(fieldQuery) && fields.containsKey(mergedAliases.get(fieldQuery)));
+    }
+
+    long getRateMs() {
+        return rateMs;
+    }
+
+    List<TriggeredScraperTask> getTasks() {
+        return Collections.unmodifiableList(members.stream().map(member -> member.task).collect(Collectors.toList()));
+    }
+
+    /**
+     * @return a name for logging and statistics.
+     */
+    String getName() {
+        return members.stream()
+            .map(member -> member.task.getJobName() + "/" + member.task.getConnectionAlias())
+            .collect(Collectors.joining("+"));
+    }
+
+    private static final class Member {
+
+        private final TriggeredScraperTask task;
+
+        // The task is due every divisor-th tick of the group.
+        private final long divisor;
+
+        private Member(TriggeredScraperTask task, long divisor) {
+            this.task = task;
+            this.divisor = divisor;
+        }
+    }
+}
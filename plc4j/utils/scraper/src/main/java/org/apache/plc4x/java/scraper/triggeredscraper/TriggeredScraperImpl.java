@@ -24,7 +24,6 @@ import org.apache.commons.collections4.multimap.ArrayListValuedHashMap;
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.commons.lang3.tuple.Triple;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.apache.commons.pool2.impl.GenericKeyedObjectPool;
 import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
 import org.apache.plc4x.java.PlcDriverManager;
@@ -32,15 +31,23 @@ import org.apache.plc4x.java.api.PlcConnection;
 import org.apache.plc4x.java.scraper.*;
 import org.apache.plc4x.java.scraper.exception.ScraperException;
 import org.apache.plc4x.java.scraper.config.triggeredscraper.TriggeredScraperConfiguration;
-import org.apache.plc4x.java.scraper.util.PercentageAboveThreshold;
+import org.apache.plc4x.java.utils.connectionpool.LatencyHistogram;
 import org.apache.plc4x.java.utils.connectionpool.PooledPlcDriverManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.*;
+import java.util.stream.Collectors;
 
 /**
  * replaces the old Scraper that only could do scheduled scraping jobs
@@ -53,15 +60,20 @@ import java.util.concurrent.*;
  *     the trigger variable must be a valid address as defined with PLC4X-S7-Driver
  *     right now boolean variables as well as numeric variables could be used as data-types
  *     available comparators are ==,!= for all data-types and &gt;,&gt;=,&lt;,&lt;= for numeric data-types
+ *   - a trigger variable of any driver can be used as follows:
+ *     "triggerConfig: (TRIGGER_VAR,10,(coil:1)==(true))" meaning that the field-query is passed to the driver of the connection
+ *     the data-type is derived from the compare-value, true and false for boolean variables and numbers for numeric variables
+ *   - the trigger variable is read on the same connection as the data, when other jobs scrape the same connection at
+ *     a harmonic rate it is merged into their request, the data is then only read when the trigger fired
  */
 public class TriggeredScraperImpl implements Scraper {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TriggeredScraperImpl.class);
 
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(10,
+    private final ScheduledExecutorService statisticsScheduler = Executors.newSingleThreadScheduledExecutor(
         new BasicThreadFactory.Builder()
-            .namingPattern("triggeredscraper-scheduling-thread-%d")
-            .daemon(false)
+            .namingPattern("triggeredscraper-statistics-thread-%d")
+            .daemon(true)
             .build()
     );
     private final ExecutorService executorService = Executors.newFixedThreadPool(4,
@@ -73,10 +85,16 @@ public class TriggeredScraperImpl implements Scraper {
 
     private final ResultHandler resultHandler;
 
-    private final MultiValuedMap<ScrapeJob, ScraperTask> tasks = new ArrayListValuedHashMap<>();
-    private final MultiValuedMap<ScraperTask, ScheduledFuture<?>> futures = new ArrayListValuedHashMap<>();
+    private final MultiValuedMap<ScrapeJob, TriggeredScraperTask> tasks = new ArrayListValuedHashMap<>();
+    private final Map<TaskKey, TriggeredScraperTask> tasksByKey = new HashMap<>();
+    private final MultiValuedMap<ScraperTask, ScrapeScheduler.ScheduledScrape> futures = new ArrayListValuedHashMap<>();
+    // Only a scheduler created by the scraper itself is closed on stop
+    private final boolean ownsScrapeScheduler;
+    private ScrapeScheduler scrapeScheduler;
     private final PlcDriverManager driverManager;
-    private final List<ScrapeJob> jobs;
+    private List<ScrapeJob> jobs;
+    private boolean running;
+    private boolean statisticsStarted;
 
     /**
      * Creates a Scraper instance from a configuration.
@@ -88,6 +106,13 @@ public class TriggeredScraperImpl implements Scraper {
         this(resultHandler, createPooledDriverManager(), config.getJobs());
     }
 
+    /**
+     * Creates a Scraper instance for the given jobs using a {@link PooledPlcDriverManager}.
+     */
+    public TriggeredScraperImpl(ResultHandler resultHandler, List<ScrapeJob> jobs) {
+        this(resultHandler, createPooledDriverManager(), jobs);
+    }
+
     /**
      * Min Idle per Key is set to 1 for situations where the network is broken.
      * Then, on reconnect we can fail all getConnection calls (in the ScraperTask) fast until
@@ -104,8 +129,25 @@ public class TriggeredScraperImpl implements Scraper {
     }
 
 
+    /**
+     * Creates a Scraper instance using its own {@link ScrapeScheduler}, which is closed on {@link #stop()}.
+     */
     public TriggeredScraperImpl(ResultHandler resultHandler, PlcDriverManager driverManager, List<ScrapeJob> jobs) {
+        this(resultHandler, driverManager, jobs, null, true);
+    }
+
+    /**
+     * @param scrapeScheduler used to start the scrapes, e.g. to configure its {@link ScrapeScheduler.OverrunPolicy}.
+     *                        It is left open on {@link #stop()}, so it can be shared between scrapers.
+     */
+    public TriggeredScraperImpl(ResultHandler resultHandler, PlcDriverManager driverManager, List<ScrapeJob> jobs, ScrapeScheduler scrapeScheduler) {
+        this(resultHandler, driverManager, jobs, Objects.requireNonNull(scrapeScheduler), false);
+    }
+
+    private TriggeredScraperImpl(ResultHandler resultHandler, PlcDriverManager driverManager, List<ScrapeJob> jobs, ScrapeScheduler scrapeScheduler, boolean ownsScrapeScheduler) {
         this.resultHandler = resultHandler;
+        this.scrapeScheduler = scrapeScheduler;
+        this.ownsScrapeScheduler = ownsScrapeScheduler;
         Validate.notEmpty(jobs);
         this.driverManager = driverManager;
         this.jobs = jobs;
@@ -116,14 +158,119 @@ public class TriggeredScraperImpl implements Scraper {
      */
     //ToDo code-refactoring and improved testing --> PLC4X-90
     @Override
-    public void start() {
+    public synchronized void start() {
         // Schedule all jobs
         LOGGER.info("Starting jobs...");
+        if (scrapeScheduler == null) {
+            // A closed scheduler can't be restarted, so an own one is created per start
+            scrapeScheduler = new ScrapeScheduler();
+        }
+        schedule(createTasks(desiredTasks(jobs).values()));
+        running = true;
+        if (statisticsStarted) {
+            return;
+        }
+        statisticsStarted = true;
+
+        // Add statistics tracker
+        statisticsScheduler.scheduleAtFixedRate(() -> {
+            if (!LOGGER.isDebugEnabled()) {
+                return;
+            }
+            synchronized (this) {
+                for (Map.Entry<ScrapeJob, TriggeredScraperTask> entry : tasks.entries()) {
+                    LatencyHistogram latencies = entry.getValue().getLatencies();
+                    String msg = String.format(Locale.ENGLISH, "Job statistics (%s, %s) number of requests: %d (%d success, %.1f %% failed, %.1f %% too slow), mean latency: %.2f ms, median: %.2f ms, 99th percentile: %.2f ms, max latency: %.2f ms",
+                        entry.getValue().getJobName(), entry.getValue().getConnectionAlias(),
+                        entry.getValue().getRequestCounter(), entry.getValue().getSuccessfullRequestCounter(),
+                        entry.getValue().getPercentageFailed(),
+                        latencies.getPercentageAbove(TimeUnit.MILLISECONDS.toNanos(entry.getKey().getScrapeRate())),
+                        latencies.getMean() * 1e-6, latencies.getPercentile(50) * 1e-6, latencies.getPercentile(99) * 1e-6, latencies.getMax() * 1e-6);
+                    LOGGER.debug(msg);
+                }
+                if (scrapeScheduler != null) {
+                    LOGGER.debug("Scheduler statistics: {}", scrapeScheduler.getStatistics());
+                }
+            }
+        }, 1_000, 1_000, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Applies a new configuration to the running scraper.
+     *
+     * @see #reconfigure(List)
+     */
+    public void reconfigure(TriggeredScraperConfiguration config) throws ScraperException {
+        reconfigure(config.getJobs());
+    }
+
+    /**
+     * Applies new jobs to the running scraper without a full restart.
+     * <p>
+     * The new jobs are diffed against the current ones per job and connection. Tasks whose job, connection and fields
+     * didn't change keep running with their statistics, only tasks of connections with added, removed or changed tasks
+     * are rescheduled, as their requests might be merged. Pooled connections are kept in any case. An empty list of
+     * jobs stops all tasks but keeps the scraper running.
+     *
+     * @return the number of tasks that have been added or removed.
+     */
+    public synchronized int reconfigure(List<ScrapeJob> newJobs) {
+        Map<TaskKey, Triple<ScrapeJob, String, String>> desired = desiredTasks(newJobs);
+        List<TaskKey> removed = tasksByKey.keySet().stream()
+            .filter(key -> !desired.containsKey(key))
+            .collect(Collectors.toList());
+        List<Triple<ScrapeJob, String, String>> added = desired.entrySet().stream()
+            .filter(entry -> !tasksByKey.containsKey(entry.getKey()))
+            .map(Map.Entry::getValue)
+            .collect(Collectors.toList());
+        LOGGER.info("Reconfiguring scraper, {} tasks removed and {} tasks added", removed.size(), added.size());
+        this.jobs = newJobs;
+        if (!running) {
+            // The new jobs are picked up on start
+            return removed.size() + added.size();
+        }
+
+        Set<String> affectedConnections = new HashSet<>();
+        removed.forEach(key -> affectedConnections.add(key.connectionString));
+        added.forEach(tuple -> affectedConnections.add(tuple.getRight()));
+        List<TriggeredScraperTask> rescheduled = new ArrayList<>();
+        for (TriggeredScraperTask task : new ArrayList<>(tasksByKey.values())) {
+            if (affectedConnections.contains(task.getConnectionString())) {
+                futures.remove(task).forEach(ScrapeScheduler.ScheduledScrape::cancel);
+                rescheduled.add(task);
+            }
+        }
+        removed.forEach(key -> rescheduled.remove(tasksByKey.remove(key)));
+
+        // Unchanged tasks are now registered with the new job instances
+        tasks.clear();
+        desired.forEach((key, tuple) -> {
+            TriggeredScraperTask task = tasksByKey.get(key);
+            if (task != null) {
+                tasks.put(tuple.getLeft(), task);
+            }
+        });
+        rescheduled.addAll(createTasks(added));
+        schedule(rescheduled);
+        return removed.size() + added.size();
+    }
+
+    /**
+     * @return job, connection alias and connection string of all tasks of the given jobs.
+     */
+    private static Map<TaskKey, Triple<ScrapeJob, String, String>> desiredTasks(List<ScrapeJob> jobs) {
+        Map<TaskKey, Triple<ScrapeJob, String, String>> desired = new LinkedHashMap<>();
         jobs.stream()
             .flatMap(job -> job.getSourceConnections().entrySet().stream()
                 .map(entry -> Triple.of(job, entry.getKey(), entry.getValue()))
             )
-            .forEach(
+            .forEach(tuple -> desired.put(new TaskKey(tuple.getLeft(), tuple.getMiddle(), tuple.getRight()), tuple));
+        return desired;
+    }
+
+    private List<TriggeredScraperTask> createTasks(Collection<Triple<ScrapeJob, String, String>> tuples) {
+        List<TriggeredScraperTask> createdTasks = new ArrayList<>();
+        tuples.forEach(
                 tuple -> {
                     LOGGER.debug("Register task for job {} for conn {} ({}) at rate {} ms",
                         tuple.getLeft().getJobName(), tuple.getMiddle(), tuple.getRight(), tuple.getLeft().getScrapeRate());
@@ -141,47 +288,139 @@ public class TriggeredScraperImpl implements Scraper {
                             (TriggeredScrapeJobImpl) tuple.getLeft());
                         // Add task to internal list
                         tasks.put(tuple.getLeft(), task);
-                        ScheduledFuture<?> future = scheduler.scheduleAtFixedRate(task,
-                            0, tuple.getLeft().getScrapeRate(), TimeUnit.MILLISECONDS);
-
-                        // Store the handle for stopping, etc.
-                        futures.put(task, future);
+                        tasksByKey.put(new TaskKey(tuple.getLeft(), tuple.getMiddle(), tuple.getRight()), task);
+                        createdTasks.add(task);
                     } catch (ScraperException e) {
                         LOGGER.warn("Error executing the job {} for conn {} ({}) at rate {} ms",tuple.getLeft().getJobName(), tuple.getMiddle(), tuple.getRight(), tuple.getLeft().getScrapeRate(),e);
                     }
 
                 }
             );
+        return createdTasks;
+    }
 
-        // Add statistics tracker
-        scheduler.scheduleAtFixedRate(() -> {
-            for (Map.Entry<ScrapeJob, ScraperTask> entry : tasks.entries()) {
-                DescriptiveStatistics statistics = entry.getValue().getLatencyStatistics();
-                String msg = String.format(Locale.ENGLISH, "Job statistics (%s, %s) number of requests: %d (%d success, %.1f %% failed, %.1f %% too slow), min latency: %.2f ms, mean latency: %.2f ms, median: %.2f ms",
-                    entry.getValue().getJobName(), entry.getValue().getConnectionAlias(),
-                    entry.getValue().getRequestCounter(), entry.getValue().getSuccessfullRequestCounter(),
-                    entry.getValue().getPercentageFailed(),
-                    statistics.apply(new PercentageAboveThreshold(entry.getKey().getScrapeRate() * 1e6)),
-                    statistics.getMin() * 1e-6, statistics.getMean() * 1e-6, statistics.getPercentile(50) * 1e-6);
-                LOGGER.debug(msg);
+    private void schedule(List<TriggeredScraperTask> tasksToSchedule) {
+        Map<TriggeredScraperTask, Long> rates = new LinkedHashMap<>();
+        for (Map.Entry<ScrapeJob, TriggeredScraperTask> entry : tasks.entries()) {
+            if (tasksToSchedule.contains(entry.getValue())) {
+                rates.put(entry.getValue(), entry.getKey().getScrapeRate());
             }
-        }, 1_000, 1_000, TimeUnit.MILLISECONDS);
+        }
+
+        // Tasks of the same connection with harmonic rates share a single request per tick
+        for (TriggeredScrapeGroup group : TriggeredScrapeGroup.group(rates)) {
+            List<TriggeredScraperTask> groupTasks = group.getTasks();
+            if (groupTasks.size() < 2) {
+                continue;
+            }
+            LOGGER.debug("Merging the requests of {} at rate {} ms", group.getName(), group.getRateMs());
+            ScrapeScheduler.ScheduledScrape future = scrapeScheduler.schedule(group.getName(), group::scrape, group.getRateMs());
+            for (TriggeredScraperTask task : groupTasks) {
+                rates.remove(task);
+                futures.put(task, future);
+            }
+        }
+        rates.forEach((task, rate) -> {
+            ScrapeScheduler.ScheduledScrape future = scrapeScheduler.schedule(
+                task.getJobName() + "/" + task.getConnectionAlias(), task::scrape, rate);
+            // Store the handle for stopping, etc.
+            futures.put(task, future);
+        });
+    }
+
+    /**
+     * Statistics of all tasks prefixed by {@code <job>/<connection alias>.} and of their scheduling, e.g. to alert on
+     * overruns. Scheduling statistics of merged requests are prefixed by the names of all tasks joined by {@code +}.
+     */
+    public synchronized Map<String, Number> getStatistics() {
+        HashMap<String, Number> statistics = new HashMap<>();
+        for (Map.Entry<ScrapeJob, TriggeredScraperTask> entry : tasks.entries()) {
+            TriggeredScraperTask task = entry.getValue();
+            String prefix = task.getJobName() + "/" + task.getConnectionAlias() + ".";
+            task.getStatistics().forEach((key, value) -> statistics.put(prefix + key, value));
+            statistics.put(prefix + "percentageTooSlow",
+                task.getLatencies().getPercentageAbove(TimeUnit.MILLISECONDS.toNanos(entry.getKey().getScrapeRate())));
+        }
+        if (scrapeScheduler != null) {
+            statistics.putAll(scrapeScheduler.getStatistics());
+        }
+        statistics.put("tasks.active", getNumberOfActiveTasks());
+        return statistics;
     }
 
     @Override
-    public int getNumberOfActiveTasks() {
-        return 0;
+    public synchronized int getNumberOfActiveTasks() {
+        return (int) futures.entries().stream()
+            .filter(entry -> !entry.getValue().isCancelled())
+            .count();
     }
 
     @Override
-    public void stop() {
+    public synchronized void stop() {
         // Stop all futures
         LOGGER.info("Stopping scraper...");
-        for (Map.Entry<ScraperTask, ScheduledFuture<?>> entry : futures.entries()) {
+        for (Map.Entry<ScraperTask, ScrapeScheduler.ScheduledScrape> entry : futures.entries()) {
             LOGGER.debug("Stopping task {}...", entry.getKey());
-            entry.getValue().cancel(true);
+            entry.getValue().cancel();
         }
-        // Clear the map
+        // Clear the maps, a restart creates new tasks
         futures.clear();
+        tasks.clear();
+        tasksByKey.clear();
+        if (ownsScrapeScheduler && scrapeScheduler != null) {
+            // Stops the timer thread
+            scrapeScheduler.close();
+            scrapeScheduler = null;
+        }
+        running = false;
+    }
+
+    /**
+     * Identifies a task when diffing configurations, two tasks with equal keys scrape the same in the same way.
+     */
+    private static final class TaskKey {
+
+        private final String jobName;
+
+        private final String connectionAlias;
+
+        private final String connectionString;
+
+        private final String triggerConfig;
+
+        private final long scrapeRate;
+
+        private final Map<String, String> fields;
+
+        private TaskKey(ScrapeJob job, String connectionAlias, String connectionString) {
+            this.jobName = job.getJobName();
+            this.connectionAlias = connectionAlias;
+            this.connectionString = connectionString;
+            this.triggerConfig = job instanceof TriggeredScrapeJobImpl ? ((TriggeredScrapeJobImpl) job).getTriggerConfig() : null;
+            this.scrapeRate = job.getScrapeRate();
+            this.fields = new HashMap<>(job.getFields());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TaskKey)) {
+                return false;
+            }
+            TaskKey taskKey = (TaskKey) o;
+            return scrapeRate == taskKey.scrapeRate &&
+                Objects.equals(jobName, taskKey.jobName) &&
+                Objects.equals(connectionAlias, taskKey.connectionAlias) &&
+                Objects.equals(connectionString, taskKey.connectionString) &&
+                Objects.equals(triggerConfig, taskKey.triggerConfig) &&
+                Objects.equals(fields, taskKey.fields);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(jobName, connectionAlias, connectionString, triggerConfig, scrapeRate, fields);
+        }
     }
 }
@@ -19,12 +19,10 @@
 
 package org.apache.plc4x.java.scraper.triggeredscraper;
 
-import org.apache.commons.lang3.time.StopWatch;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.apache.plc4x.java.PlcDriverManager;
 import org.apache.plc4x.java.api.PlcConnection;
-import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
-import org.apache.plc4x.java.api.exceptions.PlcRuntimeException;
 import org.apache.plc4x.java.api.messages.PlcReadRequest;
 import org.apache.plc4x.java.api.messages.PlcReadResponse;
 import org.apache.plc4x.java.api.types.PlcResponseCode;
@@ -32,17 +30,23 @@ import org.apache.plc4x.java.scraper.ResultHandler;
 import org.apache.plc4x.java.scraper.ScraperTask;
 import org.apache.plc4x.java.scraper.exception.ScraperException;
 import org.apache.plc4x.java.scraper.triggeredscraper.triggerhandler.TriggerHandler;
+import org.apache.plc4x.java.utils.connectionpool.LatencyHistogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 /**
  * performs the triggered task from a job for one device based on the TriggerHandler as defined in Configuration
@@ -51,6 +55,10 @@ import java.util.stream.Collectors;
 public class TriggeredScraperTask implements ScraperTask {
     private static final Logger LOGGER = LoggerFactory.getLogger(TriggeredScraperTask.class);
 
+    // Only used for timeouts, so a single thread is sufficient for all tasks. It terminates while no timeout is
+    // pending, so the timer needs no shutdown when the scrapers are stopped.
+    private static final ScheduledThreadPoolExecutor TIMEOUT_TIMER = createTimeoutTimer();
+
     private final PlcDriverManager driverManager;
     private final String jobName;
     private final String connectionAlias;
@@ -61,10 +69,17 @@ public class TriggeredScraperTask implements ScraperTask {
     private final ResultHandler resultHandler;
     private final TriggerHandler triggerHandler;
 
-    private final AtomicLong requestCounter = new AtomicLong(0);
-    private final AtomicLong successCounter = new AtomicLong(0);
-    private final DescriptiveStatistics latencyStatistics = new DescriptiveStatistics(1000);
-    private final DescriptiveStatistics failedStatistics = new DescriptiveStatistics(1000);
+    private final LongAdder requestCounter = new LongAdder();
+    private final LongAdder successCounter = new LongAdder();
+    private final LongAdder failureCounter = new LongAdder();
+    private final LongAdder errorResponseCounter = new LongAdder();
+    // Trigger checks aren't requests of the fields, so their failures are counted on their own
+    private final LongAdder triggerFailureCounter = new LongAdder();
+    // Latencies in ns of the whole scrape and its phases
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LatencyHistogram connectLatencies = new LatencyHistogram();
+    private final LatencyHistogram requestLatencies = new LatencyHistogram();
+    private final LatencyHistogram handlerLatencies = new LatencyHistogram();
 
     public TriggeredScraperTask(PlcDriverManager driverManager,
                                 String jobName,
@@ -89,122 +104,328 @@ public class TriggeredScraperTask implements ScraperTask {
     @Override
     //ToDo code-refactoring and improved testing --> PLC4X-90
     public void run() {
-        if(this.triggerHandler.checkTrigger()) {
-            // Does a single fetch only when trigger is valid
-            LOGGER.trace("Start new scrape of task of job {} for connection {}", jobName, connectionAlias);
-            requestCounter.incrementAndGet();
-            StopWatch stopWatch = new StopWatch();
-            stopWatch.start();
-            PlcConnection connection = null;
-            try {
-                CompletableFuture<PlcConnection> future = CompletableFuture.supplyAsync(() -> {
-                    try {
-                        return driverManager.getConnection(connectionString);
-                    } catch (PlcConnectionException e) {
-                        LOGGER.warn("Unable to instantiate connection to " + connectionString, e);
-                        throw new PlcRuntimeException(e);
-                    }
-                }, executorService);
-                connection = future.get(10 * requestTimeoutMs, TimeUnit.MILLISECONDS);
-                LOGGER.trace("Connection to {} established: {}", connectionString, connection);
-                PlcReadResponse response;
-                try {
-                    PlcReadRequest.Builder builder = connection.readRequestBuilder();
-                    fields.forEach((alias, qry) -> {
-                        LOGGER.trace("Requesting: {} -> {}", alias, qry);
-                        builder.addItem(alias, qry);
-                    });
-                    response = builder
-                        .build()
-                        .execute()
-                        .get(requestTimeoutMs, TimeUnit.MILLISECONDS);
-                } catch (ExecutionException e) {
-                    // Handle execution exception
-                    handleException(e);
-                    return;
-                }
-                // Add statistics
-                stopWatch.stop();
-                latencyStatistics.addValue(stopWatch.getNanoTime());
-                failedStatistics.addValue(0.0);
-                successCounter.incrementAndGet();
-                // Validate response
-                validateResponse(response);
-                // Handle response (Async)
-                CompletableFuture.runAsync(() -> resultHandler.handle(jobName, connectionAlias, transformResponseToMap(response)), executorService);
-            } catch (Exception e) {
-                LOGGER.debug("Exception during scrape", e);
-                handleException(e);
-            } finally {
-                if (connection != null) {
-                    try {
-                        connection.close();
-                    } catch (Exception e) {
-                        LOGGER.warn("Error on closing connection",e);
-                    }
-                }
+        try {
+            scrape().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Already handled by the scrape itself
+            LOGGER.trace("Scrape failed", e);
+        }
+    }
+
+    /**
+     * Checks the trigger and scrapes the fields if it fired, without blocking the calling thread during I/O.
+     * The trigger variable is read on the same connection as the fields.
+     *
+     * @return a future completing when the scrape, including the handling of errors, is done.
+     */
+    public CompletableFuture<Void> scrape() {
+        if (triggerHandler.isScheduled()) {
+            return scrapeFields();
+        }
+        ScrapeTimings connectTimings = new ScrapeTimings();
+        return connect(driverManager, connectionString, requestTimeoutMs, connectTimings)
+            .thenCompose(connection -> withTimeout(triggerHandler.checkTrigger(connection), requestTimeoutMs)
+                .thenCompose(triggered -> triggered ? scrapeFields(connection) : CompletableFuture.<Void>completedFuture(null))
+                .whenComplete((ignore, throwable) -> closeQuietly(connection)))
+            .exceptionally(throwable -> {
+                handleTriggerFailure(throwable, connectTimings);
+                return null;
+            });
+    }
+
+    /**
+     * Scrapes the fields without checking the trigger, e.g. when a {@link TriggeredScrapeGroup} detected that it fired.
+     */
+    CompletableFuture<Void> scrapeFields() {
+        LOGGER.trace("Start new scrape of task of job {} for connection {}", jobName, connectionAlias);
+        requestCounter.increment();
+        ScrapeTimings timings = new ScrapeTimings();
+        return read(driverManager, connectionString, fields, requestTimeoutMs, timings).handle((response, throwable) -> {
+            if (throwable != null) {
+                handleFailure(throwable, timings);
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+            return handleResponse(response, fields.keySet(), Function.identity(), timings);
+        }).thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<Void> scrapeFields(PlcConnection connection) {
+        LOGGER.trace("Start triggered scrape of task of job {} for connection {}", jobName, connectionAlias);
+        requestCounter.increment();
+        ScrapeTimings timings = new ScrapeTimings();
+        // The connection is already there
+        timings.connectedNanos = timings.startNanos;
+        return read(connection, fields, requestTimeoutMs, timings).handle((response, throwable) -> {
+            if (throwable != null) {
+                handleFailure(throwable, timings);
+                return CompletableFuture.<Void>completedFuture(null);
             }
+            return handleResponse(response, fields.keySet(), Function.identity(), timings);
+        }).thenCompose(Function.identity());
+    }
+
+    /**
+     * Reads the given fields (alias -&gt; field-query) from a connection of the driver manager without blocking.
+     *
+     * @param timings records when the phases of the read are done.
+     */
+    static CompletableFuture<PlcReadResponse> read(PlcDriverManager driverManager, String connectionString, Map<String, String> fields, long requestTimeoutMs, ScrapeTimings timings) {
+        return connect(driverManager, connectionString, requestTimeoutMs, timings)
+            .thenCompose(connection -> read(connection, fields, requestTimeoutMs, timings)
+                .whenComplete((response, throwable) -> closeQuietly(connection)));
+    }
+
+    private static CompletableFuture<PlcConnection> connect(PlcDriverManager driverManager, String connectionString, long requestTimeoutMs, ScrapeTimings timings) {
+        return withTimeout(driverManager.getConnectionAsync(connectionString), 10 * requestTimeoutMs)
+            .whenComplete((connection, throwable) -> {
+                timings.connectedNanos = System.nanoTime();
+                if (throwable != null) {
+                    LOGGER.warn("Unable to instantiate connection to " + connectionString, throwable);
+                } else {
+                    LOGGER.trace("Connection to {} established: {}", connectionString, connection);
+                }
+            });
+    }
+
+    private static CompletableFuture<PlcReadResponse> read(PlcConnection connection, Map<String, String> fields, long requestTimeoutMs, ScrapeTimings timings) {
+        CompletableFuture<PlcReadResponse> readFuture;
+        try {
+            PlcReadRequest.Builder builder = connection.readRequestBuilder();
+            fields.forEach((alias, qry) -> {
+                LOGGER.trace("Requesting: {} -> {}", alias, qry);
+                builder.addItem(alias, qry);
+            });
+            readFuture = withTimeout(builder.build().execute(), requestTimeoutMs);
+        } catch (RuntimeException e) {
+            readFuture = new CompletableFuture<>();
+            readFuture.completeExceptionally(e);
         }
+        return readFuture.whenComplete((response, throwable) -> timings.respondedNanos = System.nanoTime());
+    }
+
+    /**
+     * Counts a request of this task that is performed by someone else, e.g. a {@link TriggeredScrapeGroup}.
+     */
+    void countRequest() {
+        requestCounter.increment();
+    }
+
+    /**
+     * Handles the failure of a request of this task.
+     */
+    void handleFailure(Throwable throwable, ScrapeTimings timings) {
+        handleException(toException(throwable, timings));
     }
 
-    private void validateResponse(PlcReadResponse response) {
-        Map<String, PlcResponseCode> failedFields = response.getFieldNames().stream()
-            .filter(name -> !PlcResponseCode.OK.equals(response.getResponseCode(name)))
-            .collect(Collectors.toMap(
-                Function.identity(),
-                response::getResponseCode
-            ));
+    /**
+     * Handles the failure to connect for or read the trigger variable of this task, which isn't counted as request.
+     */
+    void handleTriggerFailure(Throwable throwable, ScrapeTimings timings) {
+        handleTriggerException(toException(throwable, timings));
+    }
+
+    private Exception toException(Throwable throwable, ScrapeTimings timings) {
+        if (timings.connectedNanos != 0) {
+            connectLatencies.record(timings.connectedNanos - timings.startNanos);
+        }
+        Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+        return cause instanceof Exception ? (Exception) cause : new ExecutionException(cause);
+    }
+
+    /**
+     * Handles the fields of this task contained in the response of a request.
+     *
+     * @param aliases      the aliases of the fields of this task to handle.
+     * @param fieldNameMap maps an alias of this task to the field name in the response.
+     * @param timings      of the request.
+     * @return a future completing when the result handler accepted the values, see
+     * {@link ResultHandler#handleAsync(String, String, Map, java.util.concurrent.Executor)}.
+     */
+    CompletableFuture<Void> handleResponse(PlcReadResponse response, Collection<String> aliases, Function<String, String> fieldNameMap, ScrapeTimings timings) {
+        // Add statistics
+        latencies.record(timings.respondedNanos - timings.startNanos);
+        connectLatencies.record(timings.connectedNanos - timings.startNanos);
+        requestLatencies.record(timings.respondedNanos - timings.connectedNanos);
+        successCounter.increment();
+        // Validate response
+        Map<String, PlcResponseCode> failedFields = new HashMap<>();
+        Map<String, Object> values = new HashMap<>(aliases.size() * 4 / 3 + 1);
+        for (String alias : aliases) {
+            String fieldName = fieldNameMap.apply(alias);
+            PlcResponseCode responseCode = response.getResponseCode(fieldName);
+            if (!PlcResponseCode.OK.equals(responseCode)) {
+                failedFields.put(alias, responseCode);
+            }
+            values.put(alias, response.getObject(fieldName));
+        }
         if (failedFields.size() > 0) {
             handleErrorResponse(failedFields);
         }
+        // Handle response (Async), this might be an I/O thread of the driver
+        return handleResult(values);
+    }
+
+    /**
+     * Fails the given future with a {@link TimeoutException} if it isn't completed in time, without blocking a thread.
+     * The operation itself isn't cancelled, so resources it acquires late still have to be released by its stages.
+     */
+    private static <T> CompletableFuture<T> withTimeout(CompletableFuture<? extends T> future, long timeoutMs) {
+        if (future.isDone()) {
+            return future.thenApply(value -> value);
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        ScheduledFuture<?> timeout = TIMEOUT_TIMER.schedule(
+            () -> result.completeExceptionally(new TimeoutException("Not completed within " + timeoutMs + "ms")),
+            timeoutMs, TimeUnit.MILLISECONDS);
+        future.whenComplete((value, throwable) -> {
+            timeout.cancel(false);
+            if (throwable != null) {
+                result.completeExceptionally(throwable instanceof CompletionException ? throwable.getCause() : throwable);
+            } else if (!result.complete(value) && value instanceof PlcConnection) {
+                // Don't leak a connection established after the timeout
+                closeQuietly((PlcConnection) value);
+            }
+        });
+        return result;
+    }
+
+    private static ScheduledThreadPoolExecutor createTimeoutTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1,
+            new BasicThreadFactory.Builder()
+                .namingPattern("triggeredscraper-timeout-thread-%d")
+                .daemon(true)
+                .build());
+        // Cancelled timeouts are removed at once, otherwise they would keep the thread alive until they're due
+        timer.setRemoveOnCancelPolicy(true);
+        timer.setKeepAliveTime(10, TimeUnit.SECONDS);
+        timer.allowCoreThreadTimeOut(true);
+        return timer;
+    }
+
+    private static void closeQuietly(PlcConnection connection) {
+        try {
+            connection.close();
+        } catch (Exception e) {
+            LOGGER.warn("Error on closing connection",e);
+        }
     }
 
-    private Map<String, Object> transformResponseToMap(PlcReadResponse response) {
-        return response.getFieldNames().stream()
-            .collect(Collectors.toMap(
-                name -> name,
-                response::getObject
-            ));
+    /**
+     * The handler latency is the time until the result handler accepted the values.
+     */
+    private CompletableFuture<Void> handleResult(Map<String, Object> values) {
+        long handlerStart = System.nanoTime();
+        CompletableFuture<Void> accepted;
+        try {
+            accepted = resultHandler.handleAsync(jobName, connectionAlias, values, executorService);
+        } catch (RuntimeException e) {
+            accepted = new CompletableFuture<>();
+            accepted.completeExceptionally(e);
+        }
+        return accepted.handle((ignore, throwable) -> {
+            handlerLatencies.record(System.nanoTime() - handlerStart);
+            if (throwable != null) {
+                LOGGER.warn("Error handling the results of job {} for connection {}", jobName, connectionAlias, throwable);
+            }
+            return null;
+        });
     }
 
     @Override
     public String getJobName() {
-        return null;
+        return jobName;
     }
 
     @Override
     public String getConnectionAlias() {
-        return null;
+        return connectionAlias;
     }
 
     @Override
     public long getRequestCounter() {
-        return 0;
+        return requestCounter.sum();
     }
 
     @Override
     public long getSuccessfullRequestCounter() {
-        return 0;
+        return successCounter.sum();
     }
 
+    /**
+     * Latencies are kept in a lock-free histogram, so this returns its percentiles in steps of one percent.
+     *
+     * @deprecated the values are 100 percentile samples, not latencies of scrapes. Only the percentiles approximate
+     * the latencies in ns, N, min, max, mean and standard deviation don't. Use {@link #getLatencies()} instead.
+     */
+    @Deprecated
     @Override
     public DescriptiveStatistics getLatencyStatistics() {
-        return null;
+        DescriptiveStatistics statistics = new DescriptiveStatistics();
+        if (latencies.getCount() == 0) {
+            return statistics;
+        }
+        for (int i = 0; i < 100; i++) {
+            statistics.addValue(latencies.getPercentile(i + 0.5));
+        }
+        return statistics;
+    }
+
+    /**
+     * @return histogram of the latencies in ns of successful scrapes, from the start until the response arrived.
+     */
+    public LatencyHistogram getLatencies() {
+        return latencies;
     }
 
     @Override
     public double getPercentageFailed() {
-        return 0;
+        long failed = failureCounter.sum();
+        long finished = failed + successCounter.sum();
+        return finished == 0 ? 0 : 100.0 * failed / finished;
     }
 
     @Override
     public void handleException(Exception e) {
+        LOGGER.debug("Exception: ", e);
+        failureCounter.increment();
+    }
 
+    /**
+     * Handles an exception while checking the trigger, before any request of the fields.
+     */
+    public void handleTriggerException(Exception e) {
+        LOGGER.debug("Exception checking the trigger: ", e);
+        triggerFailureCounter.increment();
     }
 
     @Override
     public void handleErrorResponse(Map<String, PlcResponseCode> failed) {
+        LOGGER.warn("Handling error responses: {}", failed);
+        errorResponseCounter.increment();
+    }
 
+    public Map<String, Number> getStatistics() {
+        HashMap<String, Number> statistics = new HashMap<>();
+        statistics.put("requests", getRequestCounter());
+        statistics.put("successfulRequests", getSuccessfullRequestCounter());
+        statistics.put("failedRequests", failureCounter.sum());
+        statistics.put("errorResponses", errorResponseCounter.sum());
+        statistics.put("failedTriggerChecks", triggerFailureCounter.sum());
+        statistics.put("percentageFailed", getPercentageFailed());
+        putLatencies(statistics, "latency", latencies);
+        putLatencies(statistics, "connect", connectLatencies);
+        putLatencies(statistics, "request", requestLatencies);
+        putLatencies(statistics, "handler", handlerLatencies);
+        return statistics;
+    }
+
+    private static void putLatencies(Map<String, Number> statistics, String prefix, LatencyHistogram histogram) {
+        statistics.put(prefix + ".meanMs", histogram.getMean() / 1e6);
+        statistics.put(prefix + ".medianMs", histogram.getPercentile(50) / 1e6);
+        statistics.put(prefix + ".99thPercentileMs", histogram.getPercentile(99) / 1e6);
+        statistics.put(prefix + ".maxMs", histogram.getMax() / 1e6);
     }
 
     public PlcDriverManager getDriverManager() {
@@ -222,4 +443,38 @@ public class TriggeredScraperTask implements ScraperTask {
     public long getRequestTimeoutMs() {
         return requestTimeoutMs;
     }
+
+    Map<String, String> getFields() {
+        return fields;
+    }
+
+    boolean isScheduled() {
+        return triggerHandler.isScheduled();
+    }
+
+    /**
+     * @return the field-query of the trigger variable, null if the task is only scheduled.
+     */
+    String getTriggerFieldQuery() {
+        return triggerHandler.getTriggerFieldQuery();
+    }
+
+    /**
+     * Checks the trigger of this task on a response containing its trigger variable.
+     */
+    boolean checkTrigger(PlcReadResponse response, String fieldName) {
+        return triggerHandler.checkTrigger(response, fieldName);
+    }
+
+    /**
+     * When the phases of a scrape are done, written by the completion stages of the read.
+     */
+    static final class ScrapeTimings {
+
+        final long startNanos = System.nanoTime();
+
+        volatile long connectedNanos;
+
+        volatile long respondedNanos;
+    }
 }
@@ -0,0 +1,114 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.scraper.triggeredscraper.cluster;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Keeps track of the members and notifies the listeners when they change.
+ * <p>
+ * The listeners are called one after another on a thread of their own, outside of any lock of the membership, so a
+ * slow listener never delays the renewal of the lease. Changes that happen while the listeners are busy are merged,
+ * the listeners are only called with the latest members.
+ */
+public abstract class AbstractClusterMembership implements ClusterMembership {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractClusterMembership.class);
+
+    private final String localNodeId;
+
+    private final List<Consumer<Set<String>>> listeners = new CopyOnWriteArrayList<>();
+
+    private Set<String> members = Collections.emptySet();
+
+    // The thread times out while idle, so memberships need no shutdown
+    private final ThreadPoolExecutor notifier;
+
+    // Only accessed by the notifier
+    private Set<String> notifiedMembers = Collections.emptySet();
+
+    protected AbstractClusterMembership(String localNodeId) {
+        this.localNodeId = localNodeId;
+        this.notifier = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            new BasicThreadFactory.Builder()
+                .namingPattern("triggeredscraper-membership-thread-%d")
+                .daemon(true)
+                .build());
+        this.notifier.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public String getLocalNodeId() {
+        return localNodeId;
+    }
+
+    @Override
+    public synchronized Set<String> getMembers() {
+        return members;
+    }
+
+    @Override
+    public void addListener(Consumer<Set<String>> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Updates the members and notifies the listeners asynchronously if they changed, so it can be called while
+     * holding a lock.
+     */
+    protected void updateMembers(Set<String> newMembers) {
+        Set<String> changedMembers;
+        synchronized (this) {
+            if (members.equals(newMembers)) {
+                return;
+            }
+            changedMembers = Collections.unmodifiableSet(new TreeSet<>(newMembers));
+            members = changedMembers;
+        }
+        LOGGER.info("Members of the cluster seen by {} changed to {}", localNodeId, changedMembers);
+        notifier.execute(this::notifyListeners);
+    }
+
+    private void notifyListeners() {
+        Set<String> latestMembers = getMembers();
+        if (latestMembers.equals(notifiedMembers)) {
+            // Already notified by an earlier run
+            return;
+        }
+        notifiedMembers = latestMembers;
+        for (Consumer<Set<String>> listener : listeners) {
+            try {
+                listener.accept(latestMembers);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Error notifying listener about the members {}", latestMembers, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.scraper.triggeredscraper.cluster;
+
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Membership of the nodes of a scraper cluster.
+ * <p>
+ * A node holds a lease on its membership while it is joined, nodes that fail to renew their lease, e.g. because they
+ * crashed, drop out of the members after the lease expired. Implementations are expected to be eventually consistent,
+ * all nodes see the same members once the membership settled.
+ */
+public interface ClusterMembership {
+
+    /**
+     * @return the id of this node, unique within the cluster.
+     */
+    String getLocalNodeId();
+
+    /**
+     * Joins the cluster and starts renewing the lease of this node.
+     */
+    void join();
+
+    /**
+     * Leaves the cluster, the other nodes take over immediately instead of waiting for the lease to expire.
+     */
+    void leave();
+
+    /**
+     * @return the ids of all nodes currently holding a lease, including this node when joined.
+     */
+    Set<String> getMembers();
+
+    /**
+     * @param listener called with the new members whenever nodes join or leave. It's called asynchronously, one
+     *                 change after another, and might only see the latest of several quick changes.
+     */
+    void addListener(Consumer<Set<String>> listener);
+}
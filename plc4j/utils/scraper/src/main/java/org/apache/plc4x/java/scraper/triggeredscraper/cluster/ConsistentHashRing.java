@@ -0,0 +1,77 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.scraper.triggeredscraper.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Assigns keys to nodes by consistent hashing.
+ * <p>
+ * Every node is placed on the ring with a number of virtual nodes and a key belongs to the first node following its
+ * hash. When a node joins or leaves, only the keys between its virtual nodes and their predecessors move, about
+ * {@code 1/n} of all keys. Hashes are derived from MD5, so all nodes of a cluster compute the same assignment.
+ */
+public class ConsistentHashRing {
+
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+
+    public ConsistentHashRing(Collection<String> nodes) {
+        this(nodes, DEFAULT_VIRTUAL_NODES);
+    }
+
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        for (String node : nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    /**
+     * @return the node the key belongs to or {@code null} if there are no nodes.
+     */
+    public String getNode(String key) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    static long hash(String value) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM has to provide MD5
+            throw new IllegalStateException(e);
+        }
+        long hash = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            hash = (hash << 8) | (digest[i] & 0xFF);
+        }
+        return hash;
+    }
+}
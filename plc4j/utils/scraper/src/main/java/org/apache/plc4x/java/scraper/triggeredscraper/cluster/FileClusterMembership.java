@@ -0,0 +1,159 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.scraper.triggeredscraper.cluster;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.plc4x.java.api.exceptions.PlcRuntimeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Membership of nodes sharing a directory, e.g. on a network file system.
+ * <p>
+ * Every node holds its lease in a file named after its id, containing the time the lease expires. The lease is renewed
+ * three times per lease duration and all lease files are scanned on each renewal, so nodes that failed to renew are
+ * dropped within about one lease duration. The clocks of the nodes have to be roughly in sync.
+ */
+public class FileClusterMembership extends AbstractClusterMembership {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileClusterMembership.class);
+
+    public static final long DEFAULT_LEASE_MS = 10_000;
+
+    private static final String LEASE_SUFFIX = ".lease";
+
+    private final Path directory;
+
+    private final long leaseMs;
+
+    // Both only set while joined
+    private ScheduledExecutorService leaseScheduler;
+
+    private ScheduledFuture<?> renewal;
+
+    public FileClusterMembership(Path directory, String localNodeId) {
+        this(directory, localNodeId, DEFAULT_LEASE_MS);
+    }
+
+    public FileClusterMembership(Path directory, String localNodeId, long leaseMs) {
+        super(localNodeId);
+        this.directory = directory;
+        this.leaseMs = leaseMs;
+    }
+
+    @Override
+    public synchronized void join() {
+        if (renewal != null) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            renew();
+        } catch (IOException e) {
+            throw new PlcRuntimeException("Unable to join the cluster in " + directory, e);
+        }
+        leaseScheduler = Executors.newSingleThreadScheduledExecutor(
+            new BasicThreadFactory.Builder()
+                .namingPattern("triggeredscraper-lease-thread-%d")
+                .daemon(true)
+                .build()
+        );
+        renewal = leaseScheduler.scheduleAtFixedRate(this::renewWhileJoined, leaseMs / 3, leaseMs / 3, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void leave() {
+        if (renewal == null) {
+            return;
+        }
+        renewal.cancel(false);
+        renewal = null;
+        leaseScheduler.shutdown();
+        leaseScheduler = null;
+        try {
+            Files.deleteIfExists(leaseFile(getLocalNodeId()));
+        } catch (IOException e) {
+            LOGGER.warn("Unable to release the lease of {}, it expires in {} ms", getLocalNodeId(), leaseMs, e);
+        }
+        updateMembers(Collections.emptySet());
+    }
+
+    /**
+     * Runs under the same lock as {@link #leave()}, so a renewal never rewrites the lease after it was released.
+     */
+    private synchronized void renewWhileJoined() {
+        if (renewal == null) {
+            return;
+        }
+        try {
+            renew();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Unable to renew the lease of {}", getLocalNodeId(), e);
+        }
+    }
+
+    private void renew() throws IOException {
+        long now = System.currentTimeMillis();
+        // Write and move, so other nodes never read a partially written lease
+        Path tmp = directory.resolve(getLocalNodeId() + LEASE_SUFFIX + ".tmp");
+        Files.write(tmp, Long.toString(now + leaseMs).getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, leaseFile(getLocalNodeId()), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        updateMembers(scan(now));
+    }
+
+    private Set<String> scan(long now) throws IOException {
+        Set<String> members = new HashSet<>();
+        try (DirectoryStream<Path> leases = Files.newDirectoryStream(directory, "*" + LEASE_SUFFIX)) {
+            for (Path lease : leases) {
+                String fileName = lease.getFileName().toString();
+                if (readExpiry(lease) > now) {
+                    members.add(fileName.substring(0, fileName.length() - LEASE_SUFFIX.length()));
+                }
+            }
+        }
+        return members;
+    }
+
+    private static long readExpiry(Path lease) throws IOException {
+        try {
+            return Long.parseLong(new String(Files.readAllBytes(lease), StandardCharsets.UTF_8).trim());
+        } catch (NoSuchFileException | NumberFormatException e) {
+            // Released in the meantime or not a lease
+            return 0;
+        }
+    }
+
+    private Path leaseFile(String nodeId) {
+        return directory.resolve(nodeId + LEASE_SUFFIX);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.scraper.triggeredscraper.cluster;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Membership of nodes within the same JVM, e.g. for tests or to run several scrapers side by side.
+ * <p>
+ * All nodes sharing the same {@link Group} are members of the same cluster. Leases never expire, a crashed node can be
+ * simulated with {@link #leave()}.
+ */
+public class LocalClusterMembership extends AbstractClusterMembership {
+
+    private final Group group;
+
+    public LocalClusterMembership(Group group, String localNodeId) {
+        super(localNodeId);
+        this.group = group;
+    }
+
+    @Override
+    public void join() {
+        group.join(this);
+    }
+
+    @Override
+    public void leave() {
+        group.leave(this);
+        updateMembers(Collections.emptySet());
+    }
+
+    /**
+     * The nodes of one cluster.
+     */
+    public static class Group {
+
+        private final Map<String, LocalClusterMembership> nodes = new ConcurrentHashMap<>();
+
+        private synchronized void join(LocalClusterMembership node) {
+            nodes.put(node.getLocalNodeId(), node);
+            publish();
+        }
+
+        private synchronized void leave(LocalClusterMembership node) {
+            nodes.remove(node.getLocalNodeId(), node);
+            publish();
+        }
+
+        private void publish() {
+            Set<String> members = nodes.keySet();
+            nodes.values().forEach(node -> node.updateMembers(members));
+        }
+    }
+}
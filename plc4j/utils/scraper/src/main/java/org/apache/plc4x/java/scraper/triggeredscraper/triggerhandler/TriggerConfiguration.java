@@ -38,6 +38,7 @@ public class TriggerConfiguration{
     private static final Logger logger = LoggerFactory.getLogger(TriggerConfiguration.class);
 
     private static final String S_7_TRIGGER_VAR = "S7_TRIGGER_VAR";
+    private static final String TRIGGER_VAR = "TRIGGER_VAR";
     private static final String SCHEDULED = "SCHEDULED";
 
     private static final double TOLERANCE_FLOATING_EQUALITY = 1e-6;
@@ -54,9 +55,11 @@ public class TriggerConfiguration{
 
     private final Object compareValue;
     private final PlcField plcField;
+    private final Class<?> dataType;
 
     /**
-     * default constructor when an S7Field should be used for triggering
+     * default constructor when a field of any driver should be used for triggering
+     * or when an S7Field should be used and validated for triggering
      * @param triggerType type of trigger from enum
      * @param scrapeInterval scrape interval of triggered variable
      * @param triggerVariable field that is conditional for trigger comparison
@@ -82,7 +85,12 @@ public class TriggerConfiguration{
                 String exceptionMessage = String.format("Invalid trigger Field for Job %s: %s", triggeredScrapeJobImpl.getJobName(), triggerVariable);
                 throw new ScraperException(exceptionMessage);
             }
-            //ToDo add more and other trigger
+            this.dataType = validateDataType();
+        }
+        else if(this.triggerType.equals(TriggerType.TRIGGER_VAR)) {
+            //the field is only parsed by the driver of the connection, so the data-type is derived from the compare-value
+            this.plcField = null;
+            this.dataType = detectDataType(compareValue);
         }
         else{
             String exceptionMessage = String.format("TriggerType %s is not yet implemented", this.triggerType);
@@ -109,6 +117,7 @@ public class TriggerConfiguration{
         this.comparator = null;
         this.compareValue = null;
         this.plcField = null;
+        this.dataType = null;
         this.comparatorType = null;
     }
 
@@ -136,7 +145,7 @@ public class TriggerConfiguration{
      * @throws ScraperException when something goes wrong
      */
     boolean evaluateTrigger(Object value) throws ScraperException {
-        if(validateDataType().equals(Boolean.class)){
+        if(dataType.equals(Boolean.class)){
             boolean currentValue;
             boolean refValue;
             try{
@@ -154,9 +163,9 @@ public class TriggerConfiguration{
                 return currentValue != refValue;
             }
         }
-        if(validateDataType().equals(Double.class)
-            || validateDataType().equals(Integer.class)
-            || validateDataType().equals(Long.class)) {
+        if(dataType.equals(Double.class)
+            || dataType.equals(Integer.class)
+            || dataType.equals(Long.class)) {
             double currentValue;
             double refValue;
             try{
@@ -175,6 +184,8 @@ public class TriggerConfiguration{
                         else{
                             if (value instanceof Double) {
                                 currentValue = (Double) value;
+                            }else if (value instanceof Number) {
+                                currentValue = ((Number) value).doubleValue();
                             }else {
                                 currentValue = (double) value;
                             }
@@ -245,9 +256,9 @@ public class TriggerConfiguration{
      * @throws ScraperException when invalid combination is detected
      */
     private void matchTypeAndComparator() throws ScraperException {
-        if(validateDataType().equals(Boolean.class)
+        if(dataType.equals(Boolean.class)
             && !(this.comparatorType.equals(Comparators.EQUAL) || this.comparatorType.equals(Comparators.UNEQUAL))){
-            String exceptionMessage = String.format("Trigger-Data-Type (%s) and Comparator (%s) do not match",this.plcField.getDefaultJavaType(),this.comparatorType);
+            String exceptionMessage = String.format("Trigger-Data-Type (%s) and Comparator (%s) do not match",dataType,this.comparatorType);
             throw new ScraperException(exceptionMessage);
         }
         //all other combinations are valid
@@ -279,6 +290,27 @@ public class TriggerConfiguration{
 
     }
 
+    /**
+     * derives the base type for comparison from the ref-value, when no driver specific field is available
+     * @param compareValue compare-value extracted by regex
+     * @return Boolean for true and false, Double otherwise
+     * @throws ScraperException when the compare-value is neither boolean nor numeric
+     */
+    private Class<?> detectDataType(String compareValue) throws ScraperException {
+        if("true".equals(compareValue) || "false".equals(compareValue)){
+            return Boolean.class;
+        }
+        try {
+            Double.parseDouble(compareValue);
+            return Double.class;
+        }
+        catch (NumberFormatException e){
+            logger.debug(e.getMessage(), e);
+            String exceptionMessage = String.format("No valid compare Value for trigger for Job %s: %s",triggeredScrapeJobImpl.getJobName(),compareValue);
+            throw new ScraperException(exceptionMessage);
+        }
+    }
+
     /**
      * parses the ref-value to a given value, as well as checking if ref-value matches to the given data-type
      * @param compareValue compare-value extracted by regex
@@ -286,7 +318,7 @@ public class TriggerConfiguration{
      * @throws ScraperException when something does not match or parsing fails
      */
     private Object convertCompareValue(String compareValue) throws ScraperException {
-        Class<?> javaDataType =validateDataType();
+        Class<?> javaDataType = dataType;
         if(javaDataType.equals(Boolean.class)){
             switch (compareValue){
                 case "1":
@@ -344,6 +376,11 @@ public class TriggerConfiguration{
                         throw new ScraperException("S7_TRIGGER_VAR trigger strategy needs the trigger-condition - information missing! given configString: "+jobTriggerStrategy);
                     }
                     return new TriggerConfiguration(TriggerType.S7_TRIGGER_VAR,scheduledMs,triggerVar,comparatorString,comparatorVariable,triggeredScrapeJob);
+                case TRIGGER_VAR:
+                    if(triggerVar ==null || comparatorString==null || comparatorVariable==null){
+                        throw new ScraperException("TRIGGER_VAR trigger strategy needs the trigger-condition - information missing! given configString: "+jobTriggerStrategy);
+                    }
+                    return new TriggerConfiguration(TriggerType.TRIGGER_VAR,scheduledMs,triggerVar,comparatorString,comparatorVariable,triggeredScrapeJob);
                 case SCHEDULED:
                     if(triggerVar !=null || comparatorString!=null || comparatorVariable!=null){
                         throw new ScraperException("SCHEDULED trigger strategy must only be used with scheduled interval - nothing more!  given configString: "+jobTriggerStrategy);
@@ -407,6 +444,7 @@ public class TriggerConfiguration{
     //ToDo replace constant TriggerType by more generic ones --> PLC4X-89
     public enum TriggerType {
         SCHEDULED,
-        S7_TRIGGER_VAR
+        S7_TRIGGER_VAR,
+        TRIGGER_VAR
     }
 }
\ No newline at end of file
@@ -19,10 +19,9 @@
 package org.apache.plc4x.java.scraper.triggeredscraper.triggerhandler;
 
 import org.apache.plc4x.java.api.PlcConnection;
-import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
-import org.apache.plc4x.java.api.exceptions.PlcRuntimeException;
 import org.apache.plc4x.java.api.messages.PlcReadRequest;
 import org.apache.plc4x.java.api.messages.PlcReadResponse;
+import org.apache.plc4x.java.api.types.PlcResponseCode;
 import org.apache.plc4x.java.scraper.exception.ScraperException;
 import org.apache.plc4x.java.scraper.triggeredscraper.TriggeredScrapeJobImpl;
 import org.apache.plc4x.java.scraper.triggeredscraper.TriggeredScraperTask;
@@ -30,7 +29,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
 
 /**
  * holds the handler for the regarding trigger-scraper on rising-trigger edge
@@ -43,7 +41,7 @@ public class TriggerHandler {
     private final TriggeredScraperTask parentScraperTask;
 
     //used to enable trigger only on rising edge
-    private boolean lastTriggerState;
+    private volatile boolean lastTriggerState;
 
     public TriggerHandler(String triggerStrategy, TriggeredScrapeJobImpl triggeredScrapeJob,TriggeredScraperTask parentScraperTask) throws ScraperException {
         this.triggerConfiguration = TriggerConfiguration.createConfiguration(triggerStrategy,triggeredScrapeJob);
@@ -52,49 +50,61 @@ public class TriggerHandler {
     }
 
     /**
-     * checks rising edge of trigger event
-     * @return true on detection of rising edge, false otherwise
+     * @return true if the trigger always fires, so that scrapes only depend on the scheduling
      */
-    public boolean checkTrigger(){
-        switch (this.triggerConfiguration.getTriggerType()){
-            case SCHEDULED:
-                //used base scheduling -> trigger is always true
-                return true;
-            case S7_TRIGGER_VAR:
-                return checkS7TriggerVariable();
-            default:
-                //should not happen
-                return false;
-        }
+    public boolean isScheduled(){
+        return this.triggerConfiguration.getTriggerType() == TriggerConfiguration.TriggerType.SCHEDULED;
     }
 
     /**
-     * acquires the given S7Field from S7 and evaluates if trigger is released
-     * @return true if rising-edge of trigger is detected, false otherwise
+     * @return the field-query of the trigger variable in the syntax of the driver, null for scheduled triggers
      */
-    private boolean checkS7TriggerVariable(){
+    public String getTriggerFieldQuery(){
+        return this.triggerConfiguration.getTriggerVariable();
+    }
 
-        CompletableFuture<PlcConnection> future = CompletableFuture.supplyAsync(() -> {
-            try {
-                return parentScraperTask.getDriverManager().getConnection(parentScraperTask.getConnectionString());
-            } catch (PlcConnectionException e) {
-                LOGGER.warn("Unable to instantiate connection to " + parentScraperTask.getConnectionString(), e);
-                throw new PlcRuntimeException(e);
-            }
-        }, parentScraperTask.getExecutorService());
-        PlcConnection connection = null;
+    /**
+     * checks rising edge of trigger event by reading the trigger variable on the given connection,
+     * so that the connection can be reused for the scrape
+     * @param connection connection to the device the trigger variable belongs to
+     * @return future completing with true on detection of rising edge, false otherwise
+     */
+    public CompletableFuture<Boolean> checkTrigger(PlcConnection connection){
+        if (isScheduled()) {
+            //used base scheduling -> trigger is always true
+            return CompletableFuture.completedFuture(true);
+        }
         try {
-            connection = future.get(parentScraperTask.getRequestTimeoutMs(), TimeUnit.MILLISECONDS);
-            LOGGER.trace("Connection to {} established: {}", parentScraperTask.getConnectionString(), connection);
+            // Not cached, as pooled connections hand out a new wrapper on every borrow the request would be bound to
             PlcReadRequest.Builder builder = connection.readRequestBuilder();
-            builder.addItem(TRIGGER, triggerConfiguration.getTriggerVariable());
-            PlcReadResponse response = builder
-                .build()
-                .execute()
-                .get(parentScraperTask.getRequestTimeoutMs(), TimeUnit.MILLISECONDS);
+            builder.addItem(TRIGGER, getTriggerFieldQuery());
+            return builder.build().execute()
+                .thenApply(response -> checkTrigger(response, TRIGGER));
+        } catch (RuntimeException e) {
+            CompletableFuture<Boolean> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
 
+    /**
+     * checks rising edge of trigger event on a response containing the trigger variable,
+     * e.g. when it is read together with the data
+     * @param response response containing the trigger variable
+     * @param fieldName name of the trigger variable in the response
+     * @return true on detection of rising edge, false otherwise
+     */
+    public boolean checkTrigger(PlcReadResponse response, String fieldName){
+        if (isScheduled()) {
+            return true;
+        }
+        try {
+            if (!PlcResponseCode.OK.equals(response.getResponseCode(fieldName))) {
+                throw new ScraperException("Unable to read trigger variable " + getTriggerFieldQuery() + ": " + response.getResponseCode(fieldName));
+            }
             //check if trigger condition from TriggerConfiguration is fulfilled
-            boolean trigger = triggerConfiguration.evaluateTrigger(response.getObject(TRIGGER));
+            boolean trigger = triggerConfiguration.evaluateTrigger(response.getObject(fieldName));
+            LOGGER.trace("Trigger {} evaluated to {}", getTriggerFieldQuery(), trigger);
 
             //only trigger scraping of data on rising edge of trigger
             if(trigger && !this.lastTriggerState){
@@ -105,27 +115,10 @@ public class TriggerHandler {
                 this.lastTriggerState = trigger;
                 return false;
             }
-
-        } catch (Exception e) {
+        } catch (ScraperException e) {
             // Handle execution exception
-            parentScraperTask.handleException(e);
+            parentScraperTask.handleTriggerException(e);
             return false;
         }
-        finally {
-            if (connection != null) {
-                try {
-                    connection.close();
-                } catch (Exception e) {
-                    LOGGER.warn("Error on closing connection",e);
-                    // intentionally do nothing
-                }
-            }
-        }
     }
-
-
-
-
-
-
 }
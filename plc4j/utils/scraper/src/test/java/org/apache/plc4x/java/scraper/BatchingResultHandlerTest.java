@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.plc4x.java.scraper;
+
+import org.assertj.core.api.WithAssertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class BatchingResultHandlerTest implements WithAssertions {
+
+    private final List<List<ScrapeResult>> batches = new CopyOnWriteArrayList<>();
+
+    @Test
+    void handsOverFullBatches() throws Exception {
+        BatchingResultHandler SUT = new BatchingResultHandler(batches::add, 100, 10, 10_000,
+            BatchingResultHandler.OverflowPolicy.DROP, BatchingResultHandler.DEFAULT_SAMPLE_RATE);
+        for (int i = 0; i < 25; i++) {
+            SUT.handle("job", "alias", Collections.singletonMap("i", i));
+        }
+        SUT.close();
+
+        assertThat(batches).hasSize(3);
+        assertThat(batches.get(0)).hasSize(10);
+        assertThat(batches.get(0).get(0).getResults()).containsEntry("i", 0);
+        assertThat(batches.get(2)).hasSize(5);
+        assertThat(SUT.getStatistics()).contains(
+            entry("enqueued", 25L),
+            entry("dropped", 0L),
+            entry("batches", 3L)
+        );
+    }
+
+    @Test
+    void handsOverPartialBatchAfterLinger() throws Exception {
+        try (BatchingResultHandler SUT = new BatchingResultHandler(batches::add, 100, 10, 20,
+            BatchingResultHandler.OverflowPolicy.DROP, BatchingResultHandler.DEFAULT_SAMPLE_RATE)) {
+            SUT.handle("job", "alias", Collections.emptyMap());
+            Thread.sleep(200);
+            assertThat(batches).hasSize(1);
+            assertThat(batches.get(0)).extracting(ScrapeResult::getJob).containsExactly("job");
+        }
+    }
+
+    @Test
+    void dropsWhenFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (BatchingResultHandler SUT = new BatchingResultHandler(results -> await(release), 5, 1, 0,
+            BatchingResultHandler.OverflowPolicy.DROP, BatchingResultHandler.DEFAULT_SAMPLE_RATE)) {
+            // The first result is held by the blocked handler
+            SUT.handle("job", "alias", Collections.emptyMap());
+            while (SUT.getQueueDepth() > 0) {
+                Thread.sleep(1);
+            }
+            for (int i = 0; i < 20; i++) {
+                SUT.handle("job", "alias", Collections.emptyMap());
+            }
+            assertThat(SUT.getQueueDepth()).isEqualTo(5);
+            assertThat(SUT.getStatistics()).contains(entry("dropped", 15L));
+            release.countDown();
+        }
+    }
+
+    @Test
+    void samplesWhenFillingUp() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (BatchingResultHandler SUT = new BatchingResultHandler(results -> await(release), 100, 1, 0,
+            BatchingResultHandler.OverflowPolicy.SAMPLE, 10)) {
+            for (int i = 0; i < 200; i++) {
+                SUT.handle("job", "alias", Collections.emptyMap());
+            }
+            // Every 10th result beyond 3/4 of the capacity is still accepted
+            assertThat(SUT.getQueueDepth()).isBetween(75, 90);
+            release.countDown();
+        }
+    }
+
+    @Test
+    void blocksWhenFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (BatchingResultHandler SUT = new BatchingResultHandler(results -> await(release), 1, 1, 0,
+            BatchingResultHandler.OverflowPolicy.BLOCK, BatchingResultHandler.DEFAULT_SAMPLE_RATE)) {
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < 3; i++) {
+                    SUT.handle("job", "alias", Collections.emptyMap());
+                }
+            });
+            producer.start();
+            producer.join(200);
+            assertThat(producer.isAlive()).isTrue();
+
+            release.countDown();
+            producer.join(1000);
+            assertThat(producer.isAlive()).isFalse();
+            assertThat(SUT.getStatistics().get("dropped")).isEqualTo(0L);
+        }
+    }
+
+    @Test
+    void handleAsyncWaitsWithoutBlocking() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (BatchingResultHandler SUT = new BatchingResultHandler(results -> await(release), 1, 1, 0,
+            BatchingResultHandler.OverflowPolicy.BLOCK, BatchingResultHandler.DEFAULT_SAMPLE_RATE)) {
+            List<CompletableFuture<Void>> accepted = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                // The executor is only for handlers that might block
+                accepted.add(SUT.handleAsync("job", "alias", Collections.emptyMap(), command -> {
+                    throw new AssertionError("Must not be used");
+                }));
+            }
+            // Returned on the calling thread although the queue is full
+            assertThat(accepted.get(2)).isNotDone();
+
+            release.countDown();
+            CompletableFuture.allOf(accepted.toArray(new CompletableFuture[0])).get(1, TimeUnit.SECONDS);
+            assertThat(SUT.getStatistics().get("dropped")).isEqualTo(0L);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.plc4x.java.scraper;
+
+import org.assertj.core.api.WithAssertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+class ChangeDetectingResultHandlerTest implements WithAssertions {
+
+    private final List<Map<String, Object>> emitted = new ArrayList<>();
+
+    private final ResultHandler resultHandler = (job, alias, results) -> emitted.add(results);
+
+    @Test
+    void handleAsyncUsesWrappedHandler() {
+        CompletableFuture<Void> accepted = new CompletableFuture<>();
+        ResultHandler nonBlocking = new ResultHandler() {
+            @Override
+            public void handle(String job, String alias, Map<String, Object> results) {
+                throw new AssertionError("Must not be called");
+            }
+
+            @Override
+            public CompletableFuture<Void> handleAsync(String job, String alias, Map<String, Object> results, Executor executor) {
+                emitted.add(results);
+                return accepted;
+            }
+        };
+        ChangeDetectingResultHandler SUT = new ChangeDetectingResultHandler(nonBlocking, ChangeDetectingResultHandler.Settings.EXACT);
+
+        assertThat(SUT.handleAsync("job", "plc", results(1, "on"), Runnable::run)).isSameAs(accepted);
+        // Nothing changed, so nothing to wait for
+        assertThat(SUT.handleAsync("job", "plc", results(1, "on"), Runnable::run)).isDone();
+        assertThat(emitted).containsExactly(results(1, "on"));
+    }
+
+    @Test
+    void passesOnlyChangedFields() {
+        ChangeDetectingResultHandler SUT = new ChangeDetectingResultHandler(resultHandler, ChangeDetectingResultHandler.Settings.EXACT);
+
+        SUT.handle("job", "plc", results(1, "on"));
+        SUT.handle("job", "plc", results(1, "on"));
+        SUT.handle("job", "plc", results(2, "on"));
+        SUT.handle("job", "plc", results(2, "off"));
+        // Other connections are tracked separately
+        SUT.handle("job", "otherPlc", results(2, "off"));
+
+        assertThat(emitted).containsExactly(
+            results(1, "on"),
+            singleton("number", 2),
+            singleton("text", "off"),
+            results(2, "off")
+        );
+        assertThat(SUT.getStatistics()).contains(
+            entry("received", 5L),
+            entry("emitted", 4L),
+            entry("suppressedFields", 4L)
+        );
+    }
+
+    @Test
+    void suppressesChangesWithinDeadbands() {
+        ChangeDetectingResultHandler SUT = new ChangeDetectingResultHandler(resultHandler,
+            ChangeDetectingResultHandler.Settings.EXACT, singletonSettings("job", new ChangeDetectingResultHandler.Settings(0.5, 10, 0)));
+
+        SUT.handle("job", "plc", singleton("number", 100.0));
+        // Within the percent deadband
+        SUT.handle("job", "plc", singleton("number", 105.0));
+        // The drift accumulates against the last passed value
+        SUT.handle("job", "plc", singleton("number", 110.5));
+        // Other jobs use the default settings
+        SUT.handle("otherJob", "plc", singleton("number", 1.0));
+        SUT.handle("otherJob", "plc", singleton("number", 1.1));
+
+        assertThat(emitted).containsExactly(
+            singleton("number", 100.0),
+            singleton("number", 110.5),
+            singleton("number", 1.0),
+            singleton("number", 1.1)
+        );
+    }
+
+    @Test
+    void passesSnapshotOnHeartbeat() throws Exception {
+        ChangeDetectingResultHandler SUT = new ChangeDetectingResultHandler(resultHandler, new ChangeDetectingResultHandler.Settings(0, 0, 20));
+
+        SUT.handle("job", "plc", results(1, "on"));
+        SUT.handle("job", "plc", results(1, "on"));
+        Thread.sleep(30);
+        SUT.handle("job", "plc", results(1, "on"));
+
+        assertThat(emitted).containsExactly(results(1, "on"), results(1, "on"));
+        assertThat(SUT.getStatistics()).contains(entry("heartbeats", 2L));
+    }
+
+    private static Map<String, Object> results(Object number, Object text) {
+        Map<String, Object> results = new HashMap<>();
+        results.put("number", number);
+        results.put("text", text);
+        return results;
+    }
+
+    private static Map<String, Object> singleton(String field, Object value) {
+        Map<String, Object> results = new HashMap<>();
+        results.put(field, value);
+        return results;
+    }
+
+    private static Map<String, ChangeDetectingResultHandler.Settings> singletonSettings(String job, ChangeDetectingResultHandler.Settings settings) {
+        Map<String, ChangeDetectingResultHandler.Settings> jobSettings = new HashMap<>();
+        jobSettings.put(job, settings);
+        return jobSettings;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.scraper.triggeredscraper;
+
+import org.assertj.core.api.WithAssertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+class ScrapeSchedulerTest implements WithAssertions {
+
+    @Test
+    void scrapesAtFixedRate() throws Exception {
+        try (ScrapeScheduler SUT = new ScrapeScheduler()) {
+            CountDownLatch latch = new CountDownLatch(5);
+            SUT.schedule("job/fast", () -> {
+                latch.countDown();
+                return CompletableFuture.completedFuture(null);
+            }, 10);
+
+            assertThat(latch.await(1, TimeUnit.SECONDS)).isTrue();
+            assertThat(SUT.getStatistics()).contains(
+                entry("job/fast.targetCycleTimeMs", 10L),
+                entry("job/fast.overruns", 0L)
+            );
+            assertThat(SUT.getStatistics().get("job/fast.actualCycleTimeMeanMs").doubleValue()).isGreaterThan(5);
+        }
+    }
+
+    @Test
+    void skipsOverruns() throws Exception {
+        try (ScrapeScheduler SUT = new ScrapeScheduler()) {
+            AtomicInteger executions = new AtomicInteger();
+            CompletableFuture<Void> pending = new CompletableFuture<>();
+            SUT.schedule("job/slow", () -> {
+                executions.incrementAndGet();
+                return pending;
+            }, 5);
+
+            Thread.sleep(100);
+            assertThat(executions).hasValue(1);
+            assertThat(SUT.getStatistics().get("job/slow.overruns").longValue()).isGreaterThan(0);
+            assertThat(SUT.getStatistics().get("job/slow.skipped").longValue()).isGreaterThan(0);
+        }
+    }
+
+    @Test
+    void queuesOneOverrun() throws Exception {
+        try (ScrapeScheduler SUT = new ScrapeScheduler(ScrapeScheduler.DEFAULT_TICK_DURATION_MS,
+            ScrapeScheduler.DEFAULT_TICKS_PER_WHEEL, ScrapeScheduler.OverrunPolicy.QUEUE)) {
+            AtomicInteger executions = new AtomicInteger();
+            AtomicReference<CompletableFuture<Void>> pending = new AtomicReference<>(new CompletableFuture<>());
+            CountDownLatch secondExecution = new CountDownLatch(1);
+            SUT.schedule("job/queued", () -> {
+                if (executions.incrementAndGet() == 2) {
+                    secondExecution.countDown();
+                    return CompletableFuture.completedFuture(null);
+                }
+                return pending.get();
+            }, 20);
+
+            Thread.sleep(70);
+            assertThat(executions).hasValue(1);
+            // Completing the first scrape immediately starts the queued one
+            pending.get().complete(null);
+            assertThat(secondExecution.await(100, TimeUnit.MILLISECONDS)).isTrue();
+        }
+    }
+
+    @Test
+    void blockingStartDoesNotDelayOtherScrapes() throws Exception {
+        try (ScrapeScheduler SUT = new ScrapeScheduler()) {
+            CountDownLatch release = new CountDownLatch(1);
+            SUT.schedule("job/blocking", () -> {
+                try {
+                    // E.g. a synchronous connect to an unreachable device
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return CompletableFuture.completedFuture(null);
+            }, 10);
+            CountDownLatch latch = new CountDownLatch(5);
+            SUT.schedule("job/fast", () -> {
+                latch.countDown();
+                return CompletableFuture.completedFuture(null);
+            }, 10);
+
+            try {
+                assertThat(latch.await(200, TimeUnit.MILLISECONDS)).isTrue();
+                assertThat(SUT.getStatistics().get("job/fast.actualCycleTimeMaxMs").doubleValue()).isLessThan(100);
+            } finally {
+                release.countDown();
+            }
+        }
+    }
+
+    @Test
+    void cancelStopsScrapes() throws Exception {
+        try (ScrapeScheduler SUT = new ScrapeScheduler()) {
+            AtomicInteger executions = new AtomicInteger();
+            ScrapeScheduler.ScheduledScrape scheduledScrape = SUT.schedule("job/cancelled", () -> {
+                executions.incrementAndGet();
+                return CompletableFuture.completedFuture(null);
+            }, 5);
+            Thread.sleep(20);
+            scheduledScrape.cancel();
+            int executionsAtCancel = executions.get();
+
+            Thread.sleep(30);
+            assertThat(scheduledScrape.isCancelled()).isTrue();
+            assertThat(executions.get()).isLessThanOrEqualTo(executionsAtCancel + 1);
+            assertThat(SUT.getNumberOfScheduledScrapes()).isZero();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.scraper.triggeredscraper;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.plc4x.java.PlcDriverManager;
+import org.apache.plc4x.java.api.types.PlcResponseCode;
+import org.apache.plc4x.java.base.messages.items.DefaultStringFieldItem;
+import org.apache.plc4x.java.mock.MockDevice;
+import org.apache.plc4x.java.mock.PlcMockConnection;
+import org.apache.plc4x.java.scraper.ResultHandler;
+import org.apache.plc4x.java.scraper.ScrapeJob;
+import org.apache.plc4x.java.scraper.triggeredscraper.cluster.FileClusterMembership;
+import org.apache.plc4x.java.scraper.triggeredscraper.cluster.LocalClusterMembership;
+import org.assertj.core.api.WithAssertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+class ShardedTriggeredScraperTest implements WithAssertions {
+
+    private final PlcDriverManager driverManager = new PlcDriverManager();
+
+    @Mock
+    MockDevice mockDevice;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void sourcesAreScrapedByOneNode() throws Exception {
+        ScrapeJob job = job();
+        Map<String, Set<String>> scrapedBy = new ConcurrentHashMap<>();
+        LocalClusterMembership.Group group = new LocalClusterMembership.Group();
+        ShardedTriggeredScraper first = new ShardedTriggeredScraper(recordingHandler("first", scrapedBy), driverManager,
+            Collections.singletonList(job), new LocalClusterMembership(group, "first"));
+        ShardedTriggeredScraper second = new ShardedTriggeredScraper(recordingHandler("second", scrapedBy), driverManager,
+            Collections.singletonList(job), new LocalClusterMembership(group, "second"));
+
+        first.start();
+        assertThat(first.getNumberOfActiveTasks()).isEqualTo(10);
+        second.start();
+        // The listeners are notified asynchronously
+        await(() -> first.getStatistics().get("cluster.members").intValue() == 2);
+        assertThat(first.getNumberOfActiveTasks() + second.getNumberOfActiveTasks()).isEqualTo(10);
+        assertThat(second.getStatistics()).contains(entry("cluster.members", 2));
+        // Let scrapes of the moved sources that were in flight during the rebalance complete
+        Thread.sleep(50);
+        scrapedBy.clear();
+        Thread.sleep(100);
+        assertThat(scrapedBy).hasSize(10);
+        assertThat(scrapedBy.values()).allSatisfy(nodes -> assertThat(nodes).hasSize(1));
+
+        // The remaining node takes over
+        second.stop();
+        await(() -> first.getNumberOfActiveTasks() == 10);
+        assertThat(second.getNumberOfActiveTasks()).isZero();
+        first.stop();
+    }
+
+    @Test
+    void sourcesOfLeavingMemberAreTakenOver() throws Exception {
+        ScrapeJob job = job();
+        Map<String, Set<String>> scrapedBy = new ConcurrentHashMap<>();
+        ShardedTriggeredScraper first = new ShardedTriggeredScraper(recordingHandler("first", scrapedBy), driverManager,
+            Collections.singletonList(job), new FileClusterMembership(directory, "first", 300));
+        ShardedTriggeredScraper second = new ShardedTriggeredScraper(recordingHandler("second", scrapedBy), driverManager,
+            Collections.singletonList(job), new FileClusterMembership(directory, "second", 300));
+        first.start();
+        second.start();
+        // The first node sees the second one with its next renewal
+        await(() -> first.getStatistics().get("cluster.members").intValue() == 2);
+        int firstSources = first.getStatistics().get("cluster.ownedSources").intValue();
+        assertThat(firstSources).isBetween(1, 9);
+        assertThat(firstSources + second.getStatistics().get("cluster.ownedSources").intValue()).isEqualTo(10);
+
+        second.stop();
+
+        await(() -> first.getNumberOfActiveTasks() == 10);
+        assertThat(first.getStatistics()).contains(
+            entry("cluster.members", 1),
+            entry("cluster.ownedSources", 10)
+        );
+        assertThat(second.getNumberOfActiveTasks()).isZero();
+        assertThat(second.getStatistics()).contains(entry("cluster.ownedSources", 0));
+        // Let scrapes that were in flight during the rebalance complete
+        Thread.sleep(50);
+        scrapedBy.clear();
+        Thread.sleep(100);
+        assertThat(scrapedBy).hasSize(10);
+        assertThat(scrapedBy.values()).allSatisfy(nodes -> assertThat(nodes).containsExactly("first"));
+        first.stop();
+    }
+
+    private ScrapeJob job() throws Exception {
+        lenient().when(mockDevice.read(anyString())).then(invocation -> Pair.of(PlcResponseCode.OK, new DefaultStringFieldItem(invocation.<String>getArgument(0))));
+        Map<String, String> connections = new LinkedHashMap<>();
+        for (int i = 0; i < 10; i++) {
+            connections.put("device" + i, "mock:shard" + i);
+            ((PlcMockConnection) driverManager.getConnection("mock:shard" + i)).setDevice(mockDevice);
+        }
+        return new TriggeredScrapeJobImpl("job", "(SCHEDULED,10)", connections, Collections.singletonMap("field", "A"));
+    }
+
+    private void await(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 200 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    private static ResultHandler recordingHandler(String node, Map<String, Set<String>> scrapedBy) {
+        return (job, alias, fields) -> scrapedBy.computeIfAbsent(alias, key -> ConcurrentHashMap.newKeySet()).add(node);
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.scraper.triggeredscraper;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.plc4x.java.PlcDriverManager;
+import org.apache.plc4x.java.api.types.PlcResponseCode;
+import org.apache.plc4x.java.base.messages.items.DefaultBooleanFieldItem;
+import org.apache.plc4x.java.base.messages.items.DefaultStringFieldItem;
+import org.apache.plc4x.java.mock.MockDevice;
+import org.apache.plc4x.java.mock.PlcMockConnection;
+import org.apache.plc4x.java.scraper.ResultHandler;
+import org.apache.plc4x.java.scraper.exception.ScraperException;
+import org.assertj.core.api.WithAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TriggeredScrapeGroupTest implements WithAssertions {
+
+    private final PlcDriverManager driverManager = new PlcDriverManager();
+
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+    private final Map<String, Map<String, Object>> results = new ConcurrentHashMap<>();
+
+    private final ResultHandler resultHandler = (job, alias, fields) -> results.put(job, fields);
+
+    @Mock
+    MockDevice mockDevice;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        PlcMockConnection connection = (PlcMockConnection) driverManager.getConnection("mock:merge");
+        connection.setDevice(mockDevice);
+    }
+
+    @Test
+    void groupsHarmonicRatesPerConnection() throws Exception {
+        TriggeredScraperTask fast = task("fast", "mock:merge", 100, Collections.singletonMap("a", "A"));
+        TriggeredScraperTask slow = task("slow", "mock:merge", 300, Collections.singletonMap("b", "B"));
+        TriggeredScraperTask odd = task("odd", "mock:merge", 150, Collections.singletonMap("c", "C"));
+        TriggeredScraperTask other = task("other", "mock:other", 100, Collections.singletonMap("d", "D"));
+        Map<TriggeredScraperTask, Long> rates = new LinkedHashMap<>();
+        rates.put(fast, 100L);
+        rates.put(slow, 300L);
+        rates.put(odd, 150L);
+        rates.put(other, 100L);
+
+        List<TriggeredScrapeGroup> groups = TriggeredScrapeGroup.group(rates);
+
+        assertThat(groups).hasSize(3);
+        assertThat(groups.get(0).getRateMs()).isEqualTo(100);
+        assertThat(groups.get(0).getTasks()).containsExactly(fast, slow);
+        assertThat(groups.get(1).getTasks()).containsExactly(odd);
+        assertThat(groups.get(2).getTasks()).containsExactly(other);
+    }
+
+    @Test
+    void mergesFieldsOfDueTasks() throws Exception {
+        when(mockDevice.read(anyString())).then(invocation -> Pair.of(PlcResponseCode.OK, new DefaultStringFieldItem(invocation.<String>getArgument(0))));
+        Map<String, String> fastFields = new HashMap<>();
+        fastFields.put("a", "A");
+        fastFields.put("shared", "S");
+        Map<String, String> slowFields = new HashMap<>();
+        slowFields.put("b", "B");
+        slowFields.put("alsoShared", "S");
+        Map<TriggeredScraperTask, Long> rates = new LinkedHashMap<>();
+        TriggeredScraperTask fast = task("fast", "mock:merge", 100, fastFields);
+        TriggeredScraperTask slow = task("slow", "mock:merge", 200, slowFields);
+        rates.put(fast, 100L);
+        rates.put(slow, 200L);
+        TriggeredScrapeGroup SUT = TriggeredScrapeGroup.group(rates).get(0);
+
+        // First tick, both are due and the shared field is only read once
+        SUT.scrape().get();
+        verify(mockDevice, times(3)).read(anyString());
+        // Second tick, only the fast one is due
+        SUT.scrape().get();
+        verify(mockDevice, times(5)).read(anyString());
+
+        executorService.shutdown();
+        executorService.awaitTermination(1, TimeUnit.SECONDS);
+        assertThat(results.get("fast")).containsOnly(entry("a", "A"), entry("shared", "S"));
+        assertThat(results.get("slow")).containsOnly(entry("b", "B"), entry("alsoShared", "S"));
+        assertThat(fast.getStatistics()).contains(
+            entry("requests", 2L),
+            entry("successfulRequests", 2L),
+            entry("failedRequests", 0L)
+        );
+        assertThat(slow.getRequestCounter()).isEqualTo(1);
+        assertThat(slow.getLatencies().getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void triggerIsReadOnTheScrapeConnection() throws Exception {
+        PlcDriverManager spiedDriverManager = spy(driverManager);
+        when(mockDevice.read("T")).thenReturn(
+            Pair.of(PlcResponseCode.OK, new DefaultBooleanFieldItem(true)),
+            Pair.of(PlcResponseCode.OK, new DefaultBooleanFieldItem(true)),
+            Pair.of(PlcResponseCode.OK, new DefaultBooleanFieldItem(false)),
+            Pair.of(PlcResponseCode.OK, new DefaultBooleanFieldItem(true)));
+        when(mockDevice.read("A")).thenReturn(Pair.of(PlcResponseCode.OK, new DefaultStringFieldItem("A")));
+        Map<String, String> fields = Collections.singletonMap("a", "A");
+        TriggeredScrapeJobImpl job = new TriggeredScrapeJobImpl("triggered", "(TRIGGER_VAR,100,(T)==(true))",
+            Collections.singletonMap("device", "mock:merge"), fields);
+        TriggeredScraperTask SUT = new TriggeredScraperTask(spiedDriverManager, "triggered", "device", "mock:merge", fields, 1_000,
+            executorService, resultHandler, job);
+
+        for (int i = 0; i < 4; i++) {
+            SUT.scrape().get();
+        }
+
+        // One connection per poll, the fields are only read on rising edges
+        verify(spiedDriverManager, times(4)).getConnectionAsync("mock:merge");
+        verify(mockDevice, times(2)).read("A");
+        assertThat(SUT.getRequestCounter()).isEqualTo(2);
+        assertThat(SUT.getSuccessfullRequestCounter()).isEqualTo(2);
+        assertThat(SUT.getLatencies().getCount()).isEqualTo(2);
+    }
+
+    @Test
+    void failedTriggerChecksAreNoFailedRequests() throws Exception {
+        when(mockDevice.read("T"))
+            .thenReturn(Pair.of(PlcResponseCode.NOT_FOUND, null))
+            .thenThrow(new IllegalStateException("unreachable"));
+        Map<String, String> fields = Collections.singletonMap("a", "A");
+        TriggeredScrapeJobImpl job = new TriggeredScrapeJobImpl("triggered", "(TRIGGER_VAR,100,(T)==(true))",
+            Collections.singletonMap("device", "mock:merge"), fields);
+        TriggeredScraperTask SUT = new TriggeredScraperTask(driverManager, "triggered", "device", "mock:merge", fields, 1_000,
+            executorService, resultHandler, job);
+
+        SUT.scrape().get();
+        SUT.scrape().get();
+
+        verify(mockDevice, never()).read("A");
+        assertThat(SUT.getStatistics()).contains(
+            entry("requests", 0L),
+            entry("failedRequests", 0L),
+            entry("failedTriggerChecks", 2L)
+        );
+        assertThat(SUT.getPercentageFailed()).isZero();
+    }
+
+    @Test
+    void triggerPiggybacksOnMergedRequest() throws Exception {
+        when(mockDevice.read(anyString())).then(invocation -> "T".equals(invocation.getArgument(0))
+            ? Pair.of(PlcResponseCode.OK, new DefaultBooleanFieldItem(true))
+            : Pair.of(PlcResponseCode.OK, new DefaultStringFieldItem(invocation.<String>getArgument(0))));
+        Map<TriggeredScraperTask, Long> rates = new LinkedHashMap<>();
+        rates.put(task("scheduled", "mock:merge", 100, Collections.singletonMap("a", "A")), 100L);
+        Map<String, String> triggeredFields = Collections.singletonMap("b", "B");
+        TriggeredScrapeJobImpl job = new TriggeredScrapeJobImpl("triggered", "(TRIGGER_VAR,100,(T)==(true))",
+            Collections.singletonMap("device", "mock:merge"), triggeredFields);
+        TriggeredScraperTask triggered = new TriggeredScraperTask(driverManager, "triggered", "device", "mock:merge", triggeredFields, 1_000,
+            executorService, resultHandler, job);
+        rates.put(triggered, 100L);
+        List<TriggeredScrapeGroup> groups = TriggeredScrapeGroup.group(rates);
+        assertThat(groups).hasSize(1);
+
+        groups.get(0).scrape().get();
+        groups.get(0).scrape().get();
+
+        verify(mockDevice, times(2)).read("T");
+        // The fields are only read on the rising edge
+        verify(mockDevice, times(1)).read("B");
+        assertThat(triggered.getRequestCounter()).isEqualTo(1);
+        executorService.shutdown();
+        executorService.awaitTermination(1, TimeUnit.SECONDS);
+        assertThat(results.get("triggered")).containsOnly(entry("b", "B"));
+    }
+
+    @Test
+    void triggeredFieldsAreTakenFromDueRequest() throws Exception {
+        PlcDriverManager spiedDriverManager = spy(driverManager);
+        when(mockDevice.read(anyString())).then(invocation -> "T".equals(invocation.getArgument(0))
+            ? Pair.of(PlcResponseCode.OK, new DefaultBooleanFieldItem(true))
+            : Pair.of(PlcResponseCode.OK, new DefaultStringFieldItem(invocation.<String>getArgument(0))));
+        Map<TriggeredScraperTask, Long> rates = new LinkedHashMap<>();
+        TriggeredScrapeJobImpl scheduledJob = new TriggeredScrapeJobImpl("scheduled", "(SCHEDULED,100)",
+            Collections.singletonMap("device", "mock:merge"), Collections.singletonMap("a", "A"));
+        rates.put(new TriggeredScraperTask(spiedDriverManager, "scheduled", "device", "mock:merge", Collections.singletonMap("a", "A"), 1_000,
+            executorService, resultHandler, scheduledJob), 100L);
+        Map<String, String> triggeredFields = Collections.singletonMap("alsoA", "A");
+        TriggeredScrapeJobImpl job = new TriggeredScrapeJobImpl("triggered", "(TRIGGER_VAR,100,(T)==(true))",
+            Collections.singletonMap("device", "mock:merge"), triggeredFields);
+        TriggeredScraperTask triggered = new TriggeredScraperTask(spiedDriverManager, "triggered", "device", "mock:merge", triggeredFields, 1_000,
+            executorService, resultHandler, job);
+        rates.put(triggered, 100L);
+
+        TriggeredScrapeGroup.group(rates).get(0).scrape().get();
+
+        // The rising edge is handled with the merged request which reads the field anyway
+        verify(spiedDriverManager, times(1)).getConnectionAsync("mock:merge");
+        verify(mockDevice, times(1)).read("A");
+        assertThat(triggered.getRequestCounter()).isEqualTo(1);
+        executorService.shutdown();
+        executorService.awaitTermination(1, TimeUnit.SECONDS);
+        assertThat(results.get("triggered")).containsOnly(entry("alsoA", "A"));
+    }
+
+    private TriggeredScraperTask task(String jobName, String connectionString, long rate, Map<String, String> fields) throws ScraperException {
+        TriggeredScrapeJobImpl job = new TriggeredScrapeJobImpl(jobName, "(SCHEDULED," + rate + ")",
+            Collections.singletonMap("device", connectionString), fields);
+        return new TriggeredScraperTask(driverManager, jobName, "device", connectionString, fields, 1_000,
+            executorService, resultHandler, job);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.scraper.triggeredscraper;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.plc4x.java.PlcDriverManager;
+import org.apache.plc4x.java.api.types.PlcResponseCode;
+import org.apache.plc4x.java.base.messages.items.DefaultStringFieldItem;
+import org.apache.plc4x.java.mock.MockDevice;
+import org.apache.plc4x.java.mock.PlcMockConnection;
+import org.apache.plc4x.java.scraper.ScrapeJob;
+import org.apache.plc4x.java.scraper.exception.ScraperException;
+import org.assertj.core.api.WithAssertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+class TriggeredScraperImplTest implements WithAssertions {
+
+    private final PlcDriverManager driverManager = new PlcDriverManager();
+
+    @Mock
+    MockDevice mockDevice;
+
+    private TriggeredScraperImpl SUT;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        lenient().when(mockDevice.read(anyString())).then(invocation -> Pair.of(PlcResponseCode.OK, new DefaultStringFieldItem(invocation.<String>getArgument(0))));
+        ((PlcMockConnection) driverManager.getConnection("mock:reload")).setDevice(mockDevice);
+        ((PlcMockConnection) driverManager.getConnection("mock:changed")).setDevice(mockDevice);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (SUT != null) {
+            SUT.stop();
+        }
+    }
+
+    @Test
+    void reconfigureOnlyReschedulesChangedTasks() throws Exception {
+        SUT = new TriggeredScraperImpl((job, alias, fields) -> {
+        }, driverManager, Arrays.asList(job("kept", "mock:reload", "A"), job("changed", "mock:changed", "B")));
+        SUT.start();
+        awaitRequests("kept/device.requests", 3);
+        awaitRequests("changed/device.requests", 3);
+        long changedRequests = SUT.getStatistics().get("changed/device.requests").longValue();
+        long keptRequests = SUT.getStatistics().get("kept/device.requests").longValue();
+
+        int changes = SUT.reconfigure(Arrays.asList(job("kept", "mock:reload", "A"), job("changed", "mock:changed", "C")));
+
+        // One task removed and one added, the unchanged task keeps running with its statistics
+        assertThat(changes).isEqualTo(2);
+        assertThat(SUT.getNumberOfActiveTasks()).isEqualTo(2);
+        assertThat(SUT.getStatistics().get("kept/device.requests").longValue()).isGreaterThanOrEqualTo(keptRequests);
+        assertThat(SUT.getStatistics().get("changed/device.requests").longValue()).isLessThan(changedRequests);
+        awaitRequests("changed/device.requests", 1);
+    }
+
+    @Test
+    void reconfigureWithoutChanges() throws Exception {
+        SUT = new TriggeredScraperImpl((job, alias, fields) -> {
+        }, driverManager, Collections.singletonList(job("kept", "mock:reload", "A")));
+        SUT.start();
+
+        assertThat(SUT.reconfigure(Collections.singletonList(job("kept", "mock:reload", "A")))).isZero();
+        assertThat(SUT.getNumberOfActiveTasks()).isEqualTo(1);
+    }
+
+    @Test
+    void stopClosesOnlyOwnScheduler() throws Exception {
+        SUT = new TriggeredScraperImpl((job, alias, fields) -> {
+        }, driverManager, Collections.singletonList(job("kept", "mock:reload", "A")));
+        SUT.start();
+        SUT.stop();
+
+        // A restart uses a new scheduler
+        SUT.start();
+        awaitRequests("kept/device.requests", 1);
+        SUT.stop();
+
+        try (ScrapeScheduler scheduler = new ScrapeScheduler()) {
+            SUT = new TriggeredScraperImpl((job, alias, fields) -> {
+            }, driverManager, Collections.singletonList(job("kept", "mock:reload", "A")), scheduler);
+            SUT.start();
+            assertThat(scheduler.getNumberOfScheduledScrapes()).isEqualTo(1);
+            SUT.stop();
+
+            // The injected scheduler is still usable
+            assertThat(scheduler.getNumberOfScheduledScrapes()).isZero();
+            scheduler.schedule("other", () -> CompletableFuture.completedFuture(null), 10).cancel();
+        }
+    }
+
+    private void awaitRequests(String key, long minimum) throws InterruptedException {
+        for (int i = 0; i < 200 && SUT.getStatistics().getOrDefault(key, 0L).longValue() < minimum; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(SUT.getStatistics().get(key).longValue()).isGreaterThanOrEqualTo(minimum);
+    }
+
+    private static ScrapeJob job(String jobName, String connectionString, String fieldQuery) throws ScraperException {
+        return new TriggeredScrapeJobImpl(jobName, "(SCHEDULED,10)",
+            Collections.singletonMap("device", connectionString), Collections.singletonMap("field", fieldQuery));
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.scraper.triggeredscraper.cluster;
+
+import org.assertj.core.api.WithAssertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+class ConsistentHashRingTest implements WithAssertions {
+
+    @Test
+    void balancesKeys() {
+        ConsistentHashRing SUT = new ConsistentHashRing(Arrays.asList("a", "b", "c"));
+
+        Map<String, Integer> keysPerNode = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            keysPerNode.merge(SUT.getNode("s7://10.0.0." + i), 1, Integer::sum);
+        }
+
+        assertThat(keysPerNode).containsOnlyKeys("a", "b", "c");
+        assertThat(keysPerNode.values()).allSatisfy(keys -> assertThat(keys).isBetween(700, 1300));
+    }
+
+    @Test
+    void onlyKeysOfJoiningNodeMove() {
+        ConsistentHashRing before = new ConsistentHashRing(Arrays.asList("a", "b", "c"));
+        ConsistentHashRing after = new ConsistentHashRing(Arrays.asList("a", "b", "c", "d"));
+
+        int moved = 0;
+        for (int i = 0; i < 3000; i++) {
+            String key = "s7://10.0.0." + i;
+            if (!before.getNode(key).equals(after.getNode(key))) {
+                assertThat(after.getNode(key)).isEqualTo("d");
+                moved++;
+            }
+        }
+        assertThat(moved).isBetween(500, 1000);
+    }
+
+    @Test
+    void emptyRing() {
+        assertThat(new ConsistentHashRing(Collections.emptyList()).getNode("key")).isNull();
+    }
+}
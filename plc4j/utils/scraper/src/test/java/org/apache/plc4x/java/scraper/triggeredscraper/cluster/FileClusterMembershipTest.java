@@ -0,0 +1,135 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one or more
+ contributor license agreements.  See the NOTICE file distributed with
+ this work for additional information regarding copyright ownership.
+ The ASF licenses this file to You under the Apache License, Version 2.0
+ (the "License"); you may not use this file except in compliance with
+ the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+package org.apache.plc4x.java.scraper.triggeredscraper.cluster;
+
+import org.assertj.core.api.WithAssertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class FileClusterMembershipTest implements WithAssertions {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void joinAndLeave() throws Exception {
+        FileClusterMembership first = new FileClusterMembership(directory, "first", 300);
+        FileClusterMembership second = new FileClusterMembership(directory, "second", 300);
+        CopyOnWriteArrayList<Set<String>> changes = new CopyOnWriteArrayList<>();
+        first.addListener(changes::add);
+
+        // The listeners are notified asynchronously and only with the latest members, so every change is awaited
+        first.join();
+        awaitChanges(changes, 1);
+        second.join();
+        assertThat(second.getMembers()).containsExactly("first", "second");
+        awaitMembers(first, 2);
+        awaitChanges(changes, 2);
+
+        second.leave();
+        assertThat(second.getMembers()).isEmpty();
+        awaitMembers(first, 1);
+        awaitChanges(changes, 3);
+        first.leave();
+        awaitChanges(changes, 4);
+
+        assertThat(changes).extracting(Set::size).containsExactly(1, 2, 1, 0);
+    }
+
+    @Test
+    void slowListenerDoesNotDelayRenewal() throws Exception {
+        FileClusterMembership first = new FileClusterMembership(directory, "first", 300);
+        FileClusterMembership second = new FileClusterMembership(directory, "second", 300);
+        CountDownLatch release = new CountDownLatch(1);
+        CopyOnWriteArrayList<Set<String>> changes = new CopyOnWriteArrayList<>();
+        first.addListener(members -> {
+            changes.add(members);
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        CompletableFuture.runAsync(first::join).get(1, TimeUnit.SECONDS);
+        second.join();
+        // Renewals go on while the listener blocks
+        awaitMembers(first, 2);
+        Thread.sleep(300);
+        assertThat(second.getMembers()).containsExactly("first", "second");
+        release.countDown();
+
+        // The listener gets the latest members once it's done
+        awaitChanges(changes, 2);
+        assertThat(changes).extracting(Set::size).containsExactly(1, 2);
+        second.leave();
+        first.leave();
+    }
+
+    @Test
+    void expiredLeasesAreDropped() throws Exception {
+        // A crashed node that didn't renew its lease
+        Files.write(directory.resolve("crashed.lease"), Long.toString(System.currentTimeMillis() + 200).getBytes(StandardCharsets.UTF_8));
+        FileClusterMembership SUT = new FileClusterMembership(directory, "alive", 300);
+
+        SUT.join();
+        assertThat(SUT.getMembers()).containsExactly("alive", "crashed");
+        awaitMembers(SUT, 1);
+        assertThat(SUT.getMembers()).containsExactly("alive");
+        SUT.leave();
+    }
+
+    @Test
+    void leaseStaysReleasedAfterLeave() throws Exception {
+        FileClusterMembership SUT = new FileClusterMembership(directory, "node", 30);
+
+        for (int i = 0; i < 3; i++) {
+            SUT.join();
+            // Let some renewals happen
+            Thread.sleep(25);
+            SUT.leave();
+            assertThat(directory.resolve("node.lease")).doesNotExist();
+        }
+        // No renewal rewrites the lease once left
+        Thread.sleep(50);
+        assertThat(directory.resolve("node.lease")).doesNotExist();
+    }
+
+    private static void awaitChanges(List<Set<String>> changes, int count) throws InterruptedException {
+        for (int i = 0; i < 100 && changes.size() < count; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void awaitMembers(ClusterMembership membership, int members) throws InterruptedException {
+        for (int i = 0; i < 100 && membership.getMembers().size() != members; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(membership.getMembers()).hasSize(members);
+    }
+}
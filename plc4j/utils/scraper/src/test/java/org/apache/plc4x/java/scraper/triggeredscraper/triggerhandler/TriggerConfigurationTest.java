@@ -52,7 +52,10 @@ class TriggerConfigurationTest {
             Arguments.of("(S7_TRIGGER_VAR,50,(%DB111:DBD10:REAL)>(33.3))",TriggerConfiguration.TriggerType.S7_TRIGGER_VAR, 50, TriggerConfiguration.Comparators.GREATER, 33.3),
             Arguments.of("(S7_TRIGGER_VAR,50,(%DB111:DBD10:REAL)>(33.3))",TriggerConfiguration.TriggerType.S7_TRIGGER_VAR, 50, TriggerConfiguration.Comparators.GREATER, 33.3),
             Arguments.of("(S7_TRIGGER_VAR,50,(%DB111:DBD10:REAL)>(-1))",TriggerConfiguration.TriggerType.S7_TRIGGER_VAR, 50, TriggerConfiguration.Comparators.GREATER, -1.0),
-            Arguments.of("(SCHEDULED,1000)",TriggerConfiguration.TriggerType.SCHEDULED, 1000, null, null)
+            Arguments.of("(SCHEDULED,1000)",TriggerConfiguration.TriggerType.SCHEDULED, 1000, null, null),
+            Arguments.of("(TRIGGER_VAR,50,(coil:1)==(true))",TriggerConfiguration.TriggerType.TRIGGER_VAR, 50, TriggerConfiguration.Comparators.EQUAL, true),
+            Arguments.of("(TRIGGER_VAR,50,(readholdingregisters:49100)>(-1.5))",TriggerConfiguration.TriggerType.TRIGGER_VAR, 50, TriggerConfiguration.Comparators.GREATER, -1.5),
+            Arguments.of("(TRIGGER_VAR,50,(%DB111:DBW10:INT)!=(0))",TriggerConfiguration.TriggerType.TRIGGER_VAR, 50, TriggerConfiguration.Comparators.UNEQUAL, 0.0)
         );
     }
 
@@ -69,7 +72,10 @@ class TriggerConfigurationTest {
             Arguments.of("(S7_TRIGGER_VAR,50,(%DB111:DBX10.1:BOOL)<=(true))"),
             Arguments.of("(S7_TRIGGER_VAR,50,(%DB111:DBW10:INT)<=(true))"),
             Arguments.of("(MODBUS_TRIGGER_VAR,50)"),
-            Arguments.of("(MODBUS_TRIGGER_VAR,50,(%DB111:DBW10:INT)<=(11))")
+            Arguments.of("(MODBUS_TRIGGER_VAR,50,(%DB111:DBW10:INT)<=(11))"),
+            Arguments.of("(TRIGGER_VAR,50)"),
+            Arguments.of("(TRIGGER_VAR,50,(coil:1)<(true))"),
+            Arguments.of("(TRIGGER_VAR,50,(coil:1)==(on))")
         );
     }
 